@@ -42,7 +42,7 @@ import gps.games.wrapper.Action;
 import gps.optimization.IOptimizationResult;
 import gps.optimization.OptimizationModule;
 import gps.optimization.OptimizationReturn;
-import gps.util.reflections.ReflectionsHelper;
+import gps.util.registry.ClassRegistry;
 
 /**
  * The Generic Problem Solver.
@@ -63,8 +63,8 @@ public class GPS<T>
 
     static {
         @SuppressWarnings("rawtypes")
-        final Set<Class<? extends ISolverModule>> subTypes = ReflectionsHelper
-                .getSubTypesOfCached("gps", ISolverModule.class);
+        final Set<Class<? extends ISolverModule>> subTypes = ClassRegistry
+                .getSubTypesOf("gps", ISolverModule.class);
         solverModuleClasses.addAll(subTypes);
     }
 
@@ -156,8 +156,8 @@ public class GPS<T>
      */
     private static <T> boolean containsGPSAnnotations(final T object) {
         final Class<? extends Object> clazz = object.getClass();
-        for (Class<? extends Annotation> annotCla : ReflectionsHelper
-                .getSubTypesOfCached("gps.annotations", Annotation.class)) {
+        for (Class<? extends Annotation> annotCla : ClassRegistry
+                .getSubTypesOf("gps.annotations", Annotation.class)) {
             final Annotation[] usedAnnotations = clazz
                     .getAnnotationsByType(annotCla);
             if (usedAnnotations.length != 0) {
@@ -320,6 +320,19 @@ public class GPS<T>
                 .forEach(e -> e.setDepthlimit(pMaxdepth));
     }
 
+    /**
+     * Let the game analysis simulate paths until its estimates have
+     * converged instead of simulating a fixed amount of paths.
+     * 
+     * @param pTimeBudget
+     *            The maximum time the analysis may use in milliseconds.
+     *            Non-positive to simulate a fixed amount of paths.
+     */
+    public void setAdaptiveAnalysis(long pTimeBudget) {
+        findSuitableSolvers(GamesModule.class)
+                .forEach(e -> e.setAdaptiveAnalysis(pTimeBudget));
+    }
+
     /**
      * Set the memory saving mode that is used when creating clones of game
      * states.
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.common;
+
+import java.util.Arrays;
+
+import gps.util.KryoHelper;
+
+/**
+ * Creates instances of one variant of an algorithm, that is an algorithm class
+ * together with one combination of its options. Factories are created by
+ * {@link AlgorithmUtility#getAlgorithmFactories(Class, gps.ResultEnum, Object...)}.
+ *
+ * @param <T>
+ *            The type of the algorithms created.
+ */
+public final class AlgorithmFactory<T extends AbstractAlgorithm> {
+
+    /**
+     * The name of the algorithms created by this factory.
+     */
+    private final String name;
+
+    /**
+     * The class of the algorithms.
+     */
+    private final Class<? extends T> algorithmClass;
+
+    /**
+     * The options that are passed to the constructor. Copied for every
+     * instance.
+     */
+    private final Object[] options;
+
+    /**
+     * Creates a factory.
+     *
+     * @param pName
+     *            The name of the algorithms created by this factory.
+     * @param pClass
+     *            The class of the algorithms.
+     * @param pOptions
+     *            The options that are passed to the constructor after the base
+     *            arguments. May be empty.
+     */
+    AlgorithmFactory(final String pName, final Class<? extends T> pClass,
+            final Object[] pOptions) {
+        name = pName;
+        algorithmClass = pClass;
+        options = pOptions;
+    }
+
+    /**
+     * Returns the name of the algorithms created by this factory.
+     *
+     * @return The name as returned by {@link AbstractAlgorithm#getName()}.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the class of the algorithms created by this factory.
+     *
+     * @return The class.
+     */
+    public Class<? extends T> getAlgorithmClass() {
+        return algorithmClass;
+    }
+
+    /**
+     * Creates a new instance of the algorithm.
+     *
+     * @param baseArgs
+     *            The base arguments that are passed to the algorithm. Are not
+     *            copied.
+     * @return The new instance.
+     * @throws RuntimeException
+     *             if the algorithm can not be instantiated.
+     */
+    public T instantiate(final Object... baseArgs) {
+        final Object[] copy = Arrays.copyOf(options, options.length);
+        for (int i = 0; i < copy.length; i++) {
+            try {
+                copy[i] = KryoHelper.deepCopy(copy[i]);
+            } catch (NoClassDefFoundError e) {
+                // Happens for lambda classes. We do not need to copy these
+                // lambdas anyway since they wont change. So we ignore this.
+            }
+        }
+        return AlgorithmUtility.instantiateAlgorithm(algorithmClass, baseArgs,
+                copy);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -24,6 +24,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -31,7 +32,7 @@ import java.util.stream.Stream;
 
 import gps.ResultEnum;
 import gps.util.KryoHelper;
-import gps.util.reflections.ReflectionsHelper;
+import gps.util.registry.ClassRegistry;
 
 /**
  * Provides utility functions for determining applicable algorithms
@@ -52,7 +53,9 @@ public class AlgorithmUtility {
     }
 
     /**
-     * Get all algorithm classes that are implemented in the GPS.
+     * Get all algorithm classes that are implemented in the GPS. The classes
+     * are taken from the registry of {@link AbstractAlgorithm}, so that no
+     * registry is needed for the given class.
      * 
      * @param pClass
      *            The class that the algorithms must implement that are returned
@@ -62,9 +65,10 @@ public class AlgorithmUtility {
      */
     public static <T extends AbstractAlgorithm> List<Class<? extends T>> getAllAlgorithms(
             Class<T> pClass) {
-        final Set<Class<? extends T>> subTypes = ReflectionsHelper
-                .getSubTypesOfCached("gps.*", pClass);
-        return subTypes.stream()
+        final Set<Class<? extends AbstractAlgorithm>> subTypes = ClassRegistry
+                .getSubTypesOf("gps.*", AbstractAlgorithm.class);
+        return subTypes.stream().filter(pClass::isAssignableFrom)
+                .<Class<? extends T>> map(p -> p.asSubclass(pClass))
                 .filter(p -> !Modifier.isAbstract(p.getModifiers())
                         && !p.isInterface())
                 .sorted((x, y) -> x.getCanonicalName()
@@ -192,7 +196,65 @@ public class AlgorithmUtility {
      */
     public static <T extends AbstractAlgorithm> List<? extends T> instantiateAllAlgorithms(
             Class<T> pClass, ResultEnum resultType, Object... baseArgs) {
-        List<T> algos = new ArrayList<>();
+        final List<T> algos = new ArrayList<>();
+        forEachAlgorithm(pClass, resultType, baseArgs,
+                (instance, options) -> algos.add(instance));
+        LOGGER.finer("instantiate all algorithms done .." + algos.size()
+                + " algorithms have been loaded");
+        return algos;
+    }
+
+    /**
+     * Get a factory for every algorithm variant that supports the given result
+     * type. The algorithms are instantiated once with the given base arguments
+     * to determine their names and whether they are applicable. The factories
+     * are sorted by the names of the algorithms, which is the order of the
+     * output vector of the neuronal networks.
+     * 
+     * @param pClass
+     *            The class that all algorithms must implement.
+     * @param resultType
+     *            The result type the algorithm must support. May be
+     *            {@code null} if any result type is desired.
+     * @param baseArgs
+     *            The base arguments that are passed to the algorithms.
+     * 
+     * @return The factories sorted by the names of the algorithms.
+     */
+    public static <T extends AbstractAlgorithm> List<AlgorithmFactory<T>> getAlgorithmFactories(
+            Class<T> pClass, ResultEnum resultType, Object... baseArgs) {
+        final List<AlgorithmFactory<T>> factories = new ArrayList<>();
+        forEachAlgorithm(pClass, resultType, baseArgs,
+                (instance, options) -> {
+                    @SuppressWarnings("unchecked")
+                    final Class<? extends T> c = (Class<? extends T>) instance
+                            .getClass();
+                    factories.add(new AlgorithmFactory<T>(instance.getName(),
+                            c, options));
+                });
+        factories.sort((x, y) -> x.getName().compareTo(y.getName()));
+        return factories;
+    }
+
+    /**
+     * Instantiates all algorithms like
+     * {@link #instantiateAllAlgorithms(Class, ResultEnum, Object...)} and
+     * passes every instance together with the options used to construct it to
+     * the consumer.
+     * 
+     * @param pClass
+     *            The class that all algorithms must implement.
+     * @param resultType
+     *            The result type the algorithm must support. May be
+     *            {@code null} if any result type is desired.
+     * @param baseArgs
+     *            The base arguments that are passed to the algorithms.
+     * @param consumer
+     *            Receives the instances and their options.
+     */
+    private static <T extends AbstractAlgorithm> void forEachAlgorithm(
+            Class<T> pClass, ResultEnum resultType, Object[] baseArgs,
+            BiConsumer<T, Object[]> consumer) {
         // Get classes of arguments
         final Class<?>[] baseArgClasses = Arrays.stream(baseArgs)
                 .map(m -> m == null ? null : m.getClass())
@@ -215,7 +277,7 @@ public class AlgorithmUtility {
                     if (resultType == null
                             || algoInstance.isApplicable(resultType)) {
                         // only add if algorithm supports desired result type
-                        algos.add(algoInstance);
+                        consumer.accept(algoInstance, new Object[0]);
                     }
                 } else {
                     // Algorithm provides options
@@ -267,7 +329,7 @@ public class AlgorithmUtility {
                                         .newInstance(params);
                         if (resultType == null
                                 || instance.isApplicable(resultType)) {
-                            algos.add(instance);
+                            consumer.accept(instance, set);
                         }
                     }
                 }
@@ -277,9 +339,6 @@ public class AlgorithmUtility {
                         ex);
             }
         });
-        LOGGER.finer("instantiate all algorithms done .." + algos.size()
-                + " algorithms have been loaded");
-        return algos;
     }
 
     /**
@@ -314,16 +373,11 @@ public class AlgorithmUtility {
                 .map(m -> m == null ? null : m.getClass())
                 .toArray(i -> new Class<?>[i]);
         try {
-            Constructor<? extends T> con = findCompatibleConstructor(pClass,
-                    baseArgClasses);
-
-            // Construct algorithm
-            final T algoInstance = con.newInstance(baseArgs);
-
             // Checking options
             if (options == null || options.length == 0) {
-                // This algorithm does not feature options. We can keep it.
-                return algoInstance;
+                // This algorithm does not feature options.
+                return findCompatibleConstructor(pClass, baseArgClasses)
+                        .newInstance(baseArgs);
             } else {
                 // copy all arguments and store them in an array
                 final Stream<Object> argCopy = Arrays.stream(baseArgs);
@@ -85,6 +85,10 @@ public class Benchmark implements IBenchmark {
             return Optional.of(numberOfSimulations);
         case BEST_MOVE_HEURISTIC:
             return bestMoveHeuristic;
+        case HEURISTIC_CACHE_HIT_RATE:
+            return Optional.of(heuristicCacheHitRate);
+        case OMISSION_PROBABILITY:
+            return Optional.of(omissionProbability);
         }
         throw new UnsupportedOperationException("the field " + field.toString()
                 + " is not covered by the getField() method.");
@@ -128,6 +132,22 @@ public class Benchmark implements IBenchmark {
      */
     public Optional<? extends Number> bestMoveHeuristic = Optional.empty();
 
+    /**
+     * The share of heuristic evaluations that have been answered by the cache
+     * of the search.
+     *
+     * Refers to {@link BenchmarkField#HEURISTIC_CACHE_HIT_RATE}
+     */
+    public double heuristicCacheHitRate = 0;
+
+    /**
+     * The probability that a state has been omitted by the approximate set of
+     * visited states of the search.
+     *
+     * Refers to {@link BenchmarkField#OMISSION_PROBABILITY}
+     */
+    public double omissionProbability = 0;
+
     /**
      * The depth of the game tree at it deepest point.
      *
@@ -82,6 +82,21 @@ public enum BenchmarkField {
     // depth as possible.
     BEST_MOVE_HEURISTIC,
 
+    /**
+     * The share of the heuristic evaluations of a search that have been
+     * answered by its {@link gps.games.wrapper.successor.NodeEvaluationCache}
+     * instead of evaluating the node again. Between 0 and 1.
+     */
+    HEURISTIC_CACHE_HIT_RATE,
+
+    /**
+     * The probability that a state has been omitted by a search with an
+     * approximate set of visited states, see
+     * {@link gps.games.util.BitstateSet#omissionProbability()}. Between 0 and
+     * 1.
+     */
+    OMISSION_PROBABILITY,
+
     //////////////////////////////////
     // Optimization
     //////////////////////////////////
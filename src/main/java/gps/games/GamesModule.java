@@ -20,26 +20,27 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 import org.neuroph.core.NeuralNetwork;
 
 import gps.ISolverModule;
 import gps.IWrappedProblem;
 import gps.ResultEnum;
+import gps.common.AlgorithmFactory;
 import gps.common.AlgorithmUtility;
 import gps.games.algorithm.AbstractGameAlgorithm;
 import gps.games.algorithm.analysis.GameAnalyser;
 import gps.games.algorithm.analysis.GameAnalysisResult;
 import gps.games.algorithm.analysis.IGameAnalysisResult;
-import gps.games.util.AlgorithmComparator;
+import gps.games.util.FeedForwardNetwork;
 import gps.games.wrapper.Action;
 import gps.games.wrapper.Game;
 import gps.games.wrapper.Player;
@@ -256,11 +257,100 @@ public class GamesModule<T> implements ISolverModule<T>, IGameResult<T> {
      */
     private Optional<AbstractGameAlgorithm<T>> lastUsedAlgorithm = Optional
             .empty();
+    /**
+     * The neuronal networks of the classifier, loaded once per result type.
+     */
+    private static final Map<ResultEnum, FeedForwardNetwork> NETWORKS = new ConcurrentHashMap<>();
+
+    /**
+     * The algorithm factories for every result type, sorted by algorithm name
+     * like the output vector of the neuronal networks.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final Map<ResultEnum, List<AlgorithmFactory<AbstractGameAlgorithm>>> FACTORIES = new ConcurrentHashMap<>();
+
+    /**
+     * Get the neuronal network for the given result type. The network is
+     * loaded from the resources on first use and exported to a
+     * {@link FeedForwardNetwork}.
+     * 
+     * @param resType
+     *            The result type.
+     * @return The network.
+     * @throws RuntimeException
+     *             if the network can not be loaded.
+     */
+    private static FeedForwardNetwork getNetwork(final ResultEnum resType) {
+        return NETWORKS.computeIfAbsent(resType, r -> {
+            URL s = ClassLoader.getSystemClassLoader()
+                    .getResource("nn/" + r.toString() + ".nnet");
+            if (s == null) {
+                throw new RuntimeException("getResourceAsStream returned null");
+            }
+            try (InputStream is = s.openStream()) {
+                return FeedForwardNetwork.of(NeuralNetwork.load(is));
+            } catch (IOException e) {
+                throw new RuntimeException(
+                        "Classification failed due to IOException", e);
+            }
+        });
+    }
+
+    /**
+     * Get the factories of all algorithms that may solve the given result
+     * type, sorted by name. They are determined once using a dummy module,
+     * the same way the neuronal networks are built by BUTT.
+     * 
+     * @param resType
+     *            The result type.
+     * @return The sorted factories.
+     */
+    @SuppressWarnings("rawtypes")
+    private static List<AlgorithmFactory<AbstractGameAlgorithm>> getFactories(
+            final ResultEnum resType) {
+        return FACTORIES.computeIfAbsent(resType,
+                r -> AlgorithmUtility.getAlgorithmFactories(
+                        AbstractGameAlgorithm.class, r, createDummy()));
+    }
+
     /**
      * Map used by the classifier. TODO tobi move to a separate class?
      */
     private Map<ResultEnum, AbstractGameAlgorithm<T>> classifierResult = new HashMap<>();
 
+    /**
+     * The factories of the algorithms that the modules this module has been
+     * created from with {@link #withGame(Game)} chose for each result type.
+     * The algorithms are instantiated again for this module, so that a later
+     * state of the game is neither classified nor raced again.
+     */
+    @SuppressWarnings("rawtypes")
+    private final Map<ResultEnum, AlgorithmFactory<AbstractGameAlgorithm>> inheritedClassification = new HashMap<>();
+
+    /**
+     * The factories of the algorithms instantiated by this module.
+     */
+    @SuppressWarnings("rawtypes")
+    private final Map<AbstractGameAlgorithm<T>, AlgorithmFactory<AbstractGameAlgorithm>> origins = new IdentityHashMap<>();
+
+    /**
+     * Weight of the win rate in portfolio races that is added to the score of
+     * an algorithm when ranking the algorithms.
+     */
+    private static final double PORTFOLIO_WIN_WEIGHT = 0.25;
+
+    /**
+     * The number of algorithms that are raced against each other. If
+     * {@code 1} only the classified algorithm is used.
+     */
+    private int portfolioSize = 1;
+
+    /**
+     * The time limit of a portfolio race in milliseconds. Non-positive if
+     * there is none.
+     */
+    private long portfolioTimeLimit = 0;
+
     /**
      * Get the best algorithm for the given problem and result type.
      * 
@@ -271,7 +361,6 @@ public class GamesModule<T> implements ISolverModule<T>, IGameResult<T> {
      *             if none can be found.
      * 
      */
-    @SuppressWarnings("unchecked")
     public AbstractGameAlgorithm<T> classify(final ResultEnum resType) {
         if (forceAlgorithm != null) {
             return forceAlgorithm;
@@ -283,99 +372,246 @@ public class GamesModule<T> implements ISolverModule<T>, IGameResult<T> {
             if (a != null) {
                 return a;
             }
-
-            // get input vector
-            final Optional<? extends IGameAnalysisResult> ad = gameAnalysis();
-
-            if (!ad.isPresent()) {
-                throw new RuntimeException(
-                        "Cannot classify without analysis data");
+            a = inherit(resType);
+            if (a == null) {
+                a = rank(resType, 1).get(0).getY();
             }
+            // add the algorithm to the map so that we can remember out
+            // decision
+            classifierResult.put(resType, a);
+            forgetUnused();
+            return a;
+        } finally {
+            lastUsedAlgorithm = Optional.ofNullable(a);
+        }
+    }
 
-            final double[] vector = Arrays
-                    .stream(ad.get().getClassificationVector())
-                    .mapToDouble(m -> m).toArray();
+    /**
+     * Use the algorithms of the given factory for the given result type
+     * instead of classifying the game, like a module created with
+     * {@link #withGame(Game)} does.
+     * 
+     * @param resType
+     *            The result type.
+     * @param pFactory
+     *            The factory of the algorithm.
+     */
+    @SuppressWarnings("rawtypes")
+    public void inheritClassification(final ResultEnum resType,
+            final AlgorithmFactory<AbstractGameAlgorithm> pFactory) {
+        inheritedClassification.put(resType, pFactory);
+    }
 
-            // load neuronal network
-            URL s = ClassLoader.getSystemClassLoader()
-                    .getResource("nn/" + resType.toString() + ".nnet");
-            if (s == null) {
-                throw new RuntimeException("getResourceAsStream returned null");
-            }
-            final InputStream is;
-            try {
-                is = s.openStream();
-            } catch (IOException e) {
-                throw new RuntimeException(
-                        "Classification failed due to IOException", e);
-            }
+    /**
+     * Instantiate the algorithm that has been inherited for the given result
+     * type for this module.
+     * 
+     * @param resType
+     *            The result type.
+     * @return The algorithm or {@code null} if none has been inherited or it
+     *         is not applicable to the current state of the game.
+     */
+    private AbstractGameAlgorithm<T> inherit(final ResultEnum resType) {
+        if (!inheritedClassification.containsKey(resType)) {
+            return null;
+        }
+        final AbstractGameAlgorithm<T> algo = instantiate(
+                inheritedClassification.get(resType), this);
+        return algo.isApplicable(resType) ? algo : null;
+    }
 
-            @SuppressWarnings("rawtypes")
-            NeuralNetwork nn = NeuralNetwork.load(is);
+    /**
+     * Instantiate an algorithm and remember its factory, so that modules
+     * created with {@link #withGame(Game)} can instantiate it again.
+     * 
+     * @param pFactory
+     *            The factory of the algorithm.
+     * @param pModule
+     *            The module the algorithm is instantiated for.
+     * @return The algorithm.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private AbstractGameAlgorithm<T> instantiate(
+            final AlgorithmFactory<AbstractGameAlgorithm> pFactory,
+            final GamesModule<T> pModule) {
+        final AbstractGameAlgorithm<T> algo = pFactory.instantiate(pModule);
+        origins.put(algo, pFactory);
+        return algo;
+    }
 
-            // set input vector
-            nn.setInput(vector);
+    /**
+     * Forget the factories of the algorithms that have not been chosen for
+     * any result type, so that the algorithms can be collected.
+     */
+    private void forgetUnused() {
+        origins.keySet().retainAll(classifierResult.values());
+    }
 
-            // let the nn do it's calculations
-            nn.calculate();
+    /**
+     * Rank the algorithms for the given result type using the classifier.
+     * 
+     * @param resType
+     *            The type of the desired result.
+     * @param pLimit
+     *            The maximum number of algorithms to return.
+     * @return Up to {@code pLimit} algorithms that are applicable to the result
+     *         type together with their scores, highest score first. Never
+     *         empty.
+     * @throws RuntimeException
+     *             if no algorithm can be found.
+     */
+    private List<Tuple<Double, AbstractGameAlgorithm<T>>> rank(
+            final ResultEnum resType, final int pLimit) {
+        // get input vector
+        final Optional<? extends IGameAnalysisResult> ad = gameAnalysis();
 
-            // get the output
-            final double[] scores = nn.getOutput();
+        if (!ad.isPresent()) {
+            throw new RuntimeException("Cannot classify without analysis data");
+        }
 
-            // the output is formatted as the algorithm names are sorted in
-            // ascending order. Therefore we must find all algorithms that may
-            // solve the given result type
+        final Double[] classification = ad.get().getClassificationVector();
+        final double[] vector = new double[classification.length];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = classification[i];
+        }
 
-            // get all algorithms (any result type)
-            @SuppressWarnings("rawtypes")
-            List<? extends AbstractGameAlgorithm> list = AlgorithmUtility
-                    .instantiateAllAlgorithms(AbstractGameAlgorithm.class,
-                            resType, this);
+        // the cached network of the result type
+        final FeedForwardNetwork nn = getNetwork(resType);
+
+        // the output is formatted as the algorithm names are sorted in
+        // ascending order.
+        @SuppressWarnings("rawtypes")
+        final List<AlgorithmFactory<AbstractGameAlgorithm>> factories = getFactories(
+                resType);
+
+        // in case the dimension is not equal, we throw an exception. This
+        // may happen if a new algorithm is added but no neuronal network
+        // has been build for this new algorithm yet.
+        if (nn.getOutputSize() != factories.size()) {
+            LOGGER.info("scores.length=" + nn.getOutputSize() + " algos.length="
+                    + factories.size());
+            throw new RuntimeException(
+                    "The output vector of the neuronal network is not compatible with the algorithms list. Use BUTT to rebuild the neuronal network.");
+        }
 
-            // get the algorithm in order of the output layer of the neuronal
-            // network
-            AbstractGameAlgorithm<T> algos[] = list.stream()
-                    .sorted(new AlgorithmComparator())
-                    .toArray(i -> new AbstractGameAlgorithm[i]);
+        // let the nn do it's calculations
+        final double[] scores = new double[nn.getOutputSize()];
+        nn.calculate(vector, scores);
 
-            // in case the dimension is not equal, we throw an exception. This
-            // may happen if a new algorithm is added but no neuronal network
-            // has been build for this new algorithm yet.
-            if (scores.length != algos.length) {
-                LOGGER.info("scores.length=" + scores.length + " algos.length="
-                        + algos.length);
-                throw new RuntimeException(
-                        "The output vector of the neuronal network is not compatible with the algorithms list. Use BUTT to rebuild the neuronal network.");
-            }
-
-            // an ordered list with algorithms. Is ordered by score. Highest
-            // score is first.
-            final List<AbstractGameAlgorithm<T>> mappedScores = IntStream
-                    .range(0, algos.length)
-                    .mapToObj(i -> new Tuple<>(scores[i], algos[i]))
-                    // only keep algorithms that solve the given result type
-                    .filter(p -> p.getY().isApplicable(resType))
-                    // order by score highest first
-                    .sorted((o1, o2) -> Double.compare(o2.getX(), o1.getX()))
-                    .map(m -> m.getY()).collect(Collectors.toList());
-
-            // get the best algorithm
-            final Optional<AbstractGameAlgorithm<T>> best = mappedScores
-                    .isEmpty() ? Optional.empty()
-                            : Optional.of(mappedScores.get(0));
-
-            if (!best.isPresent()) {
-                throw new RuntimeException(
-                        "no algorithm can solve the given result type.");
-            }
+        // algorithms that won portfolio races for this result type before
+        // are preferred
+        final double[] ranking = new double[scores.length];
+        for (int i = 0; i < scores.length; i++) {
+            ranking[i] = scores[i] + PORTFOLIO_WIN_WEIGHT * Portfolio
+                    .getWinRate(resType, factories.get(i).getName());
+        }
 
-            // add the algorithm to the map so that we can remember out decision
-            classifierResult.put(resType, best.get());
+        // instantiate the algorithms in order of their ranking until enough
+        // of them solve the given result type for this problem. Usually the
+        // first one does.
+        final List<Tuple<Double, AbstractGameAlgorithm<T>>> ranked = new ArrayList<>();
+        final boolean[] tried = new boolean[scores.length];
+        for (int n = 0; n < scores.length && ranked.size() < pLimit; n++) {
+            int best = -1;
+            for (int i = 0; i < scores.length; i++) {
+                if (!tried[i] && (best < 0 || ranking[i] > ranking[best])) {
+                    best = i;
+                }
+            }
+            tried[best] = true;
+            final AbstractGameAlgorithm<T> algo = instantiate(
+                    factories.get(best), ranked.isEmpty() ? this : fork());
+            if (algo.isApplicable(resType)) {
+                ranked.add(new Tuple<>(scores[best], algo));
+            }
+        }
+        if (ranked.isEmpty()) {
+            throw new RuntimeException(
+                    "no algorithm can solve the given result type.");
+        }
+        return ranked;
+    }
 
-            return best.get();
-        } finally {
-            lastUsedAlgorithm = Optional.ofNullable(a);
+    /**
+     * Solve the given result type. Uses the classified algorithm or, if a
+     * portfolio has been set with {@link #setPortfolio(int, long)}, races the
+     * best ranked algorithms against each other.
+     * 
+     * @param resType
+     *            The type of the desired result.
+     * @param pQuery
+     *            Retrieves the result from an algorithm.
+     * @param pCombine
+     *            Whether the results of the portfolio are combined by score.
+     *            Otherwise the first conclusive result wins.
+     * @return The result.
+     */
+    private <R> Optional<R> solve(final ResultEnum resType,
+            final Function<? super AbstractGameAlgorithm<T>, Optional<R>> pQuery,
+            final boolean pCombine) {
+        if (portfolioSize <= 1 || forceAlgorithm != null
+                || classifierResult.containsKey(resType)) {
+            return pQuery.apply(classify(resType));
+        }
+        final AbstractGameAlgorithm<T> inherited = inherit(resType);
+        if (inherited != null) {
+            // an earlier state of the game has been raced already
+            classifierResult.put(resType, inherited);
+            return pQuery.apply(classify(resType));
+        }
+        final Portfolio<T> portfolio = new Portfolio<>(resType,
+                portfolioTimeLimit);
+        for (Tuple<Double, AbstractGameAlgorithm<T>> t : rank(resType,
+                portfolioSize)) {
+            portfolio.add(t.getY(), t.getX());
         }
+        final Optional<R> result = portfolio.race(pQuery, pCombine);
+        if (portfolio.getWinner().isPresent()) {
+            // remember the winner so that it is used for the succeeding
+            // calls
+            classifierResult.put(resType, portfolio.getWinner().get());
+        }
+        forgetUnused();
+        lastUsedAlgorithm = portfolio.getWinner();
+        return result;
+    }
+
+    /**
+     * Create a module for the same game with the same settings. The game is
+     * copied, the analysis data is shared.
+     * 
+     * @return The new module.
+     */
+    private GamesModule<T> fork() {
+        return withGame(game);
+    }
+
+    /**
+     * Create a module for another state of the same game, e.g. after moves
+     * have been made. The settings, the analysis data and the algorithms
+     * chosen by the classifier or the portfolio are kept, so the new module
+     * neither analyses nor classifies the game again. The algorithms are
+     * instantiated again for the new module.
+     * 
+     * @param pGame
+     *            The game in its new state. Is copied.
+     * @return The new module.
+     */
+    public GamesModule<T> withGame(final Game<T> pGame) {
+        final GamesModule<T> m = new GamesModule<>(pGame);
+        m.depthlimit = depthlimit;
+        m.memorySavingMode = memorySavingMode;
+        m.analyserData = analyserData;
+        m.portfolioSize = portfolioSize;
+        m.portfolioTimeLimit = portfolioTimeLimit;
+        m.analysisTimeBudget = analysisTimeBudget;
+        m.inheritedClassification.putAll(inheritedClassification);
+        classifierResult.forEach((r, a) -> {
+            if (origins.containsKey(a)) {
+                m.inheritedClassification.put(r, origins.get(a));
+            }
+        });
+        return m;
     }
 
     @Override
@@ -385,27 +621,27 @@ public class GamesModule<T> implements ISolverModule<T>, IGameResult<T> {
 
     @Override
     public Optional<List<Action>> moves() {
-        return classify(ResultEnum.MOVES).moves();
+        return solve(ResultEnum.MOVES, IGameResult::moves, false);
     }
 
     @Override
     public Optional<List<T>> stateSequence() {
-        return classify(ResultEnum.STATE_SEQ).stateSequence();
+        return solve(ResultEnum.STATE_SEQ, IGameResult::stateSequence, false);
     }
 
     @Override
     public Optional<T> terminalState() {
-        return classify(ResultEnum.TERMINAL).terminalState();
+        return solve(ResultEnum.TERMINAL, IGameResult::terminalState, false);
     }
 
     @Override
     public Optional<Action> bestMove() {
-        return classify(ResultEnum.BEST_MOVE).bestMove();
+        return solve(ResultEnum.BEST_MOVE, IGameResult::bestMove, true);
     }
 
     @Override
     public Optional<Boolean> isWinnable() {
-        return classify(ResultEnum.WINNABLE).isWinnable();
+        return solve(ResultEnum.WINNABLE, IGameResult::isWinnable, false);
     }
 
     @Override
@@ -434,6 +670,10 @@ public class GamesModule<T> implements ISolverModule<T>, IGameResult<T> {
             }
             // no cached result has been found, so we run the analysis
             final GameAnalyser<T> ga = new GameAnalyser<>(this);
+            if (analysisTimeBudget > 0) {
+                ga.setAdaptive(true);
+                ga.setTimeBudget(analysisTimeBudget);
+            }
             analyserData = ga.gameAnalysis();
             if (analyserData.isPresent()) {
                 // put it to the cache
@@ -525,6 +765,8 @@ public class GamesModule<T> implements ISolverModule<T>, IGameResult<T> {
         analyserData = Optional.empty(); // clear analysis data
         lastUsedAlgorithm = Optional.empty(); // clear last used algorithm
         classifierResult.clear(); // remove data stored by the classifier
+        inheritedClassification.clear();
+        origins.clear();
     }
 
     /**
@@ -538,6 +780,48 @@ public class GamesModule<T> implements ISolverModule<T>, IGameResult<T> {
         forceAlgorithm = algo;
     }
 
+    /**
+     * Race the best ranked algorithms against each other instead of using
+     * only the classified one. The algorithms run concurrently on copies of
+     * the game. For {@link ResultEnum#BEST_MOVE} the moves of the algorithms
+     * are combined by their classifier scores, for all other result types the
+     * first conclusive result wins and the other algorithms are cancelled.
+     * 
+     * @param pSize
+     *            The number of algorithms to race. {@code 1} disables the
+     *            portfolio.
+     * @param pTimeLimit
+     *            The time limit of a race in milliseconds. Non-positive if the
+     *            race should last until the algorithms are done.
+     */
+    public void setPortfolio(final int pSize, final long pTimeLimit) {
+        if (pSize < 1) {
+            throw new IllegalArgumentException("pSize must be at least 1");
+        }
+        portfolioSize = pSize;
+        portfolioTimeLimit = pTimeLimit;
+    }
+
+    /**
+     * The time budget of the adaptive game analysis in milliseconds.
+     * Non-positive if a fixed amount of paths is simulated.
+     */
+    private long analysisTimeBudget = 0;
+
+    /**
+     * Let the game analysis simulate paths until its estimates have
+     * converged instead of simulating a fixed amount of paths, see
+     * {@link GameAnalyser#setAdaptive(boolean)}.
+     * 
+     * @param pTimeBudget
+     *            The maximum time the analysis may use in milliseconds.
+     *            Non-positive to simulate a fixed amount of paths (this is
+     *            default behavior).
+     */
+    public void setAdaptiveAnalysis(final long pTimeBudget) {
+        analysisTimeBudget = pTimeBudget;
+    }
+
     /**
      * The memory saving mode.
      */
@@ -0,0 +1,398 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import gps.ResultEnum;
+import gps.games.algorithm.AbstractGameAlgorithm;
+
+/**
+ * Races several game algorithms against each other. Every algorithm runs in
+ * its own thread under a shared deadline. Depending on the result type either
+ * the first conclusive result wins or the results of all algorithms are
+ * combined by a vote that is weighted with the classifier scores.
+ * 
+ * <p>
+ * Algorithms that lost the race are cancelled cooperatively by interrupting
+ * their threads, which all game algorithms check regularly. The winners of all
+ * races are recorded per result type and can be queried with
+ * {@link #getWinRate(ResultEnum, String)} to refine the classification.
+ * </p>
+ *
+ * @param <T>
+ *            The type of the problem class.
+ */
+public class Portfolio<T> {
+
+    /**
+     * The logger for this class.
+     */
+    private static Logger LOGGER = Logger
+            .getLogger(Portfolio.class.getCanonicalName());
+
+    /**
+     * Daemon thread pool shared by all portfolios.
+     */
+    private static final ExecutorService EXECUTOR = Executors
+            .newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true)
+                    .setNameFormat("portfolio-%d").build());
+
+    /**
+     * Time in milliseconds the algorithms are given to report their result
+     * after they have been interrupted at the deadline of a combining race.
+     */
+    private static final long GRACE_PERIOD = 100;
+
+    /**
+     * The number of races won per result type and algorithm name.
+     */
+    private static final Map<ResultEnum, Map<String, AtomicInteger>> WINS = new ConcurrentHashMap<>();
+
+    /**
+     * The number of races that had a winner per result type.
+     */
+    private static final Map<ResultEnum, AtomicInteger> RACES = new ConcurrentHashMap<>();
+
+    /**
+     * The result type the algorithms are raced for.
+     */
+    private final ResultEnum resultType;
+
+    /**
+     * The deadline of the race in milliseconds. Non-positive if there is none.
+     */
+    private final long timeLimit;
+
+    /**
+     * The algorithms of the race.
+     */
+    private final List<AbstractGameAlgorithm<T>> algorithms = new ArrayList<>();
+
+    /**
+     * The classifier scores of {@link #algorithms}.
+     */
+    private final List<Double> scores = new ArrayList<>();
+
+    /**
+     * The algorithm that won the last race.
+     */
+    private Optional<AbstractGameAlgorithm<T>> winner = Optional.empty();
+
+    /**
+     * Construct an empty portfolio.
+     * 
+     * @param pResultType
+     *            The result type the algorithms are raced for.
+     * @param pTimeLimit
+     *            The time limit of a race in milliseconds. Non-positive if the
+     *            race should last until the algorithms are done.
+     */
+    public Portfolio(final ResultEnum pResultType, final long pTimeLimit) {
+        if (pResultType == null) {
+            throw new IllegalArgumentException("pResultType may not be null");
+        }
+        resultType = pResultType;
+        timeLimit = pTimeLimit;
+    }
+
+    /**
+     * Add an algorithm to the portfolio.
+     * 
+     * @param pAlgorithm
+     *            The algorithm. Must be applicable to the result type and may
+     *            not be shared with another portfolio.
+     * @param pScore
+     *            The score the classifier assigned to the algorithm. The
+     *            outputs of the networks lie in {@code [-1, 1]}.
+     */
+    public void add(final AbstractGameAlgorithm<T> pAlgorithm,
+            final double pScore) {
+        algorithms.add(pAlgorithm);
+        scores.add(pScore);
+    }
+
+    /**
+     * Run all algorithms of the portfolio concurrently.
+     * 
+     * @param pQuery
+     *            Retrieves the desired result from an algorithm, e.g.
+     *            {@code IGameResult::moves}.
+     * @param pCombine
+     *            If {@code false} the first present result is returned and the
+     *            other algorithms are cancelled. If {@code true} the race lasts
+     *            until every algorithm is done or the deadline has passed, and
+     *            the result with the highest summed up score is returned.
+     * @return The result. Empty if no algorithm came up with a result in time.
+     */
+    public <R> Optional<R> race(
+            final Function<? super AbstractGameAlgorithm<T>, Optional<R>> pQuery,
+            final boolean pCombine) {
+        winner = Optional.empty();
+        final BlockingQueue<Entry<T, R>> done = new LinkedBlockingQueue<>();
+        final List<Entry<T, R>> entries = new ArrayList<>();
+        for (int i = 0; i < algorithms.size(); i++) {
+            final Entry<T, R> e = new Entry<>(algorithms.get(i), scores.get(i),
+                    pQuery, done);
+            entries.add(e);
+            EXECUTOR.execute(e);
+        }
+
+        final List<Entry<T, R>> finished = new ArrayList<>();
+        final long deadline = timeLimit > 0
+                ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeLimit)
+                : Long.MAX_VALUE;
+        try {
+            collect(done, entries.size(), deadline, !pCombine, finished);
+            if (pCombine && finished.size() < entries.size()) {
+                // give the interrupted algorithms the chance to report the
+                // best result they came up with so far
+                entries.forEach(Entry::cancel);
+                collect(done, entries.size() - finished.size(),
+                        System.nanoTime() + TimeUnit.MILLISECONDS
+                                .toNanos(GRACE_PERIOD),
+                        false, finished);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            entries.forEach(Entry::cancel);
+        }
+
+        final Optional<Entry<T, R>> best = pCombine ? vote(finished)
+                : finished.stream().filter(e -> e.result.isPresent())
+                        .findFirst();
+        if (!best.isPresent()) {
+            return Optional.empty();
+        }
+        winner = Optional.of(best.get().algorithm);
+        recordWin(resultType, best.get().algorithm.getName());
+        return best.get().result;
+    }
+
+    /**
+     * Take finished entries from the queue.
+     * 
+     * @param pDone
+     *            The queue the entries are added to once they are done.
+     * @param pCount
+     *            The number of entries that are still running.
+     * @param pDeadline
+     *            The deadline as {@link System#nanoTime()}.
+     * @param pStopOnResult
+     *            Whether to stop on the first present result.
+     * @param pFinished
+     *            The list the finished entries are added to.
+     * @throws InterruptedException
+     *             if the calling thread is interrupted while waiting.
+     */
+    private static <T, R> void collect(final BlockingQueue<Entry<T, R>> pDone,
+            final int pCount, final long pDeadline, final boolean pStopOnResult,
+            final List<Entry<T, R>> pFinished) throws InterruptedException {
+        for (int i = 0; i < pCount; i++) {
+            final Entry<T, R> e;
+            if (pDeadline == Long.MAX_VALUE) {
+                e = pDone.take();
+            } else {
+                e = pDone.poll(pDeadline - System.nanoTime(),
+                        TimeUnit.NANOSECONDS);
+            }
+            if (e == null) {
+                return;
+            }
+            pFinished.add(e);
+            if (pStopOnResult && e.result.isPresent()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sum up the scores of the algorithms for every distinct result. Each
+     * algorithm votes with a weight of {@code 1 + score}.
+     * 
+     * @param pFinished
+     *            The finished entries.
+     * @return The entry with the highest score among the ones that voted for
+     *         the winning result. Empty if no entry has a result.
+     */
+    private static <T, R> Optional<Entry<T, R>> vote(
+            final List<Entry<T, R>> pFinished) {
+        final Map<R, Double> votes = new HashMap<>();
+        for (Entry<T, R> e : pFinished) {
+            if (e.result.isPresent()) {
+                votes.merge(e.result.get(), 1 + e.score, Double::sum);
+            }
+        }
+        return votes.entrySet().stream()
+                .max((a, b) -> Double.compare(a.getValue(), b.getValue()))
+                .flatMap(v -> pFinished.stream()
+                        .filter(e -> e.result.isPresent()
+                                && e.result.get().equals(v.getKey()))
+                        .max((a, b) -> Double.compare(a.score, b.score)));
+    }
+
+    /**
+     * Get the algorithm that won the last race.
+     * 
+     * @return The winner. Empty if there has not been a race or no algorithm
+     *         came up with a result.
+     */
+    public Optional<AbstractGameAlgorithm<T>> getWinner() {
+        return winner;
+    }
+
+    /**
+     * Remember that an algorithm won a race.
+     * 
+     * @param pResultType
+     *            The result type of the race.
+     * @param pName
+     *            The name of the algorithm.
+     */
+    private static void recordWin(final ResultEnum pResultType,
+            final String pName) {
+        RACES.computeIfAbsent(pResultType, r -> new AtomicInteger())
+                .incrementAndGet();
+        WINS.computeIfAbsent(pResultType, r -> new ConcurrentHashMap<>())
+                .computeIfAbsent(pName, n -> new AtomicInteger())
+                .incrementAndGet();
+    }
+
+    /**
+     * Get the fraction of the races for the given result type that have been
+     * won by the given algorithm.
+     * 
+     * @param pResultType
+     *            The result type.
+     * @param pName
+     *            The name of the algorithm.
+     * @return The win rate in {@code [0, 1]}. {@code 0} if there has not been
+     *         a race yet.
+     */
+    public static double getWinRate(final ResultEnum pResultType,
+            final String pName) {
+        final AtomicInteger races = RACES.get(pResultType);
+        if (races == null || races.get() == 0) {
+            return 0;
+        }
+        final AtomicInteger wins = WINS
+                .getOrDefault(pResultType, new HashMap<>()).get(pName);
+        return wins == null ? 0 : (double) wins.get() / races.get();
+    }
+
+    /**
+     * An algorithm that takes part in a race.
+     */
+    private static final class Entry<T, R> implements Runnable {
+
+        /**
+         * The algorithm.
+         */
+        private final AbstractGameAlgorithm<T> algorithm;
+
+        /**
+         * The classifier score of the algorithm.
+         */
+        private final double score;
+
+        /**
+         * Retrieves the result from the algorithm.
+         */
+        private final Function<? super AbstractGameAlgorithm<T>, Optional<R>> query;
+
+        /**
+         * The queue this entry is added to once it is done.
+         */
+        private final BlockingQueue<Entry<T, R>> done;
+
+        /**
+         * The thread that runs the algorithm. {@code null} if it has not been
+         * started yet or is done.
+         */
+        private Thread runner;
+
+        /**
+         * Whether the entry has been cancelled.
+         */
+        private boolean cancelled;
+
+        /**
+         * The result of the algorithm.
+         */
+        private volatile Optional<R> result = Optional.empty();
+
+        Entry(final AbstractGameAlgorithm<T> pAlgorithm, final double pScore,
+                final Function<? super AbstractGameAlgorithm<T>, Optional<R>> pQuery,
+                final BlockingQueue<Entry<T, R>> pDone) {
+            algorithm = pAlgorithm;
+            score = pScore;
+            query = pQuery;
+            done = pDone;
+        }
+
+        @Override
+        public void run() {
+            try {
+                synchronized (this) {
+                    if (cancelled) {
+                        return;
+                    }
+                    runner = Thread.currentThread();
+                }
+                final Optional<R> r = query.apply(algorithm);
+                result = r == null ? Optional.empty() : r;
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING,
+                        algorithm.getName() + " failed in the portfolio", e);
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                    // do not leak the interrupt of a cancellation to the pool
+                    Thread.interrupted();
+                }
+                done.add(this);
+            }
+        }
+
+        /**
+         * Cancel the algorithm by interrupting its thread.
+         */
+        synchronized void cancel() {
+            cancelled = true;
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+    }
+}
@@ -20,6 +20,7 @@ import gps.ResultEnum;
 import gps.common.BenchmarkField;
 import gps.games.GamesModule;
 import gps.games.algorithm.AbstractGameAlgorithm;
+import gps.games.util.transpositionTable.PersistentTable;
 import gps.games.util.transpositionTable.TranspositionTable;
 import gps.games.wrapper.Action;
 import gps.games.wrapper.IHeuristicPlayer;
@@ -58,6 +59,11 @@ public class AlphaBetaPruning<T> extends AbstractGameAlgorithm<T> {
      */
     private final GameHeuristicComparator comparator;
 
+    /**
+     * Killer moves and history table, updated on every beta cutoff.
+     */
+    private final MoveOrdering ordering = new MoveOrdering();
+
     /**
      * The action representing the best move found.
      */
@@ -69,6 +75,12 @@ public class AlphaBetaPruning<T> extends AbstractGameAlgorithm<T> {
      */
     private TranspositionTable<T> transpositionTable;
 
+    /**
+     * Optional table used by {@link #withMemory(INode, double, double, int)}
+     * to keep the bounds between runs, {@code null} if not set.
+     */
+    private PersistentTable persistentTable;
+
     /**
      * Heuristic used by this algorithm.
      */
@@ -92,7 +104,8 @@ public class AlphaBetaPruning<T> extends AbstractGameAlgorithm<T> {
     public AlphaBetaPruning(final GamesModule<T> pModule) {
         super(pModule, BenchmarkField.DEEPEST_DISCOVERED_NODE,
                 BenchmarkField.PROCESSED_NODES,
-                BenchmarkField.BEST_MOVE_HEURISTIC);
+                BenchmarkField.BEST_MOVE_HEURISTIC,
+                BenchmarkField.HEURISTIC_CACHE_HIT_RATE);
         maxPlayer = module.getGame().hasPlayerMethod()
                 ? module.getGame().getPlayer() : null;
         comparator = new GameHeuristicComparator(heuristic, maxPlayer);
@@ -111,6 +124,7 @@ public class AlphaBetaPruning<T> extends AbstractGameAlgorithm<T> {
     @Override
     public Optional<Action> bestMove() {
         bestMove = null;
+        ordering.clear();
         if (module.getGame().hasUserHeuristicPlayerMethod()) {
             maxWithHeuristic(new Node<>(module.getGame()), -Double.MAX_VALUE,
                     Double.MAX_VALUE);
@@ -141,12 +155,15 @@ public class AlphaBetaPruning<T> extends AbstractGameAlgorithm<T> {
         }
         double minScore = beta;
         List<INode<T>> successors = state.getSuccessors(getMemorySavingMode());
-        Collections.sort(successors, comparator);
+        sort(successors, false);
+        ordering.order(successors, state.getDepth(), true);
         for (INode<T> successor : successors) {
             double score = maxWithHeuristic(successor, alpha, minScore);
             if (score < minScore) {
                 minScore = score;
                 if (minScore <= alpha) {
+                    ordering.cutoff(successor.getAction(), state.getDepth(),
+                            remainingDepth(state));
                     break;
                 }
             }
@@ -170,12 +187,15 @@ public class AlphaBetaPruning<T> extends AbstractGameAlgorithm<T> {
         }
         double maxScore = alpha;
         List<INode<T>> successors = state.getSuccessors(getMemorySavingMode());
-        Collections.sort(successors, Collections.reverseOrder(comparator));
+        sort(successors, true);
+        ordering.order(successors, state.getDepth(), true);
         for (INode<T> successor : successors) {
             double score = minWithHeuristic(successor, maxScore, beta);
             if (score > maxScore) {
                 maxScore = score;
                 if (maxScore >= beta) {
+                    ordering.cutoff(successor.getAction(), state.getDepth(),
+                            remainingDepth(state));
                     break;
                 }
                 if (state.getDepth() == 0) {
@@ -202,11 +222,14 @@ public class AlphaBetaPruning<T> extends AbstractGameAlgorithm<T> {
         }
         double minScore = beta;
         List<INode<T>> successors = state.getSuccessors(getMemorySavingMode());
+        ordering.order(successors, state.getDepth(), false);
         for (INode<T> successor : successors) {
             double score = maxWithoutHeuristic(successor, alpha, minScore);
             if (score < minScore) {
                 minScore = score;
                 if (minScore <= alpha) {
+                    ordering.cutoff(successor.getAction(), state.getDepth(),
+                            remainingDepth(state));
                     break;
                 }
             }
@@ -230,11 +253,14 @@ public class AlphaBetaPruning<T> extends AbstractGameAlgorithm<T> {
         }
         double maxScore = alpha;
         List<INode<T>> successors = state.getSuccessors(getMemorySavingMode());
+        ordering.order(successors, state.getDepth(), false);
         for (INode<T> successor : successors) {
             double score = minWithoutHeuristic(successor, maxScore, beta);
             if (score > maxScore) {
                 maxScore = score;
                 if (maxScore >= beta) {
+                    ordering.cutoff(successor.getAction(), state.getDepth(),
+                            remainingDepth(state));
                     break;
                 }
                 if (state.getDepth() == 0) {
@@ -275,6 +301,27 @@ public class AlphaBetaPruning<T> extends AbstractGameAlgorithm<T> {
         }
         //transposition table lookup
         Tuple<Number, Number> bounds = transpositionTable.get(state.getGame());
+        // persistent table lookup, the bounds of the root are not used since
+        // its successors have to be searched to find the best move
+        final int remainingDepth = mtdfDepthLimit - state.getDepth();
+        Action persistentMove = null;
+        if (persistentTable != null && !state.getGame().isTerminal()) {
+            final PersistentTable.Entry entry = persistentTable.get(
+                    PersistentTable.key(state.getGame(), maxPlayer,
+                            PersistentTable.MINIMAX),
+                    state.getGame());
+            if (entry != null) {
+                final List<Action> actions = state.getAvailableActions();
+                if (entry.actionIndex >= 0
+                        && entry.actionIndex < actions.size()) {
+                    persistentMove = actions.get(entry.actionIndex);
+                }
+                if (bounds == null && state.getDepth() > 0
+                        && entry.depth >= remainingDepth) {
+                    bounds = new Tuple<>(entry.lowerBound, entry.upperBound);
+                }
+            }
+        }
         double lowerBound;
         double upperBound;
         if (bounds != null) {
@@ -290,6 +337,7 @@ public class AlphaBetaPruning<T> extends AbstractGameAlgorithm<T> {
             beta = Math.min(beta, upperBound);
         }
         double bestScore;
+        Action bestAction = null;
         if (state.getGame().isTerminal()) {
             bestScore = state.getGame().getUtility(maxPlayer).doubleValue();
         } else if (Thread.currentThread().isInterrupted()
@@ -300,33 +348,47 @@ public class AlphaBetaPruning<T> extends AbstractGameAlgorithm<T> {
                     .getSuccessors(getMemorySavingMode());
             //max node
             if (state.getGame().getPlayer().equals(maxPlayer)) {
-                successors.sort(Collections.reverseOrder(comparator));
+                sort(successors, true);
+                ordering.order(successors, state.getDepth(), true);
+                if (persistentMove != null) {
+                    MoveOrdering.moveTo(successors, persistentMove, 0);
+                }
                 bestScore = -Double.MAX_VALUE;
                 double a = alpha;
                 for (INode<T> successor : successors) {
                     double score = withMemory(successor, a, beta, 0);
                     if (score > bestScore) {
                         bestScore = score;
+                        bestAction = successor.getAction();
                         a = Math.max(a, bestScore);
                         if (state.getDepth() == 0) {
                             bestMove = successor.getAction();
                         }
                         if (bestScore >= beta) {
+                            ordering.cutoff(bestAction, state.getDepth(),
+                                    remainingDepth);
                             break;
                         }
                     }
                 }
                 // min node
             } else {
-                successors.sort(comparator);
+                sort(successors, false);
+                ordering.order(successors, state.getDepth(), true);
+                if (persistentMove != null) {
+                    MoveOrdering.moveTo(successors, persistentMove, 0);
+                }
                 bestScore = Double.MAX_VALUE;
                 double b = beta;
                 for (INode<T> successor : successors) {
                     double score = withMemory(successor, alpha, b, 0);
                     if (score < bestScore) {
                         bestScore = score;
+                        bestAction = successor.getAction();
                         b = Math.min(b, bestScore);
                         if (bestScore <= alpha) {
+                            ordering.cutoff(bestAction, state.getDepth(),
+                                    remainingDepth);
                             break;
                         }
                     }
@@ -351,9 +413,49 @@ public class AlphaBetaPruning<T> extends AbstractGameAlgorithm<T> {
             transpositionTable.put(state.getGame(), bestScore, upperBoundEntry,
                     state.getDepth());
         }
+        // values found after an interrupt are only estimates
+        if (persistentTable != null && bestAction != null
+                && !Thread.currentThread().isInterrupted()) {
+            persistentTable.put(
+                    PersistentTable.key(state.getGame(), maxPlayer,
+                            PersistentTable.MINIMAX),
+                    state.getGame(),
+                    bestScore > alpha ? bestScore : -Double.MAX_VALUE,
+                    bestScore < beta ? bestScore : Double.MAX_VALUE,
+                    remainingDepth,
+                    state.getAvailableActions().indexOf(bestAction));
+        }
         return bestScore;
     }
 
+    /**
+     * Sorts the given successors by their heuristic value. Every successor is
+     * evaluated once, the values are dropped from the cache of
+     * {@link #comparator} afterwards, since every node is sorted only once.
+     *
+     * @param successors
+     *         the successors to sort
+     * @param descending
+     *         {@code true} to put the best successor for the maximizing player
+     *         first
+     */
+    private void sort(final List<INode<T>> successors,
+            final boolean descending) {
+        successors.sort(descending ? Collections.reverseOrder(comparator)
+                : comparator);
+        comparator.getCache().clear();
+        benchmark.heuristicCacheHitRate = comparator.getCache().getHitRate();
+    }
+
+    /**
+     * @return the depth of the subtree below the given state that is searched
+     *         by the depth limited variants, {@code 1} if there is no limit
+     */
+    private int remainingDepth(final INode<T> state) {
+        return module.getDepthlimit() > 0
+                ? module.getDepthlimit() - state.getDepth() : 1;
+    }
+
     public Action getBestMove() {
         return bestMove;
     }
@@ -364,6 +466,29 @@ public class AlphaBetaPruning<T> extends AbstractGameAlgorithm<T> {
         }
     }
 
+    /**
+     * Forgets the killer moves and the history table. The searches started by
+     * {@link #bestMove()} do this themselves, callers of
+     * {@link #withMemory(INode, double, double, int)} should do it before
+     * searching a new position.
+     */
+    public void clearMoveOrdering() {
+        ordering.clear();
+    }
+
+    /**
+     * Sets a table, which keeps the bounds found by
+     * {@link #withMemory(INode, double, double, int)} between runs. The bounds
+     * of a state are used, if they have been found by a search at least as
+     * deep as the running one.
+     *
+     * @param pPersistentTable
+     *            the table, {@code null} to use none
+     */
+    public void setPersistentTable(final PersistentTable pPersistentTable) {
+        persistentTable = pPersistentTable;
+    }
+
     public void setMtdfDepthLimit(int mtdfDepthLimit) {
         this.mtdfDepthLimit = mtdfDepthLimit;
     }
@@ -0,0 +1,373 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.algorithm.alphabetapruning;
+
+import gps.ResultEnum;
+import gps.common.BenchmarkField;
+import gps.games.GamesModule;
+import gps.games.algorithm.AbstractGameAlgorithm;
+import gps.games.util.transpositionTable.BestMoveTable;
+import gps.games.wrapper.Action;
+import gps.games.wrapper.Game;
+import gps.games.wrapper.IHeuristicPlayer;
+import gps.games.wrapper.Player;
+import gps.games.wrapper.successor.GameHeuristicComparator;
+import gps.games.wrapper.successor.INode;
+import gps.games.wrapper.successor.Node;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Iterative deepening alpha beta pruning for 2 player games. Searches with
+ * depth limit 1, 2, ... until the depth limit of the {@link GamesModule} is
+ * reached, the game tree has been searched completely, the deadline has passed
+ * or the thread is interrupted. Returns the best move of the deepest completed
+ * iteration, so the algorithm can be stopped at any time.
+ * <p>
+ * The best move of every searched state is stored in a {@link BestMoveTable}
+ * and searched first in the next iteration (principal variation and
+ * transposition table move ordering). The other moves are ordered by the
+ * heuristic and the killer moves of the ply, so the game problem has to
+ * implement a heuristic method with player argument and a good hashCode
+ * method.
+ */
+public class IterativeDeepeningAlphaBeta<T> extends AbstractGameAlgorithm<T> {
+
+    /**
+     * Number of processed nodes between two checks of the deadline.
+     */
+    private static final int DEADLINE_CHECK_INTERVAL = 256;
+
+    /**
+     * Size of the best move table. Default is 100000. Can be set using
+     * {@link #setTableSize(int)}.
+     */
+    private int tableSize = 100000;
+
+    /**
+     * The best move of every searched state, kept between the iterations.
+     */
+    private BestMoveTable<T> bestMoves;
+
+    /**
+     * Deadline in milliseconds (as {@link System#currentTimeMillis()}).
+     * {@code 0} if the search is only stopped by interrupting the thread.
+     */
+    private long deadline = 0;
+
+    /**
+     * Maximizing player.
+     */
+    private Player maxPlayer;
+
+    /**
+     * Heuristic used to evaluate the states at the depth limit.
+     */
+    private IHeuristicPlayer heuristic;
+
+    /**
+     * The comparator used to order the moves by the heuristic.
+     */
+    private GameHeuristicComparator comparator;
+
+    /**
+     * Killer moves and history table, kept between the iterations.
+     */
+    private final MoveOrdering ordering = new MoveOrdering();
+
+    /**
+     * {@code true}, if the running iteration has been stopped.
+     */
+    protected boolean aborted;
+
+    /**
+     * {@code true}, if a state has been evaluated at the depth limit in the
+     * running iteration.
+     */
+    private boolean cutOff;
+
+    /**
+     * The depth limit of the deepest completed iteration.
+     */
+    private int completedDepth;
+
+    /**
+     * Creates a new iterative deepening alpha beta pruning instance. Player
+     * MAX is the current player of {@link GamesModule#getGame()}.
+     *
+     * @param pModule
+     *            The module that instantiated the algorithm.
+     */
+    public IterativeDeepeningAlphaBeta(final GamesModule<T> pModule) {
+        super(pModule, BenchmarkField.DEEPEST_DISCOVERED_NODE,
+                BenchmarkField.PROCESSED_NODES,
+                BenchmarkField.BEST_MOVE_HEURISTIC,
+                BenchmarkField.HEURISTIC_CACHE_HIT_RATE);
+    }
+
+    @Override
+    public boolean isApplicable(final ResultEnum type) {
+        return type == ResultEnum.BEST_MOVE
+                && module.getGame().hasPlayerMethod()
+                && module.getGame().hasUtilityPlayerMethod()
+                && module.getGame().hasUserHeuristicPlayerMethod()
+                && module.gameAnalysis().isPresent()
+                && module.gameAnalysis().get().getPlayerNumber().isPresent()
+                && module.gameAnalysis().get().getPlayerNumber().get() == 2;
+    }
+
+    @Override
+    public Optional<Action> bestMove() {
+        final Game<T> game = module.getGame();
+        maxPlayer = game.getPlayer();
+        heuristic = game.getUserHeuristicMultiplayer();
+        comparator = new GameHeuristicComparator(heuristic, maxPlayer);
+        bestMoves = new BestMoveTable<>(tableSize);
+        ordering.clear();
+        completedDepth = 0;
+        aborted = false;
+
+        final INode<T> root = new Node<>(game);
+        Action bestMove = null;
+        for (int depth = 1; module.getDepthlimit() <= 0
+                || depth <= module.getDepthlimit(); depth++) {
+            cutOff = false;
+            final Action move = searchRoot(root, depth);
+            if (aborted) {
+                // the first iteration may be incomplete, better than nothing
+                if (bestMove == null) {
+                    bestMove = move;
+                }
+                break;
+            }
+            bestMove = move;
+            completedDepth = depth;
+            if (!cutOff || bestMove == null) {
+                // the game tree has been searched completely
+                break;
+            }
+        }
+        bestMoves = null;
+        if (bestMove != null) {
+            benchmark.bestMoveHeuristic = game.multiplayerScore(bestMove);
+        }
+        return Optional.ofNullable(bestMove);
+    }
+
+    /**
+     * Searches the root with the given depth limit.
+     *
+     * @param root
+     *            the root
+     * @param depth
+     *            the depth limit
+     * @return the best move found, {@code null} if the root is terminal
+     */
+    protected Action searchRoot(final INode<T> root, final int depth) {
+        if (root.getGame().isTerminal()) {
+            return null;
+        }
+        final boolean max = root.getGame().getPlayer().equals(maxPlayer);
+        double best = max ? -Double.MAX_VALUE : Double.MAX_VALUE;
+        Action bestMove = null;
+        double alpha = -Double.MAX_VALUE;
+        double beta = Double.MAX_VALUE;
+        for (INode<T> successor : order(root, max)) {
+            final double score = searchSuccessor(successor, depth - 1, alpha,
+                    beta, bestMove == null, max);
+            if (aborted) {
+                break;
+            }
+            if (bestMove == null || max && score > best
+                    || !max && score < best) {
+                best = score;
+                bestMove = successor.getAction();
+            }
+            if (max) {
+                alpha = Math.max(alpha, best);
+            } else {
+                beta = Math.min(beta, best);
+            }
+        }
+        if (bestMove != null && !aborted) {
+            bestMoves.put(root.getGame(), bestMove);
+        }
+        return bestMove;
+    }
+
+    /**
+     * Alpha beta search of the given node.
+     *
+     * @param node
+     *            the node
+     * @param depth
+     *            the remaining depth
+     * @param alpha
+     *            alpha value
+     * @param beta
+     *            beta value
+     * @return minimax value from the view of {@link #maxPlayer}, meaningless
+     *         if {@link #aborted} is set
+     */
+    protected double search(final INode<T> node, final int depth,
+            double alpha, double beta) {
+        benchmark.processedNodes++;
+        if (node.getDepth() > benchmark.deepestDiscoveredNode) {
+            benchmark.deepestDiscoveredNode = node.getDepth();
+        }
+        if (Thread.currentThread().isInterrupted() || deadline > 0
+                && benchmark.processedNodes % DEADLINE_CHECK_INTERVAL == 0
+                && System.currentTimeMillis() >= deadline) {
+            aborted = true;
+            return 0;
+        }
+        final Game<T> game = node.getGame();
+        if (game.isTerminal()) {
+            return game.getUtility(maxPlayer).doubleValue();
+        }
+        if (depth <= 0) {
+            cutOff = true;
+            return heuristic.eval(game, maxPlayer);
+        }
+        final boolean max = game.getPlayer().equals(maxPlayer);
+        double best = max ? -Double.MAX_VALUE : Double.MAX_VALUE;
+        Action bestMove = null;
+        for (INode<T> successor : order(node, max)) {
+            final double score = searchSuccessor(successor, depth - 1, alpha,
+                    beta, bestMove == null, max);
+            if (aborted) {
+                return 0;
+            }
+            if (bestMove == null || max && score > best
+                    || !max && score < best) {
+                best = score;
+                bestMove = successor.getAction();
+            }
+            if (max) {
+                alpha = Math.max(alpha, best);
+            } else {
+                beta = Math.min(beta, best);
+            }
+            if (alpha >= beta) {
+                ordering.cutoff(successor.getAction(), node.getDepth(),
+                        depth);
+                break;
+            }
+        }
+        if (bestMove != null) {
+            bestMoves.put(game, bestMove);
+        }
+        return best;
+    }
+
+    /**
+     * Searches a successor of a state with the window of the state.
+     *
+     * @param successor
+     *            the successor
+     * @param depth
+     *            the remaining depth of the successor
+     * @param alpha
+     *            alpha value of the state
+     * @param beta
+     *            beta value of the state
+     * @param first
+     *            {@code true} if the successor is the first one searched
+     * @param max
+     *            {@code true} if {@link #maxPlayer} has to move in the state
+     * @return minimax value of the successor from the view of
+     *         {@link #maxPlayer}, meaningless if {@link #aborted} is set
+     */
+    protected double searchSuccessor(final INode<T> successor,
+            final int depth, final double alpha, final double beta,
+            final boolean first, final boolean max) {
+        return search(successor, depth, alpha, beta);
+    }
+
+    /**
+     * Returns the successors of the given node, the best move of the previous
+     * iteration first and the others ordered by the heuristic and the killer
+     * moves of the ply.
+     *
+     * @param node
+     *            the node
+     * @param max
+     *            {@code true} if {@link #maxPlayer} has to move
+     * @return the ordered successors
+     */
+    private List<INode<T>> order(final INode<T> node, final boolean max) {
+        final List<INode<T>> successors = node
+                .getSuccessors(getMemorySavingMode());
+        successors.sort(
+                max ? Collections.reverseOrder(comparator) : comparator);
+        comparator.getCache().clear();
+        benchmark.heuristicCacheHitRate = comparator.getCache().getHitRate();
+        ordering.order(successors, node.getDepth(), true);
+        final Action previous = bestMoves.get(node.getGame());
+        if (previous != null) {
+            for (int i = 1; i < successors.size(); i++) {
+                if (previous.equals(successors.get(i).getAction())) {
+                    successors.add(0, successors.remove(i));
+                    break;
+                }
+            }
+        }
+        return successors;
+    }
+
+    /**
+     * @return the depth limit of the deepest iteration completed by the last
+     *         search
+     */
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    /**
+     * Sets the deadline of the search. The search is also stopped, if the
+     * thread is interrupted.
+     *
+     * @param pDeadline
+     *            the deadline in milliseconds (as
+     *            {@link System#currentTimeMillis()}), {@code 0} for no deadline
+     */
+    public void setDeadline(final long pDeadline) {
+        deadline = pDeadline;
+    }
+
+    /**
+     * Sets the size of the {@link BestMoveTable}. Takes effect with the next
+     * search.
+     *
+     * @param pTableSize
+     *            the number of entries, must be greater than 0
+     */
+    public void setTableSize(final int pTableSize) {
+        if (pTableSize <= 0) {
+            throw new IllegalArgumentException(
+                    "the table size must be greater than 0");
+        }
+        tableSize = pTableSize;
+    }
+
+    @Override
+    public String getName() {
+        return "ID-A-B-Pruning";
+    }
+}
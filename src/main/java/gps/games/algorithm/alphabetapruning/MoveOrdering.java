@@ -0,0 +1,150 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.algorithm.alphabetapruning;
+
+import gps.games.wrapper.Action;
+import gps.games.wrapper.successor.INode;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dynamic move ordering for alpha beta searches by the killer heuristic and
+ * the history heuristic. Both only need the actions that caused beta cutoffs,
+ * so they also work for games without a heuristic.
+ * <p>
+ * For every ply the last two moves that caused a cutoff are kept as killer
+ * moves and are searched first in other states of the same ply. The history
+ * table counts for every action how often and how deep it caused a cutoff
+ * anywhere in the tree. An instance should be used for one search only.
+ */
+class MoveOrdering {
+
+    /**
+     * Number of killer moves per ply.
+     */
+    private static final int KILLER_SLOTS = 2;
+
+    /**
+     * The killer moves per ply, the most recent one first.
+     */
+    private final List<Action[]> killers = new ArrayList<>();
+
+    /**
+     * The history score of every action that caused a cutoff.
+     */
+    private final Map<Action, Integer> history = new HashMap<>();
+
+    /**
+     * Orders successors by history score, the best first.
+     */
+    private final Comparator<INode<?>> byHistory = (a, b) -> Integer
+            .compare(history(b.getAction()), history(a.getAction()));
+
+    /**
+     * Orders the given successors by the killer moves of the ply and the
+     * history table.
+     * <p>
+     * If the successors have already been ordered by a heuristic, only the
+     * killer moves are moved, right behind the successor the heuristic
+     * considers best. Otherwise the successors are ordered by their history
+     * score and the killer moves are put first. The sort is stable, so
+     * successors with equal scores keep their order.
+     *
+     * @param successors
+     *            the successors of a state
+     * @param ply
+     *            the depth of the state in the search tree
+     * @param heuristicOrdered
+     *            {@code true} if the successors are ordered by a heuristic
+     */
+    void order(final List<? extends INode<?>> successors, final int ply,
+            final boolean heuristicOrdered) {
+        if (!heuristicOrdered && !history.isEmpty()) {
+            successors.sort(byHistory);
+        }
+        if (ply < killers.size()) {
+            final Action[] slots = killers.get(ply);
+            final int position = heuristicOrdered ? 1 : 0;
+            // the oldest killer first, so that the most recent ends up first
+            for (int s = KILLER_SLOTS - 1; s >= 0; s--) {
+                if (slots[s] != null) {
+                    moveTo(successors, slots[s], position);
+                }
+            }
+        }
+    }
+
+    /**
+     * Records that the given action caused a beta cutoff.
+     *
+     * @param action
+     *            the action
+     * @param ply
+     *            the depth of the state in which the action has been applied
+     * @param remainingDepth
+     *            the depth of the searched subtree, deeper cutoffs weigh more
+     */
+    void cutoff(final Action action, final int ply, final int remainingDepth) {
+        if (action == null) {
+            return;
+        }
+        while (killers.size() <= ply) {
+            killers.add(new Action[KILLER_SLOTS]);
+        }
+        final Action[] slots = killers.get(ply);
+        if (!action.equals(slots[0])) {
+            System.arraycopy(slots, 0, slots, 1, KILLER_SLOTS - 1);
+            slots[0] = action;
+        }
+        final int depth = Math.max(1, remainingDepth);
+        history.merge(action, depth * depth, Integer::sum);
+    }
+
+    /**
+     * Forgets all killer moves and history scores.
+     */
+    void clear() {
+        killers.clear();
+        history.clear();
+    }
+
+    /**
+     * @return the history score of the given action
+     */
+    private int history(final Action action) {
+        final Integer score = action == null ? null : history.get(action);
+        return score == null ? 0 : score;
+    }
+
+    /**
+     * Moves the successor that has been reached by the given action to the
+     * given position, if it is contained behind that position.
+     */
+    static <N extends INode<?>> void moveTo(final List<N> successors,
+            final Action action, final int position) {
+        for (int i = position + 1; i < successors.size(); i++) {
+            if (action.equals(successors.get(i).getAction())) {
+                successors.add(position, successors.remove(i));
+                return;
+            }
+        }
+    }
+}
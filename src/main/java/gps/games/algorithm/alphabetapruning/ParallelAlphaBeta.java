@@ -0,0 +1,375 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.algorithm.alphabetapruning;
+
+import gps.ResultEnum;
+import gps.common.BenchmarkField;
+import gps.games.GamesModule;
+import gps.games.algorithm.AbstractGameAlgorithm;
+import gps.games.wrapper.Action;
+import gps.games.wrapper.Game;
+import gps.games.wrapper.IHeuristicPlayer;
+import gps.games.wrapper.Player;
+import gps.games.wrapper.successor.GameHeuristicComparator;
+import gps.games.wrapper.successor.INode;
+import gps.games.wrapper.successor.Node;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Parallel alpha beta pruning for 2 player games using the Young Brothers
+ * Wait Concept. The eldest (heuristically best) successor of a state is
+ * searched first. Once its value is known, the other successors are searched
+ * in parallel by a {@link ForkJoinPool}.
+ * <p>
+ * Every searched state has a {@link Window} holding the best value found so
+ * far, which is updated as soon as one of its successors is finished. The
+ * alpha and beta values of a state are derived from the windows of all its
+ * ancestors, so a bound found by one thread immediately narrows the searches
+ * of the others, and a subtree is abandoned as soon as its window is empty.
+ * <p>
+ * The search is depth limited. If the {@link GamesModule} has no depth limit,
+ * it is set to {@value #DEFAULT_DEPTH_LIMIT}. The game problem has to
+ * implement a heuristic method with player argument.
+ */
+public class ParallelAlphaBeta<T> extends AbstractGameAlgorithm<T> {
+
+    private static final Logger LOGGER = Logger
+            .getLogger(ParallelAlphaBeta.class.getCanonicalName());
+
+    /**
+     * Depth limit used if the {@link GamesModule} has none.
+     */
+    private static final int DEFAULT_DEPTH_LIMIT = 8;
+
+    /**
+     * Minimal remaining depth of a state whose younger successors are
+     * searched in parallel. Shallower subtrees are searched sequentially,
+     * since they are too small to outweigh the cost of a task.
+     */
+    private static final int MIN_SPLIT_DEPTH = 2;
+
+    /**
+     * Number of threads. Defaults to the number of available processors.
+     */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Maximizing player.
+     */
+    private Player maxPlayer;
+
+    /**
+     * Heuristic used to order the successors and to evaluate the states at
+     * the depth limit.
+     */
+    private IHeuristicPlayer heuristic;
+
+    /**
+     * Set if the thread running {@link #bestMove()} is interrupted. All tasks
+     * stop as soon as possible and their results are ignored.
+     */
+    private volatile boolean stopped;
+
+    /**
+     * Number of processed nodes of the running search.
+     */
+    private final AtomicInteger processedNodes = new AtomicInteger();
+
+    /**
+     * Depth of the deepest node of the running search.
+     */
+    private final AtomicInteger deepestNode = new AtomicInteger();
+
+    /**
+     * Creates a new parallel alpha beta pruning instance. Player MAX is the
+     * current player of {@link GamesModule#getGame()}. The depth limit of the
+     * {@link GamesModule} will be set to {@value #DEFAULT_DEPTH_LIMIT}, if it
+     * was not already set before.
+     *
+     * @param pModule
+     *            The module that instantiated the algorithm.
+     */
+    public ParallelAlphaBeta(final GamesModule<T> pModule) {
+        super(pModule, BenchmarkField.DEEPEST_DISCOVERED_NODE,
+                BenchmarkField.PROCESSED_NODES,
+                BenchmarkField.BEST_MOVE_HEURISTIC);
+        if (module.getDepthlimit() <= 0) {
+            module.setDepthlimit(DEFAULT_DEPTH_LIMIT);
+        }
+    }
+
+    @Override
+    public boolean isApplicable(final ResultEnum type) {
+        return type == ResultEnum.BEST_MOVE
+                && module.getGame().hasPlayerMethod()
+                && module.getGame().hasUtilityPlayerMethod()
+                && module.getGame().hasUserHeuristicPlayerMethod()
+                && module.gameAnalysis().isPresent()
+                && module.gameAnalysis().get().getPlayerNumber().isPresent()
+                && module.gameAnalysis().get().getPlayerNumber().get() == 2;
+    }
+
+    @Override
+    public Optional<Action> bestMove() {
+        final Game<T> game = module.getGame();
+        maxPlayer = game.getPlayer();
+        heuristic = game.getUserHeuristicMultiplayer();
+        stopped = false;
+        deepestNode.set(0);
+
+        final INode<T> root = new Node<>(game);
+        final Window rootWindow = new Window(null, true);
+        processedNodes.set(1);
+        if (!root.isTerminal()) {
+            final ForkJoinPool pool = new ForkJoinPool(parallelism);
+            final ForkJoinTask<Double> search = pool
+                    .submit(() -> expand(root, rootWindow));
+            try {
+                search.get();
+            } catch (ExecutionException e) {
+                LOGGER.log(Level.WARNING, "Parallel search failed",
+                        e.getCause());
+            } catch (InterruptedException e) {
+                stopped = true;
+                // the tasks notice the stop flag quickly
+                search.join();
+                //Restore the interrupt status
+                Thread.currentThread().interrupt();
+            }
+            pool.shutdown();
+        }
+
+        benchmark.processedNodes = processedNodes.get();
+        benchmark.deepestDiscoveredNode = deepestNode.get();
+        final Action bestMove = rootWindow.bestMove;
+        if (bestMove != null) {
+            benchmark.bestMoveHeuristic = game.multiplayerScore(bestMove);
+        }
+        return Optional.ofNullable(bestMove);
+    }
+
+    /**
+     * Alpha beta search of the given node.
+     *
+     * @param node
+     *            the node
+     * @param parent
+     *            the window of the parent of the node
+     * @return minimax value from the view of {@link #maxPlayer},
+     *         {@link Double#NaN} if the search has been abandoned
+     */
+    private double search(final INode<T> node, final Window parent) {
+        if (stopped || parent.isEmpty()) {
+            // a brother of the node or of an ancestor has caused a cutoff
+            return Double.NaN;
+        }
+        processedNodes.incrementAndGet();
+        deepestNode.accumulateAndGet(node.getDepth(), Math::max);
+        final Game<T> game = node.getGame();
+        if (game.isTerminal()) {
+            return game.getUtility(maxPlayer).doubleValue();
+        }
+        if (node.getDepth() >= module.getDepthlimit()) {
+            return heuristic.eval(game, maxPlayer);
+        }
+        return expand(node,
+                new Window(parent, game.getPlayer().equals(maxPlayer)));
+    }
+
+    /**
+     * Searches the successors of the given non terminal node, the eldest
+     * first and the younger ones in parallel if the remaining depth is large
+     * enough.
+     *
+     * @param node
+     *            the node
+     * @param window
+     *            the window of the node
+     * @return minimax value from the view of {@link #maxPlayer},
+     *         {@link Double#NaN} if the search has been abandoned before all
+     *         successors have been searched or one of them caused a cutoff
+     */
+    private double expand(final INode<T> node, final Window window) {
+        final List<INode<T>> successors = node
+                .getSuccessors(getMemorySavingMode());
+        final GameHeuristicComparator comparator = new GameHeuristicComparator(
+                heuristic, maxPlayer);
+        successors.sort(window.max ? Collections.reverseOrder(comparator)
+                : comparator);
+
+        final INode<T> eldest = successors.get(0);
+        window.update(search(eldest, window), eldest.getAction());
+        final List<INode<T>> younger = successors.subList(1,
+                successors.size());
+        if (module.getDepthlimit() - node.getDepth() < MIN_SPLIT_DEPTH) {
+            for (INode<T> successor : younger) {
+                window.update(search(successor, window),
+                        successor.getAction());
+            }
+        } else if (!stopped && !window.isEmpty()) {
+            final List<SearchTask> tasks = new ArrayList<>();
+            for (INode<T> successor : younger) {
+                tasks.add(new SearchTask(successor, window));
+            }
+            ForkJoinTask.invokeAll(tasks);
+        }
+        if (stopped || window.parent != null && window.parent.isEmpty()) {
+            // a cutoff above the node has abandoned some of its successors
+            return Double.NaN;
+        }
+        return window.best;
+    }
+
+    /**
+     * Sets the number of threads used by the next search.
+     *
+     * @param pParallelism
+     *            the number of threads, must be greater than 0
+     */
+    public void setParallelism(final int pParallelism) {
+        if (pParallelism <= 0) {
+            throw new IllegalArgumentException(
+                    "the parallelism must be greater than 0");
+        }
+        parallelism = pParallelism;
+    }
+
+    @Override
+    public String getName() {
+        return "YBWC-A-B-Pruning";
+    }
+
+    /**
+     * Searches a node and reports its value to the window of its parent.
+     */
+    private final class SearchTask extends RecursiveTask<Double> {
+
+        private static final long serialVersionUID = 4218903718416263207L;
+
+        /**
+         * The node to search.
+         */
+        private final INode<T> node;
+
+        /**
+         * The window of the parent of {@link #node}.
+         */
+        private final Window parent;
+
+        SearchTask(final INode<T> pNode, final Window pParent) {
+            node = pNode;
+            parent = pParent;
+        }
+
+        @Override
+        protected Double compute() {
+            final double score = search(node, parent);
+            parent.update(score, node.getAction());
+            return score;
+        }
+    }
+
+    /**
+     * The best value found for a state so far, shared by the threads
+     * searching its successors.
+     */
+    private final class Window {
+
+        /**
+         * The window of the parent state, {@code null} for the root.
+         */
+        private final Window parent;
+
+        /**
+         * {@code true} if {@link #maxPlayer} has to move in the state.
+         */
+        private final boolean max;
+
+        /**
+         * The best value of the successors searched so far. Raises alpha of
+         * the state, if {@link #max} is set, and lowers beta otherwise.
+         */
+        private volatile double best;
+
+        /**
+         * The successor with the best value.
+         */
+        private Action bestMove;
+
+        Window(final Window pParent, final boolean pMax) {
+            parent = pParent;
+            max = pMax;
+            best = max ? -Double.MAX_VALUE : Double.MAX_VALUE;
+        }
+
+        /**
+         * @return alpha value of the state
+         */
+        private double alpha() {
+            final double alpha = max ? best : -Double.MAX_VALUE;
+            return parent == null ? alpha : Math.max(alpha, parent.alpha());
+        }
+
+        /**
+         * @return beta value of the state
+         */
+        private double beta() {
+            final double beta = max ? Double.MAX_VALUE : best;
+            return parent == null ? beta : Math.min(beta, parent.beta());
+        }
+
+        /**
+         * @return {@code true} if the state or one of its ancestors has a
+         *         cutoff, so the remaining successors need not be searched
+         */
+        boolean isEmpty() {
+            return alpha() >= beta();
+        }
+
+        /**
+         * Reports the value of a searched successor. Values found after the
+         * search has been stopped and values of abandoned searches are
+         * ignored.
+         *
+         * @param score
+         *            the value of the successor
+         * @param action
+         *            the action leading to the successor
+         */
+        synchronized void update(final double score, final Action action) {
+            if (stopped || Double.isNaN(score)) {
+                return;
+            }
+            if (bestMove == null || max && score > best
+                    || !max && score < best) {
+                best = score;
+                bestMove = action;
+            }
+        }
+    }
+}
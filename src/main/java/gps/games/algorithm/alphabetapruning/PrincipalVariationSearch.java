@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.algorithm.alphabetapruning;
+
+import gps.games.GamesModule;
+import gps.games.util.transpositionTable.TranspositionTable;
+import gps.games.wrapper.Action;
+import gps.games.wrapper.Game;
+import gps.games.wrapper.successor.INode;
+import gps.util.Tuple;
+
+import java.util.Optional;
+
+/**
+ * Principal variation search (NegaScout) for 2 player games. Like
+ * {@link IterativeDeepeningAlphaBeta}, but only the first successor of a
+ * state is searched with the full window. The others are searched with a
+ * null window, which only proves that they are not better than the first one,
+ * and are searched again with the full window if they are. With a good move
+ * ordering most null window searches fail, so less nodes are visited than by
+ * alpha beta pruning.
+ * <p>
+ * The bounds found by the null window searches are stored in a
+ * {@link TranspositionTable}, which is cleared before every iteration. The
+ * game problem has to implement a heuristic method with player argument and a
+ * good hashCode method.
+ */
+public class PrincipalVariationSearch<T>
+        extends IterativeDeepeningAlphaBeta<T> {
+
+    /**
+     * Size of the transposition table. Default is 100000. Can be set using
+     * {@link #setTranspositionTableSize(int)}.
+     */
+    private int transpositionTableSize = 100000;
+
+    /**
+     * Bounds of the minimax values of the states searched in the running
+     * iteration.
+     */
+    private TranspositionTable<T> transpositionTable;
+
+    /**
+     * Creates a new principal variation search instance. Player MAX is the
+     * current player of {@link GamesModule#getGame()}.
+     *
+     * @param pModule
+     *            The module that instantiated the algorithm.
+     */
+    public PrincipalVariationSearch(final GamesModule<T> pModule) {
+        super(pModule);
+    }
+
+    @Override
+    public Optional<Action> bestMove() {
+        transpositionTable = new TranspositionTable<>(transpositionTableSize,
+                false);
+        final Optional<Action> bestMove = super.bestMove();
+        transpositionTable = null;
+        return bestMove;
+    }
+
+    @Override
+    protected Action searchRoot(final INode<T> root, final int depth) {
+        // the bounds of a shallower iteration are not valid anymore
+        transpositionTable.clear();
+        return super.searchRoot(root, depth);
+    }
+
+    @Override
+    protected double search(final INode<T> node, final int depth,
+            double alpha, double beta) {
+        final Game<T> game = node.getGame();
+        // the bounds of a shallower search are not valid for this one
+        final Tuple<Number, Number> bounds = transpositionTable.get(game,
+                depth);
+        if (bounds != null) {
+            final double lowerBound = bounds.getX().doubleValue();
+            final double upperBound = bounds.getY().doubleValue();
+            if (lowerBound >= beta) {
+                return lowerBound;
+            }
+            if (upperBound <= alpha) {
+                return upperBound;
+            }
+            alpha = Math.max(alpha, lowerBound);
+            beta = Math.min(beta, upperBound);
+        }
+        final double score = super.search(node, depth, alpha, beta);
+        if (aborted || depth <= 0) {
+            return score;
+        }
+        if (score <= alpha) {
+            final double lowerBound = bounds == null ? -Double.MAX_VALUE
+                    : bounds.getX().doubleValue();
+            transpositionTable.put(game, lowerBound, score, depth);
+        } else if (score >= beta) {
+            final double upperBound = bounds == null ? Double.MAX_VALUE
+                    : bounds.getY().doubleValue();
+            transpositionTable.put(game, score, upperBound, depth);
+        } else {
+            transpositionTable.put(game, score, score, depth);
+        }
+        return score;
+    }
+
+    @Override
+    protected double searchSuccessor(final INode<T> successor,
+            final int depth, final double alpha, final double beta,
+            final boolean first, final boolean max) {
+        if (first) {
+            return search(successor, depth, alpha, beta);
+        }
+        if (max) {
+            // is the successor better than alpha?
+            final double score = search(successor, depth, alpha,
+                    Math.nextUp(alpha));
+            if (score > alpha && score < beta && !aborted) {
+                return search(successor, depth, score, beta);
+            }
+            return score;
+        }
+        // is the successor better than beta for the minimizing player?
+        final double score = search(successor, depth, Math.nextDown(beta),
+                beta);
+        if (score < beta && score > alpha && !aborted) {
+            return search(successor, depth, alpha, score);
+        }
+        return score;
+    }
+
+    /**
+     * Sets the size of the {@link TranspositionTable}. Takes effect with the
+     * next search.
+     *
+     * @param pTranspositionTableSize
+     *            the number of buckets, must be greater than 0
+     */
+    public void setTranspositionTableSize(final int pTranspositionTableSize) {
+        if (pTranspositionTableSize <= 0) {
+            throw new IllegalArgumentException(
+                    "the table size must be greater than 0");
+        }
+        transpositionTableSize = pTranspositionTableSize;
+    }
+
+    @Override
+    public String getName() {
+        return "PVS";
+    }
+}
@@ -17,18 +17,26 @@
 package gps.games.algorithm.analysis;
 
 import gps.ResultEnum;
+import gps.common.BenchmarkField;
 import gps.games.GamesModule;
 import gps.games.algorithm.AbstractGameAlgorithm;
+import gps.games.analysis.util.AnalysisStatistics;
+import gps.games.analysis.util.AnalysisTask;
 import gps.games.analysis.util.MemoryAnalysisUtility;
-import gps.games.analysis.util.Worker;
+import gps.games.analysis.util.RunningStatistics;
 import gps.games.util.GameTree;
 import gps.games.wrapper.Game;
 import gps.games.wrapper.Player;
 import gps.util.Tuple;
 
-import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * This class will analyse a given game object. The game object contains a
@@ -52,6 +60,65 @@ public class GameAnalyser<T> extends AbstractGameAlgorithm<T> {
      */
     private final int THREAD_COUNT = Runtime.getRuntime().availableProcessors();
 
+    /**
+     * The pool all analyses are executed on. Shared, so that concurrent
+     * analyses do not create more threads than there are cores.
+     */
+    private static final ForkJoinPool POOL = new ForkJoinPool(
+            Runtime.getRuntime().availableProcessors());
+
+    /**
+     * The seed of the random used to choose the actions. Fixed, so that the
+     * results of an analysis are reproducible.
+     */
+    private static final long SEED = 0x5EEDL;
+
+    /**
+     * The number of tasks the paths of one thread are split into. More tasks
+     * result in a better balancing of paths with different lengths.
+     */
+    private static final int TASKS_PER_THREAD = 8;
+
+    /**
+     * The number of paths per thread simulated in one batch of the adaptive
+     * mode.
+     */
+    private static final int ADAPTIVE_PATHS_PER_THREAD = 16;
+
+    /**
+     * The minimum number of paths the adaptive mode simulates before the
+     * confidence intervals are trusted.
+     */
+    private static final int ADAPTIVE_MIN_PATHS = 30;
+
+    /**
+     * The quantile of the standard normal distribution for a confidence level
+     * of 95%.
+     */
+    private static final double Z_95 = 1.96;
+
+    /**
+     * The maximum number of game states measured to estimate the memory used
+     * per node.
+     */
+    private static final int MEMORY_SAMPLES = 64;
+
+    /**
+     * If {@code true}, paths are simulated until the estimates have converged
+     * instead of simulating a fixed amount of paths.
+     */
+    private boolean adaptive = false;
+
+    /**
+     * The relative tolerance of the confidence intervals in adaptive mode.
+     */
+    private double tolerance = 0.05;
+
+    /**
+     * The maximum time in milliseconds the adaptive mode may use.
+     */
+    private long timeBudget = 10000;
+
     /**
      * The game object to analyse
      */
@@ -79,7 +146,8 @@ public class GameAnalyser<T> extends AbstractGameAlgorithm<T> {
      *            The module that instantiated the algorithm.
      */
     public GameAnalyser(final GamesModule<T> pModule) {
-        super(pModule);
+        super(pModule, BenchmarkField.SEEN_NODES,
+                BenchmarkField.PROCESSED_NODES);
         int pMaxDepth = 1000;
         if (pModule == null) {
             throw new NullPointerException();
@@ -100,116 +168,43 @@ public class GameAnalyser<T> extends AbstractGameAlgorithm<T> {
      *         object itself.
      */
     public IGameAnalysisResult analyze() {
-        // Measures how much memory is in use before the analysis
-        MemoryAnalysisUtility.startMeasurement();
-
-        @SuppressWarnings("unchecked")
-        final GameTree<T>[] trees = new GameTree[THREAD_COUNT];
-        @SuppressWarnings("unchecked")
-        final Worker<T>[] workers = new Worker[THREAD_COUNT];
-
-        // Creating workers
-        for (int i = 0; i < THREAD_COUNT; i++) {
-            trees[i] = new GameTree<T>();
-            workers[i] = new Worker<T>(game.copy(), pathCount, trees[i],
-                    maxDepth, i);
-            workers[i].start();
-        }
+        final AtomicBoolean stop = new AtomicBoolean(false);
+        final AnalysisStatistics<T> statistics = adaptive
+                ? simulateAdaptive(stop) : simulateFixed(stop);
 
-        // Waiting for workers to join
-        for (int i = 0; i < THREAD_COUNT; i++) {
-            try {
-                workers[i].join();
-            } catch (InterruptedException e) {
-                // In this case the thread was interrupted, meaning the analysis
-                // should stop
-                for (Worker<T> w : workers) {
-                    w.interrupt();
-                }
-                shutDownAsap = true;
-                Thread.currentThread().interrupt();
-            }
-        }
-        if (Thread.currentThread().isInterrupted()) {
-            // interrupted() changes interrupt state
-            // Workers should be interrupted now
-            for (int i = 0; i < THREAD_COUNT; i++) {
-                while (workers[i].isAlive()) {
-                    try {
-                        workers[i].join();
-                    } catch (InterruptedException e) {
-                        // ignore
-                    }
-                }
-            }
-            Thread.currentThread().interrupt();
-        }
         Double avgBranchingFactor = 0.0;
         Double avgDepth;
-        Tuple<Integer, Integer> depthRange = new Tuple<Integer, Integer>(
-                Integer.MAX_VALUE, Integer.MIN_VALUE);
+        // The analysis can stop before a single path was completed
+        Tuple<Integer, Integer> depthRange = statistics.getPathCount() > 0
+                ? new Tuple<Integer, Integer>(statistics.getMinDepth(),
+                        statistics.getMaxDepth())
+                : new Tuple<Integer, Integer>(0, 0);
         Integer playerCount;
-        Double terminationRate = 0.0;
+        Double terminationRate;
         Tuple<Number, Number> utilityRange = new Tuple<Number, Number>(
-                Double.MAX_VALUE, Double.MIN_VALUE);
-        GameTree<T> tree = new GameTree<T>();
+                statistics.getMinUtility(), statistics.getMaxUtility());
         Double avgTime;
-        tree.insertRoot(game.asRoot());
-
-        // Tmp variables
-        double addedBranchingFactor = 0;
-        double addedDepth = 0;
-        double addedTerminal = 0;
-        double addedPaths = pathCount * THREAD_COUNT;
-        Integer addedNodeCount = 0;
-        double addedTime = 0;
-        Set<Player> players = new HashSet<Player>();
-
-        // Collecting data from worker threads
-        for (int i = 0; i < workers.length; i++) {
-            players.addAll(workers[i].getPlayers());
-            tree.insert(workers[i].getTree());
-
-            addedBranchingFactor += workers[i].getAddedBranching();
-            addedDepth += workers[i].getAddedDepth();
-            addedTerminal += workers[i].getAddedTerminations();
-            addedNodeCount += workers[i].getVisitedNodeCount();
-            addedTime += workers[i].getRunTime();
-
-            // Depth Range
-            if (workers[i].getDepthRange().getX().doubleValue() < depthRange
-                    .getX().doubleValue()) {
-                depthRange = new Tuple<Integer, Integer>(
-                        workers[i].getDepthRange().getX(), depthRange.getY());
-            }
-            if (workers[i].getDepthRange().getY().doubleValue() > depthRange
-                    .getY().doubleValue()) {
-                depthRange = new Tuple<Integer, Integer>(depthRange.getX(),
-                        workers[i].getDepthRange().getY());
-            }
-
-            // Utility Range
-            if (workers[i].getUtilityRange().getX().doubleValue() < utilityRange
-                    .getX().doubleValue()) {
-                utilityRange = new Tuple<Number, Number>(
-                        workers[i].getUtilityRange().getX(),
-                        utilityRange.getY());
-            }
-            if (workers[i].getUtilityRange().getY().doubleValue() > utilityRange
-                    .getY().doubleValue()) {
-                utilityRange = new Tuple<Number, Number>(utilityRange.getX(),
-                        workers[i].getUtilityRange().getY());
-            }
-        }
+
+        // At least one path is simulated unless the analysis was interrupted
+        final double addedPaths = Math.max(1, statistics.getPathCount());
+        final long addedNodeCount = statistics.getVisitedNodeCount();
+        final Set<Player> players = statistics.getPlayers();
 
         // Would result in divide by 0. Should not happen anyways
         if (addedNodeCount != 0) {
-            avgBranchingFactor = addedBranchingFactor / addedNodeCount;
+            avgBranchingFactor = statistics.getAddedBranching()
+                    / (double) addedNodeCount;
         }
-        avgDepth = addedDepth / addedPaths;
+        avgDepth = statistics.getAddedDepth() / addedPaths;
         playerCount = players.size() > 0 ? players.size() : -1;
-        terminationRate = addedTerminal / addedPaths;
-        avgTime = addedTime / THREAD_COUNT;
+        terminationRate = statistics.getAddedTerminations() / addedPaths;
+        // convert to ms
+        avgTime = statistics.getRunTime() / 1000000d / THREAD_COUNT;
+
+        benchmark.seenNodes = (int) Math.min(Integer.MAX_VALUE,
+                statistics.getDistinctStateEstimate());
+        benchmark.processedNodes = (int) Math.min(Integer.MAX_VALUE,
+                addedNodeCount);
 
         Optional<Integer> oPlayerCount = Optional.empty();
         Optional<Tuple<Number, Number>> oUtilityRange = Optional.empty();
@@ -227,13 +222,12 @@ public class GameAnalyser<T> extends AbstractGameAlgorithm<T> {
 
         Optional<Double> memoryPerNode = Optional.empty();
 
-        // Analysing memory usage of tree object (after analysis)
-        if (!shutDownAsap) {
-            // This, esp. hardClean(), takes quite some time. 
-            // So we wont do it in case of thread.interrupt!
-            int discreteNodeCount = tree.entrySet().size();
-            long memoryIncrease = MemoryAnalysisUtility.getMemoryIncrease();
-            double calc = memoryIncrease / discreteNodeCount;
+        // Estimating memory usage of the final game states of the paths
+        if (!shutDownAsap && !statistics.getSamples().isEmpty()) {
+            // Walks the object graphs of some states, so we wont do it in
+            // case of thread.interrupt!
+            double calc = MemoryAnalysisUtility.estimateSizePerObject(
+                    statistics.getSamples(), MEMORY_SAMPLES);
             calc = calc / 1024 / 1024; // convert to mb
             memoryPerNode = Optional.of(calc);
         }
@@ -244,12 +238,158 @@ public class GameAnalyser<T> extends AbstractGameAlgorithm<T> {
         }
 
         GameAnalysisResult gra = new GameAnalysisResult(avgBranchingFactor,
-                avgDepth, avgTime, addedNodeCount, terminationRate, depthRange,
-                tree, oPlayerCount, oUtilityRange, memoryPerNode);
+                avgDepth, avgTime, (int) Math.min(Integer.MAX_VALUE,
+                        addedNodeCount),
+                terminationRate, depthRange, new GameTree<T>(), oPlayerCount,
+                oUtilityRange, memoryPerNode,
+                statistics.getDistinctStateEstimate());
 
         return gra;
     }
 
+    /**
+     * Simulates {@link #pathCount} paths per thread.
+     *
+     * @param stop
+     *            The flag that stops the tasks.
+     * @return The collected data.
+     */
+    private AnalysisStatistics<T> simulateFixed(final AtomicBoolean stop) {
+        final int totalPaths = pathCount * THREAD_COUNT;
+        return execute(new AnalysisTask<>(game, 0, totalPaths,
+                Math.max(1, pathCount / TASKS_PER_THREAD), maxDepth,
+                new SplittableRandom(SEED), stop), stop);
+    }
+
+    /**
+     * Simulates batches of paths until the estimates of all features have
+     * converged or the time budget is used up.
+     *
+     * @param stop
+     *            The flag that stops the tasks.
+     * @return The collected data.
+     */
+    private AnalysisStatistics<T> simulateAdaptive(final AtomicBoolean stop) {
+        final long deadline = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(timeBudget);
+        final int batchSize = ADAPTIVE_PATHS_PER_THREAD * THREAD_COUNT;
+        final SplittableRandom random = new SplittableRandom(SEED);
+        final AnalysisStatistics<T> statistics = new AnalysisStatistics<>();
+        int from = 0;
+        do {
+            statistics.merge(execute(new AnalysisTask<>(game, from,
+                    from + batchSize,
+                    Math.max(1, ADAPTIVE_PATHS_PER_THREAD / TASKS_PER_THREAD),
+                    maxDepth, random.split(), stop, deadline), stop));
+            from += batchSize;
+        } while (!stop.get() && !hasConverged(statistics));
+        return statistics;
+    }
+
+    /**
+     * Checks whether the confidence intervals of the average branching
+     * factor, the average depth and the termination rate are small enough.
+     * The half width of an interval has to be below {@link #tolerance} times
+     * the absolute value of the mean. Means below 1 are treated as 1, so the
+     * termination rate is checked with an absolute tolerance.
+     *
+     * @param statistics
+     *            The data collected so far.
+     * @return {@code true} if all estimates have converged.
+     */
+    private boolean hasConverged(final AnalysisStatistics<T> statistics) {
+        if (statistics.getPathCount() < ADAPTIVE_MIN_PATHS) {
+            return false;
+        }
+        return isPrecise(statistics.getPathBranching())
+                && isPrecise(statistics.getPathDepth())
+                && isPrecise(statistics.getPathTermination());
+    }
+
+    /**
+     * Checks whether the confidence interval of the given statistics is small
+     * enough.
+     *
+     * @param pStatistics
+     *            The statistics to check.
+     * @return {@code true} if the confidence interval is small enough.
+     */
+    private boolean isPrecise(final RunningStatistics pStatistics) {
+        return pStatistics.getConfidenceHalfWidth(Z_95) <= tolerance
+                * Math.max(1, Math.abs(pStatistics.getMean()));
+    }
+
+    /**
+     * Executes the given task on the {@link #POOL} and waits for its result.
+     * If the current thread is interrupted, the tasks are stopped and the data
+     * collected so far is returned.
+     *
+     * @param pTask
+     *            The task to execute.
+     * @param stop
+     *            The flag that stops the tasks.
+     * @return The collected data.
+     */
+    private AnalysisStatistics<T> execute(final AnalysisTask<T> pTask,
+            final AtomicBoolean stop) {
+        final ForkJoinTask<AnalysisStatistics<T>> future = POOL.submit(pTask);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            // In this case the thread was interrupted, meaning the analysis
+            // should stop. The tasks are signalled and the data already
+            // collected is used.
+            stop.set(true);
+            shutDownAsap = true;
+            Thread.currentThread().interrupt();
+            return future.join();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Enables or disables the adaptive mode. In adaptive mode, paths are
+     * simulated in batches until the confidence intervals of the average
+     * branching factor, the average depth and the termination rate are
+     * smaller than the tolerance, or until the time budget is used up. The
+     * path count set by {@link #setPathsPerThread(int)} is ignored.
+     * 
+     * @param pAdaptive
+     *            {@code true} to enable the adaptive mode.
+     */
+    public void setAdaptive(final boolean pAdaptive) {
+        adaptive = pAdaptive;
+    }
+
+    /**
+     * Sets the relative tolerance of the adaptive mode. The analysis stops once
+     * the half width of the 95% confidence interval of every feature is below
+     * this fraction of its mean.
+     * 
+     * @param pTolerance
+     *            The new tolerance. Has to be > 0.
+     */
+    public void setTolerance(final double pTolerance) {
+        if (!(pTolerance > 0)) {
+            throw new IllegalArgumentException("Tolerance has to be > 0");
+        }
+        tolerance = pTolerance;
+    }
+
+    /**
+     * Sets the wall-clock time the adaptive mode may use at most.
+     * 
+     * @param pTimeBudget
+     *            The new time budget in milliseconds. Has to be > 0.
+     */
+    public void setTimeBudget(final long pTimeBudget) {
+        if (pTimeBudget <= 0) {
+            throw new IllegalArgumentException("Time budget has to be > 0");
+        }
+        timeBudget = pTimeBudget;
+    }
+
     /**
      * Sets the amount of paths to be calculated per thread. A high value will
      * result in a statistically more meaningful result, but at the same time
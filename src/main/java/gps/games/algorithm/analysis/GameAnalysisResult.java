@@ -102,6 +102,13 @@ public class GameAnalysisResult implements IGameAnalysisResult {
      */
     private final Double memoryPerNode;
 
+    /**
+     * The estimated number of distinct states visited by the analysis. Will
+     * be null if it is not known. Transient, so that the serialized form read
+     * by the analysis cache does not change.
+     */
+    private transient Long distinctStateEstimate;
+
     /**
      * The constructor for a GameAnalysisResult. The GameAnalysisResult is based
      * contains all information found by the Analyser about a given problem.
@@ -219,6 +226,33 @@ public class GameAnalysisResult implements IGameAnalysisResult {
         memoryPerNode = pMemoryPerNode.orElse(null);
     }
 
+    /**
+     * The constructor for a GameAnalysisResult that also contains the
+     * estimated number of distinct states. The other parameters are the ones
+     * of the constructor without the estimate.
+     * 
+     * @param pDistinctStateEstimate
+     *            The estimated number of distinct states visited by the
+     *            analysis. Can not be < 0.
+     */
+    public GameAnalysisResult(final Double pAvgBranchingFactor,
+            final Double pAvgDepth, final Double pAvgTime,
+            final Integer pCompletedNodeCount, final Double pTerminationRate,
+            final Tuple<Integer, Integer> pDepthRange, final GameTree<?> pTree,
+            final Optional<Integer> pPlayerNumber,
+            final Optional<Tuple<Number, Number>> pUtilityRange,
+            final Optional<Double> pMemoryPerNode,
+            final long pDistinctStateEstimate) {
+        this(pAvgBranchingFactor, pAvgDepth, pAvgTime, pCompletedNodeCount,
+                pTerminationRate, pDepthRange, pTree, pPlayerNumber,
+                pUtilityRange, pMemoryPerNode);
+        if (pDistinctStateEstimate < 0) {
+            throw new IllegalArgumentException(
+                    "Distinct state estimate can not be < 0");
+        }
+        distinctStateEstimate = pDistinctStateEstimate;
+    }
+
     @Override
     public Double getAvgBranchingFactor() {
         return avgBranchingFactor;
@@ -269,6 +303,11 @@ public class GameAnalysisResult implements IGameAnalysisResult {
         return new GameTree<>();
     }
 
+    @Override
+    public Optional<Long> getDistinctStateEstimate() {
+        return Optional.ofNullable(distinctStateEstimate);
+    }
+
     @Override
     public Optional<Double> getMemoryPerNode() {
         return Optional.ofNullable(memoryPerNode);
@@ -120,6 +120,18 @@ public interface IGameAnalysisResult {
      */
     public Integer getCompletedNodeCount();
 
+    /**
+     * Returns the estimated number of distinct states visited by the
+     * analysis. Since only some paths are simulated, the game has at least
+     * about as many states. The estimate is not kept by the
+     * {@link gps.util.AnalysisCache}, so results read from the cache file do
+     * not contain it.
+     * 
+     * @return The estimated number of distinct states, or Optional.empty() if
+     *         it is not known.
+     */
+    public Optional<Long> getDistinctStateEstimate();
+
     /**
      * Returns an array of doubles containing all values to be used in the
      * classification.
@@ -60,4 +60,21 @@ public class HeuristicUtility {
         return Arrays.asList(pStartState.getUserHeuristicMultiplayer());
     }
 
+    /**
+     * Interprets a singleplayer heuristic as an estimate of the number of
+     * moves that are needed to reach a terminal state. Since higher values
+     * are better, the estimate is the negated value of the heuristic, values
+     * above 0 count as 0.
+     *
+     * @param pHeuristic
+     *            The heuristic.
+     * @param pGame
+     *            The state.
+     * @return The estimated number of remaining moves, at least 0.
+     */
+    public static double remainingMoves(final ISingleplayerHeuristic pHeuristic,
+            final Game<?> pGame) {
+        return Math.max(0, -pHeuristic.eval(pGame));
+    }
+
 }
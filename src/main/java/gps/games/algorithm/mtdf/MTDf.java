@@ -21,6 +21,7 @@ import gps.common.BenchmarkField;
 import gps.games.GamesModule;
 import gps.games.algorithm.AbstractGameAlgorithm;
 import gps.games.algorithm.alphabetapruning.AlphaBetaPruning;
+import gps.games.util.transpositionTable.PersistentTable;
 import gps.games.util.transpositionTable.TranspositionTable;
 import gps.games.wrapper.Action;
 import gps.games.wrapper.successor.INode;
@@ -68,7 +69,8 @@ public class MTDf<T> extends AbstractGameAlgorithm<T> {
     public MTDf(final GamesModule<T> pModule) {
         super(pModule, BenchmarkField.DEEPEST_DISCOVERED_NODE,
                 BenchmarkField.PROCESSED_NODES,
-                BenchmarkField.BEST_MOVE_HEURISTIC);
+                BenchmarkField.BEST_MOVE_HEURISTIC,
+                BenchmarkField.HEURISTIC_CACHE_HIT_RATE);
         alphaBetaPruning = new AlphaBetaPruning<>(pModule);
         if (module.getDepthlimit() <= 0) {
             module.setDepthlimit(15);
@@ -84,6 +86,7 @@ public class MTDf<T> extends AbstractGameAlgorithm<T> {
     @Override
     public Optional<Action> bestMove() {
         bestMove = null;
+        alphaBetaPruning.clearMoveOrdering();
         iterativeDeepening(new Node<>(module.getGame()));
         return Optional.ofNullable(bestMove);
     }
@@ -93,6 +96,7 @@ public class MTDf<T> extends AbstractGameAlgorithm<T> {
         double upperBound = Double.MAX_VALUE;
         double lowerBound = -Double.MAX_VALUE;
         double beta;
+        Action move = null;
         alphaBetaPruning.setMtdfDepthLimit(depth);
         alphaBetaPruning.clearTranspositionTable();
         while (lowerBound < upperBound) {
@@ -103,9 +107,11 @@ public class MTDf<T> extends AbstractGameAlgorithm<T> {
                 upperBound = g;
             } else {
                 lowerBound = g;
+                // only a fail high proves the value of the move
+                move = alphaBetaPruning.getBestMove();
             }
         }
-        bestMove = alphaBetaPruning.getBestMove();
+        bestMove = move != null ? move : alphaBetaPruning.getBestMove();
         benchmark.deepestDiscoveredNode = (Integer) alphaBetaPruning
                 .getBenchmark().getField(BenchmarkField.DEEPEST_DISCOVERED_NODE)
                 .get();
@@ -113,6 +119,9 @@ public class MTDf<T> extends AbstractGameAlgorithm<T> {
                 .getField(BenchmarkField.PROCESSED_NODES).get();
         benchmark.bestMoveHeuristic = alphaBetaPruning.getBenchmark()
                 .getField(BenchmarkField.BEST_MOVE_HEURISTIC);
+        benchmark.heuristicCacheHitRate = (Double) alphaBetaPruning
+                .getBenchmark()
+                .getField(BenchmarkField.HEURISTIC_CACHE_HIT_RATE).get();
         return g;
     }
 
@@ -142,6 +151,18 @@ public class MTDf<T> extends AbstractGameAlgorithm<T> {
         this.transpositionTableSize = transpositionTableSize;
     }
 
+    /**
+     * Sets a table, which keeps the bounds found by this algorithm between
+     * runs, so that a later search of the same states starts warm. See
+     * {@link AlphaBetaPruning#setPersistentTable(PersistentTable)}.
+     *
+     * @param pPersistentTable
+     *            the table, {@code null} to use none
+     */
+    public void setPersistentTable(final PersistentTable pPersistentTable) {
+        alphaBetaPruning.setPersistentTable(pPersistentTable);
+    }
+
     @Override
     public String getName() {
         return "MTDf";
@@ -21,10 +21,15 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
@@ -78,13 +83,13 @@ public class IterativeNMCS<T> extends AbstractGameAlgorithm<T> {
      * The current result is stored in this attribute. If a better solution is
      * found, this attribute is set with set solution.
      */
-    private Sample result;
+    private volatile Sample result;
 
     /**
      * This flag is set when one iteration of {@link NMCS} is executed. Used in
      * {@link IterativeNMCS#isFinished()}
      */
-    private boolean terminatedOnce;
+    private volatile boolean terminatedOnce;
 
     /**
      * A flag that signals whether circles should be avoided during the sampling
@@ -100,10 +105,18 @@ public class IterativeNMCS<T> extends AbstractGameAlgorithm<T> {
     private boolean shortestPathProblem;
 
     /**
-     * Lock to prevent concurrency problems. The usage of this locks handles that only the
-     * wanted number of threads is running.
+     * Daemon thread pool shared by all instances of this class. Runs the
+     * iterations of {@link NMCS} as well as the {@link AbstractRecycler}s.
      */
-    private ReentrantLock startedLock = new ReentrantLock();
+    private static final ExecutorService EXECUTOR = Executors
+            .newCachedThreadPool(new ThreadFactoryBuilder().setDaemon(true)
+                    .setNameFormat("iterative-nmcs-%d").build());
+
+    /**
+     * The logger for this class
+     */
+    private static final Logger LOGGER = Logger
+            .getLogger(IterativeNMCS.class.getCanonicalName());
 
     /**
      * A boolean that signals if the heuristic version of {@link NMCS} should be
@@ -155,6 +168,13 @@ public class IterativeNMCS<T> extends AbstractGameAlgorithm<T> {
      */
     private boolean dynamic;
 
+    /**
+     * The task that executes the iterations of the last call of
+     * {@link #startAlgorithm()}. It may still run the stopped iteration after
+     * that call returned and is awaited before {@link #nmcs} is used again.
+     */
+    private transient Future<?> iterations;
+
     /**
      * Constructor. Calls the super constructor with the given game. Initializes
      * {@link #result}.
@@ -254,16 +274,24 @@ public class IterativeNMCS<T> extends AbstractGameAlgorithm<T> {
     }
 
     /**
-     * Starts the algorithm. Executes iterations of {@link NMCS}
-     * until the {@link #timeLimit} is exceeded or the thread is interrupted. Keeps the {@link #result} attribute
-     * up to date with the best current result.
+     * Starts the algorithm. Executes iterations of {@link NMCS} until the
+     * {@link #timeLimit} is exceeded or the thread is interrupted. Keeps the
+     * {@link #result} attribute up to date with the best current result.
+     *
+     * The iterations and the recycler run on the shared {@link #EXECUTOR}.
+     * The iterations are executed one after another by a single task, so the
+     * calling thread only blocks until the first of the following events
+     * occurs: the iterations are done, the deadline is reached or the thread
+     * gets interrupted. Afterwards the task is stopped by a flag that belongs
+     * to this call only, so it cannot start another iteration. A following
+     * call waits until the stopped iteration is finished, as both would work
+     * on the same {@link #nmcs} and {@link #data}.
      */
     public void startAlgorithm() {
-        //Two thread: one for the recycler and one for NMCS
-        ExecutorService threadPool = Executors.newFixedThreadPool(
-                (recycler == null) ? 1 : 2,
-                new ThreadFactoryBuilder().setDaemon(true).build());
         startTime = System.currentTimeMillis();
+        if (!awaitIterations()) {
+            return;
+        }
         if (nmcs == null) {
             if (useHeuristic && heuristic != null) {
                 if (dynamic) {
@@ -279,67 +307,149 @@ public class IterativeNMCS<T> extends AbstractGameAlgorithm<T> {
                         getMemorySavingMode());
             }
         }
-        if (recycler != null) {
-            threadPool.execute(() -> recycler.run());
-        }
-        while (timeLeft() && !Thread.currentThread().isInterrupted()) {
-            if (!startedLock.isLocked() && !threadPool.isTerminated()) {
-                threadPool.execute(() -> {
-                    startedLock.lock();
-                    nmcs.setCircleAvoidance(circleAvoidance);
-                    nmcs.setShortestPath(shortestPathProblem);
-                    nmcs.setStartingLevel(startingLevel);
-                    //If terminateOnFoundSolution is set, set NMCSs terminateOnFoundSolution
-                    //flag
-                    nmcs.terminateOnFoundSolution(terminateOnFoundSolution);
-                    if (recycler != null) {
-                        nmcs.setRecycler(recycler);
-                    }
-                    nmcs.start();
-                    terminatedOnce = true;
-                    if (result.getValue() < nmcs.getResult().getValue()) {
-                        result = nmcs.getResult();
-                    }
-                    startedLock.unlock();
-                });
-            }
-            // Do not iterate through the loop if termination on a found solution is activated.
-            if (terminatedOnce && terminateOnFoundSolution) {
-                // If that is the case, terminatedOnce does not really mean that the algorithm finished.
-                // So I set it with false
-                terminatedOnce = false;
-                break;
+        Future<?> recyclerTask = (recycler != null)
+                ? EXECUTOR.submit(recycler) : null;
+        final AtomicBoolean stopped = new AtomicBoolean();
+        iterations = EXECUTOR.submit(() -> runIterations(stopped));
+        try {
+            if (timeLimit < 0) {
+                iterations.get();
+            } else {
+                iterations.get(Math.max(0, timeLimit
+                        - (System.currentTimeMillis() - startTime)),
+                        TimeUnit.MILLISECONDS);
             }
+        } catch (TimeoutException e) {
+            // Deadline reached. The running iteration is stopped below.
+        } catch (ExecutionException e) {
+            LOGGER.log(Level.WARNING, "NMCS iteration failed", e.getCause());
+        } catch (InterruptedException e) {
+            //Restore the interrupt status
+            Thread.currentThread().interrupt();
         }
-        nmcs.stop();
-        if (result.getValue() < nmcs.getResult().getValue()) {
-            result = nmcs.getResult();
+        synchronized (stopped) {
+            // no iteration can be started after this block
+            stopped.set(true);
+            nmcs.stop();
+        }
+        if (recyclerTask != null) {
+            recyclerTask.cancel(true);
         }
-        threadPool.shutdownNow();
         try {
-            threadPool.awaitTermination(500, TimeUnit.MILLISECONDS);
-            if (recycler != null && recycler.getBestElem() != null) {
-                Sample sample = new Sample();
-                sample.setSequence(recycler.getBestElem().stream()
-                        .filter(a -> !a.isRoot()).map(INode::getAction)
-                        .collect(Collectors.toList()));
-                sample.setValue(NMCS.utilityAbstraction(
-                        recycler.getBestElem().size(), recycler.getBestElem()
-                                .get(recycler.getBestElem().size() - 1)));
-                if (sample.getValue() > result.getValue()) {
-                    result = sample;
-                }
-            }
+            iterations.get(500, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // Use the intermediate result of nmcs in both cases.
         } catch (InterruptedException e) {
             //Restore the interrupt status
             Thread.currentThread().interrupt();
         }
+        // Do not count an iteration that finished because of
+        // terminateOnFoundSolution, as the algorithm is not really finished
+        // in that case.
+        if (terminateOnFoundSolution) {
+            terminatedOnce = false;
+        }
+        updateResult(nmcs.getResult());
+        if (recycler != null && recycler.getBestElem() != null) {
+            Sample sample = new Sample();
+            sample.setSequence(recycler.getBestElem().stream()
+                    .filter(a -> !a.isRoot()).map(INode::getAction)
+                    .collect(Collectors.toList()));
+            sample.setValue(NMCS.utilityAbstraction(
+                    recycler.getBestElem().size(), recycler.getBestElem()
+                            .get(recycler.getBestElem().size() - 1)));
+            updateResult(sample);
+        }
         //Keep the benchmarks up to date:
         benchmark.seenNodes = nmcs.getSeenNodes();
         benchmark.bestMoveDepth = Optional.of(result.getSequence().size());
         benchmark.numberOfSimulations = nmcs.getSimulationCounter();
     }
 
+    /**
+     * Waits until the {@link #iterations} of the last call of
+     * {@link #startAlgorithm()} are finished.
+     *
+     * @return {@code false} if the thread was interrupted while waiting.
+     */
+    private boolean awaitIterations() {
+        if (iterations == null) {
+            return true;
+        }
+        try {
+            iterations.get();
+        } catch (ExecutionException e) {
+            // Already reported by the call that started the iterations.
+        } catch (InterruptedException e) {
+            //Restore the interrupt status
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Executes iterations of {@link NMCS} until the given flag is set, the
+     * {@link #timeLimit} is exceeded or an iteration has found a solution
+     * while {@link #terminateOnFoundSolution} is set.
+     *
+     * @param stopped
+     *            The flag that signals that no further iterations are to be
+     *            executed. It is set only once and is used as the lock that
+     *            orders starting an iteration and stopping {@link #nmcs}.
+     */
+    private void runIterations(final AtomicBoolean stopped) {
+        do {
+            synchronized (stopped) {
+                if (stopped.get()) {
+                    return;
+                }
+                prepareIteration();
+            }
+            runIteration();
+        } while (!terminateOnFoundSolution && timeLeft());
+    }
+
+    /**
+     * Passes the current configuration to {@link #nmcs} and clears its stop
+     * flag.
+     */
+    private void prepareIteration() {
+        nmcs.setCircleAvoidance(circleAvoidance);
+        nmcs.setShortestPath(shortestPathProblem);
+        nmcs.setStartingLevel(startingLevel);
+        //If terminateOnFoundSolution is set, set NMCSs terminateOnFoundSolution
+        //flag
+        nmcs.terminateOnFoundSolution(terminateOnFoundSolution);
+        if (recycler != null) {
+            nmcs.setRecycler(recycler);
+        }
+        nmcs.reset();
+    }
+
+    /**
+     * Executes a single iteration of {@link NMCS} prepared by
+     * {@link #prepareIteration()} and updates the {@link #result}.
+     */
+    private void runIteration() {
+        nmcs.search();
+        terminatedOnce = true;
+        updateResult(nmcs.getResult());
+    }
+
+    /**
+     * Replaces the {@link #result} with the given {@link Sample} if the
+     * sample has a higher value.
+     *
+     * @param sample
+     *            The potential new result.
+     */
+    private synchronized void updateResult(final Sample sample) {
+        if (result.getValue() < sample.getValue()) {
+            result = sample;
+        }
+    }
+
     /**
      * Checks whether the time limit is exceeded.
      *
@@ -539,6 +649,22 @@ public class IterativeNMCS<T> extends AbstractGameAlgorithm<T> {
                                         + ((SearchRecycler<?>) recycler)
                                                 .getSearchRecyclerAlgorithm()
                                                 .toString()
+                                        + parallelismSuffix(
+                                                (SearchRecycler<?>) recycler)
                                 : recycler.getClass().getName()));
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the suffix that is appended to {@link #getName()} for the
+     * given {@link SearchRecycler}. Sequential recyclers get no suffix to keep
+     * the names of the existing variants unchanged.
+     *
+     * @param searchRecycler The used {@link SearchRecycler}
+     * @return The suffix
+     */
+    private static String parallelismSuffix(
+            final SearchRecycler<?> searchRecycler) {
+        return (searchRecycler.getParallelism() > 1)
+                ? "_" + searchRecycler.getParallelism() : "";
+    }
+}
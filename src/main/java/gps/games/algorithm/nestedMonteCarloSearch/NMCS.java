@@ -76,7 +76,7 @@ public class NMCS<T> {
      * Boolean that signals whether the algorithm should stop. If set, the
      * recursive calls get dissolved and the algorithm terminates.
      */
-    private boolean stop;
+    private volatile boolean stop;
 
     /**
      * If set, the algorithm terminates when a better solution than the current {@link #result} is
@@ -157,13 +157,31 @@ public class NMCS<T> {
      * {@link #startingLevel} and the given game.
      */
     public void start() {
+        reset();
+        search();
+    }
+
+    /**
+     * Clears {@link #stop}, so that the next {@link #search()} is executed.
+     */
+    void reset() {
         stop = false;
+    }
+
+    /**
+     * Executes {@link #start()} without clearing {@link #stop}. Returns
+     * immediately if {@link #stop()} has been called since the last
+     * {@link #reset()}.
+     */
+    void search() {
         data.setStartingLevel(startingLevel);
         //TODO:: verify that this is not needed anymore
         //data.clearExec();
         INode<T> terminal = nestedSearch(startingLevel, game.copy().asRoot());
         //Get new results from the recycler:
-        if (terminal != null) {
+        // The result of a stopped search is discarded, so the path is not
+        // built at all
+        if (terminal != null && !stop) {
             List<Action> path = data.getPathToAsActions(terminal,
                     startingLevel);
             Sample potentialResult = new Sample();
@@ -304,6 +322,11 @@ public class NMCS<T> {
             if (potentialTerminal != null) {
                 terminal = potentialTerminal;
             }
+            if (stop) {
+                // Following the path is not interruptible and takes long in
+                // large trees
+                return terminal;
+            }
             if (recycler != null && recycler.getBestElem() != null) {
                 data.insert(recycler.getBestElem(), level);
             }
@@ -0,0 +1,508 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.algorithm.proofNumberSearch;
+
+import gps.ResultEnum;
+import gps.common.BenchmarkField;
+import gps.games.GamesModule;
+import gps.games.algorithm.AbstractGameAlgorithm;
+import gps.games.algorithm.analysis.IGameAnalysisResult;
+import gps.games.util.StateFingerprint;
+import gps.games.util.transpositionTable.PersistentTable;
+import gps.games.wrapper.Game;
+import gps.games.wrapper.Player;
+import gps.games.wrapper.successor.INode;
+import gps.games.wrapper.successor.Node;
+import gps.util.Tuple;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Depth-first proof-number search (df-pn) by Ayumu Nagai. Proves or disproves
+ * that the current player of a two player game can force a win.
+ * <p>
+ * Every node has a proof number, the minimal number of leaves that have to be
+ * proven to prove a win, and a disproof number, the minimal number of leaves
+ * that have to be disproven to disprove it. The search always expands the
+ * most proving node, so it usually expands far fewer nodes than a full-width
+ * search. The proof and disproof numbers are kept in a transposition table of
+ * fixed size, keyed by the {@link StateFingerprint} of the states, so the
+ * game problem needs a good hashCode method. The entries are verified with
+ * {@link StateFingerprint#ofContent(Game)}.
+ * <p>
+ * A terminal state is won, if the utility of the player that has to move in
+ * the initial state is greater than the utility of the opponent. Repetitions
+ * of a state on the current path and states at the depth limit of the
+ * {@link GamesModule} count as not won. Disproofs that depend on them are not
+ * stored in the transposition table, since they depend on the path. If the
+ * search has been cut off at the depth limit, a disproof is not reported.
+ * <p>
+ * Optionally, proven states are also stored in a {@link PersistentTable}, so
+ * that later searches do not have to prove them again. Disproofs are not
+ * stored, since they may depend on the path and the depth limit.
+ */
+public class ProofNumberSearch<T> extends AbstractGameAlgorithm<T> {
+
+    /**
+     * Proof or disproof number of proven or disproven nodes.
+     */
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    /**
+     * The maximum number of states that are visited to find the opponent
+     * before the search.
+     */
+    private static final int OPPONENT_SEARCH_LIMIT = 1000;
+
+    /**
+     * Number of entries of the transposition table. Default is 2^20. Can be set
+     * using {@link #setTableSize(int)}.
+     */
+    private int tableSize = 1 << 20;
+
+    /**
+     * The transposition table of the running search.
+     */
+    private ProofTable table;
+
+    /**
+     * Optional table keeping the proven states between runs, {@code null} if
+     * not set.
+     */
+    private PersistentTable persistentTable;
+
+    /**
+     * The states on the current path. Compared with
+     * {@link Game#equals(Object)}, as a state that only shares the fingerprint
+     * of a state on the path is no repetition.
+     */
+    private final Set<Game<T>> path = new HashSet<>();
+
+    /**
+     * The player that has to move in the initial state.
+     */
+    private Player maxPlayer;
+
+    /**
+     * The opponent of {@link #maxPlayer}. {@code null} if it does not move in
+     * the states visited so far.
+     */
+    private Player opponent;
+
+    /**
+     * {@code true}, if a state at the depth limit has been treated as not won.
+     */
+    private boolean cutOff;
+
+    /**
+     * Creates a new proof-number search instance.
+     *
+     * @param pModule
+     *            The module that instantiated the algorithm.
+     */
+    public ProofNumberSearch(final GamesModule<T> pModule) {
+        super(pModule, BenchmarkField.DEEPEST_DISCOVERED_NODE,
+                BenchmarkField.PROCESSED_NODES);
+    }
+
+    @Override
+    public boolean isApplicable(final ResultEnum type) {
+        return type == ResultEnum.WINNABLE
+                && module.getGame().hasPlayerMethod()
+                && module.getGame().hasUtilityPlayerMethod()
+                && module.gameAnalysis().isPresent()
+                && module.gameAnalysis().get().getPlayerNumber().isPresent()
+                && module.gameAnalysis().get().getPlayerNumber().get() == 2;
+    }
+
+    @Override
+    public Optional<Boolean> isWinnable() {
+        final INode<T> root = new Node<>(module.getGame());
+        maxPlayer = root.getGame().getPlayer();
+        opponent = findOpponent(root);
+        cutOff = false;
+        path.clear();
+        table = new ProofTable(tableSize);
+        ProofNumbers result = evaluate(root);
+        if (result.proof != 0 && result.disproof != 0) {
+            result = search(root, INFINITY, INFINITY);
+        }
+        table = null;
+        if (result.proof == 0) {
+            return Optional.of(true);
+        }
+        if (result.disproof == 0 && !cutOff) {
+            return Optional.of(false);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Searches the first states of the game for a player other than
+     * {@link #maxPlayer}, so that terminal states are compared with the
+     * utility of the opponent from the start.
+     *
+     * @param root
+     *            the initial state
+     * @return the opponent or {@code null} if it does not move in the first
+     *         {@link #OPPONENT_SEARCH_LIMIT} states
+     */
+    private Player findOpponent(final INode<T> root) {
+        final Deque<INode<T>> open = new ArrayDeque<>();
+        open.add(root);
+        for (int n = 0; n < OPPONENT_SEARCH_LIMIT && !open.isEmpty(); n++) {
+            final INode<T> node = open.poll();
+            if (node.getGame().isTerminal()) {
+                continue;
+            }
+            if (!maxPlayer.equals(node.getGame().getPlayer())) {
+                return node.getGame().getPlayer();
+            }
+            open.addAll(node.getSuccessors(getMemorySavingMode()));
+        }
+        return null;
+    }
+
+    /**
+     * Expands the given node until its proof number reaches the proof
+     * threshold or its disproof number reaches the disproof threshold, the
+     * multiple iterative deepening step of df-pn.
+     *
+     * @param node
+     *            the node to expand
+     * @param proofThreshold
+     *            the proof threshold
+     * @param disproofThreshold
+     *            the disproof threshold
+     * @return the proof and disproof number of the node
+     */
+    private ProofNumbers search(final INode<T> node, final int proofThreshold,
+            final int disproofThreshold) {
+        benchmark.processedNodes++;
+        if (node.getDepth() > benchmark.deepestDiscoveredNode) {
+            benchmark.deepestDiscoveredNode = node.getDepth();
+        }
+        final Game<T> game = node.getGame();
+        final long key = StateFingerprint.of(game);
+        final boolean or = maxPlayer.equals(game.getPlayer());
+        if (!or && opponent == null) {
+            opponent = game.getPlayer();
+        }
+        final List<INode<T>> successors = node
+                .getSuccessors(getMemorySavingMode());
+        final ProofNumbers[] children = new ProofNumbers[successors.size()];
+        path.add(game);
+        ProofNumbers current;
+        long work = 1;
+        for (int i = 0; i < children.length; i++) {
+            children[i] = evaluate(successors.get(i));
+        }
+        while (true) {
+            current = combine(children, or);
+            if (current.proof >= proofThreshold
+                    || current.disproof >= disproofThreshold
+                    || Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            // select the most proving child and the second best value
+            int best = -1;
+            long bestValue = INFINITY;
+            long second = INFINITY;
+            for (int i = 0; i < children.length; i++) {
+                final long value = or ? children[i].proof
+                        : children[i].disproof;
+                if (best < 0 || value < bestValue) {
+                    second = best < 0 ? INFINITY : bestValue;
+                    best = i;
+                    bestValue = value;
+                } else if (value < second) {
+                    second = value;
+                }
+            }
+            final ProofNumbers child = children[best];
+            final int childProof;
+            final int childDisproof;
+            if (or) {
+                childProof = clamp(Math.min(proofThreshold, second + 1));
+                childDisproof = clamp((long) disproofThreshold
+                        - current.disproof + child.disproof);
+            } else {
+                childProof = clamp((long) proofThreshold - current.proof
+                        + child.proof);
+                childDisproof = clamp(Math.min(disproofThreshold, second + 1));
+            }
+            final long before = benchmark.processedNodes;
+            // keep the result, the table may not be able to store it
+            children[best] = search(successors.get(best), childProof,
+                    childDisproof);
+            work += benchmark.processedNodes - before;
+        }
+        path.remove(game);
+        if (!current.pathDependent) {
+            table.put(key, StateFingerprint.ofContent(game), current.proof,
+                    current.disproof, work);
+        }
+        if (current.proof == 0 && persistentTable != null) {
+            persistentTable.put(PersistentTable.key(game, maxPlayer,
+                    PersistentTable.PROOF), game, 1, 1, PersistentTable.SOLVED,
+                    -1);
+        }
+        return current;
+    }
+
+    /**
+     * Returns the proof and disproof number of the given node without
+     * expanding it.
+     *
+     * @param node
+     *            the node
+     * @return the proof and disproof number
+     */
+    private ProofNumbers evaluate(final INode<T> node) {
+        final Game<T> game = node.getGame();
+        if (game.isTerminal()) {
+            return isWon(game) ? ProofNumbers.PROVEN : ProofNumbers.DISPROVEN;
+        }
+        if (path.contains(game)) {
+            return ProofNumbers.DISPROVEN_ON_PATH;
+        }
+        final long key = StateFingerprint.of(game);
+        final ProofNumbers stored = table.get(key, game);
+        if (stored != null) {
+            return stored;
+        }
+        if (persistentTable != null && persistentTable.get(PersistentTable
+                .key(game, maxPlayer, PersistentTable.PROOF), game) != null) {
+            return ProofNumbers.PROVEN;
+        }
+        if (module.getDepthlimit() > 0
+                && node.getDepth() >= module.getDepthlimit()) {
+            cutOff = true;
+            return ProofNumbers.DISPROVEN_ON_PATH;
+        }
+        return ProofNumbers.UNKNOWN;
+    }
+
+    /**
+     * Checks whether the given terminal state is won by {@link #maxPlayer}.
+     * If the opponent is not known, the state is only won with a positive
+     * utility that is the maximal utility found by the game analysis, so
+     * that a draw does not count as a win.
+     *
+     * @param game
+     *            the terminal state
+     * @return {@code true} if the state is won
+     */
+    private boolean isWon(final Game<T> game) {
+        final double own = game.getUtility(maxPlayer).doubleValue();
+        if (opponent != null) {
+            return own > game.getUtility(opponent).doubleValue();
+        }
+        final Optional<Tuple<Double, Double>> range = module.gameAnalysis()
+                .flatMap(IGameAnalysisResult::getUtilityRange);
+        return own > 0 && (!range.isPresent() || own >= range.get().getY());
+    }
+
+    /**
+     * Computes the proof and disproof number of a node from those of its
+     * children.
+     *
+     * @param children
+     *            the proof and disproof numbers of the children
+     * @param or
+     *            {@code true} if {@link #maxPlayer} has to move in the node
+     * @return the proof and disproof number of the node
+     */
+    private static ProofNumbers combine(final ProofNumbers[] children,
+            final boolean or) {
+        long min = INFINITY;
+        long sum = 0;
+        // a disproof depends on the path if a disproof of a child it needs
+        // depends on it
+        boolean anyDependent = false;
+        boolean anyIndependent = false;
+        for (ProofNumbers child : children) {
+            min = Math.min(min, or ? child.proof : child.disproof);
+            sum += or ? child.disproof : child.proof;
+            if (child.disproof == 0) {
+                anyDependent |= child.pathDependent;
+                anyIndependent |= !child.pathDependent;
+            }
+        }
+        if (children.length == 0) {
+            // no moves left, nothing to prove
+            return ProofNumbers.DISPROVEN;
+        }
+        if (or) {
+            return new ProofNumbers(clamp(min), clamp(sum),
+                    sum == 0 && anyDependent);
+        }
+        return new ProofNumbers(clamp(sum), clamp(min),
+                min == 0 && !anyIndependent);
+    }
+
+    /**
+     * @return the given value, at most {@link #INFINITY}
+     */
+    private static int clamp(final long value) {
+        return (int) Math.min(value, INFINITY);
+    }
+
+    /**
+     * Sets the number of entries of the transposition table, which bounds the
+     * memory used by the search. Takes effect with the next search.
+     *
+     * @param pTableSize
+     *            the number of entries, at least 2
+     */
+    public void setTableSize(final int pTableSize) {
+        if (pTableSize < 2) {
+            throw new IllegalArgumentException(
+                    "the table must have at least 2 entries");
+        }
+        tableSize = pTableSize;
+    }
+
+    /**
+     * Sets a table, which keeps the proven states between runs.
+     *
+     * @param pPersistentTable
+     *            the table, {@code null} to use none
+     */
+    public void setPersistentTable(final PersistentTable pPersistentTable) {
+        persistentTable = pPersistentTable;
+    }
+
+    @Override
+    public String getName() {
+        return "DF-PN";
+    }
+
+    /**
+     * The proof and disproof number of a node.
+     */
+    private static final class ProofNumbers {
+
+        private static final ProofNumbers PROVEN = new ProofNumbers(0,
+                INFINITY, false);
+        private static final ProofNumbers DISPROVEN = new ProofNumbers(
+                INFINITY, 0, false);
+        private static final ProofNumbers UNKNOWN = new ProofNumbers(1, 1,
+                false);
+        /**
+         * Disproven by a repetition or the depth limit.
+         */
+        private static final ProofNumbers DISPROVEN_ON_PATH = new ProofNumbers(
+                INFINITY, 0, true);
+
+        private final int proof;
+        private final int disproof;
+
+        /**
+         * {@code true} if the node is disproven only because of a repetition
+         * on the current path or the depth limit.
+         */
+        private final boolean pathDependent;
+
+        private ProofNumbers(final int pProof, final int pDisproof,
+                final boolean pPathDependent) {
+            proof = pProof;
+            disproof = pDisproof;
+            pathDependent = pPathDependent;
+        }
+    }
+
+    /**
+     * Transposition table of fixed size for proof and disproof numbers. Every
+     * fingerprint may be stored in two neighboring slots. If both are taken,
+     * the entry with the smaller subtree is replaced, so the results of
+     * expensive searches are kept. Each entry also keeps the
+     * {@link StateFingerprint#ofContent(Game)} of its state, entries of other
+     * states with the same fingerprint are ignored.
+     */
+    private static final class ProofTable {
+
+        private final long[] keys;
+        private final long[] checks;
+        private final int[] proofs;
+        private final int[] disproofs;
+        private final long[] works;
+        private final boolean[] used;
+
+        private ProofTable(final int pSize) {
+            keys = new long[pSize];
+            checks = new long[pSize];
+            proofs = new int[pSize];
+            disproofs = new int[pSize];
+            works = new long[pSize];
+            used = new boolean[pSize];
+        }
+
+        /**
+         * @return the first of the two slots of the given fingerprint
+         */
+        private int slot(final long key) {
+            return (int) ((key >>> 1) % (keys.length - 1));
+        }
+
+        /**
+         * @return the entry of the given state, {@code null} if there is none
+         */
+        private ProofNumbers get(final long key, final Game<?> game) {
+            final int s = slot(key);
+            for (int i = s; i <= s + 1; i++) {
+                if (used[i] && keys[i] == key) {
+                    // the content is only serialized for candidates
+                    if (checks[i] != StateFingerprint.ofContent(game)) {
+                        return null;
+                    }
+                    return new ProofNumbers(proofs[i], disproofs[i], false);
+                }
+            }
+            return null;
+        }
+
+        private void put(final long key, final long check, final int proof,
+                final int disproof, final long work) {
+            final int s = slot(key);
+            int target = -1;
+            for (int i = s; i <= s + 1; i++) {
+                if (!used[i] || keys[i] == key) {
+                    target = i;
+                    break;
+                }
+            }
+            if (target < 0) {
+                target = works[s] <= works[s + 1] ? s : s + 1;
+                if (works[target] > work) {
+                    return;
+                }
+            }
+            used[target] = true;
+            keys[target] = key;
+            checks[target] = check;
+            proofs[target] = proof;
+            disproofs[target] = disproof;
+            works[target] = work;
+        }
+    }
+}
@@ -74,6 +74,19 @@ abstract class AbstractINodeRecycler<T> extends AbstractRecycler<T> {
      */
     private RecyclingElement<T> bestElem;
 
+    /**
+     * Number of calls of {@link #recycle()} in a row after which the
+     * {@link #population} is considered to be exhausted, if none of them
+     * changed it.
+     */
+    private static final int MAX_IDLE_ROUNDS = 10;
+
+    /**
+     * Number of the last calls of {@link #recycle()} that did neither improve
+     * the {@link #population} nor insert new elements.
+     */
+    private int idleRounds;
+
     /**
      * Calls the super constructor an initializes the data structures.
      */
@@ -125,14 +138,48 @@ abstract class AbstractINodeRecycler<T> extends AbstractRecycler<T> {
      */
     @Override
     protected void recycle() {
+        final double before = populationValue();
         //optimize population:
         optimize();
         //Save the best element:
         saveBestElem();
+        final boolean improved = populationValue() > before;
         //Remove the worst elements of population:
         selection();
         // Insert new elements into the population:
-        reloading();
+        if (reloading() || improved) {
+            idleRounds = 0;
+        } else {
+            idleRounds++;
+        }
+    }
+
+    /**
+     * Also takes the {@link #population} into account, as long as its
+     * elements have been improved or replaced recently.
+     *
+     * @return {@code true} if the {@link #inputQueue} contains elements or
+     *         the {@link #population} is not exhausted yet.
+     */
+    @Override
+    protected boolean hasWork() {
+        return super.hasWork() || (!population.isEmpty()
+                && idleRounds < MAX_IDLE_ROUNDS);
+    }
+
+    /**
+     * Sums up the values of the elements of the {@link #population}, see
+     * {@link #sortPopulation()}. Rises whenever an element is improved.
+     *
+     * @return The sum of the values.
+     */
+    private double populationValue() {
+        double value = 0;
+        for (RecyclingElement<T> element : population) {
+            value += NMCS.utilityAbstraction(element.elem.size(),
+                    element.elem.get(element.elem.size() - 1));
+        }
+        return value;
     }
 
     /**
@@ -146,9 +193,12 @@ abstract class AbstractINodeRecycler<T> extends AbstractRecycler<T> {
      * elements of the {@link #inputQueue} are inserted into the {@link #population}
      * until the {@link #populationCapacity} is reached or the {@link #inputQueue} is
      * empty.
+     *
+     * @return {@code true} if elements have been inserted.
      */
-    private void reloading() {
+    private boolean reloading() {
         int space = populationCapacity - population.size();
+        final int before = space;
         while (space > 0 && !inputQueue.isEmpty()) {
             try {
                 inputLock.lock();
@@ -160,6 +210,7 @@ abstract class AbstractINodeRecycler<T> extends AbstractRecycler<T> {
             }
         }
         sortPopulation();
+        return space < before;
     }
 
     /**
@@ -53,6 +53,13 @@ public abstract class AbstractRecycler<T> implements Runnable {
      */
     private int inputCapacity;
 
+    /**
+     * Monitor that gets notified whenever a new element is inserted via
+     * {@link #insert(List)}. Used by {@link #run()} to wait for work instead
+     * of spinning while there is nothing to recycle.
+     */
+    private final Object inputSignal = new Object();
+
     AbstractRecycler() {
         super();
         inputCapacity = 26;
@@ -78,6 +85,9 @@ public abstract class AbstractRecycler<T> implements Runnable {
             } finally {
                 inputLock.unlock();
             }
+            synchronized (inputSignal) {
+                inputSignal.notifyAll();
+            }
         }
     }
 
@@ -102,17 +112,50 @@ public abstract class AbstractRecycler<T> implements Runnable {
 
     /**
      * Called when {@link Thread#start()} is called. Handles the course
-     * of the algorithm. Terminates on interrupts.
+     * of the algorithm. Terminates on interrupts. Waits for new elements
+     * while {@link #hasWork()} returns {@code false}.
      */
     @Override
     public void run() {
         while (!Thread.currentThread().isInterrupted()) {
+            if (!hasWork()) {
+                awaitInput();
+                continue;
+            }
             //recycle:
             recycle();
         }
         clean();
     }
 
+    /**
+     * Blocks until {@link #hasWork()} returns {@code true} or the current
+     * thread is interrupted.
+     */
+    private void awaitInput() {
+        synchronized (inputSignal) {
+            try {
+                while (!hasWork()) {
+                    inputSignal.wait();
+                }
+            } catch (InterruptedException e) {
+                //Restore the interrupt status to terminate run()
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Checks whether there is something to recycle. Per default returns
+     * {@code true} if the {@link #inputQueue} is not empty. Can be overridden
+     * by recyclers that keep elements outside of the {@link #inputQueue}.
+     *
+     * @return {@code true} if {@link #recycle()} can make progress.
+     */
+    protected boolean hasWork() {
+        return !inputQueue.isEmpty();
+    }
+
     /**
      * This method is called when the {@link AbstractINodeRecycler} is interrupted and
      * going to terminate.
@@ -19,6 +19,7 @@ package gps.games.algorithm.recycling;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import gps.common.AbstractAlgorithm;
 import gps.games.GamesModule;
+import gps.games.MemorySavingMode;
 import gps.games.algorithm.heuristic.DeltaHeuristic;
 import gps.games.algorithm.singleplayer.AStar;
 import gps.games.algorithm.singleplayer.BreadthFirst;
@@ -32,6 +33,8 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 /**
@@ -44,6 +47,20 @@ import java.util.stream.Collectors;
  */
 public class SearchRecycler<T> extends AbstractINodeRecycler<T> {
 
+    /**
+     * The logger for this class
+     */
+    private static final Logger LOGGER = Logger
+            .getLogger(SearchRecycler.class.getCanonicalName());
+
+    /**
+     * The {@link #parallelism} used by the parallel variants in
+     * {@link #getSearchRecyclerVariants()}. Leaves one core for the algorithm
+     * that feeds the recycler.
+     */
+    public static final int DEFAULT_PARALLELISM = Math.max(2,
+            Runtime.getRuntime().availableProcessors() - 1);
+
     /**
      * This attribute determines the length of the sub paths that are extracted from the elements
      * of the {@link #population}.
@@ -70,7 +87,8 @@ public class SearchRecycler<T> extends AbstractINodeRecycler<T> {
     /**
      * To be able to interrupt the bfs when this thread is interrupted this
      * thread pool is used. The bfs is run in another thread and gets interrupted
-     * when this thread gets interrupted.
+     * when this thread gets interrupted. Contains {@link #parallelism} threads, so
+     * that multiple elements can be optimized at the same time.
      */
     // I know creating threads is expensive and a lot of bfs threads will be created
     // but right now I know no other way to do handle it. I read somewhere that thread
@@ -89,6 +107,12 @@ public class SearchRecycler<T> extends AbstractINodeRecycler<T> {
      */
     private boolean all;
 
+    /**
+     * The number of elements of the {@link #population} that are optimized
+     * concurrently. Also determines the size of the {@link #threadPool}.
+     */
+    private int parallelism = 1;
+
     /**
      * Constructor. Calls the super constructor and sets the {@link #seperator}
      * with the given value. The {@link #seperator} determines the length of the sub paths that are extracted from the elements
@@ -97,10 +121,29 @@ public class SearchRecycler<T> extends AbstractINodeRecycler<T> {
      * Only sub paths of that length or shorter are optimized.
      *
      * @param pSeperator The new value of {@link #seperator}
+     * @param pAlgorithm The search algorithm to use
      */
     public SearchRecycler(int pSeperator, SearchRecyclerAlgorithm pAlgorithm) {
+        this(pSeperator, pAlgorithm, 1);
+    }
+
+    /**
+     * Constructor. Additionally sets the {@link #parallelism}, i.e. the number
+     * of elements of the {@link #population} that are optimized concurrently.
+     *
+     * @param pSeperator The new value of {@link #seperator}
+     * @param pAlgorithm The search algorithm to use
+     * @param pParallelism The new value of {@link #parallelism}. Must be positive.
+     */
+    public SearchRecycler(int pSeperator, SearchRecyclerAlgorithm pAlgorithm,
+            int pParallelism) {
         super();
+        if (pParallelism < 1) {
+            throw new IllegalArgumentException(
+                    "pParallelism must be positive");
+        }
         seperator = pSeperator;
+        parallelism = pParallelism;
         if (!pAlgorithm.equals(SearchRecyclerAlgorithm.ALL)) {
             algorithm = pAlgorithm;
         } else {
@@ -109,20 +152,33 @@ public class SearchRecycler<T> extends AbstractINodeRecycler<T> {
     }
 
     /**
-     * Selects an element to be optimized using {@link #selectElement(boolean)}. Uses the
-     * {@link #search(RecyclingElement)} method to optimize it and adds it to the {@link #population}.
+     * Selects up to {@link #parallelism} elements to be optimized using
+     * {@link #selectElement(boolean)}. Optimizes them concurrently using the
+     * {@link #search(List)} method and adds them to the {@link #population}.
      */
     @Override
     protected void optimize() {
         if (!population.isEmpty()) {
-            alternationSelection = (alternationSelection + 1) % 2;
-            RecyclingElement<T> element = selectElement(
-                    alternationSelection == 1);
-            search(element);
-            population.add(element);
+            List<RecyclingElement<T>> elements = new ArrayList<>();
+            while (elements.size() < parallelism && !population.isEmpty()) {
+                alternationSelection = (alternationSelection + 1) % 2;
+                elements.add(selectElement(alternationSelection == 1));
+            }
+            search(elements);
+            population.addAll(elements);
         }
     }
 
+    /**
+     * Returns the number of elements of the {@link #population} that are
+     * optimized concurrently.
+     *
+     * @return The value of {@link #parallelism}
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
     /**
      * Return the value of {@link SearchRecyclerAlgorithm} that is used in this {@link SearchRecycler}.
      * If {@link #all} is set, the value is {@link SearchRecyclerAlgorithm#ALL}. Otherwise the value
@@ -141,64 +197,132 @@ public class SearchRecycler<T> extends AbstractINodeRecycler<T> {
     }
 
     /**
-     * Randomly extracts a sub path from the given element and optimizes it
-     * by formulating a {@link RecyclingSearchProblem} using the first element
-     * of the sub path as starting point and the last element as the goal state and
-     * applying {@link BreadthFirst} search. Replaces the original sub path with the
-     * optimized one.
+     * Randomly extracts a sub path from each of the given elements and
+     * optimizes them concurrently by formulating a
+     * {@link RecyclingSearchProblem} using the first element of the sub path
+     * as starting point and the last element as the goal state and applying
+     * the selected {@link AbstractSingleplayerSearch}. Every search works on
+     * its own copies of the start and goal state and its own
+     * {@link GamesModule}. After all searches are finished the original sub
+     * paths are replaced with the optimized ones.
      *
-     * @param element The {@link RecyclingSearchProblem} to be optimized
+     * @param elements
+     *            The {@link RecyclingElement}s to be optimized
      */
-    private void search(RecyclingElement<T> element) {
+    private void search(List<RecyclingElement<T>> elements) {
         // I instantiate it here, because kryo seem to have problems to copy threads/threadpool
         if (threadPool == null || threadPool.isShutdown()) {
-            threadPool = Executors.newFixedThreadPool(1,
+            threadPool = Executors.newFixedThreadPool(parallelism,
                     new ThreadFactoryBuilder().setDaemon(true).build());
         }
+        List<SubPathSearch<T>> searches = new ArrayList<>();
+        for (RecyclingElement<T> element : elements) {
+            searches.add(submitSearch(element));
+        }
+        //Wait for the searches to be finished
+        for (SubPathSearch<T> subPathSearch : searches) {
+            List<INode<T>> subsequence;
+            try {
+                subsequence = subPathSearch.future.get();
+            } catch (InterruptedException e) {
+                // On interrupt use the empty sub sequence
+                subsequence = new ArrayList<>();
+                threadPool.shutdownNow();
+                // Set the interrupt flag again to stop the algorithm
+                Thread.currentThread().interrupt();
+            } catch (CancellationException e) {
+                // Cancelled because of a previous interrupt
+                subsequence = new ArrayList<>();
+            } catch (ExecutionException e) {
+                // On Exceptions in the search use the empty list as well
+                subsequence = new ArrayList<>();
+                LOGGER.log(Level.WARNING, "Sub path search failed",
+                        e.getCause());
+            }
+            commit(subPathSearch, subsequence);
+        }
+    }
+
+    /**
+     * Randomly extracts a sub path from the given element and submits a search
+     * for a shorter sub path to the {@link #threadPool}.
+     *
+     * @param element
+     *            The {@link RecyclingElement} to be optimized
+     * @return The submitted search
+     */
+    private SubPathSearch<T> submitSearch(RecyclingElement<T> element) {
         int limit = (seperator < element.elem.size()) ? seperator
                 : element.elem.size() - 2;
         int randomNumber = random.nextInt(element.elem.size() - limit - 1);
-        INode<T> start = element.elem.get(randomNumber);
-        INode<T> goal = element.elem.get(randomNumber + limit);
+        // Every search works on its own copies of the states, as the nodes of
+        // the element are read concurrently by commit() and NMCS. The nodes
+        // that lead to the states are not needed.
+        INode<T> start = Game.copy(element.elem.get(randomNumber).getGame())
+                .asRoot();
+        INode<T> goal = Game
+                .copy(element.elem.get(randomNumber + limit).getGame())
+                .asRoot();
         RecyclingSearchProblem<T> searchProblem = new RecyclingSearchProblem<>(
                 start, goal);
         GamesModule<RecyclingSearchProblem<T>> module = new GamesModule<>(
                 new Game<>(searchProblem));
         module.setDepthlimit(limit);
-        //Start the bfs in another thread to be able to cancel it on interrupt
+        // Select the algorithm here, as the selection alternates if all is set
+        AbstractSingleplayerSearch<RecyclingSearchProblem<T>> searchAlgorithm = getSearchAlgorithm(
+                algorithm, module, goal.getGame().copy());
+        //Start the search in another thread to be able to cancel it on interrupt
         Future<List<INode<T>>> future = threadPool
-                .submit(() -> getSearchAlgorithm(algorithm, module,
-                        goal.getGame().copy()).stateSequence()
-                                .orElse(new ArrayList<>()).stream()
-                                .map(RecyclingSearchProblem::getCurrent)
-                                .collect(Collectors.toList()));
-        //Wait for the bfs to be finished
-        List<INode<T>> subsequence;
-        try {
-            subsequence = future.get();
-        } catch (InterruptedException e) {
-            // On interrupt use the empty sub sequence
-            subsequence = new ArrayList<>();
-            threadPool.shutdownNow();
-            // Set the interrupt flag again to stop the algorithm
-            Thread.currentThread().interrupt();
-        } catch (ExecutionException e) {
-            // On Exceptions in the bfs use the empty list as well
-            subsequence = new ArrayList<>();
-            e.printStackTrace();
+                .submit(() -> searchAlgorithm.stateSequence()
+                        .orElse(new ArrayList<>()).stream()
+                        .map(RecyclingSearchProblem::getCurrent)
+                        .collect(Collectors.toList()));
+        return new SubPathSearch<>(element, randomNumber, limit, goal, future);
+    }
+
+    /**
+     * Replaces the sub path of the searched element with the given
+     * subsequence. The new sequence is built on a copy and swapped in at
+     * once, so the element is never observed in a partially replaced state.
+     * The actions of the subsequence are replayed from the original first
+     * node of the sub path, as the searched nodes start at a detached copy of
+     * its state.
+     *
+     * @param subPathSearch
+     *            The finished search
+     * @param subsequence
+     *            The optimized sub path or an empty list if no sub path was
+     *            found
+     */
+    private void commit(SubPathSearch<T> subPathSearch,
+            List<INode<T>> subsequence) {
+        if (subsequence.isEmpty()) {
+            return;
+        }
+        RecyclingElement<T> element = subPathSearch.element;
+        int randomNumber = subPathSearch.from;
+        List<INode<T>> replayed = new ArrayList<>();
+        INode<T> node = element.elem.get(randomNumber);
+        replayed.add(node);
+        for (INode<T> searched : subsequence.subList(1, subsequence.size())) {
+            node = node.getSuccessor(searched.getAction(),
+                    MemorySavingMode.NONE);
+            replayed.add(node);
         }
-        for (int i = randomNumber; !subsequence.isEmpty()
-                && i <= randomNumber + limit; i++) {
-            element.elem.remove(randomNumber);
+        List<INode<T>> elem = new ArrayList<>(element.elem);
+        for (int i = randomNumber; i <= randomNumber
+                + subPathSearch.limit; i++) {
+            elem.remove(randomNumber);
         }
-        while (!element.elem.isEmpty() && !subsequence.isEmpty()
-                && !goal.getGame()
+        while (!elem.isEmpty()
+                && !subPathSearch.goal.getGame()
                         .equals(subsequence.get(subsequence.size() - 1)
                                 .getGame())
-                && randomNumber < element.elem.size()) {
-            element.elem.remove(randomNumber);
+                && randomNumber < elem.size()) {
+            elem.remove(randomNumber);
         }
-        element.elem.addAll(randomNumber, subsequence);
+        elem.addAll(randomNumber, replayed);
+        element.elem = elem;
     }
 
     /**
@@ -283,7 +407,10 @@ public class SearchRecycler<T> extends AbstractINodeRecycler<T> {
     }
 
     /**
-     * Returns a list of variants of  {@link SearchRecycler}s.
+     * Returns a list of variants of  {@link SearchRecycler}s. Every variant
+     * is offered as a separate algorithm, so changing this list changes the
+     * output vector of the classifier and requires the neuronal networks to
+     * be rebuilt with BUTT.
      *
      * @return A list of {@link SearchRecycler} variants
      */
@@ -301,7 +428,58 @@ public class SearchRecycler<T> extends AbstractINodeRecycler<T> {
                         SearchRecyclerAlgorithm.DEPTH_FIRST_SEARCH),
                 new SearchRecycler<Object>(240, SearchRecyclerAlgorithm.ASTAR),
                 new SearchRecycler<Object>(240, SearchRecyclerAlgorithm.ALL),
+                new SearchRecycler<Object>(30, SearchRecyclerAlgorithm.ALL,
+                        DEFAULT_PARALLELISM),
+                new SearchRecycler<Object>(240, SearchRecyclerAlgorithm.ALL,
+                        DEFAULT_PARALLELISM),
                 null);
     }
 
-}
\ No newline at end of file
+    /**
+     * A search for a shorter sub path of a {@link RecyclingElement} that has
+     * been submitted to the {@link #threadPool}.
+     *
+     * @param <T> The type of the problem to be solved
+     */
+    private static final class SubPathSearch<T> {
+
+        /**
+         * The element whose sub path is optimized.
+         */
+        private final RecyclingElement<T> element;
+
+        /**
+         * The index of the first node of the sub path.
+         */
+        private final int from;
+
+        /**
+         * The length of the sub path.
+         */
+        private final int limit;
+
+        /**
+         * The last node of the sub path.
+         */
+        private final INode<T> goal;
+
+        /**
+         * Provides the optimized sub path once the search is finished.
+         */
+        private final Future<List<INode<T>>> future;
+
+        /**
+         * Constructor. Sets the attributes with the given values.
+         */
+        private SubPathSearch(RecyclingElement<T> pElement, int pFrom,
+                int pLimit, INode<T> pGoal,
+                Future<List<INode<T>>> pFuture) {
+            element = pElement;
+            from = pFrom;
+            limit = pLimit;
+            goal = pGoal;
+            future = pFuture;
+        }
+    }
+
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.algorithm.retrograde;
+
+import gps.ResultEnum;
+import gps.common.BenchmarkField;
+import gps.games.GamesModule;
+import gps.games.algorithm.AbstractGameAlgorithm;
+import gps.games.algorithm.analysis.IGameAnalysisResult;
+import gps.games.util.StateFingerprint;
+import gps.games.wrapper.Action;
+import gps.games.wrapper.Game;
+import gps.util.Tuple;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Solves small games completely by retrograde analysis. All states reachable
+ * from the current state are enumerated and their perfect play values are
+ * computed backwards from the terminal states, see {@link RetrogradeTable}.
+ * The solved tables are shared by all instances, so the results of later
+ * positions of the same game are looked up instead of being searched, even
+ * though the {@link GamesModule} creates a new instance for every position.
+ * <p>
+ * For two player games the algorithm returns the best move and whether the
+ * player to move can force a win. For single player games it returns the
+ * shortest sequence of moves to a terminal state and whether one can be
+ * reached. The number of states is bounded by {@link #setMaxStates(int)}; if
+ * a game has more states, no result is returned. The algorithm is not
+ * applicable, if the game analysis has already visited more distinct states,
+ * see {@link IGameAnalysisResult#getDistinctStateEstimate()}.
+ */
+public class RetrogradeAnalysis<T> extends AbstractGameAlgorithm<T> {
+
+    /**
+     * Maximal number of tables in {@link #SOLVED}.
+     */
+    private static final int SOLVED_CAPACITY = 4;
+
+    /**
+     * The tables solved by all instances, keyed by the problem class and the
+     * fingerprint of the root state, the least recently used first. A table
+     * is used for every state it contains.
+     */
+    private static final Map<Tuple<Class<?>, Long>, RetrogradeTable<?>> SOLVED = new LinkedHashMap<Tuple<Class<?>, Long>, RetrogradeTable<?>>(
+            16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(
+                final Map.Entry<Tuple<Class<?>, Long>, RetrogradeTable<?>> eldest) {
+            return size() > SOLVED_CAPACITY;
+        }
+    };
+
+    /**
+     * Maximal number of states. Default is 1000000. Can be set using
+     * {@link #setMaxStates(int)}.
+     */
+    private int maxStates = 1000000;
+
+    /**
+     * The table that contains the last solved state, {@code null} if there is
+     * none.
+     */
+    private RetrogradeTable<T> table;
+
+    /**
+     * Creates a new retrograde analysis instance.
+     *
+     * @param pModule
+     *            The module that instantiated the algorithm.
+     */
+    public RetrogradeAnalysis(final GamesModule<T> pModule) {
+        super(pModule, BenchmarkField.SEEN_NODES,
+                BenchmarkField.BEST_MOVE_DEPTH);
+    }
+
+    @Override
+    public boolean isApplicable(final ResultEnum type) {
+        final Game<T> game = module.getGame();
+        if (!game.hasSuccessorsMethod() || !game.hasTerminalMethod()
+                || !module.gameAnalysis().isPresent()) {
+            return false;
+        }
+        final IGameAnalysisResult analysis = module.gameAnalysis().get();
+        // the analysis only visits some of the states
+        final Optional<Long> states = analysis.getDistinctStateEstimate();
+        if (states.isPresent() && states.get() > maxStates) {
+            return false;
+        }
+        final Optional<Integer> players = analysis.getPlayerNumber();
+        if (isTwoPlayer()) {
+            return (type == ResultEnum.BEST_MOVE
+                    || type == ResultEnum.WINNABLE)
+                    && players.isPresent() && players.get() == 2;
+        }
+        return (type == ResultEnum.MOVES || type == ResultEnum.WINNABLE)
+                && isSinglePlayer()
+                && (!players.isPresent() || players.get() == 1);
+    }
+
+    @Override
+    public Optional<Action> bestMove() {
+        final Game<T> game = module.getGame();
+        if (!isTwoPlayer() || game.isTerminal() || !solve(game)) {
+            return Optional.empty();
+        }
+        final Action bestMove = table.bestMove(game, getMemorySavingMode());
+        benchmark.bestMoveDepth = Optional.of(table.distance(game));
+        return Optional.of(bestMove);
+    }
+
+    @Override
+    public Optional<Boolean> isWinnable() {
+        final Game<T> game = module.getGame();
+        if (isTwoPlayer()) {
+            if (game.isTerminal() || !solve(game)) {
+                return Optional.empty();
+            }
+            benchmark.bestMoveDepth = Optional.of(table.distance(game));
+            return Optional.of(table.outcome(game,
+                    game.getPlayer()) == RetrogradeTable.WIN);
+        }
+        if (!isSinglePlayer()) {
+            return Optional.empty();
+        }
+        if (game.isTerminal()) {
+            return Optional.of(true);
+        }
+        if (!solve(game)) {
+            return Optional.empty();
+        }
+        benchmark.bestMoveDepth = Optional.of(table.distance(game));
+        return Optional.of(table.outcome(game, null) == RetrogradeTable.WIN);
+    }
+
+    @Override
+    public Optional<List<Action>> moves() {
+        if (!isSinglePlayer()) {
+            return Optional.empty();
+        }
+        Game<T> game = module.getGame();
+        final List<Action> moves = new ArrayList<>();
+        if (game.isTerminal()) {
+            return Optional.of(moves);
+        }
+        if (!solve(game)
+                || table.outcome(game, null) != RetrogradeTable.WIN) {
+            return Optional.empty();
+        }
+        benchmark.bestMoveDepth = Optional.of(table.distance(game));
+        while (!game.isTerminal()) {
+            final Action move = table.bestMove(game, getMemorySavingMode());
+            moves.add(move);
+            game = game.getNewGame(move, getMemorySavingMode());
+        }
+        return Optional.of(moves);
+    }
+
+    /**
+     * Solves the given state, if it is not contained in the table of the last
+     * analysis or in one of the {@link #SOLVED} tables.
+     *
+     * @param game
+     *            a non terminal state
+     * @return {@code true} if the table contains the state afterwards
+     */
+    private boolean solve(final Game<T> game) {
+        if (table != null && table.contains(game)) {
+            return true;
+        }
+        final RetrogradeTable<T> solved = lookup(game);
+        if (solved != null) {
+            table = solved;
+            return true;
+        }
+        table = RetrogradeTable.solve(game, isTwoPlayer(), maxStates,
+                getMemorySavingMode());
+        if (table == null) {
+            return false;
+        }
+        synchronized (SOLVED) {
+            SOLVED.put(new Tuple<>(game.getProblem().getClass(),
+                    StateFingerprint.of(game)), table);
+        }
+        benchmark.seenNodes = table.size();
+        return true;
+    }
+
+    /**
+     * @param game
+     *            a state
+     * @return a table of {@link #SOLVED} that contains the given state or
+     *         {@code null} if there is none
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> RetrogradeTable<T> lookup(final Game<T> game) {
+        final Class<?> problemClass = game.getProblem().getClass();
+        synchronized (SOLVED) {
+            Tuple<Class<?>, Long> found = null;
+            for (Map.Entry<Tuple<Class<?>, Long>, RetrogradeTable<?>> e : SOLVED
+                    .entrySet()) {
+                // a table of the same problem class has the same state type
+                if (e.getKey().getX() == problemClass
+                        && ((RetrogradeTable<T>) e.getValue()).contains(game)) {
+                    found = e.getKey();
+                    break;
+                }
+            }
+            // marks the table as recently used
+            return found == null ? null
+                    : (RetrogradeTable<T>) SOLVED.get(found);
+        }
+    }
+
+    /**
+     * @return {@code true} if the outcomes are decided by the utilities of
+     *         the players. The game analysis is not used, since it may miss a
+     *         player in a state near the end of the game.
+     */
+    private boolean isTwoPlayer() {
+        return module.getGame().hasPlayerMethod()
+                && module.getGame().hasUtilityPlayerMethod();
+    }
+
+    /**
+     * @return {@code true} if every terminal state is a goal
+     */
+    private boolean isSinglePlayer() {
+        return !module.getGame().hasPlayerMethod();
+    }
+
+    /**
+     * Sets the maximal number of states. Takes effect with the next analysis.
+     *
+     * @param pMaxStates
+     *            the maximal number of states, must be greater than 0
+     */
+    public void setMaxStates(final int pMaxStates) {
+        if (pMaxStates <= 0) {
+            throw new IllegalArgumentException(
+                    "the number of states must be greater than 0");
+        }
+        maxStates = pMaxStates;
+    }
+
+    @Override
+    public String getName() {
+        return "Retrograde-Analysis";
+    }
+}
@@ -0,0 +1,342 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.algorithm.retrograde;
+
+import gps.games.MemorySavingMode;
+import gps.games.wrapper.Action;
+import gps.games.wrapper.Game;
+import gps.games.wrapper.Player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The perfect play values of all states reachable from a root state, computed
+ * by retrograde analysis.
+ * <p>
+ * The states are enumerated by a breadth first search and numbered in the
+ * order they are found. Starting at the terminal states, the outcomes are then
+ * propagated backwards along the predecessors of the states: a state is won
+ * by the player to move, if one of its successors is won by that player, and
+ * lost, if all of its successors are lost for that player. The remaining
+ * states are draws. The
+ * distance of a state is the number of moves to the end of the game, if the
+ * winner plays as fast and the loser as slow as possible.
+ * <p>
+ * In a single player game, a state is won, if a terminal state can be reached
+ * from it, the distance is the length of the shortest path.
+ */
+final class RetrogradeTable<T> {
+
+    /**
+     * Outcome of a state that is won by {@link #player}.
+     */
+    static final byte WIN = 1;
+
+    /**
+     * Outcome of a state that is lost by {@link #player}.
+     */
+    static final byte LOSS = 2;
+
+    /**
+     * Outcome of a state that is a draw.
+     */
+    static final byte DRAW = 3;
+
+    /**
+     * Outcome of a state that has not been determined yet.
+     */
+    private static final byte UNKNOWN = 0;
+
+    /**
+     * The player from whose view the outcomes are given, the player to move
+     * in the root state, {@code null} for a single player game.
+     */
+    private final Player player;
+
+    /**
+     * The index of every state.
+     */
+    private final Map<Game<T>, Integer> index = new HashMap<>();
+
+    /**
+     * The outcome of every state.
+     */
+    private byte[] outcome;
+
+    /**
+     * The distance of every state to the end of the game.
+     */
+    private int[] distance;
+
+    /**
+     * Creates an empty table. The tables are created by
+     * {@link #solve(Game, boolean, int, MemorySavingMode)}.
+     */
+    private RetrogradeTable(final Player pPlayer) {
+        player = pPlayer;
+    }
+
+    /**
+     * Solves all states reachable from the given root state.
+     *
+     * @param root
+     *            the root state, must not be terminal
+     * @param twoPlayer
+     *            {@code true} for a two player game, {@code false} for a
+     *            single player game
+     * @param maxStates
+     *            the maximal number of states
+     * @param memorySavingMode
+     *            the memory saving mode used to create the successors
+     * @return the table or {@code null} if more than {@code maxStates} states
+     *         are reachable, more than two players move or the thread has
+     *         been interrupted
+     */
+    static <T> RetrogradeTable<T> solve(final Game<T> root,
+            final boolean twoPlayer, final int maxStates,
+            final MemorySavingMode memorySavingMode) {
+        final Player player = twoPlayer ? root.getPlayer() : null;
+        final RetrogradeTable<T> table = new RetrogradeTable<>(player);
+
+        // enumerate the states, the successors of state i are
+        // successors[firstSuccessor[i]] to successors[firstSuccessor[i+1]-1]
+        final List<Game<T>> states = new ArrayList<>();
+        final BitSet playerToMove = new BitSet();
+        final BitSet terminal = new BitSet();
+        int[] firstSuccessor = new int[16];
+        int[] successors = new int[16];
+        int edges = 0;
+        Player opponent = null;
+        states.add(root);
+        table.index.put(root, 0);
+        for (int i = 0; i < states.size(); i++) {
+            if (Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+            if (i + 1 >= firstSuccessor.length) {
+                firstSuccessor = Arrays.copyOf(firstSuccessor,
+                        2 * firstSuccessor.length);
+            }
+            firstSuccessor[i] = edges;
+            final Game<T> game = states.get(i);
+            if (game.isTerminal()) {
+                terminal.set(i);
+                continue;
+            }
+            if (player != null) {
+                final Player toMove = game.getPlayer();
+                if (toMove.equals(player)) {
+                    playerToMove.set(i);
+                } else if (opponent == null) {
+                    opponent = toMove;
+                } else if (!opponent.equals(toMove)) {
+                    // more than two players
+                    return null;
+                }
+            }
+            for (Action action : game.getActions()) {
+                final Game<T> successor = game.getNewGame(action,
+                        memorySavingMode);
+                Integer successorIndex = table.index.get(successor);
+                if (successorIndex == null) {
+                    if (states.size() >= maxStates) {
+                        return null;
+                    }
+                    successorIndex = states.size();
+                    states.add(successor);
+                    table.index.put(successor, successorIndex);
+                }
+                if (edges == successors.length) {
+                    successors = Arrays.copyOf(successors, 2 * edges);
+                }
+                successors[edges++] = successorIndex;
+            }
+        }
+        final int size = states.size();
+        firstSuccessor[size] = edges;
+
+        // the predecessors of state i are
+        // predecessors[firstPredecessor[i]] to
+        // predecessors[firstPredecessor[i+1]-1]
+        final int[] firstPredecessor = new int[size + 1];
+        for (int e = 0; e < edges; e++) {
+            firstPredecessor[successors[e] + 1]++;
+        }
+        for (int i = 0; i < size; i++) {
+            firstPredecessor[i + 1] += firstPredecessor[i];
+        }
+        final int[] predecessors = new int[edges];
+        final int[] next = Arrays.copyOf(firstPredecessor, size);
+        for (int i = 0; i < size; i++) {
+            for (int e = firstSuccessor[i]; e < firstSuccessor[i + 1]; e++) {
+                predecessors[next[successors[e]]++] = i;
+            }
+        }
+
+        // the terminal states are the start of the propagation
+        final byte[] outcome = new byte[size];
+        final int[] distance = new int[size];
+        final int[] queue = new int[size];
+        int tail = 0;
+        for (int i = terminal.nextSetBit(0); i >= 0; i = terminal
+                .nextSetBit(i + 1)) {
+            outcome[i] = player == null ? WIN
+                    : terminalOutcome(states.get(i), player, opponent);
+            if (outcome[i] != DRAW) {
+                queue[tail++] = i;
+            }
+        }
+
+        // number of successors, which have not been lost by the player to
+        // move yet
+        final int[] open = new int[size];
+        for (int i = 0; i < size; i++) {
+            open[i] = firstSuccessor[i + 1] - firstSuccessor[i];
+        }
+        for (int head = 0; head < tail; head++) {
+            final int state = queue[head];
+            for (int e = firstPredecessor[state]; e < firstPredecessor[state
+                    + 1]; e++) {
+                final int predecessor = predecessors[e];
+                if (outcome[predecessor] != UNKNOWN) {
+                    continue;
+                }
+                // the outcome the player to move in the predecessor aims for
+                final byte goal = player == null
+                        || playerToMove.get(predecessor) ? WIN : LOSS;
+                if (outcome[state] == goal) {
+                    outcome[predecessor] = goal;
+                } else if (--open[predecessor] == 0) {
+                    outcome[predecessor] = outcome[state];
+                } else {
+                    continue;
+                }
+                // the queue is ordered by distance, so the first winning and
+                // the last losing successor determine the distance
+                distance[predecessor] = distance[state] + 1;
+                queue[tail++] = predecessor;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            if (outcome[i] == UNKNOWN) {
+                // no terminal state can be reached in a single player game
+                outcome[i] = player == null ? LOSS : DRAW;
+            }
+        }
+        table.outcome = outcome;
+        table.distance = distance;
+        return table;
+    }
+
+    /**
+     * @return the outcome of the given terminal state for the given player
+     */
+    private static byte terminalOutcome(final Game<?> game,
+            final Player player, final Player opponent) {
+        final double own = game.getUtility(player).doubleValue();
+        final double other = opponent == null ? 0
+                : game.getUtility(opponent).doubleValue();
+        return own > other ? WIN : own < other ? LOSS : DRAW;
+    }
+
+    /**
+     * @return the number of states of the table
+     */
+    int size() {
+        return outcome.length;
+    }
+
+    /**
+     * @param game
+     *            a state
+     * @return {@code true} if the table contains the given state
+     */
+    boolean contains(final Game<T> game) {
+        return index.containsKey(game);
+    }
+
+    /**
+     * Returns the outcome of the given state from the view of the given
+     * player.
+     *
+     * @param game
+     *            a state of the table
+     * @param pPlayer
+     *            the player, {@code null} for a single player game
+     * @return {@link #WIN}, {@link #LOSS} or {@link #DRAW}
+     */
+    byte outcome(final Game<T> game, final Player pPlayer) {
+        final byte result = outcome[index.get(game)];
+        if (player == null || player.equals(pPlayer) || result == DRAW) {
+            return result;
+        }
+        return result == WIN ? LOSS : WIN;
+    }
+
+    /**
+     * @param game
+     *            a state of the table
+     * @return the number of moves to the end of the game with perfect play
+     */
+    int distance(final Game<T> game) {
+        return distance[index.get(game)];
+    }
+
+    /**
+     * Returns the best move of the player to move in the given state: the
+     * fastest win, otherwise a draw, otherwise the slowest loss.
+     *
+     * @param game
+     *            a non terminal state of the table
+     * @param memorySavingMode
+     *            the memory saving mode used to create the successors
+     * @return the best move
+     */
+    Action bestMove(final Game<T> game,
+            final MemorySavingMode memorySavingMode) {
+        final Player toMove = player == null ? null : game.getPlayer();
+        Action best = null;
+        long bestRank = Long.MIN_VALUE;
+        for (Action action : game.getActions()) {
+            final Game<T> successor = game.getNewGame(action,
+                    memorySavingMode);
+            final int d = distance(successor);
+            final long rank;
+            switch (outcome(successor, toMove)) {
+            case WIN:
+                rank = 2L * Integer.MAX_VALUE - d;
+                break;
+            case DRAW:
+                rank = 0;
+                break;
+            default:
+                rank = d - (long) Integer.MAX_VALUE;
+                break;
+            }
+            if (best == null || rank > bestRank) {
+                best = action;
+                bestRank = rank;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.algorithm.singleplayer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import gps.ResultEnum;
+import gps.common.BenchmarkField;
+import gps.common.IBenchmark;
+import gps.games.GamesModule;
+import gps.games.algorithm.AbstractGameAlgorithm;
+import gps.games.algorithm.heuristic.HeuristicUtility;
+import gps.games.wrapper.Action;
+import gps.games.wrapper.Game;
+import gps.games.wrapper.ISingleplayerHeuristic;
+
+/**
+ * Anytime weighted A-Star. Runs a sequence of {@link WeightedAStar} searches,
+ * starting with a high weight that quickly finds some path. Every following
+ * search uses a lower weight and only looks for paths shorter than the best
+ * one so far, until a search with weight 1 has finished. The best path is
+ * kept across the searches, so an interrupted search still returns it, and
+ * every improvement is reported to the listener set by
+ * {@link #setSolutionListener(Consumer)}.
+ * <p>
+ * If the heuristic is consistent, the path of the final search is the
+ * shortest one.
+ *
+ * @param <T>
+ *            The type of the problem class
+ */
+public class AnytimeWeightedAStar<T> extends AbstractGameAlgorithm<T> {
+
+    /**
+     * The amount the weight is lowered by after each search.
+     */
+    private static final double WEIGHT_STEP = 1;
+
+    /**
+     * The heuristic, {@code null} if the algorithm has been constructed
+     * without options.
+     */
+    private final ISingleplayerHeuristic heuristic;
+
+    /**
+     * The name of the algorithm.
+     */
+    private final String name;
+
+    /**
+     * The weight of the first search. Default is 5. Can be set using
+     * {@link #setInitialWeight(double)}.
+     */
+    private double initialWeight = 5;
+
+    /**
+     * Receives every improved path, may be {@code null}.
+     */
+    private Consumer<List<Action>> listener;
+
+    /**
+     * The shortest path found so far, {@code null} if there is none.
+     */
+    private List<Action> bestMoves;
+
+    /**
+     * {@code true} if the search with weight 1 has been finished.
+     */
+    private boolean finished;
+
+    /**
+     * Construct a new anytime weighted A-Star algorithm. This algorithm does
+     * feature {@link #getOptions()} so it cannot be run immediately. Use the
+     * alternate constructor
+     * {@link #AnytimeWeightedAStar(GamesModule, ISingleplayerHeuristic)} to
+     * instantiate a runnable algorithm.
+     *
+     * @param pModule
+     *            The games module that has been used to construct this object.
+     */
+    public AnytimeWeightedAStar(final GamesModule<T> pModule) {
+        this(pModule, null);
+    }
+
+    /**
+     * Additional constructor for algorithm options.
+     *
+     * @param pModule
+     *            The games module that has been used to construct this object.
+     * @param pHeuristic
+     *            The heuristic to use.
+     */
+    public AnytimeWeightedAStar(final GamesModule<T> pModule,
+            final ISingleplayerHeuristic pHeuristic) {
+        super(pModule, BenchmarkField.PROCESSED_NODES,
+                BenchmarkField.SEEN_NODES,
+                BenchmarkField.DEEPEST_DISCOVERED_NODE,
+                BenchmarkField.BEST_MOVE_DEPTH);
+        heuristic = pHeuristic;
+        name = pHeuristic == null ? "Anytime-Weighted-A-Star"
+                : "Anytime-Weighted-A-Star ("
+                        + pHeuristic.getClass().getSimpleName() + ")";
+    }
+
+    /**
+     * Provide a heuristic.
+     * <br />
+     * {@inheritDoc}
+     */
+    @Override
+    public List<?>[] getOptions() {
+        if (heuristic != null) {
+            return new List<?>[0];
+        }
+        return new List<?>[] { HeuristicUtility
+                .getAllSingleplayerHeuristics(module.getGame()) };
+    }
+
+    @Override
+    public boolean isApplicable(final ResultEnum type) {
+        final Game<T> game = module.getGame();
+        return (type.equals(ResultEnum.STATE_SEQ)
+                || type.equals(ResultEnum.MOVES)
+                || type.equals(ResultEnum.TERMINAL)
+                || type.equals(ResultEnum.WINNABLE))
+                && game.hasSuccessorsMethod() && game.hasTerminalMethod();
+    }
+
+    @Override
+    public Optional<List<Action>> moves() {
+        search();
+        return Optional.ofNullable(bestMoves);
+    }
+
+    @Override
+    public Optional<List<T>> stateSequence() {
+        return moves().map(moves -> {
+            Game<T> game = module.getGame();
+            final List<T> states = new ArrayList<>();
+            states.add(game.getProblem());
+            for (Action move : moves) {
+                game = game.getNewGame(move, getMemorySavingMode());
+                states.add(game.getProblem());
+            }
+            return states;
+        });
+    }
+
+    @Override
+    public Optional<T> terminalState() {
+        return stateSequence().map(states -> states.get(states.size() - 1));
+    }
+
+    @Override
+    public Optional<Boolean> isWinnable() {
+        if (moves().isPresent()) {
+            return Optional.of(true);
+        }
+        if (finished && module.getDepthlimit() <= 0) {
+            return Optional.of(false);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Runs weighted A-Star searches with decreasing weights until the search
+     * with weight 1 is finished. Stops if the Interrupt Signal of the
+     * executing thread is set.
+     */
+    private void search() {
+        double weight = initialWeight;
+        while (!finished && !Thread.currentThread().isInterrupted()) {
+            final int bound = bestMoves == null ? Integer.MAX_VALUE
+                    : bestMoves.size();
+            final WeightedAStar<T> search = new WeightedAStar<>(module,
+                    heuristic, weight, bound);
+            final Optional<List<Action>> moves = search.moves();
+            final IBenchmark result = search.getBenchmark();
+            benchmark.processedNodes += result
+                    .getField(BenchmarkField.PROCESSED_NODES).get().intValue();
+            benchmark.seenNodes += result.getField(BenchmarkField.SEEN_NODES)
+                    .get().intValue();
+            benchmark.deepestDiscoveredNode = Math.max(
+                    benchmark.deepestDiscoveredNode,
+                    result.getField(BenchmarkField.DEEPEST_DISCOVERED_NODE)
+                            .get().intValue());
+            if (moves.isPresent()) {
+                // the bound guarantees that the path is shorter
+                bestMoves = moves.get();
+                benchmark.bestMoveDepth = Optional.of(bestMoves.size());
+                if (listener != null) {
+                    listener.accept(bestMoves);
+                }
+            } else if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            finished = weight <= 1;
+            weight = Math.max(1, weight - WEIGHT_STEP);
+        }
+    }
+
+    /**
+     * Sets the weight of the first search. Takes effect with the next call
+     * of a result method, unless the search has been finished before.
+     *
+     * @param pInitialWeight
+     *            the weight, at least 1
+     */
+    public void setInitialWeight(final double pInitialWeight) {
+        if (pInitialWeight < 1) {
+            throw new IllegalArgumentException(
+                    "the weight must be at least 1");
+        }
+        initialWeight = pInitialWeight;
+    }
+
+    /**
+     * Sets the listener that receives the moves of every path that is
+     * shorter than the ones found before.
+     *
+     * @param pListener
+     *            the listener or {@code null} to remove it
+     */
+    public void setSolutionListener(final Consumer<List<Action>> pListener) {
+        listener = pListener;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+}
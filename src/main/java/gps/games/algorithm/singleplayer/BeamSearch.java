@@ -0,0 +1,94 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.algorithm.singleplayer;
+
+import java.util.Arrays;
+import java.util.List;
+
+import gps.games.GamesModule;
+import gps.games.algorithm.heuristic.HeuristicUtility;
+import gps.games.algorithm.singleplayer.common.AbstractSingleplayerPathAlgorithm;
+import gps.games.algorithm.singleplayer.common.datastruct.ToEvalBeam;
+import gps.games.wrapper.ISingleplayerHeuristic;
+
+/**
+ * Implementation of beam search. The search space is traversed breadth first,
+ * but only the best nodes of every depth are expanded, see
+ * {@link ToEvalBeam}. The number of expanded nodes grows linearly with the
+ * depth instead of exponentially, at the cost of completeness and
+ * optimality: the path found is not necessarily the shortest one, and no path
+ * is found if all its nodes are dropped.
+ *
+ * @param <T>
+ *            The type of the problem class
+ */
+public class BeamSearch<T> extends AbstractSingleplayerPathAlgorithm<T> {
+
+    /**
+     * The name of the algorithm.
+     */
+    private final String name;
+
+    /**
+     * Construct a new beam search algorithm. This algorithm does feature
+     * {@link #getOptions()} so it cannot be run immediately. Use the alternate
+     * constructor
+     * {@link #BeamSearch(GamesModule, ISingleplayerHeuristic, Integer)} to
+     * instantiate a runnable algorithm.
+     *
+     * @param pModule
+     *            The games module that has been used to construct this object.
+     */
+    public BeamSearch(final GamesModule<T> pModule) {
+        super(pModule);
+        name = "Beam-Search";
+    }
+
+    /**
+     * Additional constructor for algorithm options.
+     *
+     * @param pModule
+     *            The games module that has been used to construct this object.
+     * @param pHeuristic
+     *            The heuristic to use.
+     * @param pWidth
+     *            The number of nodes that are kept per depth.
+     */
+    public BeamSearch(final GamesModule<T> pModule,
+            final ISingleplayerHeuristic pHeuristic, final Integer pWidth) {
+        super(pModule, new ToEvalBeam<>(pHeuristic, pWidth));
+        name = "Beam-Search (" + pHeuristic.getClass().getSimpleName() + ","
+                + pWidth + ")";
+    }
+
+    /**
+     * Provide a heuristic and the width of the beam.
+     * <br />
+     * {@inheritDoc}
+     */
+    @Override
+    public List<?>[] getOptions() {
+        return new List<?>[] {
+                HeuristicUtility.getAllSingleplayerHeuristics(module.getGame()),
+                Arrays.asList(10, 100, 1000) };
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+}
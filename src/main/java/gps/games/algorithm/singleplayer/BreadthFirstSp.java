@@ -19,6 +19,7 @@ package gps.games.algorithm.singleplayer;
 import gps.games.GamesModule;
 import gps.games.algorithm.singleplayer.common.AbstractSingleplayerSearch;
 import gps.games.algorithm.singleplayer.common.datastruct.ToEvalFIFO;
+import gps.games.util.BitstateSet;
 
 /**
  * Implements the breadth first search algorithm. This implementation does not
@@ -44,6 +45,11 @@ public class BreadthFirstSp<T> extends AbstractSingleplayerSearch<T> {
         super(pModule, new ToEvalFIFO<>());
     }
 
+    @Override
+    public void setApproximateVisitedSet(final BitstateSet pVisited) {
+        super.setApproximateVisitedSet(pVisited);
+    }
+
     @Override
     public String getName() {
         return "Breadth-First (unreduced)";
@@ -0,0 +1,528 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.algorithm.singleplayer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import gps.ResultEnum;
+import gps.common.BenchmarkField;
+import gps.games.GamesModule;
+import gps.games.algorithm.AbstractGameAlgorithm;
+import gps.games.algorithm.heuristic.HeuristicUtility;
+import gps.games.util.StateFingerprint;
+import gps.games.wrapper.Action;
+import gps.games.wrapper.Game;
+import gps.games.wrapper.ISingleplayerHeuristic;
+import gps.games.wrapper.successor.INode;
+
+/**
+ * Hash distributed A-Star (HDA*). Every worker thread owns the open and the
+ * closed set of the states whose hash maps to it. A worker expands the best
+ * state of its own open set and sends the successors to their owners through
+ * blocking queues, so the workers never share a set and duplicates are
+ * detected by the owner. A worker with an empty open set waits on its queue.
+ * <p>
+ * The cost of a state is its depth, the remaining cost is estimated by
+ * {@link HeuristicUtility#remainingMoves(ISingleplayerHeuristic, Game)}.
+ * States are expanded in the order of their estimated total cost. A terminal
+ * state is a goal, and the shortest path found so far bounds the search:
+ * states that cannot lead to a shorter path are dropped. The search ends when
+ * there is no state left in any open set or queue, which is tracked by a
+ * shared counter. The resulting path is therefore the shortest one, if the
+ * heuristic never overestimates the remaining number of moves. Use
+ * {@link gps.games.algorithm.heuristic.NoHeuristic} for a plain parallel
+ * uniform cost search.
+ *
+ * @param <T>
+ *            The type of the problem class
+ */
+public class HashDistributedAStar<T> extends AbstractGameAlgorithm<T> {
+
+    private static final Logger LOGGER = Logger
+            .getLogger(HashDistributedAStar.class.getCanonicalName());
+
+    /**
+     * Milliseconds a worker with an empty open set waits for new states,
+     * before it checks again whether the search is done.
+     */
+    private static final long WAIT = 10;
+
+    /**
+     * The heuristic, {@code null} if the algorithm has been constructed
+     * without options.
+     */
+    private final ISingleplayerHeuristic heuristic;
+
+    /**
+     * The name of the algorithm.
+     */
+    private final String name;
+
+    /**
+     * Number of worker threads. Defaults to the number of available
+     * processors.
+     */
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The workers of the running search.
+     */
+    private List<Worker> workers;
+
+    /**
+     * The threads of the last search. They may still be stopping after an
+     * interrupted search returned.
+     */
+    private ExecutorService threadPool;
+
+    /**
+     * Number of states that are in an open set or on their way to their
+     * owner. The search is finished when it drops to 0.
+     */
+    private final AtomicLong pending = new AtomicLong();
+
+    /**
+     * Set when the running search is finished or interrupted.
+     */
+    private volatile boolean done;
+
+    /**
+     * Depth of the best goal found so far, {@link Integer#MAX_VALUE} if there
+     * is none.
+     */
+    private volatile int bound;
+
+    /**
+     * The best goal found so far.
+     */
+    private Entry<T> goal;
+
+    /**
+     * {@code true} if the search has been finished without interrupt.
+     */
+    private boolean finished;
+
+    /**
+     * Construct a new HDA* algorithm. This algorithm does feature
+     * {@link #getOptions()} so it cannot be run immediately. Use the alternate
+     * constructor
+     * {@link #HashDistributedAStar(GamesModule, ISingleplayerHeuristic)} to
+     * instantiate a runnable algorithm.
+     *
+     * @param pModule
+     *            The games module that has been used to construct this object.
+     */
+    public HashDistributedAStar(final GamesModule<T> pModule) {
+        this(pModule, null);
+    }
+
+    /**
+     * Additional constructor for algorithm options.
+     *
+     * @param pModule
+     *            The games module that has been used to construct this object.
+     * @param pHeuristic
+     *            The heuristic to use.
+     */
+    public HashDistributedAStar(final GamesModule<T> pModule,
+            final ISingleplayerHeuristic pHeuristic) {
+        super(pModule, BenchmarkField.PROCESSED_NODES,
+                BenchmarkField.SEEN_NODES,
+                BenchmarkField.DEEPEST_DISCOVERED_NODE,
+                BenchmarkField.BEST_MOVE_DEPTH);
+        heuristic = pHeuristic;
+        name = pHeuristic == null ? "HDA-Star"
+                : "HDA-Star (" + pHeuristic.getClass().getSimpleName() + ")";
+    }
+
+    /**
+     * Provide a heuristic.
+     * <br />
+     * {@inheritDoc}
+     */
+    @Override
+    public List<?>[] getOptions() {
+        if (heuristic != null) {
+            return new List<?>[0];
+        }
+        return new List<?>[] { HeuristicUtility
+                .getAllSingleplayerHeuristics(module.getGame()) };
+    }
+
+    @Override
+    public boolean isApplicable(final ResultEnum type) {
+        final Game<T> game = module.getGame();
+        return (type.equals(ResultEnum.STATE_SEQ)
+                || type.equals(ResultEnum.MOVES)
+                || type.equals(ResultEnum.TERMINAL)
+                || type.equals(ResultEnum.WINNABLE))
+                && game.hasSuccessorsMethod() && game.hasTerminalMethod();
+    }
+
+    @Override
+    public Optional<List<T>> stateSequence() {
+        return path().map(p -> p.stream()
+                .map(e -> e.node.getGame().getProblem())
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public Optional<List<Action>> moves() {
+        return path().map(p -> p.stream().skip(1).map(e -> e.node.getAction())
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public Optional<T> terminalState() {
+        return path().map(p -> p.get(p.size() - 1).node.getGame().getProblem());
+    }
+
+    @Override
+    public Optional<Boolean> isWinnable() {
+        if (path().isPresent()) {
+            return Optional.of(true);
+        }
+        if (finished && module.getDepthlimit() <= 0) {
+            return Optional.of(false);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Runs the search if it has not been finished before.
+     *
+     * @return the states from the root to the nearest goal or an empty
+     *         optional if there is none or the search has been interrupted
+     */
+    private Optional<List<Entry<T>>> path() {
+        if (!finished) {
+            search();
+        }
+        if (!finished || goal == null) {
+            return Optional.empty();
+        }
+        final List<Entry<T>> path = new ArrayList<>();
+        for (Entry<T> e = goal; e != null; e = e.parent) {
+            path.add(e);
+        }
+        Collections.reverse(path);
+        return Optional.of(path);
+    }
+
+    /**
+     * Searches the shortest path from the root to a goal with
+     * {@link #parallelism} workers. Returns when the search is finished or
+     * the executing thread is interrupted. The workers of a previous search
+     * are awaited first, as they share the state of this instance.
+     */
+    private void search() {
+        if (!awaitPreviousSearch()) {
+            return;
+        }
+        done = false;
+        // entries of an interrupted search have never been drained
+        pending.set(0);
+        bound = Integer.MAX_VALUE;
+        goal = null;
+        workers = new ArrayList<>();
+        for (int i = 0; i < parallelism; i++) {
+            workers.add(new Worker());
+        }
+        final INode<T> root = module.getGame().asRoot();
+        send(new Entry<>(root, null, estimate(root)));
+
+        threadPool = Executors.newFixedThreadPool(
+                parallelism,
+                new ThreadFactoryBuilder().setDaemon(true).build());
+        final List<Future<?>> futures = new ArrayList<>();
+        for (Worker worker : workers) {
+            futures.add(threadPool.submit(worker));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            finished = true;
+        } catch (InterruptedException e) {
+            done = true;
+            threadPool.shutdownNow();
+            // Set the interrupt flag again to stop the algorithm
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            done = true;
+            LOGGER.log(Level.WARNING, "HDA* worker failed", e.getCause());
+        }
+        threadPool.shutdown();
+
+        benchmark.processedNodes = 0;
+        benchmark.seenNodes = 0;
+        benchmark.deepestDiscoveredNode = 0;
+        for (Worker worker : workers) {
+            benchmark.processedNodes += worker.processed;
+            benchmark.seenNodes += worker.closed.size();
+            benchmark.deepestDiscoveredNode = Math.max(
+                    benchmark.deepestDiscoveredNode, worker.deepest);
+        }
+        if (goal != null) {
+            benchmark.bestMoveDepth = Optional.of(goal.node.getDepth());
+        }
+        workers = null;
+    }
+
+    /**
+     * Waits until the workers of the last search are stopped.
+     *
+     * @return {@code false} if the thread was interrupted while waiting
+     */
+    private boolean awaitPreviousSearch() {
+        if (threadPool == null) {
+            return true;
+        }
+        try {
+            while (!threadPool.awaitTermination(WAIT,
+                    TimeUnit.MILLISECONDS)) {
+                // the workers stop after their current expansion
+            }
+        } catch (InterruptedException e) {
+            // Set the interrupt flag again to stop the algorithm
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        threadPool = null;
+        return true;
+    }
+
+    /**
+     * Sends the given entry to the worker owning its state.
+     *
+     * @param entry
+     *            the entry
+     */
+    private void send(final Entry<T> entry) {
+        pending.incrementAndGet();
+        final long hash = StateFingerprint.of(entry.node.getGame());
+        workers.get((int) Long.remainderUnsigned(hash, workers.size())).inbox
+                .add(entry);
+    }
+
+    /**
+     * @param node
+     *            a node
+     * @return the estimated length of the shortest path from the root to a
+     *         goal through the given node
+     */
+    private double estimate(final INode<T> node) {
+        return node.getDepth()
+                + HeuristicUtility.remainingMoves(heuristic, node.getGame());
+    }
+
+    /**
+     * Stores the given goal if it is nearer than the best one so far.
+     *
+     * @param entry
+     *            an entry of a terminal state
+     */
+    private synchronized void offerGoal(final Entry<T> entry) {
+        if (entry.node.getDepth() < bound) {
+            goal = entry;
+            bound = entry.node.getDepth();
+        }
+    }
+
+    /**
+     * Sets the number of worker threads used by the next search.
+     *
+     * @param pParallelism
+     *            the number of threads, must be greater than 0
+     */
+    public void setParallelism(final int pParallelism) {
+        if (pParallelism <= 0) {
+            throw new IllegalArgumentException(
+                    "the parallelism must be greater than 0");
+        }
+        parallelism = pParallelism;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * A state together with the entry it has been reached from. Entries are
+     * never modified, so they can be passed between the workers.
+     */
+    private static final class Entry<T> {
+
+        /**
+         * The node of the state.
+         */
+        final INode<T> node;
+
+        /**
+         * The entry of the predecessor, {@code null} for the root.
+         */
+        final Entry<T> parent;
+
+        /**
+         * Estimated length of the shortest path through the state.
+         */
+        final double estimate;
+
+        Entry(final INode<T> pNode, final Entry<T> pParent,
+                final double pEstimate) {
+            node = pNode;
+            parent = pParent;
+            estimate = pEstimate;
+        }
+    }
+
+    /**
+     * Owner of the states whose hash maps to it. Only the worker itself
+     * accesses its open and closed set.
+     */
+    private final class Worker implements Runnable {
+
+        /**
+         * Entries sent to this worker by any worker.
+         */
+        final BlockingQueue<Entry<T>> inbox = new LinkedBlockingQueue<>();
+
+        /**
+         * Entries to expand, the lowest estimate first and the deepest of
+         * equal estimates first.
+         */
+        final PriorityQueue<Entry<T>> open = new PriorityQueue<>((a, b) -> {
+            final int cmp = Double.compare(a.estimate, b.estimate);
+            return cmp != 0 ? cmp
+                    : Integer.compare(b.node.getDepth(), a.node.getDepth());
+        });
+
+        /**
+         * The shallowest entry of every state owned by this worker.
+         */
+        final Map<Game<T>, Entry<T>> closed = new HashMap<>();
+
+        /**
+         * Number of expanded states.
+         */
+        int processed;
+
+        /**
+         * Depth of the deepest state generated by this worker.
+         */
+        int deepest;
+
+        @Override
+        public void run() {
+            while (!done && !Thread.currentThread().isInterrupted()) {
+                Entry<T> entry;
+                while ((entry = inbox.poll()) != null) {
+                    receive(entry);
+                }
+                entry = open.poll();
+                if (entry == null) {
+                    if (pending.get() == 0) {
+                        done = true;
+                    } else {
+                        // wait for states from the other workers
+                        try {
+                            entry = inbox.poll(WAIT, TimeUnit.MILLISECONDS);
+                        } catch (InterruptedException e) {
+                            // Restore the interrupt status to stop the worker
+                            Thread.currentThread().interrupt();
+                            continue;
+                        }
+                        if (entry != null) {
+                            receive(entry);
+                        }
+                    }
+                    continue;
+                }
+                if (closed.get(entry.node.getGame()) == entry
+                        && entry.estimate < bound) {
+                    expand(entry);
+                }
+                // counted after the successors, so the counter cannot drop
+                // to 0 while they are being sent
+                pending.decrementAndGet();
+            }
+        }
+
+        /**
+         * Moves the given entry to the open set, unless the state is known
+         * with a path that is not longer.
+         */
+        private void receive(final Entry<T> entry) {
+            final Game<T> game = entry.node.getGame();
+            final Entry<T> known = closed.get(game);
+            if (entry.estimate >= bound || (known != null
+                    && known.node.getDepth() <= entry.node.getDepth())) {
+                pending.decrementAndGet();
+                return;
+            }
+            // an older entry of the state stays in the open set and is
+            // skipped when it is polled
+            closed.put(game, entry);
+            open.add(entry);
+        }
+
+        /**
+         * Expands the given entry. A terminal state is a goal and is not
+         * expanded any further.
+         */
+        private void expand(final Entry<T> entry) {
+            processed++;
+            if (entry.node.isTerminal()) {
+                offerGoal(entry);
+                return;
+            }
+            for (INode<T> successor : entry.node
+                    .getSuccessors(getMemorySavingMode())) {
+                final int depth = successor.getDepth();
+                deepest = Math.max(deepest, depth);
+                if (module.getDepthlimit() > 0
+                        && depth > module.getDepthlimit()) {
+                    continue;
+                }
+                final double estimate = estimate(successor);
+                if (estimate < bound) {
+                    send(new Entry<>(successor, entry, estimate));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.algorithm.singleplayer;
+
+import java.util.Arrays;
+import java.util.List;
+
+import gps.games.GamesModule;
+import gps.games.algorithm.heuristic.HeuristicUtility;
+import gps.games.algorithm.singleplayer.common.AbstractSingleplayerPathAlgorithm;
+import gps.games.algorithm.singleplayer.common.datastruct.ToEvalWeighted;
+import gps.games.wrapper.ISingleplayerHeuristic;
+
+/**
+ * Implementation of weighted A-Star. The nodes are expanded in the order of
+ * {@code depth + weight * h}, see {@link ToEvalWeighted}. A weight above 1
+ * makes the search greedier, so it usually expands far fewer nodes. If the
+ * heuristic never overestimates the remaining number of moves, the path found
+ * is at most {@code weight} times as long as the shortest one.
+ *
+ * @param <T>
+ *            The type of the problem class
+ */
+public class WeightedAStar<T> extends AbstractSingleplayerPathAlgorithm<T> {
+
+    /**
+     * The name of the algorithm.
+     */
+    private final String name;
+
+    /**
+     * Construct a new weighted A-Star algorithm. This algorithm does feature
+     * {@link #getOptions()} so it cannot be run immediately. Use the alternate
+     * constructor
+     * {@link #WeightedAStar(GamesModule, ISingleplayerHeuristic, Double)} to
+     * instantiate a runnable algorithm.
+     *
+     * @param pModule
+     *            The games module that has been used to construct this object.
+     */
+    public WeightedAStar(final GamesModule<T> pModule) {
+        super(pModule);
+        name = "Weighted-A-Star";
+    }
+
+    /**
+     * Additional constructor for algorithm options.
+     *
+     * @param pModule
+     *            The games module that has been used to construct this object.
+     * @param pHeuristic
+     *            The heuristic to use.
+     * @param pWeight
+     *            The weight of the heuristic, at least 1.
+     */
+    public WeightedAStar(final GamesModule<T> pModule,
+            final ISingleplayerHeuristic pHeuristic, final Double pWeight) {
+        this(pModule, pHeuristic, pWeight, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a weighted A-Star algorithm that only searches for paths
+     * shorter than the given bound.
+     *
+     * @param pModule
+     *            The games module that has been used to construct this object.
+     * @param pHeuristic
+     *            The heuristic to use.
+     * @param pWeight
+     *            The weight of the heuristic, at least 1.
+     * @param pBound
+     *            The length of the shortest path known so far.
+     */
+    public WeightedAStar(final GamesModule<T> pModule,
+            final ISingleplayerHeuristic pHeuristic, final Double pWeight,
+            final Integer pBound) {
+        super(pModule, new ToEvalWeighted<>(pHeuristic, pWeight, pBound));
+        name = "Weighted-A-Star (" + pHeuristic.getClass().getSimpleName()
+                + "," + pWeight + ")";
+    }
+
+    /**
+     * Provide a heuristic and its weight.
+     * <br />
+     * {@inheritDoc}
+     */
+    @Override
+    public List<?>[] getOptions() {
+        return new List<?>[] {
+                HeuristicUtility.getAllSingleplayerHeuristics(module.getGame()),
+                Arrays.asList(2.0, 5.0) };
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+}
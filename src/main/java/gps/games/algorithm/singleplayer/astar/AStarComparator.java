@@ -20,6 +20,7 @@ import java.util.Comparator;
 
 import gps.games.wrapper.ISingleplayerHeuristic;
 import gps.games.wrapper.successor.INode;
+import gps.games.wrapper.successor.NodeEvaluationCache;
 import gps.games.wrapper.successor.NodeUtil;
 
 /**
@@ -34,10 +35,27 @@ public class AStarComparator<T> implements Comparator<AStarNode<T>> {
 
     private final ISingleplayerHeuristic heuristic;
 
+    /**
+     * The heuristic values of the nodes in the open set. Nodes are removed by
+     * the open set when they are retrieved.
+     */
+    private final NodeEvaluationCache cache = new NodeEvaluationCache();
+
     public AStarComparator(final ISingleplayerHeuristic pHeuristic) {
         heuristic = pHeuristic;
     }
 
+    /**
+     * @return the cache of the heuristic values
+     */
+    public NodeEvaluationCache getCache() {
+        return cache;
+    }
+
+    private double evaluate(final INode<?> pNode) {
+        return heuristic.eval(pNode.getGame());
+    }
+
     @Override
     public int compare(final AStarNode<T> oo1, final AStarNode<T> oo2) {
 
@@ -52,8 +70,8 @@ public class AStarComparator<T> implements Comparator<AStarNode<T>> {
         int cmp = 0;
 
         // compare heuristic
-        cmp = Double.compare(heuristic.eval(o1.getGame()),
-                heuristic.eval(o2.getGame()));
+        cmp = Double.compare(cache.get(o1, this::evaluate),
+                cache.get(o2, this::evaluate));
         if (cmp != 0) {
             return cmp;
         }
@@ -16,6 +16,8 @@
  */
 package gps.games.algorithm.singleplayer.common;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.logging.Logger;
@@ -24,6 +26,7 @@ import java.util.stream.Collectors;
 import gps.ResultEnum;
 import gps.games.GamesModule;
 import gps.games.algorithm.singleplayer.interfaces.IToEvaluate;
+import gps.games.util.BitstateSet;
 import gps.games.util.GameTree;
 import gps.games.wrapper.Action;
 import gps.games.wrapper.Game;
@@ -72,8 +75,18 @@ public abstract class AbstractSingleplayerPathAlgorithm<T>
     }
 
     @Override
-    void handle(final INode pNode, final INode pSuccessor) {
-        if (!gameTree.contains(pSuccessor)) {
+    void handle(final INode<T> pNode, final INode<T> pSuccessor) {
+        if (visited != null) {
+            // the tree would hold all visited states, so the path is kept by
+            // the nodes instead
+            if (visited.add(pSuccessor.getGame())) {
+                benchmark.seenNodes++;
+                if (module.getDepthlimit() <= 0
+                        || pSuccessor.getDepth() <= module.getDepthlimit()) {
+                    toEvaluate.add(new PathNode<>(pSuccessor, pNode));
+                }
+            }
+        } else if (!gameTree.contains(pSuccessor)) {
             benchmark.seenNodes++;
             gameTree.insert(pNode, pSuccessor);
             if (module.getDepthlimit() <= 0
@@ -83,13 +96,18 @@ public abstract class AbstractSingleplayerPathAlgorithm<T>
         }
     }
 
+    @Override
+    public void setApproximateVisitedSet(final BitstateSet pVisited) {
+        super.setApproximateVisitedSet(pVisited);
+    }
+
     @Override
     public Optional<List<T>> stateSequence() {
         search();
         if (terminalNode == null) {
             return Optional.empty();
         }
-        return Optional.of(gameTree.getPathTo(terminalNode).stream()
+        return Optional.of(pathToTerminalNode().stream()
                 .map(m -> m.getGame().getProblem())
                 .collect(Collectors.toList()));
     }
@@ -100,9 +118,31 @@ public abstract class AbstractSingleplayerPathAlgorithm<T>
         if (terminalNode == null) {
             return Optional.empty();
         }
+        if (visited != null) {
+            return Optional.of(pathToTerminalNode().stream().skip(1)
+                    .map(m -> m.getAction()).collect(Collectors.toList()));
+        }
         return Optional.of(gameTree.getPathToAsActions(terminalNode));
     }
 
+    /**
+     * @return the nodes from the root to {@link #terminalNode}
+     */
+    private List<INode<T>> pathToTerminalNode() {
+        if (visited == null) {
+            return gameTree.getPathTo(terminalNode);
+        }
+        final List<INode<T>> path = new ArrayList<>();
+        INode<T> node = terminalNode;
+        while (node instanceof PathNode) {
+            path.add(node);
+            node = ((PathNode<T>) node).predecessor;
+        }
+        path.add(node);
+        Collections.reverse(path);
+        return path;
+    }
+
     @Override
     public boolean isFinished() {
         return !toEvaluate.hasNext();
@@ -16,6 +16,8 @@
  */
 package gps.games.algorithm.singleplayer.common;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.logging.Level;
@@ -25,8 +27,10 @@ import gps.common.BenchmarkField;
 import gps.games.GamesModule;
 import gps.games.algorithm.AbstractGameAlgorithm;
 import gps.games.algorithm.singleplayer.interfaces.IToEvaluate;
+import gps.games.util.BitstateSet;
 import gps.games.wrapper.Game;
 import gps.games.wrapper.successor.INode;
+import gps.games.wrapper.successor.NodeEvaluationCache;
 import gps.games.wrapper.successor.NodeUtil;
 
 /**
@@ -55,12 +59,15 @@ public abstract class AbstractSingleplayerSearch<T>
      */
     INode<T> root;
 
+    /**
+     * The approximate set of visited states, {@code null} if the search does
+     * not use one.
+     */
+    BitstateSet visited;
+
     public AbstractSingleplayerSearch(final GamesModule<T> pModule,
             IToEvaluate<T> pToEval) {
-        super(pModule, BenchmarkField.PROCESSED_NODES,
-                BenchmarkField.SEEN_NODES,
-                BenchmarkField.DEEPEST_DISCOVERED_NODE,
-                BenchmarkField.BEST_MOVE_DEPTH);
+        super(pModule, usedFields(pToEval));
         toEvaluate = pToEval;
 
         root = pModule.getGame().asRoot();
@@ -68,6 +75,21 @@ public abstract class AbstractSingleplayerSearch<T>
         toEvaluate.add(root);
     }
 
+    /**
+     * @return the benchmark fields of a search with the given open set
+     */
+    private static BenchmarkField[] usedFields(final IToEvaluate<?> pToEval) {
+        final List<BenchmarkField> fields = new ArrayList<>(Arrays.asList(
+                BenchmarkField.PROCESSED_NODES, BenchmarkField.SEEN_NODES,
+                BenchmarkField.DEEPEST_DISCOVERED_NODE,
+                BenchmarkField.BEST_MOVE_DEPTH,
+                BenchmarkField.OMISSION_PROBABILITY));
+        if (pToEval.getEvaluationCache() != null) {
+            fields.add(BenchmarkField.HEURISTIC_CACHE_HIT_RATE);
+        }
+        return fields.toArray(new BenchmarkField[fields.size()]);
+    }
+
     public AbstractSingleplayerSearch(final GamesModule<T> pModule) {
         super(pModule);
         toEvaluate = null;
@@ -97,7 +119,10 @@ public abstract class AbstractSingleplayerSearch<T>
      * @param pSuccessor
      *          its successor
      */
-    void handle(final INode pNode, final INode pSuccessor) {
+    void handle(final INode<T> pNode, final INode<T> pSuccessor) {
+        if (visited != null && !visited.add(pSuccessor.getGame())) {
+            return;
+        }
         benchmark.seenNodes++;
         if (module.getDepthlimit() <= 0
                 || pSuccessor.getDepth() <= module.getDepthlimit()) {
@@ -141,10 +166,38 @@ public abstract class AbstractSingleplayerSearch<T>
                 }
             }
         } finally {
+            final NodeEvaluationCache cache = toEvaluate.getEvaluationCache();
+            if (cache != null) {
+                benchmark.heuristicCacheHitRate = cache.getHitRate();
+            }
+            if (visited != null) {
+                benchmark.omissionProbability = visited.omissionProbability();
+            }
             logger.info(benchmark.toString());
         }
     }
 
+    /**
+     * Makes the search skip every state that is contained in the given
+     * approximate set of visited states, and adds the states it reaches to
+     * the set. The search needs a fixed amount of memory for the visited
+     * states then, but it may omit states, see {@link BitstateSet}. The
+     * probability of an omission is reported as
+     * {@link BenchmarkField#OMISSION_PROBABILITY}. Has to be called before
+     * the search is started. Only searches that need not visit a state again
+     * make this method public.
+     *
+     * @param pVisited
+     *            the set or {@code null} to visit the states again, as far as
+     *            the search does not avoid that otherwise
+     */
+    protected void setApproximateVisitedSet(final BitstateSet pVisited) {
+        visited = pVisited;
+        if (visited != null && root != null) {
+            visited.add(root.getGame());
+        }
+    }
+
     @Override
     public Optional<T> terminalState() {
         search();
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.algorithm.singleplayer.common;
+
+import java.util.List;
+
+import gps.games.MemorySavingMode;
+import gps.games.wrapper.Action;
+import gps.games.wrapper.Game;
+import gps.games.wrapper.successor.INode;
+
+/**
+ * A node that knows the node it has been reached from. Used instead of a
+ * {@link gps.games.util.GameTree} to find the path to a terminal node, if
+ * the visited states are not stored. Only the ancestors of the nodes that
+ * still have to be evaluated are kept in memory.
+ *
+ * @param <T>
+ *            The type of the problem class
+ */
+class PathNode<T> implements INode<T> {
+
+    /**
+     * The node.
+     */
+    private final INode<T> node;
+
+    /**
+     * The node this node has been reached from.
+     */
+    final INode<T> predecessor;
+
+    PathNode(final INode<T> pNode, final INode<T> pPredecessor) {
+        node = pNode;
+        predecessor = pPredecessor;
+    }
+
+    @Override
+    public int getDepth() {
+        return node.getDepth();
+    }
+
+    @Override
+    public Game<T> getGame() {
+        return node.getGame();
+    }
+
+    @Override
+    public List<INode<T>> getSuccessors(
+            final MemorySavingMode memorySavingMode) {
+        return node.getSuccessors(memorySavingMode);
+    }
+
+    @Override
+    public List<Action> getAvailableActions() {
+        return node.getAvailableActions();
+    }
+
+    @Override
+    public INode<T> getSuccessor(final Action pAction,
+            final MemorySavingMode memorySavingMode) {
+        return node.getSuccessor(pAction, memorySavingMode);
+    }
+
+    @Override
+    public Action getAction() {
+        return node.getAction();
+    }
+
+    @Override
+    public boolean isTerminal() {
+        return node.isTerminal();
+    }
+
+    @Override
+    public boolean isRoot() {
+        return false;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.algorithm.singleplayer.common.datastruct;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import gps.games.algorithm.singleplayer.astar.AStarComparator;
+import gps.games.algorithm.singleplayer.astar.AStarNode;
+import gps.games.algorithm.singleplayer.interfaces.IToEvaluate;
+import gps.games.wrapper.ISingleplayerHeuristic;
+import gps.games.wrapper.successor.INode;
+import gps.games.wrapper.successor.NodeEvaluationCache;
+
+/**
+ * Store the nodes that are to be examined layer by layer and keep only the
+ * best nodes of every layer (beam search). The nodes added while a layer is
+ * retrieved form the next layer. As soon as a layer is exhausted, the next
+ * one is sorted like in {@link ToEvalTree} and cut down to the width of the
+ * beam.
+ *
+ * @param <T>
+ *            The type of the problem class.
+ */
+public class ToEvalBeam<T> implements IToEvaluate<T> {
+
+    /**
+     * Construct a ToEvalBeam by using a heuristic for ordering.
+     *
+     * @param pHeuristic
+     *            The heuristic.
+     * @param pWidth
+     *            The maximal number of nodes of a layer, must be greater than
+     *            0.
+     */
+    public ToEvalBeam(final ISingleplayerHeuristic pHeuristic,
+            final int pWidth) {
+        if (pWidth <= 0) {
+            throw new IllegalArgumentException(
+                    "the width must be greater than 0");
+        }
+        comparator = new AStarComparator<>(pHeuristic);
+        width = pWidth;
+    }
+
+    /**
+     * A-Star specific comparator that is used to select the best nodes.
+     */
+    private final AStarComparator<T> comparator;
+
+    /**
+     * The maximal number of nodes of a layer.
+     */
+    private final int width;
+
+    /**
+     * The remaining nodes of the current layer, best first.
+     */
+    private final ArrayDeque<INode<T>> layer = new ArrayDeque<>();
+
+    /**
+     * The nodes of the next layer.
+     */
+    private List<AStarNode<T>> nextLayer = new ArrayList<>();
+
+    private long nodeId = Long.MIN_VALUE;
+
+    @Override
+    public void add(final INode<T> pNode) {
+        nextLayer.add(new AStarNode<T>(pNode, ++nodeId));
+    }
+
+    @Override
+    public INode<T> retrieveNext() {
+        if (layer.isEmpty()) {
+            nextLayer.sort(Collections.reverseOrder(comparator));
+            for (int i = 0; i < nextLayer.size(); i++) {
+                final INode<T> node = nextLayer.get(i).node;
+                if (i < width) {
+                    layer.add(node);
+                }
+                comparator.getCache().remove(node);
+            }
+            nextLayer = new ArrayList<>();
+        }
+        return layer.poll();
+    }
+
+    @Override
+    public NodeEvaluationCache getEvaluationCache() {
+        return comparator.getCache();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !layer.isEmpty() || !nextLayer.isEmpty();
+    }
+
+}
@@ -25,6 +25,7 @@ import gps.games.algorithm.singleplayer.astar.AStarNode;
 import gps.games.algorithm.singleplayer.interfaces.IToEvaluate;
 import gps.games.wrapper.ISingleplayerHeuristic;
 import gps.games.wrapper.successor.INode;
+import gps.games.wrapper.successor.NodeEvaluationCache;
 
 /**
  * Store the nodes that are to be examined in a sorted list and use the heuristic,
@@ -71,7 +72,15 @@ public class ToEvalSortedList<T> implements IToEvaluate<T> {
 
     @Override
     public INode<T> retrieveNext() {
-        return toEvaluateList.remove(toEvaluateList.size() - 1).node;
+        final INode<T> node = toEvaluateList
+                .remove(toEvaluateList.size() - 1).node;
+        comparator.getCache().remove(node);
+        return node;
+    }
+
+    @Override
+    public NodeEvaluationCache getEvaluationCache() {
+        return comparator.getCache();
     }
 
     @Override
@@ -23,6 +23,7 @@ import gps.games.algorithm.singleplayer.astar.AStarComparator;
 import gps.games.algorithm.singleplayer.interfaces.IToEvaluate;
 import gps.games.wrapper.ISingleplayerHeuristic;
 import gps.games.wrapper.successor.INode;
+import gps.games.wrapper.successor.NodeEvaluationCache;
 
 /**
  * Store the nodes that are to be examined in a tree set and use the heuristic,
@@ -65,7 +66,14 @@ public class ToEvalTree<T> implements IToEvaluate<T> {
 
     @Override
     public INode<T> retrieveNext() {
-        return toEvaluateTree.pollLast().node;
+        final INode<T> node = toEvaluateTree.pollLast().node;
+        comparator.getCache().remove(node);
+        return node;
+    }
+
+    @Override
+    public NodeEvaluationCache getEvaluationCache() {
+        return comparator.getCache();
     }
 
     @Override
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.algorithm.singleplayer.common.datastruct;
+
+import java.util.PriorityQueue;
+
+import gps.games.algorithm.heuristic.HeuristicUtility;
+import gps.games.algorithm.singleplayer.interfaces.IToEvaluate;
+import gps.games.wrapper.Game;
+import gps.games.wrapper.ISingleplayerHeuristic;
+import gps.games.wrapper.successor.INode;
+
+/**
+ * Store the nodes that are to be examined in a priority queue ordered by the
+ * weighted estimate {@code depth + weight * h}, where {@code h} is the
+ * estimated number of remaining moves, see
+ * {@link HeuristicUtility#remainingMoves(ISingleplayerHeuristic, Game)}.
+ * Nodes with equal estimates are ordered deepest first. Nodes whose
+ * unweighted estimate reaches the bound cannot lead to a path shorter than
+ * the bound and are dropped.
+ *
+ * @param <T>
+ *            The type of the problem class.
+ */
+public class ToEvalWeighted<T> implements IToEvaluate<T> {
+
+    /**
+     * The heuristic.
+     */
+    private final ISingleplayerHeuristic heuristic;
+
+    /**
+     * The weight of the heuristic.
+     */
+    private final double weight;
+
+    /**
+     * Nodes with an unweighted estimate of at least this value are dropped.
+     */
+    private final int bound;
+
+    /**
+     * The nodes and their weighted estimates.
+     */
+    private final PriorityQueue<WeightedNode<T>> toEvaluate =
+            new PriorityQueue<>();
+
+    private long nodeId = Long.MIN_VALUE;
+
+    /**
+     * Construct a ToEvalWeighted without bound.
+     *
+     * @param pHeuristic
+     *            The heuristic.
+     * @param pWeight
+     *            The weight of the heuristic, at least 1.
+     */
+    public ToEvalWeighted(final ISingleplayerHeuristic pHeuristic,
+            final double pWeight) {
+        this(pHeuristic, pWeight, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Construct a ToEvalWeighted that only keeps the nodes that may lead to a
+     * path shorter than the bound.
+     *
+     * @param pHeuristic
+     *            The heuristic.
+     * @param pWeight
+     *            The weight of the heuristic, at least 1.
+     * @param pBound
+     *            The length of the shortest path known so far.
+     */
+    public ToEvalWeighted(final ISingleplayerHeuristic pHeuristic,
+            final double pWeight, final int pBound) {
+        if (pWeight < 1) {
+            throw new IllegalArgumentException(
+                    "the weight must be at least 1");
+        }
+        heuristic = pHeuristic;
+        weight = pWeight;
+        bound = pBound;
+    }
+
+    @Override
+    public void add(final INode<T> pNode) {
+        final double h = HeuristicUtility.remainingMoves(heuristic,
+                pNode.getGame());
+        if (pNode.getDepth() + h < bound) {
+            toEvaluate.add(new WeightedNode<>(pNode,
+                    pNode.getDepth() + weight * h, ++nodeId));
+        }
+    }
+
+    @Override
+    public INode<T> retrieveNext() {
+        return toEvaluate.poll().node;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !toEvaluate.isEmpty();
+    }
+
+    /**
+     * A node with its weighted estimate.
+     */
+    private static final class WeightedNode<T>
+            implements Comparable<WeightedNode<T>> {
+
+        final INode<T> node;
+
+        final double estimate;
+
+        final long constructionId;
+
+        WeightedNode(final INode<T> pNode, final double pEstimate,
+                final long pConstructionId) {
+            node = pNode;
+            estimate = pEstimate;
+            constructionId = pConstructionId;
+        }
+
+        @Override
+        public int compareTo(final WeightedNode<T> o) {
+            int cmp = Double.compare(estimate, o.estimate);
+            if (cmp != 0) {
+                return cmp;
+            }
+            cmp = Integer.compare(o.node.getDepth(), node.getDepth());
+            if (cmp != 0) {
+                return cmp;
+            }
+            return Long.compare(constructionId, o.constructionId);
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package gps.games.algorithm.singleplayer.interfaces;
 
 import gps.games.wrapper.successor.INode;
+import gps.games.wrapper.successor.NodeEvaluationCache;
 
 /**
  * Determines how an algorithm is supposed to store the nodes that have not been
@@ -51,4 +52,15 @@ public interface IToEvaluate<T> {
      *         otherwise.
      */
     public boolean hasNext();
+
+    /**
+     * Returns the cache of the heuristic values that is used for ordering the
+     * nodes, if any.
+     *
+     * @return The cache or {@code null} if the nodes are not ordered by a
+     *         heuristic.
+     */
+    public default NodeEvaluationCache getEvaluationCache() {
+        return null;
+    }
 }
@@ -0,0 +1,369 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.analysis.util;
+
+import gps.games.wrapper.Game;
+import gps.games.wrapper.Player;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Accumulates the data collected by {@link AnalysisTask}s. Uses primitive
+ * counters only and can be merged with the statistics of other tasks, so that
+ * every task can collect its data without synchronization.
+ *
+ * @param <T>
+ *            The type of the problem
+ */
+public class AnalysisStatistics<T> {
+
+    /**
+     * The precision of the {@link #distinctStates} sketch. Results in a
+     * standard error of about 1.6%.
+     */
+    private static final int SKETCH_PRECISION = 12;
+
+    /**
+     * The maximum number of {@link #samples} that are kept.
+     */
+    public static final int SAMPLE_CAPACITY = 64;
+
+    /**
+     * The added branching factor of all expanded nodes.
+     */
+    long addedBranching;
+
+    /**
+     * The added depth of the last node of all paths.
+     */
+    long addedDepth;
+
+    /**
+     * The amount of paths that ended in a terminal node.
+     */
+    long addedTerminations;
+
+    /**
+     * The amount of expanded nodes.
+     */
+    long visitedNodeCount;
+
+    /**
+     * The amount of simulated paths.
+     */
+    long pathCount;
+
+    /**
+     * The minimum depth of the last node of all paths.
+     */
+    int minDepth = Integer.MAX_VALUE;
+
+    /**
+     * The maximum depth of the last node of all paths.
+     */
+    int maxDepth = Integer.MIN_VALUE;
+
+    /**
+     * The minimum utility found.
+     */
+    double minUtility = Double.MAX_VALUE;
+
+    /**
+     * The maximum utility found.
+     */
+    double maxUtility = Double.MIN_VALUE;
+
+    /**
+     * The summed up run time of all tasks in nanoseconds.
+     */
+    long runTime;
+
+    /**
+     * The average branching factor of every path.
+     */
+    final RunningStatistics pathBranching = new RunningStatistics();
+
+    /**
+     * The depth of the last node of every path.
+     */
+    final RunningStatistics pathDepth = new RunningStatistics();
+
+    /**
+     * Whether a path terminated, as {@code 1} or {@code 0}.
+     */
+    final RunningStatistics pathTermination = new RunningStatistics();
+
+    /**
+     * All distinct players found.
+     */
+    final Set<Player> players = new HashSet<>();
+
+    /**
+     * Sketch that estimates the number of distinct states seen.
+     */
+    final HyperLogLog distinctStates = new HyperLogLog(SKETCH_PRECISION);
+
+    /**
+     * A uniform random selection of at most {@link #SAMPLE_CAPACITY} of the
+     * last game states of all paths. Used to estimate the memory needed per
+     * state.
+     */
+    final List<Game<T>> samples = new ArrayList<>();
+
+    /**
+     * The amount of game states offered to {@link #samples}.
+     */
+    long offeredSamples;
+
+    /**
+     * Merges the given statistics into this object.
+     *
+     * @param pOther
+     *            The statistics to merge. Must not be {@code null}.
+     * @return This object.
+     */
+    public AnalysisStatistics<T> merge(final AnalysisStatistics<T> pOther) {
+        addedBranching += pOther.addedBranching;
+        addedDepth += pOther.addedDepth;
+        addedTerminations += pOther.addedTerminations;
+        visitedNodeCount += pOther.visitedNodeCount;
+        pathCount += pOther.pathCount;
+        minDepth = Math.min(minDepth, pOther.minDepth);
+        maxDepth = Math.max(maxDepth, pOther.maxDepth);
+        minUtility = Math.min(minUtility, pOther.minUtility);
+        maxUtility = Math.max(maxUtility, pOther.maxUtility);
+        runTime += pOther.runTime;
+        pathBranching.merge(pOther.pathBranching);
+        pathDepth.merge(pOther.pathDepth);
+        pathTermination.merge(pOther.pathTermination);
+        players.addAll(pOther.players);
+        distinctStates.merge(pOther.distinctStates);
+        mergeSamples(pOther);
+        return this;
+    }
+
+    /**
+     * Offers the given game state to the {@link #samples} using reservoir
+     * sampling, so that every offered state is kept with the same
+     * probability.
+     *
+     * @param pGame
+     *            The game state.
+     * @param pRandom
+     *            The random used to choose the replaced sample.
+     */
+    void addSample(final Game<T> pGame, final SplittableRandom pRandom) {
+        offeredSamples++;
+        if (samples.size() < SAMPLE_CAPACITY) {
+            samples.add(pGame);
+        } else {
+            final long index = pRandom.nextLong(offeredSamples);
+            if (index < SAMPLE_CAPACITY) {
+                samples.set((int) index, pGame);
+            }
+        }
+    }
+
+    /**
+     * Merges the {@link #samples} of the given statistics into this object.
+     * Both selections are uniform, so a share of each that is proportional
+     * to its {@link #offeredSamples} keeps the result uniform.
+     *
+     * @param pOther
+     *            The statistics to merge.
+     */
+    private void mergeSamples(final AnalysisStatistics<T> pOther) {
+        final long offered = offeredSamples + pOther.offeredSamples;
+        if (samples.size() + pOther.samples.size() > SAMPLE_CAPACITY) {
+            int own = (int) Math.round((double) SAMPLE_CAPACITY
+                    * offeredSamples / offered);
+            own = Math.max(SAMPLE_CAPACITY - pOther.samples.size(),
+                    Math.min(own, samples.size()));
+            samples.subList(own, samples.size()).clear();
+            samples.addAll(pOther.samples.subList(0,
+                    SAMPLE_CAPACITY - own));
+        } else {
+            samples.addAll(pOther.samples);
+        }
+        offeredSamples = offered;
+    }
+
+    /**
+     * Records the given utility value in the utility range.
+     *
+     * @param pUtility
+     *            The utility value.
+     */
+    void addUtility(final double pUtility) {
+        minUtility = Math.min(minUtility, pUtility);
+        maxUtility = Math.max(maxUtility, pUtility);
+    }
+
+    /**
+     * Returns the added branching factor of all expanded nodes.
+     *
+     * @return The added branching factor.
+     */
+    public long getAddedBranching() {
+        return addedBranching;
+    }
+
+    /**
+     * Returns the added depth of the last node of all paths.
+     *
+     * @return The added depth.
+     */
+    public long getAddedDepth() {
+        return addedDepth;
+    }
+
+    /**
+     * Returns the amount of paths that ended in a terminal node.
+     *
+     * @return The amount of terminated paths.
+     */
+    public long getAddedTerminations() {
+        return addedTerminations;
+    }
+
+    /**
+     * Returns the amount of nodes that were expanded.
+     *
+     * @return The amount of expanded nodes.
+     */
+    public long getVisitedNodeCount() {
+        return visitedNodeCount;
+    }
+
+    /**
+     * Returns the amount of simulated paths.
+     *
+     * @return The amount of paths.
+     */
+    public long getPathCount() {
+        return pathCount;
+    }
+
+    /**
+     * Returns the minimum depth of the last node of all paths.
+     *
+     * @return The minimum depth or {@link Integer#MAX_VALUE} if no path was
+     *         simulated.
+     */
+    public int getMinDepth() {
+        return minDepth;
+    }
+
+    /**
+     * Returns the maximum depth of the last node of all paths.
+     *
+     * @return The maximum depth or {@link Integer#MIN_VALUE} if no path was
+     *         simulated.
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Returns the minimum utility found.
+     *
+     * @return The minimum utility or {@link Double#MAX_VALUE} if no utility
+     *         was found.
+     */
+    public double getMinUtility() {
+        return minUtility;
+    }
+
+    /**
+     * Returns the maximum utility found.
+     *
+     * @return The maximum utility or {@link Double#MIN_VALUE} if no utility
+     *         was found.
+     */
+    public double getMaxUtility() {
+        return maxUtility;
+    }
+
+    /**
+     * Returns the summed up run time of all tasks.
+     *
+     * @return The run time in nanoseconds.
+     */
+    public long getRunTime() {
+        return runTime;
+    }
+
+    /**
+     * Returns the statistics of the average branching factor of every path.
+     *
+     * @return The statistics. Is never {@code null}.
+     */
+    public RunningStatistics getPathBranching() {
+        return pathBranching;
+    }
+
+    /**
+     * Returns the statistics of the depth of the last node of every path.
+     *
+     * @return The statistics. Is never {@code null}.
+     */
+    public RunningStatistics getPathDepth() {
+        return pathDepth;
+    }
+
+    /**
+     * Returns the statistics of the termination of every path. A terminated
+     * path counts as {@code 1}, all others as {@code 0}.
+     *
+     * @return The statistics. Is never {@code null}.
+     */
+    public RunningStatistics getPathTermination() {
+        return pathTermination;
+    }
+
+    /**
+     * Returns all distinct players found.
+     *
+     * @return The set of players. Is never {@code null}.
+     */
+    public Set<Player> getPlayers() {
+        return players;
+    }
+
+    /**
+     * Returns the estimated number of distinct states seen by the tasks.
+     *
+     * @return The estimated number of distinct states.
+     */
+    public long getDistinctStateEstimate() {
+        return distinctStates.estimate();
+    }
+
+    /**
+     * Returns a uniform random selection of at most {@link #SAMPLE_CAPACITY}
+     * of the last game states of all paths.
+     *
+     * @return The list of game states. Is never {@code null}.
+     */
+    public List<Game<T>> getSamples() {
+        return samples;
+    }
+}
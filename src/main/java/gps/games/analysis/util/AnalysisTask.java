@@ -0,0 +1,337 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.analysis.util;
+
+import gps.games.MemorySavingMode;
+import gps.games.util.StateFingerprint;
+import gps.games.wrapper.Action;
+import gps.games.wrapper.Game;
+import gps.games.wrapper.Player;
+import gps.games.wrapper.successor.INode;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A fork join task that simulates a range of random paths through the game.
+ * Ranges that contain more than {@link #threshold} paths are split in half and
+ * processed in parallel. Each task uses its own {@link SplittableRandom} that
+ * is split off the random of its parent, so the result of the analysis only
+ * depends on the initial seed and not on the scheduling of the tasks.
+ *
+ * @param <T>
+ *            The type of the problem
+ */
+public class AnalysisTask<T> extends RecursiveTask<AnalysisStatistics<T>> {
+
+    /**
+     * Serial version UID.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Value of {@link #deadline} which indicates that there is no deadline.
+     */
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    /**
+     * A sort of "magic number" which determines the percentage of heap that has
+     * to be filled in order for the analysis to stop. Given value was
+     * determined empirically on problems that ran out of heap before.
+     */
+    private static final double HEAP_PERCENTAGE_FULL = 0.75d;
+
+    /**
+     * The heap usage is checked every time this amount of nodes has been
+     * expanded by a task.
+     */
+    private static final int HEAP_CHECK_INTERVAL = 64;
+
+    /**
+     * The root game object, representing the main problem. Is not modified.
+     */
+    private final Game<T> game;
+
+    /**
+     * The index of the first path of this task.
+     */
+    private final int from;
+
+    /**
+     * The index after the last path of this task.
+     */
+    private final int to;
+
+    /**
+     * The maximum number of paths that are simulated without splitting the
+     * task.
+     */
+    private final int threshold;
+
+    /**
+     * The maximum depth for each path.
+     */
+    private final int maxDepth;
+
+    /**
+     * The random used to choose the actions.
+     */
+    private final SplittableRandom random;
+
+    /**
+     * Flag shared by all tasks of an analysis. If set, the tasks stop to
+     * extend their paths as soon as possible.
+     */
+    private final AtomicBoolean stop;
+
+    /**
+     * The value of {@link System#nanoTime()} after which the tasks stop to
+     * extend their paths. {@link #NO_DEADLINE} if there is no deadline.
+     */
+    private final long deadline;
+
+    /**
+     * Creates a new task that simulates the paths from {@code pFrom}
+     * (inclusive) to {@code pTo} (exclusive).
+     *
+     * @param pGame
+     *            The game object to work on. Is not modified. Can not be
+     *            {@code null}.
+     * @param pFrom
+     *            The index of the first path.
+     * @param pTo
+     *            The index after the last path. Has to be >= pFrom.
+     * @param pThreshold
+     *            The maximum number of paths simulated without splitting. Has
+     *            to be > 0.
+     * @param pMaxDepth
+     *            The maximum depth for each path generated. Can not be < 0.
+     * @param pRandom
+     *            The random used to choose the actions. Can not be
+     *            {@code null}.
+     * @param pStop
+     *            Flag that signals the tasks to stop. Can not be {@code null}.
+     */
+    public AnalysisTask(final Game<T> pGame, final int pFrom, final int pTo,
+            final int pThreshold, final int pMaxDepth,
+            final SplittableRandom pRandom, final AtomicBoolean pStop) {
+        this(pGame, pFrom, pTo, pThreshold, pMaxDepth, pRandom, pStop,
+                NO_DEADLINE);
+    }
+
+    /**
+     * Creates a new task that simulates the paths from {@code pFrom}
+     * (inclusive) to {@code pTo} (exclusive) and stops once the deadline has
+     * passed.
+     *
+     * @param pGame
+     *            The game object to work on. Is not modified. Can not be
+     *            {@code null}.
+     * @param pFrom
+     *            The index of the first path.
+     * @param pTo
+     *            The index after the last path. Has to be >= pFrom.
+     * @param pThreshold
+     *            The maximum number of paths simulated without splitting. Has
+     *            to be > 0.
+     * @param pMaxDepth
+     *            The maximum depth for each path generated. Can not be < 0.
+     * @param pRandom
+     *            The random used to choose the actions. Can not be
+     *            {@code null}.
+     * @param pStop
+     *            Flag that signals the tasks to stop. Can not be {@code null}.
+     * @param pDeadline
+     *            The value of {@link System#nanoTime()} after which the tasks
+     *            stop or {@link #NO_DEADLINE}.
+     */
+    public AnalysisTask(final Game<T> pGame, final int pFrom, final int pTo,
+            final int pThreshold, final int pMaxDepth,
+            final SplittableRandom pRandom, final AtomicBoolean pStop,
+            final long pDeadline) {
+        if (pGame == null || pRandom == null || pStop == null) {
+            throw new NullPointerException("One of the parameters was null.");
+        }
+        if (pTo < pFrom || pThreshold <= 0 || pMaxDepth < 0) {
+            throw new IllegalArgumentException("Incorrect parameter values.");
+        }
+        game = pGame;
+        from = pFrom;
+        to = pTo;
+        threshold = pThreshold;
+        maxDepth = pMaxDepth;
+        random = pRandom;
+        stop = pStop;
+        deadline = pDeadline;
+    }
+
+    @Override
+    protected AnalysisStatistics<T> compute() {
+        if (to - from > threshold) {
+            int mid = (from + to) >>> 1;
+            AnalysisTask<T> left = new AnalysisTask<>(game, from, mid,
+                    threshold, maxDepth, random.split(), stop, deadline);
+            AnalysisTask<T> right = new AnalysisTask<>(game, mid, to,
+                    threshold, maxDepth, random.split(), stop, deadline);
+            left.fork();
+            AnalysisStatistics<T> statistics = right.compute();
+            return statistics.merge(left.join());
+        }
+        return simulatePaths();
+    }
+
+    /**
+     * Simulates the paths of this task one after another and collects their
+     * data.
+     *
+     * @return The collected data.
+     */
+    private AnalysisStatistics<T> simulatePaths() {
+        final long before = System.nanoTime();
+        final AnalysisStatistics<T> statistics = new AnalysisStatistics<>();
+        // Every task works on its own copy, as problem classes are not
+        // required to be thread safe
+        final Game<T> taskGame = game.copy();
+        final boolean problemHasTerminal = taskGame.hasTerminalMethod();
+        final boolean problemHasUtility = taskGame.hasUtilityMethod();
+        final boolean problemHasPlayerUtility = taskGame
+                .hasUtilityPlayerMethod();
+        final INode<T> root = taskGame.asRoot();
+        statistics.distinctStates.add(StateFingerprint.of(root.getGame()));
+
+        for (int i = from; i < to && !isStopped(); i++) {
+            INode<T> node = root;
+            long pathBranching = 0;
+            while (problemHasTerminal && !node.isTerminal()
+                    && node.getDepth() < maxDepth && !isStopped()) {
+                statistics.visitedNodeCount++;
+                List<Action> actions = node.getGame().getActions();
+                Action chosenAction = actions
+                        .get(random.nextInt(actions.size()));
+                // analysis is not influenced by memory
+                node = node.getSuccessor(chosenAction, MemorySavingMode.NONE);
+                statistics.addedBranching += actions.size();
+                pathBranching += actions.size();
+                statistics.distinctStates
+                        .add(StateFingerprint.of(node.getGame()));
+
+                // Only check for player if not terminal. Terminal is no players turn!
+                if (node.getGame().hasPlayerMethod() && !node.isTerminal()) {
+                    statistics.players.add(node.getGame().getPlayer());
+                }
+                if (statistics.visitedNodeCount % HEAP_CHECK_INTERVAL == 0
+                        && !checkHeapUsage(HEAP_PERCENTAGE_FULL)) {
+                    stop.set(true);
+                }
+            }
+            if (isStopped() && problemHasTerminal && !node.isTerminal()
+                    && node.getDepth() < maxDepth) {
+                // The path was cut off and is not a sample of the game
+                break;
+            }
+            if (node.getDepth() > 0) {
+                statistics.pathBranching
+                        .add(pathBranching / (double) node.getDepth());
+            }
+            collectPathData(statistics, node, problemHasTerminal,
+                    problemHasUtility, problemHasPlayerUtility);
+        }
+        statistics.runTime = System.nanoTime() - before;
+        return statistics;
+    }
+
+    /**
+     * Collects the data of the last node of a path.
+     *
+     * @param statistics
+     *            The statistics to add the data to.
+     * @param node
+     *            The last node of the path.
+     * @param problemHasTerminal
+     *            {@code true} if the game has a terminal method.
+     * @param problemHasUtility
+     *            {@code true} if the game has a utility method.
+     * @param problemHasPlayerUtility
+     *            {@code true} if the game has a utility method with player
+     *            argument.
+     */
+    private void collectPathData(final AnalysisStatistics<T> statistics,
+            final INode<T> node, final boolean problemHasTerminal,
+            final boolean problemHasUtility,
+            final boolean problemHasPlayerUtility) {
+        final Game<T> curGame = node.getGame();
+        final int depth = node.getDepth();
+        statistics.pathCount++;
+        statistics.addedDepth += depth;
+        statistics.minDepth = Math.min(statistics.minDepth, depth);
+        statistics.maxDepth = Math.max(statistics.maxDepth, depth);
+        statistics.addSample(curGame, random);
+        statistics.pathDepth.add(depth);
+
+        final boolean terminated = problemHasTerminal && node.isTerminal();
+        if (terminated) {
+            statistics.addedTerminations++;
+        }
+        statistics.pathTermination.add(terminated ? 1 : 0);
+        if (problemHasPlayerUtility) {
+            for (Player p : statistics.players) {
+                // Needed. You cant call getPlayer in Terminal
+                // But getUtility is terminal-only!
+                statistics.addUtility(curGame.getUtility(p).doubleValue());
+            }
+        }
+        if (problemHasUtility) {
+            statistics.addUtility(curGame.getUtility().doubleValue());
+        }
+    }
+
+    /**
+     * Checks whether the tasks should stop. Sets the shared stop flag if the
+     * deadline has passed.
+     *
+     * @return {@code true} if the tasks should stop.
+     */
+    private boolean isStopped() {
+        if (stop.get()) {
+            return true;
+        }
+        if (deadline != NO_DEADLINE && System.nanoTime() - deadline > 0) {
+            stop.set(true);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks the currently used heap based on given percentage of the maximum
+     * heap size. The heap that is currently reserved is not used as reference,
+     * as it grows on demand and would stop the analysis early in a fresh JVM.
+     *
+     * @param pHeapPercentage
+     *            A double between 0 and 1.
+     * @return {@code true} only if the amount of memory used is lower than the
+     *         given percentage, {@code false} otherwise.
+     */
+    private static boolean checkHeapUsage(final double pHeapPercentage) {
+        Runtime runtime = Runtime.getRuntime();
+        double max = runtime.maxMemory();
+        double usage = runtime.totalMemory() - runtime.freeMemory();
+        return (usage / max) < pHeapPercentage;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.analysis.util;
+
+/**
+ * A HyperLogLog sketch that estimates the number of distinct 64 bit values
+ * that have been added to it. Uses a fixed amount of memory regardless of the
+ * number of values and can be merged with other sketches of the same
+ * precision. Not thread safe, every thread should use its own sketch and merge
+ * it afterwards.
+ */
+public class HyperLogLog {
+
+    /**
+     * The number of bits of a value used to select a register.
+     */
+    private final int precision;
+
+    /**
+     * The registers. Each register stores the maximum rank seen for the values
+     * that were mapped to it.
+     */
+    private final byte[] registers;
+
+    /**
+     * Creates a new empty sketch. The standard error of the estimation is about
+     * {@code 1.04 / sqrt(2^pPrecision)}.
+     *
+     * @param pPrecision
+     *            The number of index bits. Has to be between 4 and 18.
+     */
+    public HyperLogLog(final int pPrecision) {
+        if (pPrecision < 4 || pPrecision > 18) {
+            throw new IllegalArgumentException(
+                    "Precision has to be between 4 and 18.");
+        }
+        precision = pPrecision;
+        registers = new byte[1 << pPrecision];
+    }
+
+    /**
+     * Adds a value to the sketch. The value should already be a well mixed
+     * hash, e.g. created by {@link gps.games.util.StateFingerprint}.
+     *
+     * @param pHash
+     *            The hash of the value to add.
+     */
+    public void add(final long pHash) {
+        int index = (int) (pHash >>> (64 - precision));
+        long rest = (pHash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        if (registers[index] < rank) {
+            registers[index] = rank;
+        }
+    }
+
+    /**
+     * Merges the given sketch into this sketch. Afterwards this sketch
+     * estimates the number of distinct values added to either of them.
+     *
+     * @param pOther
+     *            The other sketch. Must have the same precision.
+     */
+    public void merge(final HyperLogLog pOther) {
+        if (pOther.precision != precision) {
+            throw new IllegalArgumentException(
+                    "Cannot merge sketches of different precision.");
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (registers[i] < pOther.registers[i]) {
+                registers[i] = pOther.registers[i];
+            }
+        }
+    }
+
+    /**
+     * Returns the estimated number of distinct values added to this sketch.
+     *
+     * @return The estimated cardinality. Is never < 0.
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // small range correction: linear counting
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+}
@@ -16,70 +16,279 @@
  */
 package gps.games.analysis.util;
 
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
- * This class offers two simple methods to compare the change in memory usage between the calls.
+ * This class estimates the memory used by objects without triggering garbage
+ * collections. The object graph of a sample of objects is walked and the size
+ * of every reachable object is calculated from the layout of its fields.
  * 
  * @author Fabian
  */
 public class MemoryAnalysisUtility {
 
     /**
-     * The runtime object currently used to communicate with the environment
+     * {@code true} if the JVM uses compressed object pointers.
+     */
+    private static final boolean COMPRESSED_OOPS = vmOption(
+            "UseCompressedOops", Runtime.getRuntime().maxMemory() < (32L << 30));
+
+    /**
+     * {@code true} if the JVM uses compressed class pointers.
+     */
+    private static final boolean COMPRESSED_CLASS_POINTERS = vmOption(
+            "UseCompressedClassPointers", COMPRESSED_OOPS);
+
+    /**
+     * The size of a reference in bytes.
+     */
+    private static final int REFERENCE_SIZE = COMPRESSED_OOPS ? 4 : 8;
+
+    /**
+     * The size of an object header in bytes.
+     */
+    private static final int OBJECT_HEADER_SIZE = COMPRESSED_CLASS_POINTERS
+            ? 12 : 16;
+
+    /**
+     * The size of an array header in bytes, including the length field.
      */
-    private static final Runtime runtime = Runtime.getRuntime();
+    private static final int ARRAY_HEADER_SIZE = OBJECT_HEADER_SIZE + 4;
 
     /**
-     * The long's used to save the memory usage in bytes
+     * Objects are aligned to this amount of bytes.
      */
-    private static Long before, after;
+    private static final int ALIGNMENT = 8;
 
     /**
-     * Returns the amount of memory currently used by the JVM.
+     * The cached layouts of all classes seen so far.
+     */
+    private static final Map<Class<?>, ClassLayout> LAYOUTS = new ConcurrentHashMap<>();
+
+    /**
+     * Estimates the average amount of memory used per object of the given
+     * list. At most {@code pMaxSamples} objects, evenly distributed over the
+     * list, are measured. Objects that are reachable from more than one sample
+     * are only counted once, so the result is the memory that every
+     * additional object costs.
      * 
-     * @return The amount of memory used in bytes. Calculated by totalMemory-freeMemory
+     * @param pObjects
+     *            The objects to measure. Can not be {@code null}.
+     * @param pMaxSamples
+     *            The maximum number of objects to measure. Has to be > 0.
+     * @return The estimated amount of memory per object in bytes or {@code 0}
+     *         if the list is empty.
      */
-    private static long getMemoryUsage() {
-        hardClean();
-        return runtime.totalMemory() - runtime.freeMemory();
+    public static double estimateSizePerObject(final List<?> pObjects,
+            final int pMaxSamples) {
+        if (pObjects == null) {
+            throw new NullPointerException("The list of objects is null.");
+        }
+        if (pMaxSamples <= 0) {
+            throw new IllegalArgumentException("Sample count must be > 0");
+        }
+        if (pObjects.isEmpty()) {
+            return 0;
+        }
+        final int sampleCount = Math.min(pMaxSamples, pObjects.size());
+        final List<Object> samples = new ArrayList<>(sampleCount);
+        for (int i = 0; i < sampleCount; i++) {
+            samples.add(pObjects.get((int) ((long) i * pObjects.size()
+                    / sampleCount)));
+        }
+        return (double) estimateDeepSize(samples) / sampleCount;
     }
 
     /**
-     * Used to start monitoring changes in memory usage. Must be called at least once.
+     * Estimates the amount of memory used by the given objects and all
+     * objects reachable from them. Every object is counted only once. Class
+     * objects and objects whose fields are not accessible are counted with
+     * their own size only.
+     * 
+     * @param pRoots
+     *            The objects to start from. Can not be {@code null}.
+     * @return The estimated amount of memory in bytes.
      */
-    public static void startMeasurement() {
-        hardClean();
-        before = after = getMemoryUsage();
+    public static long estimateDeepSize(final Iterable<?> pRoots) {
+        final Set<Object> visited = Collections
+                .newSetFromMap(new IdentityHashMap<>());
+        final Deque<Object> stack = new ArrayDeque<>();
+        for (Object root : pRoots) {
+            if (root != null && visited.add(root)) {
+                stack.push(root);
+            }
+        }
+        long size = 0;
+        while (!stack.isEmpty()) {
+            final Object obj = stack.pop();
+            final Class<?> clazz = obj.getClass();
+            if (clazz.isArray()) {
+                final int length = Array.getLength(obj);
+                final Class<?> component = clazz.getComponentType();
+                size += align(ARRAY_HEADER_SIZE
+                        + (long) length * sizeOf(component));
+                if (!component.isPrimitive()) {
+                    for (int i = 0; i < length; i++) {
+                        push(Array.get(obj, i), visited, stack);
+                    }
+                }
+                continue;
+            }
+            final ClassLayout layout = layoutOf(clazz);
+            size += layout.size;
+            for (Field field : layout.references) {
+                try {
+                    push(field.get(obj), visited, stack);
+                } catch (IllegalAccessException e) {
+                    // count the shallow size only
+                }
+            }
+        }
+        return size;
     }
 
     /**
-     * Will calculate the increase in memory compared to the moment of the most recent {@code startMeasurement()} call.
-     * Will throw an {@code IllegalStateException()} if {@code startMeasurement()} was not called until now. 
+     * Pushes the object on the stack if it was not visited before. Class
+     * objects are shared by all instances and are therefore not counted.
      * 
-     * @return A long value representing the increase in memory usage, comparing between the time {@code startMeasurement()} and
-     *  {@code getMemoryIncrease()} were called. Since the return represents an increase in memory, a negative return value 
-     *  represents a decrease in memory usage compared to the moment {@code startMeasurement()} was called.
+     * @param pObject
+     *            The object to push. Can be {@code null}.
+     * @param pVisited
+     *            The objects visited so far.
+     * @param pStack
+     *            The objects still to walk.
      */
-    public static long getMemoryIncrease() {
-        if (before == null || after == null) {
-            throw new IllegalStateException(
-                    "You must call startMeasurement() at least once before calling this method");
+    private static void push(final Object pObject, final Set<Object> pVisited,
+            final Deque<Object> pStack) {
+        if (pObject != null && !(pObject instanceof Class)
+                && pVisited.add(pObject)) {
+            pStack.push(pObject);
         }
-        hardClean();
-        after = getMemoryUsage();
-        long diff = after - before;
-        return (diff);
     }
 
     /**
-     * Will clear as much memory as possible, resulting in a more accurate comparision
+     * Returns the layout of the given class, calculating it if needed.
+     * 
+     * @param pClass
+     *            A class that is not an array class.
+     * @return The layout.
      */
-    private static void hardClean() {
-        // Running it once is actually not enough
-        // Running it multiple times results in a way more accurate memory reading
-        for (int i = 0; i < 5; ++i) {
-            runtime.runFinalization();
-            Thread.yield();
-            runtime.gc();
+    private static ClassLayout layoutOf(final Class<?> pClass) {
+        ClassLayout layout = LAYOUTS.get(pClass);
+        if (layout == null) {
+            layout = new ClassLayout(pClass);
+            LAYOUTS.put(pClass, layout);
+        }
+        return layout;
+    }
+
+    /**
+     * Returns the size of a field or array element of the given type.
+     * 
+     * @param pType
+     *            The type.
+     * @return The size in bytes.
+     */
+    private static int sizeOf(final Class<?> pType) {
+        if (pType == long.class || pType == double.class) {
+            return 8;
+        } else if (pType == int.class || pType == float.class) {
+            return 4;
+        } else if (pType == short.class || pType == char.class) {
+            return 2;
+        } else if (pType == byte.class || pType == boolean.class) {
+            return 1;
+        }
+        return REFERENCE_SIZE;
+    }
+
+    /**
+     * Rounds the given size up to the object alignment.
+     * 
+     * @param pSize
+     *            The size in bytes.
+     * @return The aligned size in bytes.
+     */
+    private static long align(final long pSize) {
+        return (pSize + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    /**
+     * Reads a boolean option of the HotSpot VM.
+     * 
+     * @param pName
+     *            The name of the option.
+     * @param pDefault
+     *            The value returned if the option can not be read.
+     * @return The value of the option.
+     */
+    private static boolean vmOption(final String pName,
+            final boolean pDefault) {
+        try {
+            return Boolean.parseBoolean(ManagementFactory
+                    .getPlatformMXBean(
+                            com.sun.management.HotSpotDiagnosticMXBean.class)
+                    .getVMOption(pName).getValue());
+        } catch (RuntimeException | LinkageError e) {
+            // not a HotSpot VM or option unknown
+            return pDefault;
+        }
+    }
+
+    /**
+     * The size of the instances of a class and the reference fields that are
+     * followed when walking the object graph.
+     */
+    private static final class ClassLayout {
+
+        /**
+         * The aligned size of an instance in bytes.
+         */
+        private final long size;
+
+        /**
+         * The accessible non-static reference fields, including those of the
+         * super classes.
+         */
+        private final List<Field> references = new ArrayList<>();
+
+        /**
+         * Calculates the layout of the given class.
+         * 
+         * @param pClass
+         *            A class that is not an array class.
+         */
+        private ClassLayout(final Class<?> pClass) {
+            long fieldSize = 0;
+            for (Class<?> c = pClass; c != null; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    fieldSize += sizeOf(field.getType());
+                    if (!field.getType().isPrimitive()) {
+                        try {
+                            field.setAccessible(true);
+                            references.add(field);
+                        } catch (RuntimeException e) {
+                            // inaccessible, e.g. JDK internals on newer JVMs
+                        }
+                    }
+                }
+            }
+            size = align(OBJECT_HEADER_SIZE + fieldSize);
         }
     }
 }
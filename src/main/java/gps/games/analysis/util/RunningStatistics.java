@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.analysis.util;
+
+/**
+ * Tracks the running mean and variance of a series of values using Welford's
+ * algorithm. Two instances can be merged, which allows every task of an
+ * analysis to keep its own statistics. Not thread safe.
+ */
+public class RunningStatistics {
+
+    /**
+     * The number of values added.
+     */
+    private long count;
+
+    /**
+     * The mean of all values added.
+     */
+    private double mean;
+
+    /**
+     * The sum of the squared differences from the mean.
+     */
+    private double m2;
+
+    /**
+     * Adds a value.
+     *
+     * @param pValue
+     *            The value to add.
+     */
+    public void add(final double pValue) {
+        count++;
+        double delta = pValue - mean;
+        mean += delta / count;
+        m2 += delta * (pValue - mean);
+    }
+
+    /**
+     * Merges the values of the given statistics into this object.
+     *
+     * @param pOther
+     *            The statistics to merge. Must not be {@code null}.
+     */
+    public void merge(final RunningStatistics pOther) {
+        if (pOther.count == 0) {
+            return;
+        }
+        long total = count + pOther.count;
+        double delta = pOther.mean - mean;
+        mean += delta * pOther.count / total;
+        m2 += pOther.m2 + delta * delta * count * pOther.count / total;
+        count = total;
+    }
+
+    /**
+     * Returns the number of values added.
+     *
+     * @return The number of values.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the mean of all values added.
+     *
+     * @return The mean or {@code 0} if no value was added.
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * Returns the sample variance of all values added.
+     *
+     * @return The variance or {@code 0} if less than two values were added.
+     */
+    public double getVariance() {
+        return count < 2 ? 0 : m2 / (count - 1);
+    }
+
+    /**
+     * Returns the half width of the confidence interval of the mean.
+     *
+     * @param pZ
+     *            The quantile of the standard normal distribution that belongs
+     *            to the requested confidence level, e.g. {@code 1.96} for 95%.
+     * @return The half width of the confidence interval or
+     *         {@link Double#POSITIVE_INFINITY} if less than two values were
+     *         added.
+     */
+    public double getConfidenceHalfWidth(final double pZ) {
+        if (count < 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return pZ * Math.sqrt(getVariance() / count);
+    }
+}
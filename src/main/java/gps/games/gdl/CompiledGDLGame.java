@@ -0,0 +1,539 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.gdl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.ggp.base.util.gdl.grammar.GdlSentence;
+import org.ggp.base.util.statemachine.MachineState;
+import org.ggp.base.util.statemachine.Move;
+import org.ggp.base.util.statemachine.Role;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoCopyable;
+
+import gps.IWrappedProblem;
+import gps.games.gdl.StanfordGDLGame.PlayerSwitchingMode;
+import gps.games.wrapper.Action;
+import gps.games.wrapper.Player;
+
+/**
+ * <p>
+ * A GDL game whose rules have been compiled into Java by the
+ * {@link GDLCompiler}. Behaves like a {@link StanfordGDLGame}, but the state is
+ * a packed {@code long[]} and the rules are evaluated by a generated
+ * {@link GDLEvaluator} instead of a state machine.
+ * </p>
+ * 
+ * <p>
+ * The evaluator and the moves are shared by all copies of a game, copying a
+ * game only copies the per-state fields.
+ * </p>
+ */
+public class CompiledGDLGame
+        implements IWrappedProblem<CompiledGDLGame>,
+        KryoCopyable<CompiledGDLGame> {
+
+    /**
+     * the evaluator and the moves, shared by all copies of this game
+     */
+    private final Rules rules;
+
+    /**
+     * the current state. States are never modified, so copies of this game
+     * may share it.
+     */
+    private long[] state;
+
+    /**
+     * the index of the role whose turn it is
+     */
+    private int currentPlayerIndex;
+
+    /**
+     * the input propositions of the moves that have been chosen for the roles
+     * before {@link #currentPlayerIndex} in
+     * {@link PlayerSwitchingMode#alternate} mode
+     */
+    private int[] pendingMoves;
+
+    /**
+     * determines how playerswitching at the end of turns is handled
+     * 
+     * @see StanfordGDLGame#getPlayerSwitchingMode()
+     */
+    private PlayerSwitchingMode playerSwitchingMode = PlayerSwitchingMode.keep;
+
+    /**
+     * creates the game in its initial state
+     * 
+     * @param pEvaluator
+     *            the generated evaluator
+     * @param pPropNet
+     *            the network the evaluator has been generated from
+     */
+    CompiledGDLGame(final GDLEvaluator pEvaluator,
+            final PropNetStateMachine pPropNet) {
+        rules = new Rules(pEvaluator, pPropNet);
+        state = pEvaluator.initial();
+        currentPlayerIndex = 0;
+        pendingMoves = new int[rules.roles.size()];
+    }
+
+    /**
+     * copy constructor. The copy shares the rules and the state.
+     * 
+     * @param pGame
+     *            the game to copy
+     */
+    private CompiledGDLGame(final CompiledGDLGame pGame) {
+        rules = pGame.rules;
+        state = pGame.state;
+        currentPlayerIndex = pGame.currentPlayerIndex;
+        pendingMoves = pGame.pendingMoves.clone();
+        playerSwitchingMode = pGame.playerSwitchingMode;
+    }
+
+    @Override
+    public CompiledGDLGame copy(final Kryo kryo) {
+        return new CompiledGDLGame(this);
+    }
+
+    /**
+     * @return the roles of the game in the order of the joint moves
+     */
+    public List<Role> getRoles() {
+        return rules.roles;
+    }
+
+    /**
+     * sets the role whose turn it is
+     * 
+     * @param pRole
+     *            the role
+     */
+    public void setRole(final Role pRole) {
+        final int r = rules.roles.indexOf(pRole);
+        if (r < 0) {
+            throw new IllegalArgumentException("unknown role " + pRole);
+        }
+        currentPlayerIndex = r;
+    }
+
+    /**
+     * @return the current {@link PlayerSwitchingMode}
+     */
+    public PlayerSwitchingMode getPlayerSwitchingMode() {
+        return playerSwitchingMode;
+    }
+
+    /**
+     * @param pPlayerSwitchingMode
+     *            the new {@link PlayerSwitchingMode}
+     */
+    public void setPlayerSwitchingMode(
+            final PlayerSwitchingMode pPlayerSwitchingMode) {
+        playerSwitchingMode = pPlayerSwitchingMode;
+    }
+
+    /**
+     * @return the current state as a {@link MachineState}
+     */
+    public MachineState getCurrentState() {
+        final Set<GdlSentence> contents = new HashSet<>();
+        for (int b = 0; b < rules.baseSentences.length; b++) {
+            if ((state[b >>> 6] & (1L << b)) != 0) {
+                contents.add(rules.baseSentences[b]);
+            }
+        }
+        return new MachineState(contents);
+    }
+
+    /**
+     * sets the current state, e.g. the state of a match
+     * 
+     * @param pState
+     *            the state
+     */
+    public void setCurrentState(final MachineState pState) {
+        final long[] s = new long[state.length];
+        for (GdlSentence sentence : pState.getContents()) {
+            final Integer b = rules.baseIndex.get(sentence);
+            if (b != null) {
+                s[b >>> 6] |= 1L << b;
+            }
+        }
+        state = s;
+    }
+
+    /**
+     * @return the legal moves of the given role in the current state
+     */
+    private int[] legal(final int pRole) {
+        final int[] out = new int[rules.legalMoves[pRole].length];
+        return Arrays.copyOf(out,
+                rules.evaluator.legal(state, pRole, out));
+    }
+
+    /**
+     * @return the index of the given move of the current player
+     */
+    private int moveIndex(final Action pAction) {
+        final Integer i = rules.moveIndex.get(currentPlayerIndex)
+                .get(pAction.get());
+        if (i == null) {
+            throw new IllegalArgumentException(
+                    "unknown move " + pAction.get());
+        }
+        return i;
+    }
+
+    /*
+     * Interface methods
+     */
+
+    /**
+     * <p>
+     * applies the given action to the current state for the current player
+     * {@link #getPlayer}
+     * </p>
+     * 
+     * @param pAction
+     *            an action returned by {@link #getActions()}
+     * @see StanfordGDLGame#applyAction(Action)
+     */
+    @Override
+    public void applyAction(final Action pAction) {
+        final int move = rules.legalInputs[currentPlayerIndex][moveIndex(
+                pAction)];
+        switch (playerSwitchingMode) {
+        case keep:
+            // the other roles make random legal moves
+            final int[] inputs = new int[rules.roles.size()];
+            for (int r = 0; r < inputs.length; r++) {
+                if (r == currentPlayerIndex) {
+                    inputs[r] = move;
+                } else {
+                    final int[] legal = legal(r);
+                    inputs[r] = rules.legalInputs[r][legal[ThreadLocalRandom
+                            .current().nextInt(legal.length)]];
+                }
+            }
+            state = rules.evaluator.next(state, inputs);
+            return;
+        case alternate:
+            pendingMoves[currentPlayerIndex] = move;
+            currentPlayerIndex++;
+            if (currentPlayerIndex == rules.roles.size()) {
+                state = rules.evaluator.next(state, pendingMoves);
+                currentPlayerIndex = 0;
+            }
+            return;
+        default:
+            throw new IllegalStateException(
+                    "unknown playerSwitchingMode: " + playerSwitchingMode);
+        }
+    }
+
+    @Override
+    public boolean hasApplyActionMethod() {
+        return true;
+    }
+
+    /**
+     * @return null
+     */
+    @Override
+    public List<Runnable> getRunnableMoves() {
+        return null;
+    }
+
+    /**
+     * Returns a list containing every move that is legal for the current
+     * player. The actions wrap {@link Move}s.
+     */
+    @Override
+    public List<Action> getActions() {
+        final int[] legal = legal(currentPlayerIndex);
+        final List<Action> actions = new ArrayList<>(legal.length);
+        for (int i : legal) {
+            actions.add(rules.actions[currentPlayerIndex][i]);
+        }
+        return actions;
+    }
+
+    @Override
+    public boolean hasActionMethod() {
+        return true;
+    }
+
+    @Override
+    public boolean isTerminal() {
+        return rules.evaluator.terminal(state);
+    }
+
+    @Override
+    public boolean hasTerminalMethod() {
+        return true;
+    }
+
+    /**
+     * @return the goal value of the given role, {@code 0} if it has none
+     */
+    private int goal(final int pRole) {
+        return Math.max(0, rules.evaluator.goal(state, pRole));
+    }
+
+    /**
+     * @return the index of the role wrapped by the given player
+     */
+    private int roleIndex(final Player pPlayer) {
+        final int r = rules.roles.indexOf(pPlayer.get());
+        if (r < 0) {
+            throw new IllegalArgumentException("unknown player " + pPlayer);
+        }
+        return r;
+    }
+
+    @Override
+    public Number heuristic() {
+        return goal(currentPlayerIndex);
+    }
+
+    @Override
+    public Number heuristic(final Player pPlayer) {
+        return goal(roleIndex(pPlayer));
+    }
+
+    @Override
+    public boolean hasHeuristicMethod() {
+        return true;
+    }
+
+    @Override
+    public boolean hasHeuristicPlayerMethod() {
+        return true;
+    }
+
+    @Override
+    public Player getPlayer() {
+        return rules.players[currentPlayerIndex];
+    }
+
+    @Override
+    public boolean hasPlayerMethod() {
+        return true;
+    }
+
+    @Override
+    public Number getUtility() {
+        return goal(currentPlayerIndex);
+    }
+
+    @Override
+    public Number getUtility(final Player pPlayer) {
+        return goal(roleIndex(pPlayer));
+    }
+
+    @Override
+    public boolean hasUtilityMethod() {
+        return true;
+    }
+
+    @Override
+    public boolean hasUtilityPlayerMethod() {
+        return true;
+    }
+
+    @Override
+    public boolean hasObjectiveFunction() {
+        return false;
+    }
+
+    @Override
+    public double objectiveFunction(final Object[] params) {
+        return 0;
+    }
+
+    @Override
+    public Object[] getDefaultParams() {
+        return null;
+    }
+
+    @Override
+    public List<Object[]> neighbor(final Object[] params) {
+        return null;
+    }
+
+    @Override
+    public boolean hasNeighborFunction() {
+        return false;
+    }
+
+    @Override
+    public CompiledGDLGame getSource() {
+        return this;
+    }
+
+    @Override
+    public Object[] getAttributes() {
+        return new Object[0];
+    }
+
+    @Override
+    public void setAttribute(final int index, final Object val) {
+
+    }
+
+    @Override
+    public boolean isAttributeFinal(final int index) {
+        return false;
+    }
+
+    @Override
+    public void setThresholdForObjectiveFunction(final double pThresh) {
+
+    }
+
+    @Override
+    public boolean canBeGreaterThan() {
+        return false;
+    }
+
+    @Override
+    public void setMaximize(final byte pMax) {
+
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (!(other instanceof CompiledGDLGame)) {
+            return false;
+        }
+        final CompiledGDLGame o = (CompiledGDLGame) other;
+        if (currentPlayerIndex != o.currentPlayerIndex
+                || !Arrays.equals(state, o.state)) {
+            return false;
+        }
+        // only the moves of the roles that already moved this turn count
+        for (int r = 0; r < currentPlayerIndex; r++) {
+            if (pendingMoves[r] != o.pendingMoves[r]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(state) + currentPlayerIndex;
+    }
+
+    /**
+     * The part of a compiled game that does not change while the game is
+     * played.
+     */
+    private static final class Rules {
+
+        /**
+         * the generated evaluator
+         */
+        private final GDLEvaluator evaluator;
+
+        /**
+         * the roles in the order of the joint moves
+         */
+        private final List<Role> roles;
+
+        /**
+         * the wrapped roles
+         */
+        private final Player[] players;
+
+        /**
+         * the sentences of the base propositions, bit {@code i} of a state is
+         * base proposition {@code i}
+         */
+        private final GdlSentence[] baseSentences;
+
+        /**
+         * the bit of each base proposition
+         */
+        private final Map<GdlSentence, Integer> baseIndex = new HashMap<>();
+
+        /**
+         * the moves of the legal propositions per role
+         */
+        private final Move[][] legalMoves;
+
+        /**
+         * the wrapped moves of the legal propositions per role
+         */
+        private final Action[][] actions;
+
+        /**
+         * the index of each move in {@link #legalMoves} per role
+         */
+        private final List<Map<Object, Integer>> moveIndex = new ArrayList<>();
+
+        /**
+         * the index of the input proposition of each legal move per role,
+         * relative to the first input proposition
+         */
+        private final int[][] legalInputs;
+
+        Rules(final GDLEvaluator pEvaluator,
+                final PropNetStateMachine pPropNet) {
+            evaluator = pEvaluator;
+            roles = Collections.unmodifiableList(pPropNet.getRoles());
+            players = new Player[roles.size()];
+            baseSentences = pPropNet.getBaseSentences();
+            for (int b = 0; b < baseSentences.length; b++) {
+                baseIndex.put(baseSentences[b], b);
+            }
+            legalMoves = pPropNet.getLegalMoveArrays();
+            actions = new Action[roles.size()][];
+            legalInputs = new int[roles.size()][];
+            for (int r = 0; r < roles.size(); r++) {
+                players[r] = new Player(roles.get(r));
+                final Map<Object, Integer> index = new HashMap<>();
+                actions[r] = new Action[legalMoves[r].length];
+                legalInputs[r] = new int[legalMoves[r].length];
+                for (int i = 0; i < legalMoves[r].length; i++) {
+                    final Move m = legalMoves[r][i];
+                    index.put(m, i);
+                    actions[r][i] = new Action(m);
+                    final Integer in = pPropNet.getInputs().get(r).get(m);
+                    if (in == null) {
+                        throw new IllegalArgumentException(
+                                "legal move without input " + m);
+                    }
+                    legalInputs[r][i] = in - pPropNet.getInputOffset();
+                }
+                moveIndex.add(index);
+            }
+        }
+    }
+}
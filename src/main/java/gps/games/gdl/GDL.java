@@ -23,8 +23,6 @@ import org.ggp.base.util.files.FileUtils;
 import org.ggp.base.util.gdl.factory.GdlFactory;
 import org.ggp.base.util.gdl.factory.exceptions.GdlFormatException;
 import org.ggp.base.util.statemachine.StateMachine;
-import org.ggp.base.util.statemachine.cache.CachedStateMachine;
-import org.ggp.base.util.statemachine.implementation.prover.ProverStateMachine;
 import org.ggp.base.util.symbol.factory.exceptions.SymbolFormatException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -67,7 +65,7 @@ public class GDL {
         }
         logger.info("Trying to parse the file \"" + filepath + "\"");
         String gdl = FileUtils.readFileAsString(new File(filepath));
-        StateMachine sm = new CachedStateMachine(new ProverStateMachine());
+        StateMachine sm = new MemoizingStateMachine(new PropNetStateMachine());
         sm.initialize(GdlFactory.createList(gdl));
         return new StanfordGDLGame(sm);
     }
@@ -0,0 +1,567 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.gdl;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.ggp.base.util.gdl.grammar.Gdl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Compiles a game description into a Java class. The description is turned
+ * into a propositional network by the {@link PropNetStateMachine}, then Java
+ * source code is generated for a {@link GDLEvaluator} that evaluates the gates
+ * as straight-line bit operations. Each method only evaluates the gates its
+ * result depends on. The source is compiled with the system
+ * {@link JavaCompiler} into a directory below {@code java.io.tmpdir}, like
+ * {@link gps.GpsCli} does. The directory is deleted once the classes are
+ * loaded.
+ * </p>
+ * 
+ * <p>
+ * The result is a {@link CompiledGDLGame}, which implements
+ * {@link gps.IWrappedProblem} directly and can be solved by all game
+ * algorithms.
+ * </p>
+ */
+public final class GDLCompiler {
+
+    /**
+     * standard slf4j Logger
+     */
+    private static final Logger logger = LoggerFactory
+            .getLogger(GDLCompiler.class);
+
+    /**
+     * The name of the generated class.
+     */
+    static final String CLASS_NAME = "CompiledGDL";
+
+    /**
+     * The maximum number of statements per generated method. Keeps the
+     * methods below the size limit of the JVM and small enough for the JIT.
+     */
+    private static final int STATEMENTS_PER_METHOD = 512;
+
+    /**
+     * Utility class.
+     */
+    private GDLCompiler() {
+    }
+
+    /**
+     * Compile the given game description.
+     * 
+     * @param description
+     *            the game description
+     * @return the compiled game in its initial state
+     * @throws IllegalArgumentException
+     *             if the description can not be compiled into a
+     *             propositional network
+     * @throws IllegalStateException
+     *             if no Java compiler is available or the generated source
+     *             can not be compiled
+     */
+    public static CompiledGDLGame compile(final List<Gdl> description) {
+        final PropNetStateMachine propNet = new PropNetStateMachine();
+        propNet.initialize(description);
+        if (!propNet.isCompiled()) {
+            throw new IllegalArgumentException(
+                    "the description can not be compiled into a propnet");
+        }
+        final GDLEvaluator evaluator = load(
+                generateSource(CLASS_NAME, propNet));
+        return new CompiledGDLGame(evaluator, propNet);
+    }
+
+    /**
+     * Compile the given source and instantiate the evaluator.
+     * 
+     * @param pSource
+     *            the source of the class {@link #CLASS_NAME}
+     * @return the evaluator
+     */
+    static GDLEvaluator load(final String pSource) {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException(
+                    "No tools.jar found or no JDK installed.");
+        }
+        try {
+            // path to gps folder in tmp
+            final Path tmpDir = Paths.get(System.getProperty("java.io.tmpdir"),
+                    "gps");
+            Files.createDirectories(tmpDir);
+            // every game gets its own directory and class loader so that the
+            // classes of different games do not collide
+            final Path dir = Files.createTempDirectory(tmpDir, "gdl");
+            try {
+                return load(compiler, pSource, dir);
+            } finally {
+                delete(dir);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(
+                    "cannot load the generated evaluator", e);
+        }
+    }
+
+    /**
+     * Compile the given source into the given directory and instantiate the
+     * evaluator. All classes are loaded before returning, so that the
+     * directory can be deleted.
+     * 
+     * @param compiler
+     *            the compiler
+     * @param pSource
+     *            the source of the class {@link #CLASS_NAME}
+     * @param dir
+     *            the directory for the source and the classes
+     * @return the evaluator
+     */
+    private static GDLEvaluator load(final JavaCompiler compiler,
+            final String pSource, final Path dir) {
+        try {
+            final Path file = dir.resolve(CLASS_NAME + ".java");
+            Files.write(file, pSource.getBytes(StandardCharsets.UTF_8));
+
+            final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+            // -proc:none: the annotation processors on the class path are
+            // not needed for the generated source
+            final List<String> optionList = new ArrayList<>(
+                    Arrays.asList("-d", dir.toString(), "-classpath",
+                            classpath(), "-g:none", "-nowarn", "-proc:none"));
+            try (StandardJavaFileManager fileManager = compiler
+                    .getStandardFileManager(diagnostics, null,
+                            StandardCharsets.UTF_8)) {
+                final Iterable<? extends JavaFileObject> compilationUnits = fileManager
+                        .getJavaFileObjects(file.toFile());
+                final boolean success = compiler.getTask(null, fileManager,
+                        diagnostics, optionList, null, compilationUnits).call();
+                if (!success) {
+                    final StringBuilder sb = new StringBuilder(
+                            "cannot compile the generated evaluator:");
+                    for (Diagnostic<? extends JavaFileObject> d : diagnostics
+                            .getDiagnostics()) {
+                        sb.append('\n').append(d.getMessage(null));
+                    }
+                    throw new IllegalStateException(sb.toString());
+                }
+            }
+            logger.info("compiled game description in " + dir);
+
+            final URLClassLoader classLoader = new URLClassLoader(
+                    new URL[] { dir.toUri().toURL() },
+                    GDLEvaluator.class.getClassLoader());
+            try (DirectoryStream<Path> classes = Files.newDirectoryStream(dir,
+                    "*.class")) {
+                for (Path c : classes) {
+                    final String name = c.getFileName().toString();
+                    classLoader.loadClass(
+                            name.substring(0, name.length() - 6));
+                }
+            }
+            return classLoader.loadClass(CLASS_NAME)
+                    .asSubclass(GDLEvaluator.class).getDeclaredConstructor()
+                    .newInstance();
+        } catch (IOException | ReflectiveOperationException e) {
+            throw new IllegalStateException(
+                    "cannot load the generated evaluator", e);
+        }
+    }
+
+    /**
+     * Delete the given directory and its content. Failures are only logged.
+     * 
+     * @param dir
+     *            the directory
+     */
+    private static void delete(final Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.deleteIfExists(p);
+                } catch (IOException e) {
+                    logger.debug("cannot delete " + p, e);
+                }
+            });
+        } catch (IOException e) {
+            logger.debug("cannot delete " + dir, e);
+        }
+    }
+
+    /**
+     * @return the class path for compiling the generated source. Contains the
+     *         class path of the JVM and the location of
+     *         {@link GDLEvaluator}, which differ e.g. in test runners.
+     */
+    private static String classpath() {
+        String cp = System.getProperty("java.class.path");
+        try {
+            final URL own = GDLEvaluator.class.getProtectionDomain()
+                    .getCodeSource().getLocation();
+            cp = new File(own.toURI()).getPath() + File.pathSeparator + cp;
+        } catch (URISyntaxException | SecurityException
+                | NullPointerException e) {
+            logger.debug("cannot determine the location of GDLEvaluator", e);
+        }
+        return cp;
+    }
+
+    /**
+     * Generate the source of an evaluator for the given network.
+     * 
+     * @param pClassName
+     *            the name of the class, which is put in the default package
+     * @param pn
+     *            a compiled network
+     * @return the source
+     */
+    static String generateSource(final String pClassName,
+            final PropNetStateMachine pn) {
+        final Generator g = new Generator(pn);
+        final StringBuilder sb = g.sb;
+        final int stateWords = words(pn.getBaseSentences().length);
+
+        sb.append("public final class ").append(pClassName)
+                .append(" extends ").append(GDLEvaluator.class.getName())
+                .append(" {\n\n");
+
+        // copies the state into the values and sets the constants
+        sb.append("    private static long[] sources(final long[] s) {\n");
+        sb.append("        final long[] v = new long[")
+                .append(words(pn.getComponentCount())).append("];\n");
+        sb.append("        System.arraycopy(s, 0, v, 0, ").append(stateWords)
+                .append(");\n");
+        for (int c : pn.getTrueConstants()) {
+            sb.append("        ").append(set(c)).append('\n');
+        }
+        sb.append("        return v;\n    }\n\n");
+
+        // initial state and transitions
+        final int[] next = pn.getNext();
+        sb.append("    @Override\n    public long[] initial() {\n");
+        sb.append("        final long[] v = sources(new long[")
+                .append(stateWords).append("]);\n");
+        if (pn.getInit() >= 0) {
+            sb.append("        ").append(set(pn.getInit())).append('\n');
+        }
+        sb.append("        return advance(v);\n    }\n\n");
+
+        sb.append("    @Override\n");
+        sb.append(
+                "    public long[] next(final long[] s, final int[] in) {\n");
+        sb.append("        final long[] v = sources(s);\n");
+        sb.append("        for (int i : in) {\n");
+        sb.append("            final int c = i + ").append(pn.getInputOffset())
+                .append(";\n");
+        sb.append("            v[c >>> 6] |= 1L << c;\n        }\n");
+        sb.append("        return advance(v);\n    }\n\n");
+
+        final List<String> store = new ArrayList<>();
+        for (int b = 0; b < next.length; b++) {
+            if (next[b] >= 0) {
+                store.add("if (" + bit(next[b]) + ") r[" + (b >>> 6)
+                        + "] |= " + mask(b) + ";");
+            }
+        }
+        final List<String> advance = g.gates("advance", next);
+        advance.add("final long[] r = new long[" + stateWords + "];");
+        advance.addAll(g.chunks("store", "final long[] v, final long[] r",
+                "v, r", store));
+        advance.add("return r;");
+        g.method("private static long[] advance(final long[] v)", advance);
+
+        // terminal
+        final int terminal = pn.getTerminal();
+        final List<String> term = new ArrayList<>();
+        if (terminal < 0) {
+            term.add("return false;");
+        } else {
+            term.add("final long[] v = sources(s);");
+            term.addAll(g.gates("terminal", new int[] { terminal }));
+            term.add("return " + bit(terminal) + ";");
+        }
+        g.method("@Override\n    public boolean terminal(final long[] s)",
+                term);
+
+        // legal moves and goals per role
+        final int[][] legals = pn.getLegals();
+        final int[][] goals = pn.getGoals();
+        final int[][] goalValues = pn.getGoalValues();
+        final List<String> legalSwitch = new ArrayList<>();
+        final List<String> goalSwitch = new ArrayList<>();
+        legalSwitch.add("switch (role) {");
+        goalSwitch.add("switch (role) {");
+        for (int r = 0; r < legals.length; r++) {
+            final List<String> legal = new ArrayList<>();
+            legal.add("final long[] v = sources(s);");
+            legal.addAll(g.gates("legal" + r, legals[r]));
+            final List<String> out = new ArrayList<>();
+            for (int i = 0; i < legals[r].length; i++) {
+                out.add("if (" + bit(legals[r][i]) + ") out[n++] = " + i
+                        + ";");
+            }
+            legal.add("int n = 0;");
+            legal.addAll(g.counting("legal" + r + "out", out));
+            legal.add("return n;");
+            g.method("private static int legal" + r
+                    + "(final long[] s, final int[] out)", legal);
+            legalSwitch.add("case " + r + ":");
+            legalSwitch.add("    return legal" + r + "(s, out);");
+
+            final List<String> goal = new ArrayList<>();
+            goal.add("final long[] v = sources(s);");
+            goal.addAll(g.gates("goal" + r, goals[r]));
+            for (int i = 0; i < goals[r].length; i++) {
+                goal.add("if (" + bit(goals[r][i]) + ") return "
+                        + goalValues[r][i] + ";");
+            }
+            goal.add("return -1;");
+            g.method("private static int goal" + r + "(final long[] s)", goal);
+            goalSwitch.add("case " + r + ":");
+            goalSwitch.add("    return goal" + r + "(s);");
+        }
+        for (List<String> sw : Arrays.asList(legalSwitch, goalSwitch)) {
+            sw.add("default:");
+            sw.add("    throw new IllegalArgumentException(\"unknown role \" + role);");
+            sw.add("}");
+        }
+        g.method(
+                "@Override\n    public int legal(final long[] s, final int role, final int[] out)",
+                legalSwitch);
+        g.method("@Override\n    public int goal(final long[] s, final int role)",
+                goalSwitch);
+
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    /**
+     * @return the number of longs needed for the given number of bits
+     */
+    private static int words(final int pBits) {
+        return (pBits + 63) >>> 6;
+    }
+
+    /**
+     * @return the mask of the given component within its word
+     */
+    private static String mask(final int c) {
+        return "0x" + Long.toHexString(1L << c) + "L";
+    }
+
+    /**
+     * @return an expression that is true if the given component is true
+     */
+    private static String bit(final int c) {
+        return "(v[" + (c >>> 6) + "] & " + mask(c) + ") != 0L";
+    }
+
+    /**
+     * @return a statement that sets the given component to true
+     */
+    private static String set(final int c) {
+        return "v[" + (c >>> 6) + "] |= " + mask(c) + ";";
+    }
+
+    /**
+     * Writes the methods of a generated class.
+     */
+    private static final class Generator {
+
+        /**
+         * The network.
+         */
+        private final PropNetStateMachine pn;
+
+        /**
+         * The source.
+         */
+        private final StringBuilder sb = new StringBuilder();
+
+        Generator(final PropNetStateMachine pPropNet) {
+            pn = pPropNet;
+        }
+
+        /**
+         * Add a method to the source.
+         * 
+         * @param pSignature
+         *            the modifiers and the signature
+         * @param pBody
+         *            the statements of the body
+         */
+        void method(final String pSignature, final List<String> pBody) {
+            sb.append("    ").append(pSignature).append(" {\n");
+            for (String s : pBody) {
+                sb.append("        ").append(s).append('\n');
+            }
+            sb.append("    }\n\n");
+        }
+
+        /**
+         * Generate the evaluation of the gates the given components depend on,
+         * in topological order.
+         * 
+         * @param pName
+         *            the prefix of the generated methods
+         * @param pOutputs
+         *            the components that are needed
+         * @return the statements that call the generated methods
+         */
+        List<String> gates(final String pName, final int[] pOutputs) {
+            final int sources = pn.getSourceCount();
+            final byte[] types = pn.getGateTypes();
+            final int[][] inputs = pn.getGateInputs();
+
+            // collect the cone of influence of the outputs
+            final boolean[] needed = new boolean[types.length];
+            final int[] stack = new int[types.length];
+            int top = 0;
+            for (int c : pOutputs) {
+                if (c >= sources && !needed[c - sources]) {
+                    needed[c - sources] = true;
+                    stack[top++] = c - sources;
+                }
+            }
+            while (top > 0) {
+                for (int c : inputs[stack[--top]]) {
+                    if (c >= sources && !needed[c - sources]) {
+                        needed[c - sources] = true;
+                        stack[top++] = c - sources;
+                    }
+                }
+            }
+
+            final List<String> statements = new ArrayList<>();
+            for (int g = 0; g < types.length; g++) {
+                if (needed[g]) {
+                    statements.add(gate(types[g], inputs[g], sources + g));
+                }
+            }
+            return chunks(pName, "final long[] v", "v", statements);
+        }
+
+        /**
+         * @return the statement that evaluates a gate
+         */
+        private static String gate(final byte pType, final int[] pInputs,
+                final int c) {
+            final String set = set(c);
+            switch (pType) {
+            case PropNetStateMachine.AND:
+            case PropNetStateMachine.OR:
+                if (pInputs.length == 0) {
+                    return pType == PropNetStateMachine.AND ? set : "";
+                }
+                final String op = pType == PropNetStateMachine.AND ? " && "
+                        : " || ";
+                final StringBuilder cond = new StringBuilder();
+                for (int i = 0; i < pInputs.length; i++) {
+                    if (i > 0) {
+                        cond.append(op);
+                    }
+                    cond.append('(').append(bit(pInputs[i])).append(')');
+                }
+                return "if (" + cond + ") " + set;
+            case PropNetStateMachine.NOT:
+                return "if ((v[" + (pInputs[0] >>> 6) + "] & "
+                        + mask(pInputs[0]) + ") == 0L) " + set;
+            default:
+                return "if (" + bit(pInputs[0]) + ") " + set;
+            }
+        }
+
+        /**
+         * Split the given statements into methods without a result.
+         * 
+         * @param pName
+         *            the prefix of the methods
+         * @param pParams
+         *            the parameters of the methods
+         * @param pArgs
+         *            the arguments of the calls
+         * @param pStatements
+         *            the statements
+         * @return the calls of the methods
+         */
+        List<String> chunks(final String pName, final String pParams,
+                final String pArgs, final List<String> pStatements) {
+            final List<String> calls = new ArrayList<>();
+            for (int from = 0, k = 0; from < pStatements
+                    .size(); from += STATEMENTS_PER_METHOD, k++) {
+                final String name = pName + "_" + k;
+                method("private static void " + name + "(" + pParams + ")",
+                        pStatements.subList(from, Math.min(pStatements.size(),
+                                from + STATEMENTS_PER_METHOD)));
+                calls.add(name + "(" + pArgs + ");");
+            }
+            return calls;
+        }
+
+        /**
+         * Split the given statements, which increment the counter {@code n},
+         * into methods that return the counter.
+         * 
+         * @param pName
+         *            the prefix of the methods
+         * @param pStatements
+         *            the statements
+         * @return the calls of the methods
+         */
+        List<String> counting(final String pName,
+                final List<String> pStatements) {
+            final List<String> calls = new ArrayList<>();
+            for (int from = 0, k = 0; from < pStatements
+                    .size(); from += STATEMENTS_PER_METHOD, k++) {
+                final String name = pName + "_" + k;
+                final List<String> body = new ArrayList<>(
+                        pStatements.subList(from, Math.min(pStatements.size(),
+                                from + STATEMENTS_PER_METHOD)));
+                body.add("return n;");
+                method("private static int " + name
+                        + "(final long[] v, final int[] out, int n)", body);
+                calls.add("n = " + name + "(v, out, n);");
+            }
+            return calls;
+        }
+    }
+}
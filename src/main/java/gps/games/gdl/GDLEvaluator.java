@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.gdl;
+
+/**
+ * <p>
+ * Evaluates the rules of a game description. Subclasses are generated by the
+ * {@link GDLCompiler}: each method is a sequence of bit operations over the
+ * gates of the propositional network that are needed for its result.
+ * </p>
+ * 
+ * <p>
+ * A state is a packed {@code long[]} with one bit per base proposition, in the
+ * order of {@link PropNetStateMachine#getBaseSentences()}. States are never
+ * modified, every transition returns a new array. Implementations must be
+ * stateless so that they can be used by several threads.
+ * </p>
+ */
+public abstract class GDLEvaluator {
+
+    /**
+     * @return the initial state
+     */
+    public abstract long[] initial();
+
+    /**
+     * @param pState
+     *            a state
+     * @return whether the state is terminal
+     */
+    public abstract boolean terminal(long[] pState);
+
+    /**
+     * Determine the legal moves of a role.
+     * 
+     * @param pState
+     *            a state
+     * @param pRole
+     *            the index of the role
+     * @param pOut
+     *            receives the indices of the legal moves of the role. Must be
+     *            large enough for all moves of the role.
+     * @return the number of legal moves
+     */
+    public abstract int legal(long[] pState, int pRole, int[] pOut);
+
+    /**
+     * @param pState
+     *            a state
+     * @param pRole
+     *            the index of the role
+     * @return the goal value of the role or {@code -1} if no goal is true
+     */
+    public abstract int goal(long[] pState, int pRole);
+
+    /**
+     * Compute the next state.
+     * 
+     * @param pState
+     *            a state
+     * @param pInputs
+     *            the indices of the input propositions of the joint move,
+     *            relative to the first input proposition
+     * @return the next state
+     */
+    public abstract long[] next(long[] pState, int[] pInputs);
+}
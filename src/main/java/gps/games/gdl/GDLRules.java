@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.gdl;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.ggp.base.util.statemachine.Role;
+import org.ggp.base.util.statemachine.StateMachine;
+
+import gps.games.wrapper.Player;
+import gps.util.KryoHelper;
+
+/**
+ * The part of a {@link StanfordGDLGame} that does not change while the game is
+ * played: the state machine and the roles. It is shared by all copies of a
+ * game, so copying a game only copies its current state.
+ * <p>
+ * The state machine is only shared by the threads if it is known to be
+ * thread safe, see {@link #isThreadSafe(StateMachine)}. Otherwise every
+ * thread uses its own copy of the state machine.
+ * 
+ * @author Sven
+ *
+ */
+final class GDLRules {
+
+    /**
+     * an automaton that represents the game as states and transitions.
+     * 
+     * a state in this statemachine consists of all the axioms (which are always
+     * true) and the sentences that are true in the given state
+     */
+    private final StateMachine stateMachine;
+
+    /**
+     * an unused copy of {@link #stateMachine} the copies of the other threads
+     * are made from. {@code null} if the state machine is thread safe.
+     */
+    private final StateMachine template;
+
+    /**
+     * the state machine of every thread. The thread that created the rules
+     * uses {@link #stateMachine}. {@code null} if the state machine is thread
+     * safe.
+     */
+    private final ThreadLocal<StateMachine> stateMachines;
+
+    /**
+     * the roles of the game in the order of the joint moves
+     */
+    private final List<Role> roles;
+
+    /**
+     * the wrapped roles, index by the index of the role
+     */
+    private final Player[] players;
+
+    /**
+     * creates the rules for an initialized {@link StateMachine}
+     * 
+     * @param pStateMachine
+     *            an initialized {@link StateMachine}
+     */
+    GDLRules(final StateMachine pStateMachine) {
+        stateMachine = pStateMachine;
+        if (isThreadSafe(pStateMachine)) {
+            template = null;
+            stateMachines = null;
+        } else {
+            template = KryoHelper.deepCopy(pStateMachine);
+            stateMachines = ThreadLocal
+                    .withInitial(() -> KryoHelper.deepCopy(template));
+            stateMachines.set(pStateMachine);
+        }
+        roles = Collections.unmodifiableList(stateMachine.getRoles());
+        players = new Player[roles.size()];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = new Player(roles.get(i));
+        }
+    }
+
+    /**
+     * @return the state machine of the current thread
+     */
+    StateMachine getStateMachine() {
+        return stateMachines == null ? stateMachine : stateMachines.get();
+    }
+
+    /**
+     * Checks whether the given state machine may be queried by several
+     * threads at the same time. This is the case for the
+     * {@link PropNetStateMachine} and for a {@link MemoizingStateMachine} that
+     * is backed by a thread safe state machine.
+     * 
+     * @param pStateMachine
+     *            the state machine to check
+     * @return {@code true} if the state machine is thread safe
+     */
+    static boolean isThreadSafe(final StateMachine pStateMachine) {
+        if (pStateMachine instanceof MemoizingStateMachine) {
+            return isThreadSafe(((MemoizingStateMachine) pStateMachine)
+                    .getBackingStateMachine());
+        }
+        return pStateMachine instanceof PropNetStateMachine;
+    }
+
+    /**
+     * @return the roles in the order of the joint moves
+     */
+    List<Role> getRoles() {
+        return roles;
+    }
+
+    /**
+     * @param pIndex
+     *            the index of a role
+     * @return the wrapped role
+     */
+    Player getPlayer(final int pIndex) {
+        return players[pIndex];
+    }
+}
@@ -18,39 +18,98 @@ package gps.games.gdl;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.ggp.base.player.gamer.exception.GamePreviewException;
 import org.ggp.base.player.gamer.statemachine.StateMachineGamer;
-import org.ggp.base.util.game.Game;
 import org.ggp.base.util.gdl.factory.GdlFactory;
 import org.ggp.base.util.gdl.factory.exceptions.GdlFormatException;
 import org.ggp.base.util.gdl.grammar.Gdl;
+import org.ggp.base.util.statemachine.MachineState;
 import org.ggp.base.util.statemachine.Move;
+import org.ggp.base.util.statemachine.Role;
 import org.ggp.base.util.statemachine.StateMachine;
 import org.ggp.base.util.statemachine.exceptions.GoalDefinitionException;
 import org.ggp.base.util.statemachine.exceptions.MoveDefinitionException;
 import org.ggp.base.util.statemachine.exceptions.TransitionDefinitionException;
-import org.ggp.base.util.statemachine.implementation.prover.ProverStateMachine;
 import org.ggp.base.util.symbol.factory.exceptions.SymbolFormatException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import gps.IWrappedProblem;
+import gps.ResultEnum;
 import gps.games.GamesModule;
 import gps.games.wrapper.Action;
+import gps.games.wrapper.Game;
 
 /**
  * This class provides a basis for making a general game player out of our GPS
  * 
- * 
- * 
+ * <p>
+ * The gamer uses the clocks of the match: the metagame is used to analyse and
+ * classify the game and to warm up the state machine cache with a first
+ * search. Each move is searched until shortly before the deadline, then the
+ * search is interrupted and its best move so far is played. The analysis, the
+ * classification and the cached state machine answers are kept between the
+ * turns.
+ * </p>
  * 
  * @author Sven
  *
  */
 public class GPSGamer extends StateMachineGamer {
 
-    private IWrappedProblem<StanfordGDLGame> game;
+    /**
+     * standard slf4j Logger
+     */
+    private static final Logger logger = LoggerFactory
+            .getLogger(GPSGamer.class);
+
+    /**
+     * Time in milliseconds before a deadline at which a running search is
+     * interrupted. Leaves time to send the move to the game server.
+     */
+    public static final long SAFETY_MARGIN = 1500;
+
+    /**
+     * Time in milliseconds an interrupted search is given to return the best
+     * move it found so far. Part of {@link #SAFETY_MARGIN}.
+     */
+    public static final long GRACE_PERIOD = 500;
+
+    private StanfordGDLGame game;
     private StateMachine sm;
 
+    /**
+     * The game description, compiled during the metagame.
+     */
+    private final List<Gdl> description;
+
+    /**
+     * The module of the last search. Keeps the analysis data and settings for
+     * the next turns. {@code null} before the metagame.
+     */
+    private GamesModule<StanfordGDLGame> solver;
+
+    /**
+     * The game compiled by the {@link GDLCompiler}, kept in sync with
+     * {@link #game}. {@code null} before the metagame or if the description
+     * could not be compiled, the searches then run on {@link #game}.
+     */
+    private CompiledGDLGame compiled;
+
+    /**
+     * The module of the last search on {@link #compiled}.
+     */
+    private GamesModule<CompiledGDLGame> compiledSolver;
+
+    /**
+     * The thread of the last search. {@code null} if it has finished. A
+     * search that ignores interrupts may still run after its deadline and is
+     * awaited by the next call of {@link #runUntil(Runnable, long)}.
+     */
+    private volatile Thread worker;
+
     /**
      * basic constructor to initialize this general game player for a new game
      * 
@@ -63,7 +122,7 @@ public class GPSGamer extends StateMachineGamer {
      */
     public GPSGamer(final String gdl)
             throws GdlFormatException, SymbolFormatException {
-        List<Gdl> description = GdlFactory.createList(gdl);
+        description = GdlFactory.createList(gdl);
         sm = getInitialStateMachine();
         sm.initialize(description);
         game = new StanfordGDLGame(sm, getRole());
@@ -77,39 +136,214 @@ public class GPSGamer extends StateMachineGamer {
      */
     @Override
     public StateMachine getInitialStateMachine() {
-        return new ProverStateMachine();
+        return new MemoizingStateMachine(new PropNetStateMachine());
     }
 
-    /*
-     * (non-Javadoc)
+    /**
+     * Compiles the game description and analyses and classifies the game.
+     * Then runs a first search from the initial state until shortly before
+     * the timeout.
      * 
-     * @see org.ggp.base.player.gamer.statemachine.StateMachineGamer#
-     * stateMachineMetaGame(long)
+     * @param timeout
+     *            the time in milliseconds (as
+     *            {@link System#currentTimeMillis()}) at which the metagame
+     *            ends
      */
     @Override
     public void stateMachineMetaGame(long timeout)
             throws TransitionDefinitionException, MoveDefinitionException,
             GoalDefinitionException {
-
+        if (getStateMachine() != null && getStateMachine() != sm) {
+            // the match initialized its own state machine
+            sm = getStateMachine();
+            game = new StanfordGDLGame(sm, getRole());
+        }
+        // the role is known from now on
+        compile(getRole());
+        syncCurrentState();
+        solver = null;
+        compiledSolver = null;
+        final GamesModule<?> module = nextSolver();
+        // the analysis stops once its estimates are precise enough and
+        // leaves at least two thirds of the metagame to the first search
+        module.setAdaptiveAnalysis(Math.max(1, (timeout - SAFETY_MARGIN
+                - System.currentTimeMillis()) / 3));
+        runUntil(() -> {
+            module.gameAnalysis();
+            module.classify(ResultEnum.BEST_MOVE);
+            // the answers of the state machine are cached and shared by all
+            // following searches
+            module.bestMove();
+        }, timeout - SAFETY_MARGIN);
+        logger.info("metagame done");
     }
 
-    /*
-     * (non-Javadoc)
+    /**
+     * Searches the best move for the current state until shortly before the
+     * timeout.
      * 
-     * @see org.ggp.base.player.gamer.statemachine.StateMachineGamer#
-     * stateMachineSelectMove(long)
+     * @param timeout
+     *            the time in milliseconds (as
+     *            {@link System#currentTimeMillis()}) at which the move must
+     *            have been selected
      */
     @Override
     public Move stateMachineSelectMove(long timeout)
             throws TransitionDefinitionException, MoveDefinitionException,
             GoalDefinitionException {
-        GamesModule<StanfordGDLGame> solver = new GamesModule<StanfordGDLGame>(
-                game);
-        Optional<Action> maybe = solver.bestMove();
-        if (maybe.isPresent()) {
+        syncCurrentState();
+        final GamesModule<?> turn = nextSolver();
+        final AtomicReference<Optional<Action>> result = new AtomicReference<>(
+                Optional.empty());
+        runUntil(() -> result.set(turn.bestMove()), timeout - SAFETY_MARGIN);
+
+        final Optional<Action> maybe = result.get();
+        if (maybe.isPresent() && maybe.get().get() != null) {
             return (Move) maybe.get().get();
         }
-        return null;
+        logger.warn("no move found in time, playing a random legal move");
+        return sm.getRandomMove(game.getCurrentState(),
+                (Role) game.getPlayer().get());
+    }
+
+    /**
+     * Compiles the game description for the given role. If it can not be
+     * compiled, the searches run on the state machine.
+     * 
+     * @param pRole
+     *            the role of this player
+     */
+    public void compile(final Role pRole) {
+        try {
+            compiled = GDLCompiler.compile(description);
+            compiled.setRole(pRole);
+        } catch (RuntimeException e) {
+            logger.warn("could not compile the game description, "
+                    + "searching on the state machine", e);
+            compiled = null;
+        }
+    }
+
+    /**
+     * Sets the state of {@link #game} to the current state of the match.
+     */
+    private void syncCurrentState() {
+        final MachineState current = getCurrentState();
+        if (current != null) {
+            game.setCurrentState(current);
+        }
+    }
+
+    /**
+     * Creates the module for the next search, on {@link #compiled} if the
+     * description has been compiled and on {@link #game} otherwise. The
+     * module keeps the analysis data of the previous one.
+     * 
+     * @return the module
+     */
+    public GamesModule<?> nextSolver() {
+        if (compiled != null) {
+            compiled.setCurrentState(game.getCurrentState());
+            compiledSolver = nextSolver(compiledSolver, compiled);
+            return compiledSolver;
+        }
+        solver = nextSolver(solver, game);
+        return solver;
+    }
+
+    /**
+     * @param pPrevious
+     *            the module of the previous search, may be {@code null}
+     * @param pProblem
+     *            the game in its current state
+     * @return a module for the given game
+     */
+    private static <T> GamesModule<T> nextSolver(
+            final GamesModule<T> pPrevious, final IWrappedProblem<T> pProblem) {
+        return pPrevious == null ? new GamesModule<>(pProblem)
+                : pPrevious.withGame(new Game<>(pProblem));
+    }
+
+    /**
+     * Runs the given task in a separate thread until it is done or the
+     * deadline has passed. At the deadline the thread is interrupted and given
+     * {@link #GRACE_PERIOD} milliseconds to finish. If it is still running
+     * then, this method returns anyway, so that the move is sent in time. The
+     * next call waits for that thread within its own deadline before the
+     * next task is started, so that the searches do not overlap. If it does
+     * not finish until then, the next task is not run at all.
+     * 
+     * @param pTask
+     *            the task
+     * @param pDeadline
+     *            the deadline in milliseconds (as
+     *            {@link System#currentTimeMillis()})
+     */
+    public void runUntil(final Runnable pTask, final long pDeadline) {
+        try {
+            // a previous search is past its deadline already
+            interruptSearch();
+            if (!awaitWorker(pDeadline)) {
+                logger.warn("previous search is still running, "
+                        + "skipping the search");
+                return;
+            }
+            final Thread t = new Thread(() -> {
+                try {
+                    pTask.run();
+                } catch (RuntimeException e) {
+                    logger.error("search failed", e);
+                }
+            }, "gps-gamer");
+            t.setDaemon(true);
+            worker = t;
+            t.start();
+            if (!awaitWorker(pDeadline)) {
+                logger.warn("search does not stop after the grace period");
+            }
+        } catch (InterruptedException e) {
+            interruptSearch();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for the {@link #worker} until the given deadline. Then it is
+     * interrupted and given {@link #GRACE_PERIOD} milliseconds to finish.
+     * 
+     * @param pDeadline
+     *            the deadline in milliseconds (as
+     *            {@link System#currentTimeMillis()})
+     * @return {@code true} if there is no running worker anymore
+     * @throws InterruptedException
+     *             if the calling thread is interrupted while waiting
+     */
+    private boolean awaitWorker(final long pDeadline)
+            throws InterruptedException {
+        final Thread t = worker;
+        if (t == null) {
+            return true;
+        }
+        t.join(Math.max(1, pDeadline - System.currentTimeMillis()));
+        if (t.isAlive()) {
+            t.interrupt();
+            t.join(GRACE_PERIOD);
+        }
+        if (t.isAlive()) {
+            return false;
+        }
+        worker = null;
+        return true;
+    }
+
+    /**
+     * Interrupts the running search, if any.
+     */
+    private void interruptSearch() {
+        final Thread t = worker;
+        if (t != null) {
+            t.interrupt();
+        }
     }
 
     /*
@@ -121,7 +355,9 @@ public class GPSGamer extends StateMachineGamer {
      */
     @Override
     public void stateMachineStop() {
-
+        interruptSearch();
+        solver = null;
+        compiledSolver = null;
     }
 
     /*
@@ -132,7 +368,9 @@ public class GPSGamer extends StateMachineGamer {
      */
     @Override
     public void stateMachineAbort() {
-
+        interruptSearch();
+        solver = null;
+        compiledSolver = null;
     }
 
     /*
@@ -142,7 +380,8 @@ public class GPSGamer extends StateMachineGamer {
      * long)
      */
     @Override
-    public void preview(Game g, long timeout) throws GamePreviewException {
+    public void preview(org.ggp.base.util.game.Game g, long timeout)
+            throws GamePreviewException {
 
     }
 
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.gdl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.ggp.base.util.gdl.grammar.Gdl;
+import org.ggp.base.util.statemachine.MachineState;
+import org.ggp.base.util.statemachine.Move;
+import org.ggp.base.util.statemachine.Role;
+import org.ggp.base.util.statemachine.StateMachine;
+import org.ggp.base.util.statemachine.exceptions.GoalDefinitionException;
+import org.ggp.base.util.statemachine.exceptions.MoveDefinitionException;
+import org.ggp.base.util.statemachine.exceptions.TransitionDefinitionException;
+
+import gps.util.LruCache;
+
+/**
+ * <p>
+ * A {@link StateMachine} that remembers the answers of another state machine.
+ * The legal moves per role, the terminality, the goals and the next states
+ * are cached per {@link MachineState} in a bounded {@link LruCache}, so the
+ * cache can be shared by several threads.
+ * </p>
+ * 
+ * <p>
+ * Queries that throw an exception are not cached. Use {@link #getHits()} and
+ * {@link #getMisses()} to check how well the cache works.
+ * </p>
+ */
+public class MemoizingStateMachine extends StateMachine {
+
+    /**
+     * The default maximum number of states that are cached.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /**
+     * The state machine that answers the queries which are not cached.
+     */
+    private final StateMachine backingStateMachine;
+
+    /**
+     * The cached answers per state.
+     */
+    private final LruCache<MachineState, Entry> cache;
+
+    /**
+     * The number of queries answered from the cache.
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * The number of queries passed to {@link #backingStateMachine}.
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * The roles of the game in the order of the joint moves.
+     */
+    private List<Role> roles;
+
+    /**
+     * Construct a cache of {@link #DEFAULT_CAPACITY} states.
+     * 
+     * @param pBackingStateMachine
+     *            The state machine that answers the queries.
+     */
+    public MemoizingStateMachine(final StateMachine pBackingStateMachine) {
+        this(pBackingStateMachine, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Construct a cache.
+     * 
+     * @param pBackingStateMachine
+     *            The state machine that answers the queries.
+     * @param pCapacity
+     *            The maximum number of states that are cached.
+     */
+    public MemoizingStateMachine(final StateMachine pBackingStateMachine,
+            final int pCapacity) {
+        if (pBackingStateMachine == null) {
+            throw new IllegalArgumentException(
+                    "pBackingStateMachine may not be null");
+        }
+        backingStateMachine = pBackingStateMachine;
+        cache = new LruCache<>(pCapacity);
+    }
+
+    @Override
+    public void initialize(final List<Gdl> description) {
+        backingStateMachine.initialize(description);
+        roles = backingStateMachine.getRoles();
+        cache.clear();
+    }
+
+    /**
+     * Get the cache entry of the given state.
+     */
+    private Entry entry(final MachineState pState) {
+        return cache.computeIfAbsent(pState,
+                s -> new Entry(getRoles().size()));
+    }
+
+    /**
+     * Get the index of the given role.
+     */
+    private int roleIndex(final Role pRole) {
+        final int r = getRoles().indexOf(pRole);
+        if (r < 0) {
+            throw new IllegalArgumentException("unknown role " + pRole);
+        }
+        return r;
+    }
+
+    @Override
+    public int getGoal(final MachineState state, final Role role)
+            throws GoalDefinitionException {
+        final Entry e = entry(state);
+        final int r = roleIndex(role);
+        Integer goal = e.goals[r];
+        if (goal != null) {
+            hits.increment();
+            return goal;
+        }
+        misses.increment();
+        goal = backingStateMachine.getGoal(state, role);
+        e.goals[r] = goal;
+        return goal;
+    }
+
+    @Override
+    public boolean isTerminal(final MachineState state) {
+        final Entry e = entry(state);
+        Boolean terminal = e.terminal;
+        if (terminal != null) {
+            hits.increment();
+            return terminal;
+        }
+        misses.increment();
+        terminal = backingStateMachine.isTerminal(state);
+        e.terminal = terminal;
+        return terminal;
+    }
+
+    @Override
+    public List<Role> getRoles() {
+        if (roles == null) {
+            // the backing state machine has been initialized before
+            roles = backingStateMachine.getRoles();
+        }
+        return roles;
+    }
+
+    @Override
+    public MachineState getInitialState() {
+        return backingStateMachine.getInitialState();
+    }
+
+    @Override
+    public List<Move> getLegalMoves(final MachineState state, final Role role)
+            throws MoveDefinitionException {
+        final Entry e = entry(state);
+        final int r = roleIndex(role);
+        List<Move> legal = e.legalMoves.get(r);
+        if (legal != null) {
+            hits.increment();
+            return legal;
+        }
+        misses.increment();
+        // the list is handed out to every caller, so it may not be modified
+        legal = Collections.unmodifiableList(
+                backingStateMachine.getLegalMoves(state, role));
+        e.legalMoves.set(r, legal);
+        return legal;
+    }
+
+    @Override
+    public MachineState getNextState(final MachineState state,
+            final List<Move> moves) throws TransitionDefinitionException {
+        final Entry e = entry(state);
+        MachineState next;
+        synchronized (e) {
+            next = e.next.get(moves);
+        }
+        if (next != null) {
+            hits.increment();
+            return next;
+        }
+        misses.increment();
+        next = backingStateMachine.getNextState(state, moves);
+        synchronized (e) {
+            // copy the key since the caller may reuse the list
+            e.next.put(new ArrayList<>(moves), next);
+        }
+        return next;
+    }
+
+    /**
+     * Get the number of queries that have been answered from the cache.
+     * 
+     * @return The number of hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of queries that have been passed to the backing state
+     * machine.
+     * 
+     * @return The number of misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the backing state machine.
+     * 
+     * @return The state machine that answers the queries.
+     */
+    public StateMachine getBackingStateMachine() {
+        return backingStateMachine;
+    }
+
+    /**
+     * The cached answers for a state. Values are written without locking
+     * since concurrent writers compute the same answer.
+     */
+    private static final class Entry {
+
+        /**
+         * Whether the state is terminal. {@code null} if unknown.
+         */
+        private volatile Boolean terminal;
+
+        /**
+         * The goals per role. {@code null} if unknown.
+         */
+        private final Integer[] goals;
+
+        /**
+         * The legal moves per role. {@code null} if unknown.
+         */
+        private final AtomicReferenceArray<List<Move>> legalMoves;
+
+        /**
+         * The next states per joint move. Guarded by the entry.
+         */
+        private final Map<List<Move>, MachineState> next = new HashMap<>();
+
+        Entry(final int pRoles) {
+            goals = new Integer[pRoles];
+            legalMoves = new AtomicReferenceArray<>(pRoles);
+        }
+    }
+}
@@ -0,0 +1,886 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.gdl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.ggp.base.util.gdl.grammar.Gdl;
+import org.ggp.base.util.gdl.grammar.GdlConstant;
+import org.ggp.base.util.gdl.grammar.GdlSentence;
+import org.ggp.base.util.propnet.architecture.Component;
+import org.ggp.base.util.propnet.architecture.PropNet;
+import org.ggp.base.util.propnet.architecture.components.And;
+import org.ggp.base.util.propnet.architecture.components.Constant;
+import org.ggp.base.util.propnet.architecture.components.Not;
+import org.ggp.base.util.propnet.architecture.components.Or;
+import org.ggp.base.util.propnet.architecture.components.Proposition;
+import org.ggp.base.util.propnet.architecture.components.Transition;
+import org.ggp.base.util.propnet.factory.OptimizingPropNetFactory;
+import org.ggp.base.util.statemachine.MachineState;
+import org.ggp.base.util.statemachine.Move;
+import org.ggp.base.util.statemachine.Role;
+import org.ggp.base.util.statemachine.StateMachine;
+import org.ggp.base.util.statemachine.cache.CachedStateMachine;
+import org.ggp.base.util.statemachine.exceptions.GoalDefinitionException;
+import org.ggp.base.util.statemachine.exceptions.MoveDefinitionException;
+import org.ggp.base.util.statemachine.exceptions.TransitionDefinitionException;
+import org.ggp.base.util.statemachine.implementation.prover.ProverStateMachine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * A {@link StateMachine} that compiles the game description into a
+ * propositional network and evaluates it instead of proving every query over
+ * the GDL rules.
+ * </p>
+ * 
+ * <p>
+ * The network is built by the {@link OptimizingPropNetFactory} and then
+ * flattened into arrays: every gate gets an index in topological order, so a
+ * query is answered by a single forward pass over the gates. States are
+ * bitsets over the base propositions. The sentences of a state are only
+ * created if {@link MachineState#getContents()} is called.
+ * </p>
+ * 
+ * <p>
+ * If the description can not be compiled, e.g. because the network contains a
+ * cycle that is not broken by a transition, every query is delegated to a
+ * {@link ProverStateMachine}. Use {@link #isCompiled()} to check which one is
+ * used.
+ * </p>
+ * 
+ * <p>
+ * Both ways are thread safe: the network is not modified after it has been
+ * compiled and every thread uses its own prover.
+ * </p>
+ */
+public class PropNetStateMachine extends StateMachine {
+
+    /**
+     * standard slf4j Logger
+     */
+    private static final Logger logger = LoggerFactory
+            .getLogger(PropNetStateMachine.class);
+
+    /**
+     * Gate that is true if all of its inputs are true.
+     */
+    static final byte AND = 0;
+
+    /**
+     * Gate that is true if any of its inputs is true.
+     */
+    static final byte OR = 1;
+
+    /**
+     * Gate that negates its single input.
+     */
+    static final byte NOT = 2;
+
+    /**
+     * Gate that copies its single input, i.e. a proposition that is derived
+     * from other components.
+     */
+    static final byte COPY = 3;
+
+    /**
+     * The values of the components used during evaluation, one array per
+     * thread. Grows to the size of the largest network.
+     */
+    private static final ThreadLocal<boolean[]> VALUES = ThreadLocal
+            .withInitial(() -> new boolean[0]);
+
+    /**
+     * The state machines every query is delegated to if the description
+     * could not be compiled, one per thread, as they are not thread safe.
+     * {@code null} otherwise.
+     */
+    private ThreadLocal<StateMachine> fallback;
+
+    /**
+     * The roles of the game.
+     */
+    private List<Role> roles;
+
+    /**
+     * The sentences of the base propositions. The base proposition with index
+     * {@code i} is component {@code i}.
+     */
+    private GdlSentence[] baseSentences;
+
+    /**
+     * The number of components that are not computed by a gate: base
+     * propositions, input propositions, constants and the init proposition.
+     */
+    private int sourceCount;
+
+    /**
+     * The number of components.
+     */
+    private int componentCount;
+
+    /**
+     * The index of the first input proposition. The input propositions follow
+     * the base propositions.
+     */
+    private int inputOffset;
+
+    /**
+     * The indices of the constant components that are true.
+     */
+    private int[] trueConstants;
+
+    /**
+     * The index of the init proposition. {@code -1} if there is none.
+     */
+    private int init;
+
+    /**
+     * The type of each gate. The gate with index {@code g} computes component
+     * {@code sourceCount + g}.
+     */
+    private byte[] gateTypes;
+
+    /**
+     * The indices of the input components of each gate.
+     */
+    private int[][] gateInputs;
+
+    /**
+     * The index of the component that is the input of the transition of each
+     * base proposition. {@code -1} if a base proposition has no transition.
+     */
+    private int[] next;
+
+    /**
+     * The index of the terminal proposition. {@code -1} if there is none.
+     */
+    private int terminal;
+
+    /**
+     * The indices of the legal propositions per role.
+     */
+    private int[][] legals;
+
+    /**
+     * The moves of the legal propositions per role.
+     */
+    private Move[][] legalMoves;
+
+    /**
+     * The indices of the input propositions per role and move.
+     */
+    private List<Map<Move, Integer>> inputs;
+
+    /**
+     * The indices of the goal propositions per role.
+     */
+    private int[][] goals;
+
+    /**
+     * The goal values of the goal propositions per role.
+     */
+    private int[][] goalValues;
+
+    /**
+     * The initial state.
+     */
+    private BitState initialState;
+
+    @Override
+    public void initialize(final List<Gdl> description) {
+        try {
+            compile(OptimizingPropNetFactory.create(description));
+            fallback = null;
+            logger.info("compiled propnet with " + componentCount
+                    + " components");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            useFallback(description, e);
+        } catch (RuntimeException e) {
+            useFallback(description, e);
+        }
+    }
+
+    /**
+     * Use a prover for all queries. Every thread gets its own prover, so this
+     * state machine stays safe to be shared between threads.
+     * 
+     * @param description
+     *            The game description.
+     * @param pCause
+     *            The reason why the description could not be compiled.
+     */
+    private void useFallback(final List<Gdl> description,
+            final Exception pCause) {
+        logger.warn("cannot compile propnet, using the prover instead", pCause);
+        fallback = ThreadLocal.withInitial(() -> {
+            final StateMachine prover = new CachedStateMachine(
+                    new ProverStateMachine());
+            prover.initialize(description);
+            return prover;
+        });
+        // fail early if the description can not be proven either
+        fallback.get();
+    }
+
+    /**
+     * Checks whether the description has been compiled into a propositional
+     * network.
+     * 
+     * @return {@code true} if the network is used, {@code false} if the
+     *         queries are delegated to a prover.
+     */
+    public boolean isCompiled() {
+        return fallback == null;
+    }
+
+    /*
+     * The flattened network, read by the GDLCompiler. Only valid if
+     * isCompiled() returns true. The arrays must not be modified.
+     */
+
+    /**
+     * @return the sentences of the base propositions, component {@code i} is
+     *         base proposition {@code i}
+     */
+    GdlSentence[] getBaseSentences() {
+        return baseSentences;
+    }
+
+    /**
+     * @return the index of the first gate
+     */
+    int getSourceCount() {
+        return sourceCount;
+    }
+
+    /**
+     * @return the number of components
+     */
+    int getComponentCount() {
+        return componentCount;
+    }
+
+    /**
+     * @return the index of the first input proposition
+     */
+    int getInputOffset() {
+        return inputOffset;
+    }
+
+    /**
+     * @return the indices of the constants that are true
+     */
+    int[] getTrueConstants() {
+        return trueConstants;
+    }
+
+    /**
+     * @return the index of the init proposition or {@code -1}
+     */
+    int getInit() {
+        return init;
+    }
+
+    /**
+     * @return the types of the gates, e.g. {@link #AND}
+     */
+    byte[] getGateTypes() {
+        return gateTypes;
+    }
+
+    /**
+     * @return the indices of the inputs of the gates
+     */
+    int[][] getGateInputs() {
+        return gateInputs;
+    }
+
+    /**
+     * @return the index of the next value of each base proposition or
+     *         {@code -1}
+     */
+    int[] getNext() {
+        return next;
+    }
+
+    /**
+     * @return the index of the terminal proposition or {@code -1}
+     */
+    int getTerminal() {
+        return terminal;
+    }
+
+    /**
+     * @return the indices of the legal propositions per role
+     */
+    int[][] getLegals() {
+        return legals;
+    }
+
+    /**
+     * @return the moves of the legal propositions per role
+     */
+    Move[][] getLegalMoveArrays() {
+        return legalMoves;
+    }
+
+    /**
+     * @return the indices of the input propositions per role and move
+     */
+    List<Map<Move, Integer>> getInputs() {
+        return inputs;
+    }
+
+    /**
+     * @return the indices of the goal propositions per role
+     */
+    int[][] getGoals() {
+        return goals;
+    }
+
+    /**
+     * @return the values of the goal propositions per role
+     */
+    int[][] getGoalValues() {
+        return goalValues;
+    }
+
+    /**
+     * Flatten the given network into arrays.
+     * 
+     * @param pPropNet
+     *            The network.
+     * @throws IllegalArgumentException
+     *             if the network can not be evaluated in topological order.
+     */
+    private void compile(final PropNet pPropNet) {
+        final Map<Component, Integer> index = new IdentityHashMap<>();
+        final List<Component> components = new ArrayList<>();
+
+        // the base propositions come first so that a state can be copied
+        // into the values directly. Sort them to get the same indices on
+        // every run.
+        final List<GdlSentence> bases = new ArrayList<>(
+                pPropNet.getBasePropositions().keySet());
+        bases.sort(Comparator.comparing(GdlSentence::toString));
+        baseSentences = bases.toArray(new GdlSentence[bases.size()]);
+        for (GdlSentence s : bases) {
+            add(pPropNet.getBasePropositions().get(s), index, components);
+        }
+        inputOffset = components.size();
+        final List<GdlSentence> ins = new ArrayList<>(
+                pPropNet.getInputPropositions().keySet());
+        ins.sort(Comparator.comparing(GdlSentence::toString));
+        for (GdlSentence s : ins) {
+            add(pPropNet.getInputPropositions().get(s), index, components);
+        }
+
+        // the remaining sources: constants, the init proposition and
+        // propositions without inputs, which are always false
+        final List<Integer> constants = new ArrayList<>();
+        final List<Component> gates = new ArrayList<>();
+        for (Component c : pPropNet.getComponents()) {
+            if (index.containsKey(c) || c instanceof Transition) {
+                continue;
+            }
+            if (c instanceof Constant) {
+                if (c.getValue()) {
+                    constants.add(components.size());
+                }
+                add(c, index, components);
+            } else if (c instanceof Proposition && c.getInputs().isEmpty()) {
+                add(c, index, components);
+            } else {
+                gates.add(c);
+            }
+        }
+        sourceCount = components.size();
+        final Proposition initProp = pPropNet.getInitProposition();
+        init = initProp != null && index.containsKey(initProp)
+                ? index.get(initProp) : -1;
+        trueConstants = constants.stream().mapToInt(i -> i).toArray();
+
+        sortGates(gates, index, components);
+        componentCount = components.size();
+
+        gateTypes = new byte[gates.size()];
+        gateInputs = new int[gates.size()][];
+        for (int g = 0; g < gates.size(); g++) {
+            final Component c = gates.get(g);
+            if (c instanceof And) {
+                gateTypes[g] = AND;
+            } else if (c instanceof Or) {
+                gateTypes[g] = OR;
+            } else if (c instanceof Not) {
+                gateTypes[g] = NOT;
+            } else if (c instanceof Proposition) {
+                gateTypes[g] = COPY;
+            } else {
+                throw new IllegalArgumentException(
+                        "unknown component " + c.getClass().getName());
+            }
+            gateInputs[g] = c.getInputs().stream().mapToInt(index::get)
+                    .toArray();
+        }
+
+        next = new int[baseSentences.length];
+        for (int b = 0; b < baseSentences.length; b++) {
+            final Component base = components.get(b);
+            if (base.getInputs().isEmpty()) {
+                next[b] = -1;
+            } else if (base.getSingleInput() instanceof Transition) {
+                next[b] = index.get(base.getSingleInput().getSingleInput());
+            } else {
+                throw new IllegalArgumentException(
+                        "base proposition without transition");
+            }
+        }
+
+        terminal = pPropNet.getTerminalProposition() == null ? -1
+                : index.get(pPropNet.getTerminalProposition());
+
+        roles = new ArrayList<>(pPropNet.getRoles());
+        legals = new int[roles.size()][];
+        legalMoves = new Move[roles.size()][];
+        goals = new int[roles.size()][];
+        goalValues = new int[roles.size()][];
+        inputs = new ArrayList<>();
+        for (int r = 0; r < roles.size(); r++) {
+            final Role role = roles.get(r);
+            final List<Proposition> legal = sorted(
+                    pPropNet.getLegalPropositions().get(role));
+            legals[r] = new int[legal.size()];
+            legalMoves[r] = new Move[legal.size()];
+            for (int i = 0; i < legal.size(); i++) {
+                legals[r][i] = index.get(legal.get(i));
+                legalMoves[r][i] = new Move(legal.get(i).getName().get(1));
+            }
+
+            final Map<Move, Integer> roleInputs = new HashMap<>();
+            for (GdlSentence s : ins) {
+                if (s.get(0).equals(role.getName())) {
+                    roleInputs.put(new Move(s.get(1)),
+                            index.get(pPropNet.getInputPropositions().get(s)));
+                }
+            }
+            inputs.add(roleInputs);
+
+            final List<Proposition> goal = sorted(
+                    pPropNet.getGoalPropositions().get(role));
+            goals[r] = new int[goal.size()];
+            goalValues[r] = new int[goal.size()];
+            for (int i = 0; i < goal.size(); i++) {
+                goals[r][i] = index.get(goal.get(i));
+                goalValues[r][i] = Integer.parseInt(
+                        ((GdlConstant) goal.get(i).getName().get(1))
+                                .getValue());
+            }
+        }
+
+        initialState = computeInitialState();
+    }
+
+    /**
+     * Add a component to the given list and remember its index.
+     */
+    private static void add(final Component c,
+            final Map<Component, Integer> index,
+            final List<Component> components) {
+        index.put(c, components.size());
+        components.add(c);
+    }
+
+    /**
+     * Sort the given propositions by their names.
+     * 
+     * @param pProps
+     *            The propositions. Might be {@code null}.
+     * @return The sorted list.
+     */
+    private static List<Proposition> sorted(final Set<Proposition> pProps) {
+        if (pProps == null) {
+            return Collections.emptyList();
+        }
+        final List<Proposition> list = new ArrayList<>(pProps);
+        list.sort(Comparator.comparing(p -> p.getName().toString()));
+        return list;
+    }
+
+    /**
+     * Sort the gates topologically and add them to the components. Transitions
+     * are not part of the order since the base propositions they feed are
+     * read from the state.
+     * 
+     * @param pGates
+     *            The gates. Sorted in place.
+     * @param index
+     *            The indices of the components that have been added already.
+     * @param components
+     *            The components.
+     * @throws IllegalArgumentException
+     *             if the gates contain a cycle.
+     */
+    private static void sortGates(final List<Component> pGates,
+            final Map<Component, Integer> index,
+            final List<Component> components) {
+        final Map<Component, Integer> missing = new IdentityHashMap<>();
+        final ArrayDeque<Component> ready = new ArrayDeque<>();
+        for (Component c : pGates) {
+            int m = 0;
+            for (Component in : c.getInputs()) {
+                if (in instanceof Transition) {
+                    throw new IllegalArgumentException(
+                            "transition feeds a component that is not a base proposition");
+                }
+                if (!index.containsKey(in)) {
+                    m++;
+                }
+            }
+            missing.put(c, m);
+            if (m == 0) {
+                ready.add(c);
+            }
+        }
+        pGates.clear();
+        while (!ready.isEmpty()) {
+            final Component c = ready.poll();
+            add(c, index, components);
+            pGates.add(c);
+            for (Component out : c.getOutputs()) {
+                final Integer m = missing.get(out);
+                if (m != null) {
+                    missing.put(out, m - 1);
+                    if (m == 1) {
+                        ready.add(out);
+                    }
+                }
+            }
+        }
+        if (pGates.size() != missing.size()) {
+            throw new IllegalArgumentException(
+                    "propnet contains a cycle without a transition");
+        }
+    }
+
+    /**
+     * Evaluate the network for the given state.
+     * 
+     * @param pState
+     *            The bits of the base propositions.
+     * @param pInputs
+     *            The indices of the input propositions that are true. Might
+     *            be {@code null} if the moves are irrelevant.
+     * @param pInit
+     *            Whether the init proposition is true.
+     * @return The values of all components. Only valid until the next
+     *         evaluation in the same thread.
+     */
+    private boolean[] evaluate(final long[] pState, final int[] pInputs,
+            final boolean pInit) {
+        boolean[] values = VALUES.get();
+        if (values.length < componentCount) {
+            values = new boolean[componentCount];
+            VALUES.set(values);
+        }
+        for (int b = 0; b < baseSentences.length; b++) {
+            values[b] = (pState[b >>> 6] & (1L << b)) != 0;
+        }
+        Arrays.fill(values, baseSentences.length, sourceCount, false);
+        for (int c : trueConstants) {
+            values[c] = true;
+        }
+        if (pInputs != null) {
+            for (int i : pInputs) {
+                values[i] = true;
+            }
+        }
+        if (init >= 0) {
+            values[init] = pInit;
+        }
+
+        for (int g = 0, c = sourceCount; g < gateTypes.length; g++, c++) {
+            final int[] in = gateInputs[g];
+            boolean v;
+            switch (gateTypes[g]) {
+            case AND:
+                v = true;
+                for (int i = 0; v && i < in.length; i++) {
+                    v = values[in[i]];
+                }
+                break;
+            case OR:
+                v = false;
+                for (int i = 0; !v && i < in.length; i++) {
+                    v = values[in[i]];
+                }
+                break;
+            case NOT:
+                v = !values[in[0]];
+                break;
+            default:
+                v = values[in[0]];
+                break;
+            }
+            values[c] = v;
+        }
+        return values;
+    }
+
+    /**
+     * Create the state that follows the evaluated one.
+     * 
+     * @param values
+     *            The values of an evaluation.
+     * @return The next state.
+     */
+    private BitState nextState(final boolean[] values) {
+        final long[] bits = new long[(baseSentences.length + 63) >>> 6];
+        for (int b = 0; b < next.length; b++) {
+            if (next[b] >= 0 && values[next[b]]) {
+                bits[b >>> 6] |= 1L << b;
+            }
+        }
+        return new BitState(bits, baseSentences);
+    }
+
+    /**
+     * Compute the initial state by evaluating the network with the init
+     * proposition set.
+     * 
+     * @return The initial state.
+     */
+    private BitState computeInitialState() {
+        return nextState(evaluate(
+                new long[(baseSentences.length + 63) >>> 6], null, true));
+    }
+
+    /**
+     * Get the bits of the given state.
+     * 
+     * @param pState
+     *            The state. Might be created by another state machine.
+     * @return The bits of the base propositions.
+     */
+    private long[] bits(final MachineState pState) {
+        if (pState instanceof BitState
+                && ((BitState) pState).sentences == baseSentences) {
+            return ((BitState) pState).bits;
+        }
+        final Set<GdlSentence> contents = pState.getContents();
+        final long[] bits = new long[(baseSentences.length + 63) >>> 6];
+        for (int b = 0; b < baseSentences.length; b++) {
+            if (contents.contains(baseSentences[b])) {
+                bits[b >>> 6] |= 1L << b;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Get the index of the given role.
+     * 
+     * @param pRole
+     *            The role.
+     * @return The index.
+     * @throws IllegalArgumentException
+     *             if the role is not part of the game.
+     */
+    private int roleIndex(final Role pRole) {
+        final int r = roles.indexOf(pRole);
+        if (r < 0) {
+            throw new IllegalArgumentException("unknown role " + pRole);
+        }
+        return r;
+    }
+
+    @Override
+    public int getGoal(final MachineState state, final Role role)
+            throws GoalDefinitionException {
+        if (fallback != null) {
+            return fallback.get().getGoal(state, role);
+        }
+        final int r = roleIndex(role);
+        final boolean[] values = evaluate(bits(state), null, false);
+        int goal = -1;
+        for (int i = 0; i < goals[r].length; i++) {
+            if (values[goals[r][i]]) {
+                if (goal >= 0) {
+                    throw new GoalDefinitionException(state, role);
+                }
+                goal = goalValues[r][i];
+            }
+        }
+        if (goal < 0) {
+            throw new GoalDefinitionException(state, role);
+        }
+        return goal;
+    }
+
+    @Override
+    public boolean isTerminal(final MachineState state) {
+        if (fallback != null) {
+            return fallback.get().isTerminal(state);
+        }
+        return terminal >= 0 && evaluate(bits(state), null, false)[terminal];
+    }
+
+    @Override
+    public List<Role> getRoles() {
+        if (fallback != null) {
+            return fallback.get().getRoles();
+        }
+        return roles;
+    }
+
+    @Override
+    public MachineState getInitialState() {
+        if (fallback != null) {
+            return fallback.get().getInitialState();
+        }
+        return initialState;
+    }
+
+    @Override
+    public List<Move> getLegalMoves(final MachineState state, final Role role)
+            throws MoveDefinitionException {
+        if (fallback != null) {
+            return fallback.get().getLegalMoves(state, role);
+        }
+        final int r = roleIndex(role);
+        final boolean[] values = evaluate(bits(state), null, false);
+        final List<Move> moves = new ArrayList<>();
+        for (int i = 0; i < legals[r].length; i++) {
+            if (values[legals[r][i]]) {
+                moves.add(legalMoves[r][i]);
+            }
+        }
+        if (moves.isEmpty()) {
+            throw new MoveDefinitionException(state, role);
+        }
+        return moves;
+    }
+
+    @Override
+    public MachineState getNextState(final MachineState state,
+            final List<Move> moves) throws TransitionDefinitionException {
+        if (fallback != null) {
+            return fallback.get().getNextState(state, moves);
+        }
+        if (moves.size() != roles.size()) {
+            throw new TransitionDefinitionException(state, moves);
+        }
+        final int[] does = new int[moves.size()];
+        for (int r = 0; r < does.length; r++) {
+            final Integer i = inputs.get(r).get(moves.get(r));
+            if (i == null) {
+                throw new TransitionDefinitionException(state, moves);
+            }
+            does[r] = i;
+        }
+        return nextState(evaluate(bits(state), does, false));
+    }
+
+    /**
+     * A state of the propositional network. Stores the base propositions that
+     * are true as bits and creates the sentences on demand.
+     */
+    private static final class BitState extends MachineState {
+
+        /**
+         * The bits of the base propositions.
+         */
+        private final long[] bits;
+
+        /**
+         * The sentences of the base propositions, shared by all states of the
+         * same state machine.
+         */
+        private final GdlSentence[] sentences;
+
+        /**
+         * The sentences that are true in this state. Created on demand.
+         */
+        private Set<GdlSentence> contents;
+
+        /**
+         * The cached hash code. {@code 0} if it has not been computed yet.
+         */
+        private int hash;
+
+        BitState(final long[] pBits, final GdlSentence[] pSentences) {
+            bits = pBits;
+            sentences = pSentences;
+        }
+
+        @Override
+        public Set<GdlSentence> getContents() {
+            if (contents == null) {
+                final Set<GdlSentence> c = new HashSet<>();
+                for (int b = 0; b < sentences.length; b++) {
+                    if ((bits[b >>> 6] & (1L << b)) != 0) {
+                        c.add(sentences[b]);
+                    }
+                }
+                contents = c;
+            }
+            return contents;
+        }
+
+        @Override
+        public MachineState clone() {
+            return new BitState(bits.clone(), sentences);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (o instanceof BitState
+                    && ((BitState) o).sentences == sentences) {
+                return Arrays.equals(bits, ((BitState) o).bits);
+            }
+            return super.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            // must be equal to the hash code of a MachineState with the same
+            // contents, which is the sum of the hash codes of the sentences
+            if (hash == 0) {
+                int h = 0;
+                for (int b = 0; b < sentences.length; b++) {
+                    if ((bits[b >>> 6] & (1L << b)) != 0) {
+                        h += sentences[b].hashCode();
+                    }
+                }
+                hash = h;
+            }
+            return hash;
+        }
+    }
+}
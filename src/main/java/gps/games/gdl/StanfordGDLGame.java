@@ -29,6 +29,9 @@ import org.ggp.base.util.statemachine.exceptions.TransitionDefinitionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoCopyable;
+
 import gps.IWrappedProblem;
 import gps.games.wrapper.Action;
 import gps.games.wrapper.Player;
@@ -40,7 +43,9 @@ import gps.games.wrapper.Player;
  * @author Sven
  *
  */
-public class StanfordGDLGame implements IWrappedProblem<StanfordGDLGame> {
+public class StanfordGDLGame
+        implements IWrappedProblem<StanfordGDLGame>,
+        KryoCopyable<StanfordGDLGame> {
 
     /**
      * standard slf4j Logger
@@ -87,20 +92,24 @@ public class StanfordGDLGame implements IWrappedProblem<StanfordGDLGame> {
     private PlayerSwitchingMode playerSwitchingMode = KEEP_SAME_PLAYER;
 
     /**
-     * an automaton that represents the game as states and transitions.
-     * 
-     * a state in this statemachine consists of all the axioms (which are always
-     * true) and the sentences that are true in the given state
+     * the state machine and the roles. Shared by all copies of this game, see
+     * {@link GDLRules} for the state machines used by different threads.
      */
-    private StateMachine stateMachine;
+    private final GDLRules rules;
 
+    /**
+     * the current state. States are never modified by the state machine, so
+     * copies of this game may share it.
+     */
     private MachineState currentState;
 
-    private List<Role> players;
-
+    /**
+     * the moves that have been chosen for the roles before
+     * {@link #currentPlayerIndex} in {@link #ALTERNATE_PlAYERS} mode
+     */
     private List<Move> currentMoves;
 
-    private Integer currentPlayerIndex;
+    private int currentPlayerIndex;
 
     /**
      * basic constructor that receives an initialized {@link StateMachine} and
@@ -111,11 +120,25 @@ public class StanfordGDLGame implements IWrappedProblem<StanfordGDLGame> {
      * @see StateMachine#initialize(List)
      */
     public StanfordGDLGame(final StateMachine pStateMachine) {
-        stateMachine = pStateMachine;
-        currentState = stateMachine.getInitialState();
+        rules = new GDLRules(pStateMachine);
+        currentState = pStateMachine.getInitialState();
         currentPlayerIndex = 0;
-        players = stateMachine.getRoles();
-        currentMoves = new ArrayList<Move>(players.size());
+        currentMoves = new ArrayList<Move>(rules.getRoles().size());
+    }
+
+    /**
+     * copy constructor. The copy shares the rules with the given game and
+     * only copies the current state.
+     * 
+     * @param pGame
+     *            the game to copy
+     */
+    private StanfordGDLGame(final StanfordGDLGame pGame) {
+        rules = pGame.rules;
+        playerSwitchingMode = pGame.playerSwitchingMode;
+        currentState = pGame.currentState;
+        currentPlayerIndex = pGame.currentPlayerIndex;
+        currentMoves = new ArrayList<Move>(pGame.currentMoves);
     }
 
     /**
@@ -126,7 +149,7 @@ public class StanfordGDLGame implements IWrappedProblem<StanfordGDLGame> {
      */
     public StanfordGDLGame(final StateMachine pStateMachine, final Role role) {
         this(pStateMachine);
-        currentPlayerIndex = stateMachine.getRoles().indexOf(role);
+        currentPlayerIndex = rules.getRoles().indexOf(role);
 
     }
 
@@ -176,6 +199,30 @@ public class StanfordGDLGame implements IWrappedProblem<StanfordGDLGame> {
         this.playerSwitchingMode = playerSwitchingMode;
     }
 
+    /**
+     * @return the state machine of the current thread
+     */
+    private StateMachine stateMachine() {
+        return rules.getStateMachine();
+    }
+
+    /**
+     * @return the role whose turn it is
+     */
+    private Role currentRole() {
+        return rules.getRoles().get(currentPlayerIndex);
+    }
+
+    /**
+     * Copies only the current state, the rules are shared. Called by
+     * {@link Kryo#copy(Object)}, e.g. when a {@link gps.games.wrapper.Game} is
+     * copied.
+     */
+    @Override
+    public StanfordGDLGame copy(final Kryo kryo) {
+        return new StanfordGDLGame(this);
+    }
+
     /*
      * Interface methods
      */
@@ -200,8 +247,8 @@ public class StanfordGDLGame implements IWrappedProblem<StanfordGDLGame> {
             logger.debug("doing " + pAction.get().toString());
             switch (playerSwitchingMode) {
             case keep:
-                currentState = stateMachine.getRandomNextState(currentState,
-                        players.get(currentPlayerIndex), (Move) pAction.get());
+                currentState = stateMachine().getRandomNextState(
+                        currentState, currentRole(), (Move) pAction.get());
                 return;
             case alternate:
 
@@ -212,9 +259,9 @@ public class StanfordGDLGame implements IWrappedProblem<StanfordGDLGame> {
                 }
 
                 currentPlayerIndex++;
-                if (currentPlayerIndex == players.size()) {
-                    currentState = stateMachine.getNextState(currentState,
-                            currentMoves);
+                if (currentPlayerIndex == rules.getRoles().size()) {
+                    currentState = stateMachine().getNextState(
+                            currentState, currentMoves);
                     currentPlayerIndex = 0;
                 }
                 return;
@@ -252,8 +299,8 @@ public class StanfordGDLGame implements IWrappedProblem<StanfordGDLGame> {
     @Override
     public List<Action> getActions() {
         try {
-            List<Move> legals = stateMachine.getLegalMoves(currentState,
-                    players.get(currentPlayerIndex));
+            List<Move> legals = stateMachine().getLegalMoves(currentState,
+                    currentRole());
             List<Action> actions = new ArrayList<>();
             for (Move m : legals) {
                 actions.add(new Action(m));
@@ -287,7 +334,7 @@ public class StanfordGDLGame implements IWrappedProblem<StanfordGDLGame> {
 
     @Override
     public boolean isTerminal() {
-        return stateMachine.isTerminal(currentState);
+        return stateMachine().isTerminal(currentState);
     }
 
     @Override
@@ -298,8 +345,7 @@ public class StanfordGDLGame implements IWrappedProblem<StanfordGDLGame> {
     @Override
     public Number heuristic() {
         try {
-            return stateMachine.getGoal(currentState,
-                    players.get(currentPlayerIndex));
+            return stateMachine().getGoal(currentState, currentRole());
         } catch (GoalDefinitionException e) {
             e.printStackTrace();
         }
@@ -309,7 +355,8 @@ public class StanfordGDLGame implements IWrappedProblem<StanfordGDLGame> {
     @Override
     public Number heuristic(Player pPlayer) {
         try {
-            return stateMachine.getGoal(currentState, (Role) pPlayer.get());
+            return stateMachine().getGoal(currentState,
+                    (Role) pPlayer.get());
         } catch (GoalDefinitionException e) {
             e.printStackTrace();
         }
@@ -328,7 +375,7 @@ public class StanfordGDLGame implements IWrappedProblem<StanfordGDLGame> {
 
     @Override
     public Player getPlayer() {
-        return new Player(players.get(currentPlayerIndex));
+        return rules.getPlayer(currentPlayerIndex);
     }
 
     @Override
@@ -339,8 +386,7 @@ public class StanfordGDLGame implements IWrappedProblem<StanfordGDLGame> {
     @Override
     public Number getUtility() {
         try {
-            return stateMachine.getGoal(currentState,
-                    players.get(currentPlayerIndex));
+            return stateMachine().getGoal(currentState, currentRole());
         } catch (GoalDefinitionException e) {
             e.printStackTrace();
         }
@@ -350,7 +396,8 @@ public class StanfordGDLGame implements IWrappedProblem<StanfordGDLGame> {
     @Override
     public Number getUtility(Player pPlayer) {
         try {
-            return stateMachine.getGoal(currentState, (Role) pPlayer.get());
+            return stateMachine().getGoal(currentState,
+                    (Role) pPlayer.get());
         } catch (GoalDefinitionException e) {
             e.printStackTrace();
         }
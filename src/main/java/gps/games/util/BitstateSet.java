@@ -0,0 +1,161 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.util;
+
+import java.util.Arrays;
+
+import gps.games.wrapper.Game;
+
+/**
+ * An approximate set of visited states for state spaces that do not fit into
+ * memory (bitstate hashing). Instead of the states only a few bits per state
+ * are stored in a bit array of fixed size: every state sets the bits at the
+ * positions of {@link #getHashes()} hash values of its
+ * {@link StateFingerprint}, like in a Bloom filter.
+ * <p>
+ * A state is reported as new if at least one of its bits has not been set
+ * yet. An unvisited state whose bits have all been set by other states is
+ * wrongly reported as visited and therefore omitted by the search. The
+ * probability of such an omission grows with the number of set bits. Since
+ * the fingerprints are derived from the 32 bit {@link Game#hashCode()},
+ * states with equal hash codes are never distinguished either. Both are
+ * included in {@link #omissionProbability()}.
+ */
+public class BitstateSet {
+
+    /**
+     * The bit array.
+     */
+    private final long[] bits;
+
+    /**
+     * Mask of a bit position, the number of bits minus 1.
+     */
+    private final long mask;
+
+    /**
+     * Probability that two different states have the same 32 bit hash code.
+     */
+    private static final double HASH_COLLISION = 0x1p-32;
+
+    /**
+     * Number of bits per state.
+     */
+    private final int hashes;
+
+    /**
+     * Number of set bits.
+     */
+    private long setBits;
+
+    /**
+     * Number of states added to the set.
+     */
+    private long size;
+
+    /**
+     * Creates an empty set.
+     *
+     * @param pLog2Bits
+     *            binary logarithm of the number of bits, between 6 (8 bytes)
+     *            and 36 (8 GiB)
+     * @param pHashes
+     *            number of bits set per state, must be greater than 0
+     */
+    public BitstateSet(final int pLog2Bits, final int pHashes) {
+        if (pLog2Bits < 6 || pLog2Bits > 36) {
+            throw new IllegalArgumentException(
+                    "the number of bits must be between 2^6 and 2^36");
+        }
+        if (pHashes <= 0) {
+            throw new IllegalArgumentException(
+                    "the number of hashes must be greater than 0");
+        }
+        bits = new long[1 << (pLog2Bits - 6)];
+        mask = (1L << pLog2Bits) - 1;
+        hashes = pHashes;
+    }
+
+    /**
+     * Adds a state to the set.
+     *
+     * @param pGame
+     *            the state
+     * @return {@code true} if the state has not been in the set before,
+     *         {@code false} if it has been or if it is omitted
+     */
+    public boolean add(final Game<?> pGame) {
+        final long h1 = StateFingerprint.of(pGame);
+        // odd, so that the positions of a state are distinct
+        final long h2 = StateFingerprint.mix(h1) | 1;
+        boolean added = false;
+        for (int i = 0; i < hashes; i++) {
+            final long position = (h1 + i * h2) & mask;
+            final int word = (int) (position >>> 6);
+            final long bit = 1L << position;
+            if ((bits[word] & bit) == 0) {
+                bits[word] |= bit;
+                setBits++;
+                added = true;
+            }
+        }
+        if (added) {
+            size++;
+        }
+        return added;
+    }
+
+    /**
+     * Returns the probability that a state not yet added is reported as
+     * visited, either because all of its bits have been set by other states
+     * or because its hash code equals the one of an added state. It grows
+     * with every added state, so it bounds the probability of each omission
+     * so far.
+     *
+     * @return the probability, between 0 and 1
+     */
+    public double omissionProbability() {
+        final double bitsSet = Math.pow((double) setBits / (mask + 1), hashes);
+        // 1 - (1 - HASH_COLLISION)^size without losing the small values
+        final double hashShared = -Math
+                .expm1(size * Math.log1p(-HASH_COLLISION));
+        return bitsSet + hashShared - bitsSet * hashShared;
+    }
+
+    /**
+     * @return the number of states added to the set
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return the number of bits set per state
+     */
+    public int getHashes() {
+        return hashes;
+    }
+
+    /**
+     * Removes all states from the set.
+     */
+    public void clear() {
+        Arrays.fill(bits, 0);
+        setBits = 0;
+        size = 0;
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.neuroph.core.Connection;
+import org.neuroph.core.Layer;
+import org.neuroph.core.NeuralNetwork;
+import org.neuroph.core.Neuron;
+import org.neuroph.core.input.WeightedSum;
+import org.neuroph.core.transfer.Linear;
+import org.neuroph.core.transfer.Sigmoid;
+import org.neuroph.core.transfer.Tanh;
+import org.neuroph.core.transfer.TransferFunction;
+import org.neuroph.nnet.comp.neuron.BiasNeuron;
+import org.neuroph.nnet.comp.neuron.InputNeuron;
+
+/**
+ * A fully connected feed forward network that is exported from a layered
+ * Neuroph network, e.g. a {@link org.neuroph.nnet.MultiLayerPerceptron}. The
+ * weights are stored in plain arrays, so calculating the output does not need
+ * any Neuroph objects and does not allocate memory. Bias neurons are folded
+ * into a bias term of every neuron. Instances are immutable and can be used by
+ * multiple threads concurrently.
+ */
+public final class FeedForwardNetwork {
+
+    /**
+     * Identifies the linear transfer function.
+     */
+    private static final int LINEAR = 0;
+
+    /**
+     * Identifies the sigmoid transfer function.
+     */
+    private static final int SIGMOID = 1;
+
+    /**
+     * Identifies the hyperbolic tangent transfer function.
+     */
+    private static final int TANH = 2;
+
+    /**
+     * The weights of all layers but the input layer. {@code weights[l][j]}
+     * contains the weights of the neuron {@code j} of the layer {@code l + 1}
+     * for every neuron of the previous layer, followed by the bias.
+     */
+    private final double[][][] weights;
+
+    /**
+     * The transfer function of every neuron. Uses the same indices as the
+     * first two dimensions of {@link #weights}.
+     */
+    private final int[][] transfer;
+
+    /**
+     * The slope of the transfer function of every neuron.
+     */
+    private final double[][] slope;
+
+    /**
+     * The number of inputs.
+     */
+    private final int inputSize;
+
+    /**
+     * The number of neurons in the widest layer.
+     */
+    private final int maxWidth;
+
+    /**
+     * Buffers for the outputs of two successive layers, one pair per thread.
+     */
+    private final ThreadLocal<double[][]> buffers;
+
+    /**
+     * Creates a new network.
+     *
+     * @param pInputSize
+     *            The number of inputs.
+     * @param pWeights
+     *            The weights, see {@link #weights}.
+     * @param pTransfer
+     *            The transfer functions, see {@link #transfer}.
+     * @param pSlope
+     *            The slopes of the transfer functions, see {@link #slope}.
+     */
+    private FeedForwardNetwork(final int pInputSize,
+            final double[][][] pWeights, final int[][] pTransfer,
+            final double[][] pSlope) {
+        inputSize = pInputSize;
+        weights = pWeights;
+        transfer = pTransfer;
+        slope = pSlope;
+        int width = pInputSize;
+        for (double[][] layer : pWeights) {
+            width = Math.max(width, layer.length);
+        }
+        maxWidth = width;
+        buffers = ThreadLocal
+                .withInitial(() -> new double[2][maxWidth]);
+    }
+
+    /**
+     * Exports the weights of the given network. Every neuron that is not an
+     * input or a bias neuron must use a {@link WeightedSum} of the outputs of
+     * the previous layer and a {@link Linear}, {@link Sigmoid} or {@link Tanh}
+     * transfer function.
+     *
+     * @param pNetwork
+     *            The network to export. Is not modified.
+     * @return The exported network.
+     * @throws IllegalArgumentException
+     *             if the network has a structure that is not supported.
+     */
+    public static FeedForwardNetwork of(final NeuralNetwork<?> pNetwork) {
+        final Layer[] layers = pNetwork.getLayers();
+        if (layers.length < 2) {
+            throw new IllegalArgumentException(
+                    "The network needs at least two layers.");
+        }
+        // the input neurons have to be the first neurons of the input layer in
+        // the order the inputs are set
+        final Neuron[] inputs = pNetwork.getInputNeurons();
+        List<Neuron> previous = valueNeurons(layers[0]);
+        if (!previous.equals(Arrays.asList(inputs))) {
+            throw new IllegalArgumentException(
+                    "The input layer must only contain input and bias neurons.");
+        }
+        for (Neuron n : inputs) {
+            if (!(n instanceof InputNeuron)) {
+                throw new IllegalArgumentException(
+                        "Unsupported input neuron " + n.getClass().getName());
+            }
+        }
+
+        final double[][][] w = new double[layers.length - 1][][];
+        final int[][] t = new int[layers.length - 1][];
+        final double[][] s = new double[layers.length - 1][];
+        for (int l = 1; l < layers.length; l++) {
+            final List<Neuron> current = valueNeurons(layers[l]);
+            w[l - 1] = new double[current.size()][previous.size() + 1];
+            t[l - 1] = new int[current.size()];
+            s[l - 1] = new double[current.size()];
+            for (int j = 0; j < current.size(); j++) {
+                final Neuron neuron = current.get(j);
+                if (!(neuron.getInputFunction() instanceof WeightedSum)) {
+                    throw new IllegalArgumentException(
+                            "Only weighted sums are supported as input function.");
+                }
+                for (Connection c : neuron.getInputConnections()) {
+                    final Neuron from = c.getFromNeuron();
+                    final double weight = c.getWeight().getValue();
+                    if (from instanceof BiasNeuron) {
+                        w[l - 1][j][previous.size()] += weight;
+                    } else {
+                        final int i = previous.indexOf(from);
+                        if (i < 0) {
+                            throw new IllegalArgumentException(
+                                    "Only connections to the previous layer are supported.");
+                        }
+                        w[l - 1][j][i] += weight;
+                    }
+                }
+                exportTransfer(neuron.getTransferFunction(), t[l - 1], s[l - 1],
+                        j);
+            }
+            previous = current;
+        }
+        if (!previous.equals(Arrays.asList(pNetwork.getOutputNeurons()))) {
+            throw new IllegalArgumentException(
+                    "The output neurons must be the neurons of the last layer.");
+        }
+        return new FeedForwardNetwork(inputs.length, w, t, s);
+    }
+
+    /**
+     * Returns all neurons of the layer that are not bias neurons.
+     *
+     * @param pLayer
+     *            The layer.
+     * @return The neurons in the order of the layer.
+     */
+    private static List<Neuron> valueNeurons(final Layer pLayer) {
+        final List<Neuron> neurons = new ArrayList<>();
+        for (Neuron n : pLayer.getNeurons()) {
+            if (!(n instanceof BiasNeuron)) {
+                neurons.add(n);
+            }
+        }
+        return neurons;
+    }
+
+    /**
+     * Stores the type and the slope of the given transfer function.
+     *
+     * @param pFunction
+     *            The transfer function.
+     * @param pTransfer
+     *            The array to store the type in.
+     * @param pSlope
+     *            The array to store the slope in.
+     * @param pIndex
+     *            The index of the neuron.
+     */
+    private static void exportTransfer(final TransferFunction pFunction,
+            final int[] pTransfer, final double[] pSlope, final int pIndex) {
+        if (pFunction instanceof Sigmoid) {
+            pTransfer[pIndex] = SIGMOID;
+            pSlope[pIndex] = ((Sigmoid) pFunction).getSlope();
+        } else if (pFunction instanceof Tanh) {
+            pTransfer[pIndex] = TANH;
+            pSlope[pIndex] = ((Tanh) pFunction).getSlope();
+        } else if (pFunction instanceof Linear) {
+            pTransfer[pIndex] = LINEAR;
+            pSlope[pIndex] = ((Linear) pFunction).getSlope();
+        } else {
+            throw new IllegalArgumentException("Unsupported transfer function "
+                    + pFunction.getClass().getName());
+        }
+    }
+
+    /**
+     * Returns the number of inputs of the network.
+     *
+     * @return The number of inputs.
+     */
+    public int getInputSize() {
+        return inputSize;
+    }
+
+    /**
+     * Returns the number of outputs of the network.
+     *
+     * @return The number of outputs.
+     */
+    public int getOutputSize() {
+        return weights[weights.length - 1].length;
+    }
+
+    /**
+     * Calculates the output of the network for the given input.
+     *
+     * @param pInput
+     *            The input vector. Must have {@link #getInputSize()} elements.
+     * @param pOutput
+     *            The array the output is written to. Must have at least
+     *            {@link #getOutputSize()} elements.
+     */
+    public void calculate(final double[] pInput, final double[] pOutput) {
+        if (pInput.length != inputSize || pOutput.length < getOutputSize()) {
+            throw new IllegalArgumentException("Invalid vector size.");
+        }
+        final double[][] buffer = buffers.get();
+        double[] in = buffer[0];
+        double[] out = buffer[1];
+        System.arraycopy(pInput, 0, in, 0, inputSize);
+        int inSize = inputSize;
+        for (int l = 0; l < weights.length; l++) {
+            final double[][] layer = weights[l];
+            for (int j = 0; j < layer.length; j++) {
+                final double[] w = layer[j];
+                double net = w[inSize];
+                for (int i = 0; i < inSize; i++) {
+                    net += w[i] * in[i];
+                }
+                out[j] = activate(transfer[l][j], slope[l][j], net);
+            }
+            inSize = layer.length;
+            final double[] tmp = in;
+            in = out;
+            out = tmp;
+        }
+        System.arraycopy(in, 0, pOutput, 0, inSize);
+    }
+
+    /**
+     * Applies a transfer function. Behaves like the Neuroph implementations.
+     *
+     * @param pTransfer
+     *            The type of the transfer function.
+     * @param pSlope
+     *            The slope of the transfer function.
+     * @param pNet
+     *            The net input of the neuron.
+     * @return The output of the neuron.
+     */
+    private static double activate(final int pTransfer, final double pSlope,
+            final double pNet) {
+        switch (pTransfer) {
+        case SIGMOID:
+            if (pNet > 100) {
+                return 1;
+            } else if (pNet < -100) {
+                return 0;
+            }
+            return 1 / (1 + Math.exp(-pSlope * pNet));
+        case TANH:
+            if (pNet > 100) {
+                return 1;
+            } else if (pNet < -100) {
+                return -1;
+            }
+            final double e = Math.exp(pSlope * pNet);
+            return (e - 1) / (e + 1);
+        default:
+            return pSlope * pNet;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.util;
+
+import gps.games.wrapper.Game;
+import gps.util.KryoHelper;
+
+/**
+ * Computes fingerprints of game states. Like the
+ * {@link gps.games.util.transpositionTable.TranspositionTable} the fingerprint
+ * of {@link #of(Game)} relies on the {@link Game#hashCode()} method of the
+ * problem class, so a properly written hashCode method is required. The 32
+ * bit hash code is spread over all 64 bits, so that the fingerprint can be
+ * used for hash based sketches and tables that use the high bits as index.
+ * It can still take only 2^32 different values, so states with equal
+ * fingerprints are not necessarily equal. Tables that return exact results
+ * for a state have to verify it, either with {@link Game#equals(Object)} like
+ * the {@link gps.games.util.transpositionTable.TranspositionTable} or with
+ * the independent {@link #ofContent(Game)}.
+ */
+public final class StateFingerprint {
+
+    /**
+     * Hidden constructor. This class is not instantiable.
+     */
+    private StateFingerprint() {
+    }
+
+    /**
+     * Returns the fingerprint of the given game state. Has only 32 bits of
+     * entropy, see {@link StateFingerprint}.
+     *
+     * @param pGame
+     *            The game state. Must not be {@code null}.
+     * @return The fingerprint of the game state.
+     */
+    public static long of(final Game<?> pGame) {
+        return mix(pGame.hashCode());
+    }
+
+    /**
+     * Returns a 64 bit fingerprint of the serialized problem of the given
+     * game state. It does not depend on {@link Game#hashCode()}, so it can
+     * be used to verify entries found by {@link #of(Game)}. Serializing the
+     * state is expensive, so it should only be used for that purpose.
+     *
+     * @param pGame
+     *            The game state. Must not be {@code null}.
+     * @return The fingerprint of the content of the game state.
+     */
+    public static long ofContent(final Game<?> pGame) {
+        return of(KryoHelper.objectToBytes(pGame.getProblem()));
+    }
+
+    /**
+     * Calculates a 64 bit FNV-1a hash of the given bytes and spreads it with
+     * {@link #mix(long)}.
+     *
+     * @param pBytes
+     *            The bytes. Must not be {@code null}.
+     * @return The fingerprint of the bytes.
+     */
+    public static long of(final byte[] pBytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : pBytes) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Spreads the bits of the given value using the finalizer of the
+     * SplitMix64 generator.
+     *
+     * @param pValue
+     *            The value to mix.
+     * @return The mixed value.
+     */
+    public static long mix(final long pValue) {
+        long z = pValue + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
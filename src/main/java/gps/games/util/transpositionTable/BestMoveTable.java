@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.util.transpositionTable;
+
+import gps.games.util.StateFingerprint;
+import gps.games.wrapper.Action;
+import gps.games.wrapper.Game;
+
+/**
+ * A transposition table, which maps game states to the best move found for
+ * them by the last search, e.g. to search this move first in the next
+ * iteration of an iterative deepening search. The table has a fixed size and
+ * the states are identified by their {@link StateFingerprint}. A new entry
+ * replaces the entry at its index.
+ * <p>
+ * Different states may share a fingerprint, so the returned move is only a
+ * hint and has to be checked against the actions available in the state.
+ */
+public class BestMoveTable<T> {
+
+    /**
+     * The fingerprints of the stored states.
+     */
+    private final long[] keys;
+
+    /**
+     * The best moves of the stored states.
+     */
+    private final Action[] moves;
+
+    /**
+     * Creates a new {@link BestMoveTable} with the given number of entries.
+     *
+     * @param pMaxSize
+     *         maximum number of entries, must be greater than 0
+     */
+    public BestMoveTable(final int pMaxSize) {
+        if (pMaxSize <= 0) {
+            throw new IllegalArgumentException();
+        }
+        keys = new long[pMaxSize];
+        moves = new Action[pMaxSize];
+    }
+
+    /**
+     * Stores the best move of the given game state.
+     *
+     * @param key
+     *         the game state, must not be {@code null}
+     * @param move
+     *         the best move, must not be {@code null}
+     */
+    public void put(final Game<T> key, final Action move) {
+        if (key == null || move == null) {
+            throw new IllegalArgumentException();
+        }
+        final long fingerprint = StateFingerprint.of(key);
+        final int index = index(fingerprint);
+        keys[index] = fingerprint;
+        moves[index] = move;
+    }
+
+    /**
+     * Returns the best move stored for the given game state.
+     *
+     * @param key
+     *         the game state, must not be {@code null}
+     *
+     * @return the best move or {@code null} if there is no move stored for
+     * the given state
+     */
+    public Action get(final Game<T> key) {
+        if (key == null) {
+            throw new IllegalArgumentException();
+        }
+        final long fingerprint = StateFingerprint.of(key);
+        final int index = index(fingerprint);
+        return keys[index] == fingerprint ? moves[index] : null;
+    }
+
+    /**
+     * Deletes all entries from the table.
+     */
+    public void clear() {
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = null;
+            keys[i] = 0;
+        }
+    }
+
+    /**
+     * @return the index of the given fingerprint
+     */
+    private int index(final long fingerprint) {
+        return (int) ((fingerprint >>> 1) % keys.length);
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.util.transpositionTable;
+
+import gps.games.util.StateFingerprint;
+import gps.games.wrapper.Game;
+import gps.games.wrapper.Player;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A transposition table in a memory mapped file, so that the values found by
+ * a search are still known in later runs. Every entry stores a lower and an
+ * upper bound of the value of a state, the depth of the search that found
+ * them and the index of the best action in {@link Game#getActions()}.
+ * <p>
+ * The states are identified by 64 bit keys, see
+ * {@link #key(Game, Player, long)}. The entries are stored in buckets of two:
+ * the first entry of a bucket is only replaced by an entry of a search at
+ * least as deep, which moves it to the second entry. Otherwise the second
+ * entry is replaced. Since the keys are derived from {@link Game#hashCode()},
+ * different states may share a key, so every entry also stores
+ * {@link StateFingerprint#ofContent(Game)} of its state, and an entry is only
+ * returned for the state it has been stored for. The hashCode method of the
+ * problem class must not depend on object identities, otherwise the stored
+ * values are never found again.
+ * <p>
+ * The methods of this class are thread safe. Written entries reach the file
+ * when the operating system writes back the mapped pages, {@link #force()}
+ * writes them immediately.
+ */
+public class PersistentTable implements Closeable {
+
+    /**
+     * Depth of the entries of solved states, whose values do not depend on a
+     * depth limit.
+     */
+    public static final int SOLVED = Integer.MAX_VALUE;
+
+    /**
+     * Namespace of minimax values and bounds from the view of the maximizing
+     * player, see {@link #key(Game, Player, long)}.
+     */
+    public static final long MINIMAX = 1;
+
+    /**
+     * Namespace of proofs that a player can force a win, see
+     * {@link #key(Game, Player, long)}.
+     */
+    public static final long PROOF = 2;
+
+    /**
+     * Marks the beginning of a table file.
+     */
+    private static final long MAGIC = 0x4750535441424C45L;
+
+    /**
+     * Version of the file format.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * Size of the header in bytes: magic, version and number of entries.
+     */
+    private static final int HEADER_SIZE = 16;
+
+    /**
+     * Size of an entry in bytes: key, content fingerprint, lower bound, upper
+     * bound, depth and action index.
+     */
+    private static final int ENTRY_SIZE = 40;
+
+    /**
+     * Offsets of the fields of an entry.
+     */
+    private static final int KEY = 0, CHECK = 8, LOWER_BOUND = 16,
+            UPPER_BOUND = 24, DEPTH = 32, ACTION_INDEX = 36;
+
+    /**
+     * The channel of the table file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The mapped table file.
+     */
+    private final MappedByteBuffer buffer;
+
+    /**
+     * Number of buckets.
+     */
+    private final int buckets;
+
+    /**
+     * Opens the table in the given file. If the file does not exist or is
+     * empty, a new table with the given number of entries is created.
+     *
+     * @param file
+     *            the table file
+     * @param entries
+     *            the number of entries of a new table, must be even and
+     *            greater than 0, the file has a size of 40 bytes per entry
+     * @throws IOException
+     *             if the file cannot be mapped or is not a table with the
+     *             given number of entries
+     */
+    public PersistentTable(final Path file, final int entries)
+            throws IOException {
+        if (entries <= 0 || entries % 2 != 0
+                || entries > (Integer.MAX_VALUE - HEADER_SIZE) / ENTRY_SIZE) {
+            throw new IllegalArgumentException(
+                    "the number of entries must be even and greater than 0");
+        }
+        buckets = entries / 2;
+        final long size = HEADER_SIZE + (long) entries * ENTRY_SIZE;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            final long existing = channel.size();
+            if (existing != 0 && existing != size) {
+                throw new IOException(
+                        file + " is not a table with " + entries + " entries");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (existing == 0) {
+                buffer.putLong(0, MAGIC);
+                buffer.putInt(8, VERSION);
+                buffer.putInt(12, entries);
+            } else if (buffer.getLong(0) != MAGIC || buffer.getInt(8) != VERSION
+                    || buffer.getInt(12) != entries) {
+                throw new IOException(
+                        file + " is not a table with " + entries + " entries");
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the key of the given game state. The key also depends on the
+     * problem class, the player from whose view the values are given and the
+     * namespace, so that the values of different problems and searches can be
+     * stored in the same table.
+     *
+     * @param game
+     *            the game state, must not be {@code null}
+     * @param player
+     *            the player from whose view the values are given, must not be
+     *            {@code null}
+     * @param namespace
+     *            identifies the kind of the stored values
+     * @return the key
+     */
+    public static long key(final Game<?> game, final Player player,
+            final long namespace) {
+        final long context = StateFingerprint
+                .mix(game.getProblem().getClass().getName().hashCode()
+                        ^ (long) player.hashCode() << 32 ^ namespace);
+        return StateFingerprint.mix(StateFingerprint.of(game) ^ context);
+    }
+
+    /**
+     * Returns the entry stored for the given key and game state. The content
+     * fingerprint of the state is only computed if there is an entry for the
+     * key.
+     *
+     * @param key
+     *            the key of the state, see {@link #key(Game, Player, long)}
+     * @param game
+     *            the game state, must not be {@code null}
+     * @return the entry or {@code null} if there is no entry for the given key
+     *         or it belongs to another state with the same key
+     */
+    public synchronized Entry get(final long key, final Game<?> game) {
+        final long stored = nonZero(key);
+        final int first = first(stored);
+        for (int slot = first; slot <= first + ENTRY_SIZE; slot += ENTRY_SIZE) {
+            if (buffer.getLong(slot + KEY) == stored) {
+                if (buffer.getLong(slot + CHECK) != StateFingerprint
+                        .ofContent(game)) {
+                    return null;
+                }
+                return new Entry(buffer.getDouble(slot + LOWER_BOUND),
+                        buffer.getDouble(slot + UPPER_BOUND),
+                        buffer.getInt(slot + DEPTH),
+                        buffer.getInt(slot + ACTION_INDEX));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stores an entry for the given key. It replaces the first entry of the
+     * bucket if that belongs to the same key or a search that is not deeper,
+     * otherwise the second entry.
+     *
+     * @param key
+     *            the key of the state, see {@link #key(Game, Player, long)}
+     * @param game
+     *            the game state, must not be {@code null}
+     * @param lowerBound
+     *            the lower bound of the value
+     * @param upperBound
+     *            the upper bound of the value
+     * @param depth
+     *            the depth of the search below the state, {@link #SOLVED} if
+     *            the values do not depend on a depth limit
+     * @param actionIndex
+     *            the index of the best action in {@link Game#getActions()}, -1
+     *            if unknown
+     */
+    public synchronized void put(final long key, final Game<?> game,
+            final double lowerBound, final double upperBound, final int depth,
+            final int actionIndex) {
+        final long stored = nonZero(key);
+        final int first = first(stored);
+        final int second = first + ENTRY_SIZE;
+        final int slot;
+        final long firstKey = buffer.getLong(first + KEY);
+        if (firstKey == stored) {
+            slot = first;
+        } else if (buffer.getInt(first + DEPTH) <= depth) {
+            slot = first;
+            if (firstKey != 0) {
+                // the replaced entry is kept in the second slot
+                for (int i = 0; i < ENTRY_SIZE; i += 8) {
+                    buffer.putLong(second + i, buffer.getLong(first + i));
+                }
+            }
+        } else {
+            slot = second;
+        }
+        buffer.putLong(slot + KEY, stored);
+        buffer.putLong(slot + CHECK, StateFingerprint.ofContent(game));
+        buffer.putDouble(slot + LOWER_BOUND, lowerBound);
+        buffer.putDouble(slot + UPPER_BOUND, upperBound);
+        buffer.putInt(slot + DEPTH, depth);
+        buffer.putInt(slot + ACTION_INDEX, actionIndex);
+    }
+
+    /**
+     * Deletes all entries from the table.
+     */
+    public synchronized void clear() {
+        for (int slot = HEADER_SIZE; slot < buffer.limit();
+                slot += ENTRY_SIZE) {
+            buffer.putLong(slot + KEY, 0);
+        }
+    }
+
+    /**
+     * Writes all changes to the file.
+     */
+    public synchronized void force() {
+        buffer.force();
+    }
+
+    /**
+     * Writes all changes to the file and closes it. The table must not be
+     * used afterwards.
+     *
+     * @throws IOException
+     *             if the file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    /**
+     * @return the position of the first entry of the bucket of the given key
+     */
+    private int first(final long key) {
+        return HEADER_SIZE + (int) ((key >>> 1) % buckets) * 2 * ENTRY_SIZE;
+    }
+
+    /**
+     * @return the given key, {@code 1} instead of {@code 0}, which marks
+     *         empty entries
+     */
+    private static long nonZero(final long key) {
+        return key == 0 ? 1 : key;
+    }
+
+    /**
+     * An entry of the table.
+     */
+    public static final class Entry {
+
+        /**
+         * The lower bound of the value.
+         */
+        public final double lowerBound;
+
+        /**
+         * The upper bound of the value.
+         */
+        public final double upperBound;
+
+        /**
+         * The depth of the search below the state, {@link #SOLVED} if the
+         * values do not depend on a depth limit.
+         */
+        public final int depth;
+
+        /**
+         * The index of the best action in {@link Game#getActions()}, -1 if
+         * unknown.
+         */
+        public final int actionIndex;
+
+        Entry(final double pLowerBound, final double pUpperBound,
+                final int pDepth, final int pActionIndex) {
+            lowerBound = pLowerBound;
+            upperBound = pUpperBound;
+            depth = pDepth;
+            actionIndex = pActionIndex;
+        }
+    }
+}
@@ -168,6 +168,23 @@ public class TranspositionTable<T> {
      * there is no {@link AbstractTTEntry} for the given key
      */
     public Tuple<Number, Number> get(final Game<T> key) {
+        return get(key, 0);
+    }
+
+    /**
+     * Like {@link #get(Game)}, but only uses an entry, if it has been found by
+     * a search at least as deep as the given one. The bounds of a shallower
+     * search are not valid for a deeper one.
+     *
+     * @param key
+     *         game state to get the evaluation value for
+     * @param minDepth
+     *         the minimal depth of the entry
+     *
+     * @return the bounds like {@link #get(Game)} or {@code null} if there is
+     * no entry for the given key with at least the given depth
+     */
+    public Tuple<Number, Number> get(final Game<T> key, final int minDepth) {
         if (key == null) {
             throw new IllegalArgumentException();
         }
@@ -180,6 +197,9 @@ public class TranspositionTable<T> {
         if (list != null) {
             for (AbstractTTEntry entry : list) {
                 if (entry.hashCode == hash) {
+                    if (entry.depth < minDepth) {
+                        return null;
+                    }
                     if (entry instanceof ExactTTEntry) {
                         return new Tuple<>(((ExactTTEntry) entry).exactValue,
                                 ((ExactTTEntry) entry).exactValue);
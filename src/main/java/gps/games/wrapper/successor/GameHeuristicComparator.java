@@ -16,6 +16,7 @@
  */
 package gps.games.wrapper.successor;
 
+import gps.games.wrapper.Game;
 import gps.games.wrapper.IHeuristic;
 import gps.games.wrapper.IHeuristicPlayer;
 import gps.games.wrapper.ISingleplayerHeuristic;
@@ -27,7 +28,8 @@ import java.util.Comparator;
 /**
  * A comparator for INodes. Sorts the Nodes by the natural order of the values
  * provided by the heuristic method. Also considers if a game has reached a
- * terminal state and uses the utility method in this case.
+ * terminal state and uses the utility method in this case. The value of each
+ * node is computed once and kept in a {@link NodeEvaluationCache}.
  *
  * @author haker@uni-bremen.de, alueck@uni-bremen.de
  */
@@ -40,6 +42,12 @@ public class GameHeuristicComparator
 
     private final IHeuristic heuristic;
 
+    /**
+     * The values of the compared nodes, so that every node is evaluated once
+     * per sort instead of once per comparison.
+     */
+    private final NodeEvaluationCache cache = new NodeEvaluationCache();
+
     /**
      * Constructs a new GameHeuristicComparator with the given {@link
      * IHeuristic}. This constructor should be used for singleplayer games.
@@ -70,6 +78,8 @@ public class GameHeuristicComparator
 
     public void setPlayer(final Player player) {
         this.player = player;
+        // the cached values are computed from the old player's viewpoint
+        cache.clear();
     }
 
     /**
@@ -94,9 +104,29 @@ public class GameHeuristicComparator
      */
     @Override
     public int compare(INode<?> o1, INode<?> o2) {
+        return Double.compare(cache.get(o1, this::evaluate),
+                cache.get(o2, this::evaluate));
+    }
+
+    /**
+     * Evaluates the given node. Uses the utility method for terminal states
+     * and the heuristic otherwise.
+     * <p>
+     * Throws a {@link RuntimeException}, if the game offers a heuristic method
+     * with player argument (i.e. is a multiplayer game), but {@link #heuristic}
+     * does not contain a {@link IHeuristicPlayer}. Also throws a
+     * {@link RuntimeException}, if the game is a multiplayer game, but
+     * {@link #player} is {@code null}.
+     *
+     * @param node
+     *         the node to evaluate
+     *
+     * @return the value of the node
+     */
+    private double evaluate(final INode<?> node) {
+        final Game<?> game = node.getGame();
         //multiplayer game
-        if (o1.getGame().hasUserHeuristicPlayerMethod()
-                && o2.getGame().hasUserHeuristicPlayerMethod()) {
+        if (game.hasUserHeuristicPlayerMethod()) {
             if (!(heuristic instanceof IHeuristicPlayer)) {
                 throw new RuntimeException(
                         "Heuristic must be of type IHeuristicPlayer, if the "
@@ -108,46 +138,25 @@ public class GameHeuristicComparator
                         "Player cannot be null, if the game offers a utility "
                                 + "method with player argument.");
             }
-            IHeuristicPlayer playerHeuristic = (IHeuristicPlayer) heuristic;
-            if (o1.getGame().hasUtilityPlayerMethod()
-                    && o2.getGame().hasUtilityPlayerMethod()) {
-                if (o1.getGame().isTerminal() && o2.getGame().isTerminal()) {
-                    return Double.compare(
-                            o1.getGame().getUtility(player).doubleValue(),
-                            o2.getGame().getUtility(player).doubleValue());
-                }
-                if (o1.getGame().isTerminal() && !o2.getGame().isTerminal()) {
-                    return Double.compare(
-                            o1.getGame().getUtility(player).doubleValue(),
-                            playerHeuristic.eval(o2.getGame(), player));
-                }
-                if (!o1.getGame().isTerminal() && o2.getGame().isTerminal()) {
-                    return Double.compare(
-                            playerHeuristic.eval(o1.getGame(), player),
-                            o2.getGame().getUtility(player).doubleValue());
-                }
+            if (game.hasUtilityPlayerMethod() && game.isTerminal()) {
+                return game.getUtility(player).doubleValue();
             }
-            return Double.compare(playerHeuristic.eval(o1.getGame(), player),
-                    playerHeuristic.eval(o2.getGame(), player));
+            return ((IHeuristicPlayer) heuristic).eval(game, player);
         }
         //singleplayer game
-        ISingleplayerHeuristic spHeuristic = (ISingleplayerHeuristic) heuristic;
-        if (o1.getGame().hasUtilityMethod()
-                && o2.getGame().hasUtilityMethod()) {
-            if (o1.getGame().isTerminal() && o2.getGame().isTerminal()) {
-                return Double.compare(o1.getGame().getUtility().doubleValue(),
-                        o2.getGame().getUtility().doubleValue());
-            }
-            if (o1.getGame().isTerminal() && !o2.getGame().isTerminal()) {
-                return Double.compare(o1.getGame().getUtility().doubleValue(),
-                        spHeuristic.eval(o2.getGame()));
-            }
-            if (!o1.getGame().isTerminal() && o2.getGame().isTerminal()) {
-                return Double.compare(spHeuristic.eval(o1.getGame()),
-                        o2.getGame().getUtility().doubleValue());
-            }
+        if (game.hasUtilityMethod() && game.isTerminal()) {
+            return game.getUtility().doubleValue();
         }
-        return Double.compare(spHeuristic.eval(o1.getGame()),
-                spHeuristic.eval(o2.getGame()));
+        return ((ISingleplayerHeuristic) heuristic).eval(game);
+    }
+
+    /**
+     * Returns the cache of the node values. The cache holds the compared
+     * nodes until it is cleared, so it should be cleared after sorting.
+     *
+     * @return the cache
+     */
+    public NodeEvaluationCache getCache() {
+        return cache;
     }
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.games.wrapper.successor;
+
+import java.io.Serializable;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Caches the evaluation of nodes during a search, so that comparators do not
+ * evaluate a node every time it is compared. The nodes are compared by
+ * identity, so every node is evaluated at most once until it is removed or the
+ * cache is cleared. The cache holds references to the nodes, so the owner
+ * should remove nodes or clear the cache when the nodes are not compared
+ * anymore, e.g. after sorting the successors of a node.
+ * <p>
+ * The numbers of hits and misses are kept over the whole search.
+ */
+public class NodeEvaluationCache implements Serializable {
+
+    private static final long serialVersionUID = -2046585834517432911L;
+
+    /**
+     * The cached values.
+     */
+    private final Map<INode<?>, Double> values = new IdentityHashMap<>();
+
+    /**
+     * The number of evaluations that have been answered by the cache.
+     */
+    private long hits = 0;
+
+    /**
+     * The number of evaluations that had to be computed.
+     */
+    private long misses = 0;
+
+    /**
+     * Returns the cached value of the given node or computes and caches it.
+     *
+     * @param pNode
+     *            the node
+     * @param pEvaluation
+     *            computes the value of the node, if it is not cached
+     * @return the value of the node
+     */
+    public double get(final INode<?> pNode,
+            final ToDoubleFunction<INode<?>> pEvaluation) {
+        final Double value = values.get(pNode);
+        if (value != null) {
+            hits++;
+            return value;
+        }
+        misses++;
+        final double computed = pEvaluation.applyAsDouble(pNode);
+        values.put(pNode, computed);
+        return computed;
+    }
+
+    /**
+     * Removes the given node from the cache.
+     *
+     * @param pNode
+     *            the node
+     */
+    public void remove(final INode<?> pNode) {
+        values.remove(pNode);
+    }
+
+    /**
+     * Removes all nodes from the cache. The numbers of hits and misses are
+     * kept.
+     */
+    public void clear() {
+        values.clear();
+    }
+
+    /**
+     * @return the number of cached nodes
+     */
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * @return the number of evaluations that have been answered by the cache
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of evaluations that had to be computed
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the share of the evaluations that have been answered by the
+     *         cache, {@code 0} if nothing has been evaluated yet
+     */
+    public double getHitRate() {
+        final long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
@@ -37,7 +37,7 @@ import javax.tools.Diagnostic;
 import javax.tools.JavaFileObject;
 
 import gps.IWrappedProblem;
-import gps.util.reflections.ReflectionsHelper;
+import gps.util.registry.ClassRegistry;
 import javassist.Modifier;
 
 /**
@@ -69,8 +69,8 @@ public class AnnotationProcessor extends AbstractProcessor {
         // initialize method implementers list
         methodImplementers.clear();
         methodImplementers
-                .addAll(ReflectionsHelper
-                        .getSubTypesOfCached("gps.preprocessing.*",
+                .addAll(ClassRegistry
+                        .getSubTypesOf("gps.preprocessing.*",
                                 AbstractImplementer.class)
                         .stream().filter(p -> {
                             return (!Modifier.isAbstract(p.getModifiers())
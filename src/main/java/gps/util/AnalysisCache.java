@@ -16,25 +16,48 @@
  */
 package gps.util;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Base64;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.esotericsoftware.kryo.KryoException;
+import com.google.common.collect.MapMaker;
 
 import gps.games.algorithm.analysis.GameAnalysisResult;
+import gps.games.util.StateFingerprint;
 import gps.games.wrapper.Game;
-import gps.util.reflections.ReflectionsHelper;
 
 /**
- * Analysis Cache class.
+ * Analysis Cache class. The results are keyed by a 64 bit fingerprint of the
+ * problem and stored in an append-only file. The file consists of a header
+ * followed by records of the form {@code (fingerprint, length, result)}, where
+ * the result is serialized with Kryo. When the file is read, only the
+ * fingerprints and the positions of the records are indexed. A result is
+ * deserialized the first time it is requested. Later records override earlier
+ * records with the same fingerprint. All methods are safe to be called
+ * concurrently.
  * 
  * @author haker@uni-bremen.de
  *
@@ -42,10 +65,26 @@ import gps.util.reflections.ReflectionsHelper;
 public class AnalysisCache {
 
     /**
-     * The file name the user specified by calling
+     * The first bytes of a cache file. Files that do not start with these
+     * bytes are read as a legacy cache, a single serialized {@link HashMap}.
+     */
+    private static final int MAGIC = 0x47504341; // "GPCA"
+
+    /**
+     * The version of the file format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The size of the file header in bytes.
+     */
+    private static final int HEADER_SIZE = 8;
+
+    /**
+     * The user specified file name or {@code null}. Modified by
      * {@link #setWriteFilename(String)}.
      */
-    private static String userFileName = null;
+    private static volatile String userFileName = null;
 
     /**
      * Set the filename for the cache file.
@@ -62,35 +101,109 @@ public class AnalysisCache {
      * The logger for this class
      */
     private static final Logger LOGGER = Logger
-            .getLogger(ReflectionsHelper.class.getCanonicalName());
+            .getLogger(AnalysisCache.class.getCanonicalName());
+
+    /**
+     * The results that are already deserialized or have been put to the cache.
+     */
+    private static final Map<Long, GameAnalysisResult> results = new ConcurrentHashMap<>();
+
+    /**
+     * The position of the serialized result of every fingerprint in
+     * {@link #data}.
+     */
+    private static final Map<Long, Integer> index = new ConcurrentHashMap<>();
+
+    /**
+     * The fingerprints of the results that have been put to the cache but were
+     * not written to the file yet.
+     */
+    private static final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The fingerprints of the problem instances that have been looked up.
+     * Compared by identity and weakly referenced, so that the fingerprint of
+     * a problem is calculated only once while it is in use.
+     */
+    private static final Map<Object, Long> keys = new MapMaker().weakKeys()
+            .makeMap();
+
+    /**
+     * The content of the cache file that has been read. Either memory mapped
+     * or read from the resource stream. Only duplicates of this buffer are
+     * used to read from it.
+     */
+    private static volatile ByteBuffer data = null;
 
     /**
-     * The map that represents the cache.
+     * {@code true} if the cache has been read or was replaced by an empty
+     * cache.
      */
-    private static HashMap<Object, GameAnalysisResult> cache = null;
+    private static volatile boolean initialized = false;
 
     /**
-     * Get the identifier of a game instance.
+     * Get the fingerprint of a game instance. Problems that implement
+     * {@link IButtSampleProblem} are identified by their identifier, all other
+     * problems by their serialized form. The fingerprint is calculated once
+     * per problem instance, so the problem must not be changed after it has
+     * been passed to the cache.
      * 
      * @param pGame
      *            The game instance.
-     * @return The identifier.
+     * @return The fingerprint.
      */
-    private static Object getKey(Game<?> pGame) {
-        final Object identifier;
-        final Object p = pGame.getProblem();
+    private static long getKey(Game<?> pGame) {
+        return keys.computeIfAbsent(pGame.getProblem(),
+                AnalysisCache::calculateKey);
+    }
+
+    /**
+     * Calculates the fingerprint of a problem, see {@link #getKey(Game)}.
+     * 
+     * @param p
+     *            The problem.
+     * @return The fingerprint.
+     */
+    private static long calculateKey(final Object p) {
         if (p instanceof IButtSampleProblem) {
-            final IButtSampleProblem bs = (IButtSampleProblem) p;
-            identifier = bs.getIdentifier();
-        } else {
-            // fallback if interface is not present
-            LOGGER.warning("the class " + p.getClass().getCanonicalName()
-                    + " does not implement"
-                    + IButtSampleProblem.class.getCanonicalName()
-                    + " using kryo to get an identifier (slow)");
-            identifier = KryoHelper.objectToString(p);
+            return identifierKey(((IButtSampleProblem) p).getIdentifier());
+        }
+        // fallback if interface is not present
+        LOGGER.fine("the class " + p.getClass().getCanonicalName()
+                + " does not implement "
+                + IButtSampleProblem.class.getCanonicalName()
+                + " using kryo to get an identifier (slow)");
+        return StateFingerprint.of(KryoHelper.objectToBytes(p));
+    }
+
+    /**
+     * Get the fingerprint of an identifier returned by
+     * {@link IButtSampleProblem#getIdentifier()}.
+     * 
+     * @param pIdentifier
+     *            The identifier.
+     * @return The fingerprint.
+     */
+    private static long identifierKey(final Object pIdentifier) {
+        if (pIdentifier instanceof String) {
+            return StateFingerprint.of(((String) pIdentifier)
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        return StateFingerprint.of(KryoHelper.objectToBytes(pIdentifier));
+    }
+
+    /**
+     * Reads the cache file if this has not happened yet.
+     */
+    private static void ensureInitialized() {
+        if (!initialized) {
+            synchronized (AnalysisCache.class) {
+                if (!initialized) {
+                    readCacheFromFile();
+                    initialized = true;
+                }
+            }
         }
-        return identifier;
     }
 
     /**
@@ -102,12 +215,36 @@ public class AnalysisCache {
      */
     public static <T> Optional<GameAnalysisResult> getCachedResult(
             final Game<T> pGame) {
-        if (cache == null) {
-            instantiateNewCache();
-            readCacheFromFile();
+        ensureInitialized();
+        final long key = getKey(pGame);
+        return Optional.ofNullable(
+                results.computeIfAbsent(key, AnalysisCache::load));
+    }
+
+    /**
+     * Deserializes the result of the given fingerprint from {@link #data}.
+     * 
+     * @param pKey
+     *            The fingerprint.
+     * @return The result or {@code null} if there is none or it can not be
+     *         read.
+     */
+    private static GameAnalysisResult load(final Long pKey) {
+        final Integer position = index.get(pKey);
+        final ByteBuffer buffer = data;
+        if (position == null || buffer == null) {
+            return null;
+        }
+        final ByteBuffer record = buffer.duplicate();
+        record.position(position - 4);
+        final byte[] bytes = new byte[record.getInt()];
+        record.get(bytes);
+        try {
+            return KryoHelper.bytesToObject(bytes, GameAnalysisResult.class);
+        } catch (RuntimeException e) {
+            LOGGER.warning("Cannot load cached analysis " + e.getMessage());
+            return null;
         }
-        final Object identifier = getKey(pGame);
-        return Optional.ofNullable((GameAnalysisResult) cache.get(identifier));
     }
 
     /**
@@ -130,8 +267,13 @@ public class AnalysisCache {
                     "putToCache", "pAnalysis is null. Nothing is cached.");
             return; // do nothing
         }
-        final Object identifier = getKey(pGame);
-        cache.put(identifier, pAnalysis);
+        ensureInitialized();
+        final long key = getKey(pGame);
+        synchronized (AnalysisCache.class) {
+            // a write to the file can not miss the new result
+            results.put(key, pAnalysis);
+            pending.add(key);
+        }
     }
 
     /**
@@ -142,35 +284,143 @@ public class AnalysisCache {
     /**
      * Read the cache from the resource file. Does nothing if some error occurs.
      * In case of error the cache stays empty and a warning is printed to the
-     * logger of this class.
+     * logger of this class. Only the index of the file is read, the results
+     * are deserialized when they are requested.
      */
-    public static void readCacheFromFile() {
+    public static synchronized void readCacheFromFile() {
         URL s = ClassLoader.getSystemClassLoader().getResource(FILENAME);
         if (s == null) {
             LOGGER.warning("Cannot load " + FILENAME + " from resources.");
             return;
         }
 
-        InputStream is;
         try {
-            is = s.openStream();
-            @SuppressWarnings("unchecked")
-            Map<Object, GameAnalysisResult> c = KryoHelper.streamToObject(is,
-                    HashMap.class);
-            is.close();
-            c.entrySet().stream()
-                    .forEach(d -> cache.put(d.getKey(), d.getValue()));
-        } catch (IOException | KryoException e) {
-            LOGGER.warning("Cannot load reflections cache " + e.getMessage());
+            final ByteBuffer buffer = readResource(s);
+            if (buffer.remaining() >= HEADER_SIZE
+                    && buffer.getInt(0) == MAGIC) {
+                if (buffer.getInt(4) != VERSION) {
+                    LOGGER.warning("Unknown version of " + FILENAME);
+                    return;
+                }
+                data = buffer;
+                indexRecords(buffer);
+            } else {
+                readLegacyCache(buffer);
+            }
+        } catch (IOException | KryoException | URISyntaxException e) {
+            LOGGER.warning("Cannot load analysis cache " + e.getMessage());
             // ignore and do nothing
         }
+    }
+
+    /**
+     * Reads the content of the resource. Files are memory mapped, all other
+     * resources are read into memory.
+     * 
+     * @param pUrl
+     *            The url of the resource.
+     * @return The content of the resource.
+     * @throws IOException
+     *             if the resource can not be read.
+     * @throws URISyntaxException
+     *             if the url of a file can not be converted.
+     */
+    private static ByteBuffer readResource(final URL pUrl)
+            throws IOException, URISyntaxException {
+        if ("file".equals(pUrl.getProtocol())) {
+            try (RandomAccessFile file = new RandomAccessFile(
+                    Paths.get(pUrl.toURI()).toFile(), "r");
+                    FileChannel channel = file.getChannel()) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                        channel.size());
+            }
+        }
+        try (InputStream is = pUrl.openStream()) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] chunk = new byte[8192];
+            int read;
+            while ((read = is.read(chunk)) != -1) {
+                out.write(chunk, 0, read);
+            }
+            return ByteBuffer.wrap(out.toByteArray());
+        }
+    }
+
+    /**
+     * Indexes the records of the given buffer. Stops at the first incomplete
+     * record, which can be the result of an interrupted write.
+     * 
+     * @param pBuffer
+     *            The content of the cache file including the header.
+     */
+    private static void indexRecords(final ByteBuffer pBuffer) {
+        final int limit = pBuffer.limit();
+        int position = HEADER_SIZE;
+        while (position + 12 <= limit) {
+            final long key = pBuffer.getLong(position);
+            final int length = pBuffer.getInt(position + 8);
+            if (length < 0 || position + 12 + length > limit) {
+                LOGGER.warning("Ignoring incomplete record in " + FILENAME);
+                break;
+            }
+            index.put(key, position + 12);
+            // a newer record replaces a loaded result
+            results.remove(key);
+            position += 12 + length;
+        }
+    }
 
+    /**
+     * Reads a cache that was written as a single serialized {@link HashMap}
+     * keyed by identifiers. All entries are marked as pending, so the next
+     * call of {@link #writeCacheToFile()} converts the file.
+     * 
+     * @param pBuffer
+     *            The content of the cache file.
+     */
+    private static void readLegacyCache(final ByteBuffer pBuffer) {
+        final byte[] bytes = new byte[pBuffer.remaining()];
+        pBuffer.duplicate().get(bytes);
+        @SuppressWarnings("unchecked")
+        Map<Object, GameAnalysisResult> c = KryoHelper.bytesToObject(bytes,
+                HashMap.class);
+        c.entrySet().stream().forEach(d -> {
+            final long key = legacyKey(d.getKey());
+            results.put(key, d.getValue());
+            pending.add(key);
+        });
     }
 
     /**
-     * Writes the current cache to the cache file.
+     * Get the fingerprint of an identifier of a legacy cache. Long strings
+     * that are valid Base64 are serialized problems, all other keys are
+     * identifiers of {@link IButtSampleProblem}s.
+     * 
+     * @param pIdentifier
+     *            The identifier.
+     * @return The fingerprint.
      */
-    public static void writeCacheToFile() {
+    private static long legacyKey(final Object pIdentifier) {
+        if (pIdentifier instanceof String
+                && ((String) pIdentifier).length() >= 64) {
+            try {
+                return StateFingerprint.of(
+                        Base64.getDecoder().decode((String) pIdentifier));
+            } catch (IllegalArgumentException e) {
+                // not Base64, so it is an identifier
+            }
+        }
+        return identifierKey(pIdentifier);
+    }
+
+    /**
+     * Writes the results that have been put to the cache since the last call
+     * to the cache file. If the file does not exist or is not in the current
+     * format, it is rewritten with all results of the cache. Only the written
+     * results are removed from {@link #pending}.
+     */
+    public static synchronized void writeCacheToFile() {
+        ensureInitialized();
         try {
             final URL url = ClassLoader.getSystemClassLoader()
                     .getResource(FILENAME);
@@ -182,26 +432,91 @@ public class AnalysisCache {
             final String path = userFileName == null ? url.getPath()
                     : userFileName;
             final File file = new File(path);
+            final boolean append = hasCurrentFormat(file);
+            if (!append) {
+                // the file may be the one that is mapped, so everything is
+                // deserialized before it is truncated
+                for (Long key : index.keySet()) {
+                    results.computeIfAbsent(key, AnalysisCache::load);
+                }
+                index.clear();
+                data = null;
+            }
 
-            final FileOutputStream pw = new FileOutputStream(file);
-            try {
-                KryoHelper.objectToBytes(cache);
-                pw.write(KryoHelper.objectToBytes(cache));
-                pw.flush();
-            } finally {
-                pw.close();
+            try (DataOutputStream out = new DataOutputStream(
+                    new FileOutputStream(file, append))) {
+                if (!append) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                }
+                final List<Long> written = new ArrayList<>(
+                        append ? pending : results.keySet());
+                for (Long key : written) {
+                    writeRecord(out, key, results.get(key));
+                }
+                out.flush();
+                pending.removeAll(written);
             }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Checks whether the given file exists and starts with the header of the
+     * current format.
+     * 
+     * @param pFile
+     *            The file.
+     * @return {@code true} if records can be appended to the file.
+     * @throws IOException
+     *             if the file can not be read.
+     */
+    private static boolean hasCurrentFormat(final File pFile)
+            throws IOException {
+        if (!pFile.isFile() || pFile.length() < HEADER_SIZE) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new FileInputStream(pFile))) {
+            return in.readInt() == MAGIC && in.readInt() == VERSION;
+        }
+    }
+
+    /**
+     * Writes a single record.
+     * 
+     * @param pOut
+     *            The stream to write to.
+     * @param pKey
+     *            The fingerprint.
+     * @param pResult
+     *            The result. If {@code null} nothing is written.
+     * @throws IOException
+     *             if the record can not be written.
+     */
+    private static void writeRecord(final DataOutputStream pOut,
+            final long pKey, final GameAnalysisResult pResult)
+            throws IOException {
+        if (pResult == null) {
+            return;
+        }
+        final byte[] bytes = KryoHelper.objectToBytes(pResult);
+        pOut.writeLong(pKey);
+        pOut.writeInt(bytes.length);
+        pOut.write(bytes);
+    }
+
     /**
      * Clear the current cache. All subsequent calls to
      * {@link AnalysisCache#getCachedResult(Game)} must use the analyser to load
      * data.
      */
-    public static void instantiateNewCache() {
-        cache = new HashMap<>();
+    public static synchronized void instantiateNewCache() {
+        results.clear();
+        index.clear();
+        pending.clear();
+        data = null;
+        initialized = true;
     }
 }
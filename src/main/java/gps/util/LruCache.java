@@ -0,0 +1,197 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A bounded cache that evicts the least recently used entries. The cache is
+ * split into segments that are locked independently, so it can be used by
+ * several threads at once. Each segment holds at most its share of the
+ * capacity, thus the eviction order is only approximately the global LRU
+ * order.
+ *
+ * @param <K>
+ *            The type of the keys.
+ * @param <V>
+ *            The type of the values.
+ */
+public final class LruCache<K, V> {
+
+    /**
+     * The default number of segments.
+     */
+    public static final int DEFAULT_CONCURRENCY = 16;
+
+    /**
+     * The segments. The size is a power of two.
+     */
+    private final List<Segment<K, V>> segments;
+
+    /**
+     * Construct a cache with {@link #DEFAULT_CONCURRENCY} segments.
+     * 
+     * @param pCapacity
+     *            The maximum number of entries.
+     */
+    public LruCache(final int pCapacity) {
+        this(pCapacity, DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * Construct a cache.
+     * 
+     * @param pCapacity
+     *            The maximum number of entries. Must be positive.
+     * @param pConcurrency
+     *            The expected number of threads that use the cache at once.
+     *            Rounded up to a power of two and limited by the capacity.
+     */
+    public LruCache(final int pCapacity, final int pConcurrency) {
+        if (pCapacity <= 0) {
+            throw new IllegalArgumentException("pCapacity must be positive");
+        }
+        if (pConcurrency <= 0) {
+            throw new IllegalArgumentException(
+                    "pConcurrency must be positive");
+        }
+        int n = 1;
+        while (n < pConcurrency && n * 2 <= pCapacity) {
+            n *= 2;
+        }
+        final List<Segment<K, V>> s = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            // distribute the remainder over the first segments
+            s.add(new Segment<>(pCapacity / n + (i < pCapacity % n ? 1 : 0)));
+        }
+        segments = Collections.unmodifiableList(s);
+    }
+
+    /**
+     * Get the segment of the given key.
+     */
+    private Segment<K, V> segment(final Object pKey) {
+        int h = pKey.hashCode();
+        h ^= h >>> 16;
+        return segments.get(h & (segments.size() - 1));
+    }
+
+    /**
+     * Get the value of the given key and mark it as recently used.
+     * 
+     * @param pKey
+     *            The key. May not be {@code null}.
+     * @return The value or {@code null} if the key is not cached.
+     */
+    public V get(final K pKey) {
+        final Segment<K, V> s = segment(pKey);
+        synchronized (s) {
+            return s.get(pKey);
+        }
+    }
+
+    /**
+     * Cache the given value.
+     * 
+     * @param pKey
+     *            The key. May not be {@code null}.
+     * @param pValue
+     *            The value. May not be {@code null}.
+     */
+    public void put(final K pKey, final V pValue) {
+        if (pValue == null) {
+            throw new IllegalArgumentException("pValue may not be null");
+        }
+        final Segment<K, V> s = segment(pKey);
+        synchronized (s) {
+            s.put(pKey, pValue);
+        }
+    }
+
+    /**
+     * Get the value of the given key or compute and cache it if the key is
+     * not cached. The function is called while the segment of the key is
+     * locked, so it should be cheap.
+     * 
+     * @param pKey
+     *            The key. May not be {@code null}.
+     * @param pFunction
+     *            Computes the value. May not return {@code null}.
+     * @return The cached or computed value.
+     */
+    public V computeIfAbsent(final K pKey,
+            final Function<? super K, ? extends V> pFunction) {
+        final Segment<K, V> s = segment(pKey);
+        synchronized (s) {
+            return s.computeIfAbsent(pKey, pFunction);
+        }
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public void clear() {
+        for (Segment<K, V> s : segments) {
+            synchronized (s) {
+                s.clear();
+            }
+        }
+    }
+
+    /**
+     * Get the number of cached entries.
+     * 
+     * @return The size.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> s : segments) {
+            synchronized (s) {
+                size += s.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * A part of the cache, ordered by access.
+     */
+    private static final class Segment<K, V> extends LinkedHashMap<K, V> {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The maximum number of entries of this segment.
+         */
+        private final int capacity;
+
+        Segment(final int pCapacity) {
+            super(16, 0.75f, true);
+            capacity = pCapacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.util.registry;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import gps.util.reflections.ReflectionsHelper;
+
+/**
+ * Provides the implementations of the types listed in
+ * {@link ClassRegistryGenerator#REGISTERED_TYPES} without scanning the class
+ * path. The implementations are read from registry files that are generated
+ * at build time by {@link ClassRegistryGenerator}. Like the files in
+ * {@code META-INF/services}, a registry file is named after the registered
+ * type and lists the names of the implementing classes, one per line. If no
+ * registry file exists, e.g. when the classes were compiled without the build
+ * script, the class path is scanned with {@link ReflectionsHelper}.
+ */
+public final class ClassRegistry {
+
+    /**
+     * The directory of the registry files in the class path.
+     */
+    public static final String REGISTRY_DIRECTORY = "META-INF/gps/registry/";
+
+    /**
+     * The logger for this class
+     */
+    private static final Logger LOGGER = Logger
+            .getLogger(ClassRegistry.class.getCanonicalName());
+
+    /**
+     * The implementations that have been read so far, by registered type.
+     */
+    private static final Map<Class<?>, Set<? extends Class<?>>> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the registered implementations of the given type. For annotation
+     * types the registered annotations are returned.
+     *
+     * @param path
+     *            The package that is scanned if no registry file exists. See
+     *            {@link ReflectionsHelper#getSubTypesOfCached(String, Class)}.
+     * @param type
+     *            The registered type.
+     * @return The classes that implement the given type. Is never
+     *         {@code null}.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Set<Class<? extends T>> getSubTypesOf(final String path,
+            final Class<T> type) {
+        Set<? extends Class<?>> ret = cache.get(type);
+        if (ret == null) {
+            ret = readRegistry(type);
+            if (ret == null) {
+                LOGGER.warning("No registry for " + type.getName()
+                        + ", scanning the class path");
+                ret = ReflectionsHelper.getSubTypesOfCached(path, type);
+            }
+            cache.put(type, ret);
+        }
+        return (Set<Class<? extends T>>) ret;
+    }
+
+    /**
+     * Reads all registry files of the given type in the class path.
+     *
+     * @param type
+     *            The registered type.
+     * @return The classes listed in the files or {@code null} if there is no
+     *         registry file for the type.
+     */
+    private static <T> Set<Class<? extends T>> readRegistry(
+            final Class<T> type) {
+        final ClassLoader loader = ClassRegistry.class.getClassLoader();
+        final Set<Class<? extends T>> classes = new LinkedHashSet<>();
+        boolean found = false;
+        try {
+            final Enumeration<URL> urls = loader
+                    .getResources(REGISTRY_DIRECTORY + type.getName());
+            while (urls.hasMoreElements()) {
+                found = true;
+                final URL url = urls.nextElement();
+                try (BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(url.openStream(),
+                                StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        line = line.trim();
+                        if (line.isEmpty() || line.startsWith("#")) {
+                            continue;
+                        }
+                        classes.add(Class.forName(line, false, loader)
+                                .asSubclass(type));
+                    }
+                }
+            }
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            LOGGER.warning("Cannot read registry for " + type.getName() + ": "
+                    + e.getMessage());
+            return null;
+        }
+        return found ? Collections.unmodifiableSet(classes) : null;
+    }
+
+    /**
+     * Singleton class does not provide a constructor
+     */
+    private ClassRegistry() {
+
+    }
+}
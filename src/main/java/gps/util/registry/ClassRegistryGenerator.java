@@ -0,0 +1,159 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package gps.util.registry;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import gps.ISolverModule;
+import gps.common.AbstractAlgorithm;
+import gps.preprocessing.AbstractImplementer;
+
+/**
+ * Generates the registry files read by {@link ClassRegistry}. Is run by the
+ * build script after the classes have been compiled. Every class in the
+ * classes directory that is a concrete implementation of one of the
+ * {@link #REGISTERED_TYPES} is listed in the registry file of that type. For
+ * {@link Annotation} the annotation types of the {@link #ANNOTATION_PACKAGE}
+ * are listed instead.
+ *
+ * <p>
+ * Usage: {@code ClassRegistryGenerator <classes directory> <output directory>}
+ * </p>
+ */
+public final class ClassRegistryGenerator {
+
+    /**
+     * The types that get a registry file.
+     */
+    static final List<Class<?>> REGISTERED_TYPES = Collections
+            .unmodifiableList(Arrays.asList(ISolverModule.class,
+                    AbstractAlgorithm.class, AbstractImplementer.class,
+                    Annotation.class));
+
+    /**
+     * The package of the annotations listed in the registry file of
+     * {@link Annotation}.
+     */
+    static final String ANNOTATION_PACKAGE = "gps.annotations";
+
+    /**
+     * Generates the registry files.
+     *
+     * @param args
+     *            The directory that contains the compiled classes and the
+     *            directory the registry is written to.
+     * @throws IOException
+     *             if the classes can not be listed or the registry can not be
+     *             written.
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println(
+                    "Usage: ClassRegistryGenerator <classes directory> <output directory>");
+            System.exit(1);
+        }
+        final Path classesDir = Paths.get(args[0]);
+        final List<Class<?>> classes = loadClasses(classesDir);
+        final Path registryDir = Paths.get(args[1],
+                ClassRegistry.REGISTRY_DIRECTORY);
+        Files.createDirectories(registryDir);
+        for (Class<?> type : REGISTERED_TYPES) {
+            final List<String> lines = classes.stream()
+                    .filter(c -> isRegistered(type, c)).map(Class::getName)
+                    .sorted().collect(Collectors.toList());
+            Files.write(registryDir.resolve(type.getName()), lines,
+                    StandardCharsets.UTF_8);
+            System.out.println("registered " + lines.size() + " classes for "
+                    + type.getName());
+        }
+    }
+
+    /**
+     * Checks whether the class is listed in the registry file of the type.
+     *
+     * @param type
+     *            The registered type.
+     * @param clazz
+     *            The class to check.
+     * @return {@code true} if the class is listed.
+     */
+    private static boolean isRegistered(final Class<?> type,
+            final Class<?> clazz) {
+        if (type == Annotation.class) {
+            return clazz.isAnnotation() && clazz.getPackage() != null
+                    && ANNOTATION_PACKAGE.equals(clazz.getPackage().getName());
+        }
+        return type.isAssignableFrom(clazz) && !clazz.isInterface()
+                && !Modifier.isAbstract(clazz.getModifiers())
+                && !clazz.isAnonymousClass() && !clazz.isLocalClass();
+    }
+
+    /**
+     * Loads all classes in the given directory without initializing them.
+     * Classes that can not be loaded are skipped.
+     *
+     * @param classesDir
+     *            The directory that contains the compiled classes.
+     * @return The loaded classes.
+     * @throws IOException
+     *             if the directory can not be listed.
+     */
+    private static List<Class<?>> loadClasses(final Path classesDir)
+            throws IOException {
+        final ClassLoader loader = ClassRegistryGenerator.class
+                .getClassLoader();
+        final List<Class<?>> classes = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(classesDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                final String name = classesDir.relativize(file).toString();
+                if (!name.endsWith(".class")
+                        || name.endsWith("module-info.class")) {
+                    continue;
+                }
+                final String className = name
+                        .substring(0, name.length() - ".class".length())
+                        .replace(File.separatorChar, '.');
+                try {
+                    classes.add(Class.forName(className, false, loader));
+                } catch (ClassNotFoundException | LinkageError e) {
+                    System.err.println("skipping " + className + ": " + e);
+                }
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * Singleton class does not provide a constructor
+     */
+    private ClassRegistryGenerator() {
+
+    }
+}
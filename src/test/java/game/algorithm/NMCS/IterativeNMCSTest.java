@@ -25,6 +25,8 @@ import gps.games.algorithm.nestedMonteCarloSearch.HeuristicUsage;
 import gps.games.algorithm.nestedMonteCarloSearch.IterativeNMCS;
 import gps.games.algorithm.nestedMonteCarloSearch.NMCSGameTree;
 import gps.games.algorithm.nestedMonteCarloSearch.NMCSPathStorage;
+import gps.games.algorithm.recycling.SearchRecycler;
+import gps.games.algorithm.recycling.SearchRecyclerAlgorithm;
 import gps.games.wrapper.Action;
 import gps.games.wrapper.Game;
 import gps.util.Tuple;
@@ -34,6 +36,7 @@ import org.junit.Test;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -386,4 +389,48 @@ public class IterativeNMCSTest {
         testGame = game.copy();
         actions.forEach(testGame::applyAction);
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests whether iterative nmcs with a recycler returns after its time
+     * limit and leaves no iteration or recycler running afterwards.
+     */
+    @Test
+    public void stopsAndIdlesWithRecycler() throws InterruptedException {
+        Hanoi hanoi = new Hanoi(7);
+        Game<Hanoi> game = new Game<>(GPS.wrap(hanoi));
+        IterativeNMCS<Hanoi> inmcs = new IterativeNMCS<>(
+                new GamesModule<>(game),
+                new Tuple<>(game.getUserHeuristic(), HeuristicUsage.CONSTANT),
+                new NMCSGameTree<>(game.copy().asRoot()), true, true, 2,
+                new SearchRecycler<>(240,
+                        SearchRecyclerAlgorithm.BREADTH_FIRST_SEARCH));
+        inmcs.useTimeLimit(500);
+        inmcs.terminateOnFoundSolution(false);
+        long start = System.currentTimeMillis();
+        inmcs.startAlgorithm();
+        assertTrue(System.currentTimeMillis() - start < 2000);
+        assertTrue(inmcs.moves().isPresent());
+        long deadline = System.currentTimeMillis() + 2000;
+        while (busyIterationThreads() > 0
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(0, busyIterationThreads());
+        // The threads must stay idle, no orphaned iteration may restart.
+        Thread.sleep(500);
+        assertEquals(0, busyIterationThreads());
+        assertFalse(inmcs.moves().get().isEmpty());
+    }
+
+    /**
+     * Counts the runnable threads of the iterative nmcs executor.
+     *
+     * @return The number of runnable threads.
+     */
+    private static long busyIterationThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().startsWith("iterative-nmcs-"))
+                .filter(t -> t.getState() == Thread.State.RUNNABLE)
+                .count();
+    }
+}
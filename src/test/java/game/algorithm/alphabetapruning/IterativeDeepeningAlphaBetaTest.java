@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package game.algorithm.alphabetapruning;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Optional;
+
+import org.junit.Test;
+
+import game.connect4.ConnectGame;
+import gps.GPS;
+import gps.games.GamesModule;
+import gps.games.algorithm.alphabetapruning.IterativeDeepeningAlphaBeta;
+import gps.games.wrapper.Action;
+import gps.games.wrapper.Game;
+
+public class IterativeDeepeningAlphaBetaTest {
+
+    @Test
+    public void findsWinningMove() {
+        final Game<ConnectGame> game = new Game<>(
+                GPS.wrap(ConnectGame.createConnect4()));
+        // player 0 has three discs in column 0, player 1 in column 1
+        for (int i = 0; i < 3; i++) {
+            game.applyAction(new Action(0));
+            game.applyAction(new Action(1));
+        }
+        final GamesModule<ConnectGame> mod = new GamesModule<>(game);
+        mod.setDepthlimit(4);
+        final IterativeDeepeningAlphaBeta<ConnectGame> alg = new IterativeDeepeningAlphaBeta<>(
+                mod);
+        assertEquals(Optional.of(new Action(0)), alg.bestMove());
+        // the win is found at depth 1, the deeper iterations keep it
+        assertEquals(4, alg.getCompletedDepth());
+    }
+
+    @Test
+    public void stopsAtDeadline() {
+        final Game<ConnectGame> game = new Game<>(
+                GPS.wrap(ConnectGame.createConnect4()));
+        final GamesModule<ConnectGame> mod = new GamesModule<>(game);
+        final IterativeDeepeningAlphaBeta<ConnectGame> alg = new IterativeDeepeningAlphaBeta<>(
+                mod);
+        final long start = System.currentTimeMillis();
+        alg.setDeadline(start + 300);
+        assertTrue(alg.bestMove().isPresent());
+        assertTrue(System.currentTimeMillis() - start < 3000);
+        assertTrue(alg.getCompletedDepth() >= 1);
+    }
+
+    @Test
+    public void stopsWhenSearchedCompletely() {
+        final Game<ConnectGame> game = new Game<>(
+                GPS.wrap(new ConnectGame(2, 2, 2, 2)));
+        final GamesModule<ConnectGame> mod = new GamesModule<>(game);
+        final IterativeDeepeningAlphaBeta<ConnectGame> alg = new IterativeDeepeningAlphaBeta<>(
+                mod);
+        assertTrue(alg.bestMove().isPresent());
+        assertTrue(alg.getCompletedDepth() <= 4);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package game.algorithm.alphabetapruning;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import game.connect4.ConnectGame;
+import gps.GPS;
+import gps.games.GamesModule;
+import gps.games.algorithm.AbstractGameAlgorithm;
+import gps.games.algorithm.alphabetapruning.AlphaBetaPruning;
+import gps.games.algorithm.alphabetapruning.IterativeDeepeningAlphaBeta;
+import gps.games.algorithm.mtdf.MTDf;
+import gps.games.wrapper.Action;
+import gps.games.wrapper.Game;
+import gps.games.wrapper.successor.Node;
+
+/**
+ * The killer and history moves only change the order of the search, so the
+ * searches using them have to choose moves of the best minimax value. The
+ * values are computed by full window searches of every move.
+ */
+public class MoveOrderingTest {
+
+    private static final int DEPTH = 5;
+
+    private static final int[][] POSITIONS = { {}, { 3 }, { 3, 3, 2 },
+            { 0, 1, 2, 3, 4 }, { 3, 2, 3, 2, 4, 4 } };
+
+    @Test
+    public void alphaBetaChoosesBestValue() {
+        assertBestValue(AlphaBetaPruning::new);
+    }
+
+    @Test
+    public void iterativeDeepeningChoosesBestValue() {
+        assertBestValue(IterativeDeepeningAlphaBeta::new);
+    }
+
+    @Test
+    public void mtdfChoosesBestValue() {
+        assertBestValue(MTDf::new);
+    }
+
+    private static void assertBestValue(
+            final Function<GamesModule<ConnectGame>, AbstractGameAlgorithm<ConnectGame>> algorithm) {
+        for (final int[] position : POSITIONS) {
+            final Game<ConnectGame> game = new Game<>(
+                    GPS.wrap(ConnectGame.createConnect4()));
+            for (final int action : position) {
+                game.applyAction(new Action(action));
+            }
+            double best = -Double.MAX_VALUE;
+            for (final Action action : game.getActions()) {
+                best = Math.max(best, value(game, action));
+            }
+            final GamesModule<ConnectGame> mod = new GamesModule<>(
+                    game.copy());
+            mod.setDepthlimit(DEPTH);
+            final Action move = algorithm.apply(mod).bestMove().get();
+            assertEquals(best, value(game, move), 0);
+        }
+    }
+
+    /**
+     * @return the minimax value of the given move for the player to move in
+     *         the given game, searched to {@link #DEPTH}
+     */
+    private static double value(final Game<ConnectGame> game,
+            final Action action) {
+        final Game<ConnectGame> next = game.copy();
+        next.applyAction(action);
+        final AlphaBetaPruning<ConnectGame> alphaBeta = new AlphaBetaPruning<>(
+                new GamesModule<>(game.copy()));
+        alphaBeta.setMtdfDepthLimit(DEPTH - 1);
+        return alphaBeta.withMemory(new Node<>(next), -Double.MAX_VALUE,
+                Double.MAX_VALUE, 100000);
+    }
+}
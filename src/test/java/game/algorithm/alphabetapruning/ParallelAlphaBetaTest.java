@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package game.algorithm.alphabetapruning;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Optional;
+
+import org.junit.Test;
+
+import game.connect4.ConnectGame;
+import gps.GPS;
+import gps.games.GamesModule;
+import gps.games.algorithm.alphabetapruning.AlphaBetaPruning;
+import gps.games.algorithm.alphabetapruning.ParallelAlphaBeta;
+import gps.games.wrapper.Action;
+import gps.games.wrapper.Game;
+import gps.games.wrapper.successor.Node;
+
+public class ParallelAlphaBetaTest {
+
+    @Test
+    public void findsWinningMove() {
+        final Game<ConnectGame> game = new Game<>(
+                GPS.wrap(ConnectGame.createConnect4()));
+        // player 0 has three discs in column 0, player 1 in column 1
+        for (int i = 0; i < 3; i++) {
+            game.applyAction(new Action(0));
+            game.applyAction(new Action(1));
+        }
+        assertEquals(Optional.of(new Action(0)), bestMove(game, 6));
+    }
+
+    @Test
+    public void blocksOpponent() {
+        final Game<ConnectGame> game = new Game<>(
+                GPS.wrap(ConnectGame.createConnect4()));
+        // player 1 has three discs in column 3, player 0 has to block
+        game.applyAction(new Action(0));
+        game.applyAction(new Action(3));
+        game.applyAction(new Action(6));
+        game.applyAction(new Action(3));
+        game.applyAction(new Action(0));
+        game.applyAction(new Action(3));
+        assertEquals(Optional.of(new Action(3)), bestMove(game, 6));
+    }
+
+    @Test
+    public void sameValueAsSequentialSearch() {
+        final int[][] positions = { {}, { 3 }, { 3, 3, 2 }, { 0, 1, 2, 3, 4 },
+                { 3, 2, 3, 2, 4, 4 }, { 3, 3, 3, 3, 2, 4, 1 } };
+        for (final int[] position : positions) {
+            final Game<ConnectGame> game = new Game<>(
+                    GPS.wrap(ConnectGame.createConnect4()));
+            for (final int action : position) {
+                game.applyAction(new Action(action));
+            }
+            final GamesModule<ConnectGame> mod = new GamesModule<>(
+                    game.copy());
+            mod.setDepthlimit(5);
+            final Action sequential = new AlphaBetaPruning<>(mod).bestMove()
+                    .get();
+            final Action parallel = bestMove(game, 5).get();
+            assertEquals(value(game, sequential, 5), value(game, parallel, 5),
+                    0);
+        }
+    }
+
+    /**
+     * @return the minimax value of the given move for the player to move in
+     *         the given game
+     */
+    private static double value(final Game<ConnectGame> game,
+            final Action action, final int depth) {
+        final Game<ConnectGame> next = game.copy();
+        next.applyAction(action);
+        final AlphaBetaPruning<ConnectGame> alphaBeta = new AlphaBetaPruning<>(
+                new GamesModule<>(game.copy()));
+        alphaBeta.setMtdfDepthLimit(depth - 1);
+        return alphaBeta.withMemory(new Node<>(next), -Double.MAX_VALUE,
+                Double.MAX_VALUE, 100000);
+    }
+
+    private static Optional<Action> bestMove(final Game<ConnectGame> game,
+            final int depth) {
+        final GamesModule<ConnectGame> mod = new GamesModule<>(game);
+        mod.setDepthlimit(depth);
+        final ParallelAlphaBeta<ConnectGame> alg = new ParallelAlphaBeta<>(
+                mod);
+        alg.setParallelism(4);
+        return alg.bestMove();
+    }
+}
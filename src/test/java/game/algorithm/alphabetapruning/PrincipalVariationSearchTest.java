@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package game.algorithm.alphabetapruning;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Optional;
+
+import org.junit.Test;
+
+import game.connect4.ConnectGame;
+import gps.GPS;
+import gps.common.BenchmarkField;
+import gps.games.GamesModule;
+import gps.games.algorithm.AbstractGameAlgorithm;
+import gps.games.algorithm.alphabetapruning.IterativeDeepeningAlphaBeta;
+import gps.games.algorithm.alphabetapruning.PrincipalVariationSearch;
+import gps.games.wrapper.Action;
+import gps.games.wrapper.Game;
+
+public class PrincipalVariationSearchTest {
+
+    @Test
+    public void findsWinningMove() {
+        final Game<ConnectGame> game = new Game<>(
+                GPS.wrap(ConnectGame.createConnect4()));
+        // player 0 has three discs in column 0, player 1 in column 1
+        for (int i = 0; i < 3; i++) {
+            game.applyAction(new Action(0));
+            game.applyAction(new Action(1));
+        }
+        final GamesModule<ConnectGame> mod = new GamesModule<>(game);
+        mod.setDepthlimit(4);
+        final PrincipalVariationSearch<ConnectGame> alg = new PrincipalVariationSearch<>(
+                mod);
+        assertEquals(Optional.of(new Action(0)), alg.bestMove());
+        assertEquals(4, alg.getCompletedDepth());
+    }
+
+    @Test
+    public void sameMoveWithLessNodes() {
+        final GamesModule<ConnectGame> alphaBetaModule = module();
+        final AbstractGameAlgorithm<ConnectGame> alphaBeta = new IterativeDeepeningAlphaBeta<>(
+                alphaBetaModule);
+        final GamesModule<ConnectGame> pvsModule = module();
+        final AbstractGameAlgorithm<ConnectGame> pvs = new PrincipalVariationSearch<>(
+                pvsModule);
+        assertEquals(alphaBeta.bestMove(), pvs.bestMove());
+        assertTrue(processedNodes(pvs) < processedNodes(alphaBeta));
+    }
+
+    private static GamesModule<ConnectGame> module() {
+        final GamesModule<ConnectGame> mod = new GamesModule<>(
+                new Game<>(GPS.wrap(ConnectGame.createConnect4())));
+        mod.setDepthlimit(6);
+        return mod;
+    }
+
+    private static int processedNodes(
+            final AbstractGameAlgorithm<ConnectGame> alg) {
+        return (Integer) alg.getBenchmark()
+                .getField(BenchmarkField.PROCESSED_NODES).get();
+    }
+}
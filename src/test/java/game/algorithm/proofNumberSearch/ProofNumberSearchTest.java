@@ -0,0 +1,197 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package game.algorithm.proofNumberSearch;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Test;
+
+import game.connect4.ConnectGame;
+import gps.GPS;
+import gps.annotations.Move;
+import gps.annotations.Player;
+import gps.annotations.TerminalTest;
+import gps.annotations.Utility;
+import gps.games.GamesModule;
+import gps.games.algorithm.proofNumberSearch.ProofNumberSearch;
+import gps.games.wrapper.Action;
+import gps.games.wrapper.Game;
+
+public class ProofNumberSearchTest {
+
+    private static Optional<Boolean> isWinnable(final Game<ConnectGame> game,
+            final int tableSize) {
+        final GamesModule<ConnectGame> mod = new GamesModule<>(game);
+        final ProofNumberSearch<ConnectGame> alg = new ProofNumberSearch<>(
+                mod);
+        alg.setTableSize(tableSize);
+        return alg.isWinnable();
+    }
+
+    @Test
+    public void provesWin() {
+        // two in a row on a 2x2 board is always won by the first player
+        final Game<ConnectGame> game = new Game<>(
+                GPS.wrap(new ConnectGame(2, 2, 2, 2)));
+        assertEquals(Optional.of(true), isWinnable(game, 1 << 10));
+        game.applyAction(new Action(0));
+        assertEquals(Optional.of(false), isWinnable(game, 1 << 10));
+    }
+
+    @Test
+    public void disprovesDraw() {
+        // a single column never contains two adjacent tokens of one player
+        final Game<ConnectGame> game = new Game<>(
+                GPS.wrap(new ConnectGame(2, 1, 4, 2)));
+        assertEquals(Optional.of(false), isWinnable(game, 1 << 10));
+    }
+
+    @Test
+    public void smallTable() {
+        final Game<ConnectGame> game = new Game<>(
+                GPS.wrap(new ConnectGame(2, 3, 3, 3)));
+        assertEquals(isWinnable(game, 1 << 16), isWinnable(game, 4));
+    }
+
+    @Test
+    public void drawIsNotWon() {
+        // the first player can only draw or let the second player win
+        final int[][] edges = { { 1, 2 }, {}, { 3 }, {} };
+        final int[] players = { 1, 1, 2, 1 };
+        final int[] winners = { 0, 0, 0, 2 };
+        assertEquals(Optional.of(false), new ProofNumberSearch<>(
+                new GamesModule<>(new Game<>(GPS.wrap(
+                        new GraphGame(edges, players, winners)))))
+                                .isWinnable());
+    }
+
+    @Test
+    public void repetitionsAreNotStored() {
+        // 4 is first searched below 2 and disproven, since its only move
+        // repeats 2. Below 7 it is won by moving to 2 and then to 5.
+        final int[][] edges = { { 1 }, { 2, 7 }, { 3 }, { 4, 5 }, { 2 }, { 6 },
+                {}, { 4, 8, 9 }, { 10 }, { 10 }, {} };
+        final int[] players = { 1, 2, 2, 1, 1, 2, 1, 1, 2, 2, 1 };
+        final int[] winners = { 0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 2 };
+        assertEquals(Optional.of(true), new ProofNumberSearch<>(
+                new GamesModule<>(new Game<>(GPS.wrap(
+                        new GraphGame(edges, players, winners)))))
+                                .isWinnable());
+    }
+
+    @Test
+    public void hashCollisionsAreNoRepetitions() {
+        // all states share the fingerprint of the initial state
+        final int[][] edges = { { 1 }, { 2 }, {} };
+        final int[] players = { 1, 2, 1 };
+        final int[] winners = { 0, 0, 1 };
+        final GraphGame graph = new GraphGame(edges, players, winners);
+        graph.colliding = true;
+        assertEquals(Optional.of(true), new ProofNumberSearch<>(
+                new GamesModule<>(new Game<>(GPS.wrap(graph)))).isWinnable());
+    }
+
+    @Test
+    public void depthLimit() {
+        final Game<ConnectGame> game = new Game<>(
+                GPS.wrap(new ConnectGame(2, 1, 4, 2)));
+        final GamesModule<ConnectGame> mod = new GamesModule<>(game);
+        mod.setDepthlimit(2);
+        assertEquals(Optional.empty(),
+                new ProofNumberSearch<>(mod).isWinnable());
+    }
+
+    /**
+     * A game on a directed graph. The players move a token along the edges,
+     * a node without edges ends the game. The winner gets 100, the loser 0,
+     * a draw 50 for both.
+     */
+    public static class GraphGame {
+
+        public int[][] edges;
+
+        public int[] players;
+
+        /**
+         * The winner of every terminal node, 0 for a draw.
+         */
+        public int[] winners;
+
+        public int node;
+
+        /**
+         * If set, all states have the same hash code.
+         */
+        public boolean colliding;
+
+        public GraphGame() {
+        }
+
+        public GraphGame(final int[][] pEdges, final int[] pPlayers,
+                final int[] pWinners) {
+            edges = pEdges;
+            players = pPlayers;
+            winners = pWinners;
+        }
+
+        @Player
+        public int getPlayer() {
+            return players[node];
+        }
+
+        @Utility
+        public int getUtility(final Integer pPlayer) {
+            if (winners[node] == 0) {
+                return 50;
+            }
+            return winners[node] == pPlayer ? 100 : 0;
+        }
+
+        @TerminalTest
+        public boolean isTerminal() {
+            return edges[node].length == 0;
+        }
+
+        @gps.annotations.Action
+        public List<Integer> getActions() {
+            final List<Integer> actions = new ArrayList<>();
+            for (int e : edges[node]) {
+                actions.add(e);
+            }
+            return actions;
+        }
+
+        @Move
+        public void move(final Integer pNode) {
+            node = pNode;
+        }
+
+        @Override
+        public int hashCode() {
+            return colliding ? 0 : node;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof GraphGame && ((GraphGame) obj).node == node;
+        }
+    }
+}
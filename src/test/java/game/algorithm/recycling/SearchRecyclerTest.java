@@ -108,6 +108,20 @@ public class SearchRecyclerTest {
                 SearchRecyclerAlgorithm.DEPTH_FIRST_SEARCH);
     }
 
+    @Test
+    public void recyclingHanoi7ParallelSearchRecycler120() {
+        Hanoi puzzle = new Hanoi(7);
+        recyclingComparison(puzzle, 1000, HeuristicUsage.CONSTANT, 120, 1,
+                true, SearchRecyclerAlgorithm.ALL, 4);
+    }
+
+    @Test
+    public void recyclingGem3ParallelSearchRecycler240() {
+        GemPuzzle puzzle = new GemPuzzle(3, 0);
+        recyclingComparison(puzzle, 2500, HeuristicUsage.CONSTANT, 240, 1,
+                false, SearchRecyclerAlgorithm.BREADTH_FIRST_SEARCH, 3);
+    }
+
     @Test
     public void terminateOnFoundSolution() {
         Game<Hanoi> game = new Game<>(GPS.wrap(new Hanoi(8)));
@@ -145,13 +159,20 @@ public class SearchRecyclerTest {
     private static <T> void recyclingComparison(T problem, int timeLimit,
             HeuristicUsage usage, int seperator, int level, boolean gameTree,
             SearchRecyclerAlgorithm algorithm) {
+        recyclingComparison(problem, timeLimit, usage, seperator, level,
+                gameTree, algorithm, 1);
+    }
+
+    private static <T> void recyclingComparison(T problem, int timeLimit,
+            HeuristicUsage usage, int seperator, int level, boolean gameTree,
+            SearchRecyclerAlgorithm algorithm, int parallelism) {
         try {
             Game<T> game = new Game<>(GPS.wrap(problem));
             INMCSData<T> data = (gameTree)
                     ? new NMCSGameTree<>(game.copy().asRoot())
                     : new NMCSPathStorage<>();
             AbstractRecycler<T> recycler = new SearchRecycler<>(seperator,
-                    algorithm);
+                    algorithm, parallelism);
             IterativeNMCS<T> nmcs = new IterativeNMCS<>(
                     new GamesModule<>(game.copy()),
                     new Tuple<>(game.getUserHeuristic(), usage), data, true,
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package game.algorithm.retrograde;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Test;
+
+import game.connect4.ConnectGame;
+import game.gempuzzle.GemPuzzle;
+import game.hanoi.Hanoi;
+import gps.GPS;
+import gps.ResultEnum;
+import gps.common.BenchmarkField;
+import gps.games.GamesModule;
+import gps.games.algorithm.proofNumberSearch.ProofNumberSearch;
+import gps.games.algorithm.retrograde.RetrogradeAnalysis;
+import gps.games.algorithm.singleplayer.BreadthFirst;
+import gps.games.wrapper.Action;
+import gps.games.wrapper.Game;
+
+public class RetrogradeAnalysisTest {
+
+    private static <T> RetrogradeAnalysis<T> analysis(final Game<T> game) {
+        final GamesModule<T> mod = new GamesModule<>(game);
+        mod.gameAnalysis();
+        return new RetrogradeAnalysis<>(mod);
+    }
+
+    @Test
+    public void solvesWin() {
+        // two in a row on a 2x2 board is always won by the first player
+        final Game<ConnectGame> game = new Game<>(
+                GPS.wrap(new ConnectGame(2, 2, 2, 2)));
+        assertEquals(Optional.of(true), analysis(game).isWinnable());
+        assertTrue(analysis(game).bestMove().isPresent());
+        game.applyAction(new Action(0));
+        assertEquals(Optional.of(false), analysis(game).isWinnable());
+    }
+
+    @Test
+    public void solvesDraw() {
+        // a single column never contains two adjacent tokens of one player
+        final Game<ConnectGame> game = new Game<>(
+                GPS.wrap(new ConnectGame(2, 1, 4, 2)));
+        assertEquals(Optional.of(false), analysis(game).isWinnable());
+    }
+
+    @Test
+    public void agreesWithProofNumberSearch() {
+        final Game<ConnectGame> game = new Game<>(
+                GPS.wrap(new ConnectGame(2, 3, 3, 3)));
+        assertEquals(
+                new ProofNumberSearch<>(new GamesModule<>(game)).isWinnable(),
+                analysis(game).isWinnable());
+    }
+
+    @Test
+    public void playsFastestWin() {
+        final Game<ConnectGame> game = new Game<>(
+                GPS.wrap(ConnectGame.createConnect4()));
+        // player 0 has three discs in column 0, player 1 in column 1
+        for (int i = 0; i < 3; i++) {
+            game.applyAction(new Action(0));
+            game.applyAction(new Action(1));
+        }
+        final RetrogradeAnalysis<ConnectGame> alg = analysis(game);
+        // connect four is far too large
+        alg.setMaxStates(1000);
+        assertFalse(alg.bestMove().isPresent());
+
+        final Game<ConnectGame> small = new Game<>(
+                GPS.wrap(new ConnectGame(2, 3, 4, 3)));
+        small.applyAction(new Action(0));
+        small.applyAction(new Action(1));
+        small.applyAction(new Action(0));
+        small.applyAction(new Action(1));
+        assertEquals(Optional.of(new Action(0)), analysis(small).bestMove());
+    }
+
+    @Test
+    public void notApplicableToManyStates() {
+        // not in the analysis cache, which does not keep the estimate
+        final RetrogradeAnalysis<ConnectGame> large = analysis(new Game<>(
+                GPS.wrap(new ConnectGame(2, 6, 5, 4))));
+        // small enough to be exceeded by an analysis stopped early because
+        // of a full heap
+        large.setMaxStates(10);
+        assertFalse(large.isApplicable(ResultEnum.BEST_MOVE));
+
+        final RetrogradeAnalysis<ConnectGame> small = analysis(new Game<>(
+                GPS.wrap(new ConnectGame(2, 3, 3, 3))));
+        assertTrue(small.isApplicable(ResultEnum.BEST_MOVE));
+    }
+
+    @Test
+    public void looksUpLaterPositions() {
+        final Game<ConnectGame> game = new Game<>(
+                GPS.wrap(new ConnectGame(2, 4, 3, 3)));
+        final RetrogradeAnalysis<ConnectGame> first = analysis(game);
+        assertTrue(first.bestMove().isPresent());
+        assertTrue(seenNodes(first) > 0);
+
+        // the module creates a new instance for every position
+        game.applyAction(first.bestMove().get());
+        final RetrogradeAnalysis<ConnectGame> next = analysis(game);
+        assertTrue(next.bestMove().isPresent());
+        assertEquals(0, seenNodes(next));
+    }
+
+    private static int seenNodes(final RetrogradeAnalysis<?> alg) {
+        return alg.getBenchmark().getField(BenchmarkField.SEEN_NODES).get()
+                .intValue();
+    }
+
+    @Test
+    public void solvesHanoi() {
+        final Game<Hanoi> game = new Game<>(GPS.wrap(new Hanoi(5)));
+        final Optional<List<Action>> moves = analysis(game).moves();
+        assertEquals(31, moves.get().size());
+        for (Action move : moves.get()) {
+            game.applyAction(move);
+        }
+        assertTrue(game.isTerminal());
+    }
+
+    @Test
+    public void solvesGemPuzzle() {
+        final Game<GemPuzzle> game = new Game<>(
+                GPS.wrap(new GemPuzzle(3)));
+        final RetrogradeAnalysis<GemPuzzle> alg = analysis(game);
+        assertEquals(Optional.of(true), alg.isWinnable());
+        assertEquals(new BreadthFirst<>(new GamesModule<>(game)).moves()
+                .get().size(), alg.moves().get().size());
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package game.algorithm.singleplayer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import game.gempuzzle.GemPuzzle;
+import game.hanoi.Hanoi;
+import gps.GPS;
+import gps.common.BenchmarkField;
+import gps.games.GamesModule;
+import gps.games.algorithm.AbstractGameAlgorithm;
+import gps.games.algorithm.heuristic.NoHeuristic;
+import gps.games.algorithm.singleplayer.AnytimeWeightedAStar;
+import gps.games.algorithm.singleplayer.BreadthFirst;
+import gps.games.algorithm.singleplayer.WeightedAStar;
+import gps.games.wrapper.Action;
+import gps.games.wrapper.Game;
+
+public class AnytimeWeightedAStarTest {
+
+    private static int processedNodes(final AbstractGameAlgorithm<?> alg) {
+        return alg.getBenchmark().getField(BenchmarkField.PROCESSED_NODES)
+                .get().intValue();
+    }
+
+    private static <T> void assertSolves(final Game<T> game,
+            final List<Action> moves) {
+        final Game<T> copy = game.copy();
+        for (Action move : moves) {
+            copy.applyAction(move);
+        }
+        assertTrue(copy.isTerminal());
+    }
+
+    /**
+     * Tests if the shortest path is found without heuristic.
+     */
+    @Test
+    public void solvesHanoi() {
+        final Game<Hanoi> game = new Game<>(GPS.wrap(new Hanoi(5)));
+        final List<Action> moves = new AnytimeWeightedAStar<>(
+                new GamesModule<>(game), NoHeuristic.instance()).moves().get();
+        assertEquals(31, moves.size());
+        assertSolves(game, moves);
+    }
+
+    /**
+     * Tests if every reported path is shorter than the one before and the
+     * last one is returned.
+     */
+    @Test
+    public void reportsImprovements() {
+        final Game<GemPuzzle> game = new Game<>(
+                GPS.wrap(new GemPuzzle(3, Long.MAX_VALUE)));
+        final AnytimeWeightedAStar<GemPuzzle> alg = new AnytimeWeightedAStar<>(
+                new GamesModule<>(game), game.getUserHeuristic());
+        final List<List<Action>> reported = new ArrayList<>();
+        alg.setSolutionListener(reported::add);
+        final List<Action> moves = alg.moves().get();
+        assertTrue(!reported.isEmpty());
+        for (int i = 1; i < reported.size(); i++) {
+            assertTrue(reported.get(i).size() < reported.get(i - 1).size());
+        }
+        assertEquals(reported.get(reported.size() - 1), moves);
+        assertSolves(game, moves);
+        assertEquals(moves.size() + 1, alg.stateSequence().get().size());
+    }
+
+    /**
+     * Tests if weighted A-Star expands fewer nodes than breadth first search.
+     */
+    @Test
+    public void weightedExpandsFewerNodes() {
+        final Game<GemPuzzle> game = new Game<>(
+                GPS.wrap(new GemPuzzle(3, Long.MAX_VALUE)));
+        final WeightedAStar<GemPuzzle> weighted = new WeightedAStar<>(
+                new GamesModule<>(game), game.getUserHeuristic(), 2.0);
+        assertSolves(game, weighted.moves().get());
+        final BreadthFirst<GemPuzzle> breadthFirst = new BreadthFirst<>(
+                new GamesModule<>(game));
+        breadthFirst.moves();
+        assertTrue(processedNodes(weighted) * 10 < processedNodes(
+                breadthFirst));
+    }
+}
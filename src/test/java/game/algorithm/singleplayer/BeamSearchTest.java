@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package game.algorithm.singleplayer;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Test;
+
+import game.gempuzzle.GemPuzzle;
+import gps.GPS;
+import gps.common.BenchmarkField;
+import gps.games.GamesModule;
+import gps.games.algorithm.singleplayer.BeamSearch;
+import gps.games.wrapper.Action;
+import gps.games.wrapper.Game;
+
+public class BeamSearchTest {
+
+    /**
+     * Tests if a {@link GemPuzzle} is solved by a beam search.
+     */
+    @Test
+    public void solvesGemPuzzle() {
+        final Game<GemPuzzle> game = new Game<>(
+                GPS.wrap(new GemPuzzle(3, Long.MAX_VALUE)));
+        final Optional<List<Action>> moves = new BeamSearch<>(
+                new GamesModule<>(game), game.getUserHeuristic(), 100)
+                        .moves();
+        assertTrue(moves.isPresent());
+        for (Action move : moves.get()) {
+            game.applyAction(move);
+        }
+        assertTrue(game.isTerminal());
+    }
+
+    /**
+     * Tests if no more nodes than the width of the beam are expanded per
+     * depth.
+     */
+    @Test
+    public void expandsWidthPerDepth() {
+        final Game<GemPuzzle> game = new Game<>(
+                GPS.wrap(new GemPuzzle(3, Long.MAX_VALUE)));
+        final BeamSearch<GemPuzzle> alg = new BeamSearch<>(
+                new GamesModule<>(game), game.getUserHeuristic(), 10);
+        alg.moves();
+        final int processed = alg.getBenchmark()
+                .getField(BenchmarkField.PROCESSED_NODES).get().intValue();
+        final int depth = alg.getBenchmark()
+                .getField(BenchmarkField.DEEPEST_DISCOVERED_NODE).get()
+                .intValue();
+        assertTrue(processed <= 10 * depth + 1);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package game.algorithm.singleplayer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Test;
+
+import game.gempuzzle.GemPuzzle;
+import game.hanoi.Hanoi;
+import gps.GPS;
+import gps.ResultEnum;
+import gps.games.GamesModule;
+import gps.games.algorithm.heuristic.NoHeuristic;
+import gps.games.algorithm.singleplayer.BreadthFirst;
+import gps.games.algorithm.singleplayer.HashDistributedAStar;
+import gps.games.wrapper.Action;
+import gps.games.wrapper.Game;
+
+public class HashDistributedAStarTest {
+
+    private static <T> HashDistributedAStar<T> hda(final Game<T> game,
+            final int parallelism) {
+        final HashDistributedAStar<T> alg = new HashDistributedAStar<>(
+                new GamesModule<>(game), NoHeuristic.instance());
+        alg.setParallelism(parallelism);
+        return alg;
+    }
+
+    /**
+     * Tests if the shortest solution of Hanoi with 5 disks is found by any
+     * number of workers.
+     */
+    @Test
+    public void solvesHanoi() {
+        for (int parallelism : new int[] { 1, 2, 4 }) {
+            final Game<Hanoi> game = new Game<>(GPS.wrap(new Hanoi(5)));
+            final HashDistributedAStar<Hanoi> alg = hda(game, parallelism);
+            assertTrue(alg.isApplicable(ResultEnum.MOVES));
+            final List<Action> moves = alg.moves().get();
+            assertEquals(31, moves.size());
+            for (Action move : moves) {
+                game.applyAction(move);
+            }
+            assertTrue(game.isTerminal());
+        }
+    }
+
+    /**
+     * Tests if the solution of a {@link GemPuzzle} is as short as the one of
+     * {@link BreadthFirst}.
+     */
+    @Test
+    public void solvesGemPuzzle() {
+        final Game<GemPuzzle> game = new Game<>(
+                GPS.wrap(new GemPuzzle(3, Long.MAX_VALUE)));
+        final HashDistributedAStar<GemPuzzle> alg = hda(game, 4);
+        assertEquals(Optional.of(true), alg.isWinnable());
+        assertEquals(new BreadthFirst<>(new GamesModule<>(game)).moves()
+                .get().size(), alg.moves().get().size());
+        assertEquals(alg.moves().get().size() + 1,
+                alg.stateSequence().get().size());
+    }
+
+    /**
+     * Tests if a goal is found with the heuristic of the problem.
+     */
+    @Test
+    public void solvesGemPuzzleWithHeuristic() {
+        final Game<GemPuzzle> game = new Game<>(
+                GPS.wrap(new GemPuzzle(3, Long.MAX_VALUE)));
+        final HashDistributedAStar<GemPuzzle> alg = new HashDistributedAStar<>(
+                new GamesModule<>(game), game.getUserHeuristic());
+        assertTrue(alg.terminalState().isPresent());
+    }
+
+    /**
+     * Tests if a search that has been interrupted can be run again on the same
+     * instance.
+     */
+    @Test(timeout = 60000)
+    public void searchesAgainAfterInterrupt() throws InterruptedException {
+        final Game<Hanoi> game = new Game<>(GPS.wrap(new Hanoi(8)));
+        final HashDistributedAStar<Hanoi> alg = hda(game, 2);
+        final Thread searcher = Thread.currentThread();
+        final Thread interrupter = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                return;
+            }
+            searcher.interrupt();
+        });
+        interrupter.start();
+        alg.moves();
+        interrupter.join();
+        // clears the flag, also if the search finished before the interrupt
+        Thread.interrupted();
+        assertEquals(255, alg.moves().get().size());
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package game.classification;
+
+import static org.junit.Assert.*;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import game.connect4.ConnectGame;
+import gps.GPS;
+import gps.ResultEnum;
+import gps.common.AlgorithmFactory;
+import gps.common.AlgorithmUtility;
+import gps.games.GamesModule;
+import gps.games.algorithm.AbstractGameAlgorithm;
+import gps.games.wrapper.Action;
+import gps.games.wrapper.Game;
+
+public class GamesModuleTest {
+
+    /**
+     * There are no networks for the classifier in the tests, so classifying
+     * or racing the game again would fail.
+     */
+    @Test
+    public void withGameKeepsTheClassification() {
+        final Game<ConnectGame> game = new Game<>(
+                GPS.wrap(new ConnectGame(2, 3, 3, 2)));
+        final GamesModule<ConnectGame> first = new GamesModule<>(game);
+        first.inheritClassification(ResultEnum.BEST_MOVE, mcts());
+        final AbstractGameAlgorithm<ConnectGame> chosen = first
+                .classify(ResultEnum.BEST_MOVE);
+        assertEquals(mcts().getName(), chosen.getName());
+
+        final GamesModule<ConnectGame> second = first
+                .withGame(afterFirstMove(game));
+        final AbstractGameAlgorithm<ConnectGame> a = second
+                .classify(ResultEnum.BEST_MOVE);
+        assertNotSame(chosen, a);
+        assertEquals(chosen.getName(), a.getName());
+        assertSame(a, second.classify(ResultEnum.BEST_MOVE));
+
+        final GamesModule<ConnectGame> third = second
+                .withGame(afterFirstMove(second.getGame()));
+        assertEquals(chosen.getName(),
+                third.classify(ResultEnum.BEST_MOVE).getName());
+    }
+
+    @Test
+    public void withGameKeepsThePortfolioWinner()
+            throws InterruptedException {
+        final Game<ConnectGame> game = new Game<>(
+                GPS.wrap(new ConnectGame(2, 3, 3, 2)));
+        final GamesModule<ConnectGame> first = new GamesModule<>(game);
+        first.setPortfolio(3, 1000);
+        first.inheritClassification(ResultEnum.BEST_MOVE, mcts());
+
+        final GamesModule<ConnectGame> second = first
+                .withGame(afterFirstMove(game));
+        // the search runs until it is interrupted
+        final AtomicReference<Optional<Action>> move = new AtomicReference<>(
+                Optional.empty());
+        final Thread t = new Thread(() -> move.set(second.bestMove()));
+        t.start();
+        Thread.sleep(500);
+        t.interrupt();
+        t.join();
+        assertTrue(move.get().isPresent());
+        assertEquals(mcts().getName(),
+                second.classify(ResultEnum.BEST_MOVE).getName());
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static AlgorithmFactory<AbstractGameAlgorithm> mcts() {
+        for (AlgorithmFactory<AbstractGameAlgorithm> f : AlgorithmUtility
+                .getAlgorithmFactories(AbstractGameAlgorithm.class,
+                        ResultEnum.BEST_MOVE, GamesModule.createDummy())) {
+            if (f.getName().equals("UCTMCTSPruning_100")) {
+                return f;
+            }
+        }
+        throw new AssertionError("UCTMCTSPruning_100 is not available");
+    }
+
+    private static Game<ConnectGame> afterFirstMove(
+            final Game<ConnectGame> pGame) {
+        final Game<ConnectGame> next = pGame.copy();
+        next.applyAction(next.getActions().get(0));
+        return next;
+    }
+}
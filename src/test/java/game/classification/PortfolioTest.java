@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package game.classification;
+
+import static org.junit.Assert.*;
+
+import java.util.Optional;
+
+import org.junit.Test;
+
+import gps.ResultEnum;
+import gps.games.GamesModule;
+import gps.games.Portfolio;
+import gps.games.algorithm.AbstractGameAlgorithm;
+
+public class PortfolioTest {
+
+    @Test
+    public void firstConclusiveResultWins() {
+        final Fixed slow = new Fixed("slowWinnable", null);
+        final Fixed fast = new Fixed("fastWinnable", true);
+        final Portfolio<Object> p = new Portfolio<>(ResultEnum.MOVES, 0);
+        p.add(slow, 0.9);
+        p.add(fast, 0.1);
+        final long start = System.currentTimeMillis();
+        assertEquals(Optional.of(true), p.race(AbstractGameAlgorithm::isWinnable, false));
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertEquals(Optional.of(fast), p.getWinner());
+        slow.awaitInterrupt();
+        assertEquals(1.0,
+                Portfolio.getWinRate(ResultEnum.MOVES, "fastWinnable"), 0);
+        assertEquals(0.0,
+                Portfolio.getWinRate(ResultEnum.MOVES, "slowWinnable"), 0);
+    }
+
+    @Test
+    public void combineByScore() {
+        final Fixed a = new Fixed("a", true);
+        final Fixed b = new Fixed("b", false);
+        final Fixed c = new Fixed("c", false);
+        final Portfolio<Object> p = new Portfolio<>(ResultEnum.WINNABLE, 0);
+        p.add(a, 0.9);
+        p.add(b, 0.4);
+        p.add(c, 0.6);
+        assertEquals(Optional.of(false), p.race(AbstractGameAlgorithm::isWinnable, true));
+        assertEquals(Optional.of(c), p.getWinner());
+    }
+
+    @Test
+    public void deadline() {
+        final Fixed slow = new Fixed("slow", null);
+        final Fixed fast = new Fixed("fast", false);
+        final Portfolio<Object> p = new Portfolio<>(ResultEnum.WINNABLE, 200);
+        p.add(slow, 1);
+        p.add(fast, -1);
+        assertEquals(Optional.of(false), p.race(AbstractGameAlgorithm::isWinnable, true));
+        slow.awaitInterrupt();
+
+        final Portfolio<Object> none = new Portfolio<>(ResultEnum.WINNABLE,
+                100);
+        none.add(new Fixed("slow", null), 1);
+        assertEquals(Optional.empty(), none.race(AbstractGameAlgorithm::isWinnable, false));
+        assertFalse(none.getWinner().isPresent());
+    }
+
+    /**
+     * Returns a fixed result. If the result is {@code null} it waits until it
+     * is interrupted.
+     */
+    private static class Fixed extends AbstractGameAlgorithm<Object> {
+
+        private final String name;
+
+        private final Boolean result;
+
+        private volatile boolean interrupted;
+
+        @SuppressWarnings("unchecked")
+        Fixed(final String pName, final Boolean pResult) {
+            super((GamesModule<Object>) GamesModule.createDummy());
+            name = pName;
+            result = pResult;
+        }
+
+        @Override
+        public Optional<Boolean> isWinnable() {
+            if (result != null) {
+                return Optional.of(result);
+            }
+            while (!Thread.currentThread().isInterrupted()) {
+                Thread.yield();
+            }
+            interrupted = true;
+            return Optional.empty();
+        }
+
+        void awaitInterrupt() {
+            final long end = System.currentTimeMillis() + 5000;
+            while (!interrupted && System.currentTimeMillis() < end) {
+                Thread.yield();
+            }
+            assertTrue(interrupted);
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean isApplicable(final ResultEnum type) {
+            return type == ResultEnum.WINNABLE;
+        }
+    }
+}
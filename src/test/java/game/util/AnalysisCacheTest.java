@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package game.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import game.hanoi.Hanoi;
+import gps.GPS;
+import gps.games.algorithm.analysis.GameAnalysisResult;
+import gps.games.util.GameTree;
+import gps.games.wrapper.Game;
+import gps.util.AnalysisCache;
+import gps.util.Tuple;
+
+public class AnalysisCacheTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("analysis", ".cache");
+        file.delete();
+        AnalysisCache.instantiateNewCache();
+        AnalysisCache.setWriteFilename(file.getPath());
+    }
+
+    @After
+    public void tearDown() {
+        AnalysisCache.setWriteFilename(null);
+        file.delete();
+        // restore the cache of the resources for the other tests
+        AnalysisCache.instantiateNewCache();
+        AnalysisCache.readCacheFromFile();
+    }
+
+    private static GameAnalysisResult result(final int i) {
+        return new GameAnalysisResult(1.0, (double) i, 1.0, i, 1.0,
+                new Tuple<>(i, i), new GameTree<>(), Optional.empty(),
+                Optional.empty(), Optional.empty());
+    }
+
+    private static Set<Long> writtenKeys(final File pFile)
+            throws IOException {
+        final Set<Long> keys = new HashSet<>();
+        try (DataInputStream in = new DataInputStream(
+                new FileInputStream(pFile))) {
+            // header
+            in.readLong();
+            while (in.available() > 0) {
+                keys.add(in.readLong());
+                in.skipBytes(in.readInt());
+            }
+        }
+        return keys;
+    }
+
+    @Test
+    public void putAndGet() {
+        final Game<Hanoi> game = new Game<>(GPS.wrap(new Hanoi(3)));
+        final GameAnalysisResult result = result(3);
+        AnalysisCache.putToCache(game, result);
+        assertSame(result, AnalysisCache.getCachedResult(game).get());
+        assertSame(result, AnalysisCache
+                .getCachedResult(new Game<>(GPS.wrap(new Hanoi(3)))).get());
+    }
+
+    @Test(timeout = 60000)
+    public void concurrentPutsAreWritten()
+            throws IOException, InterruptedException {
+        final int count = 2000;
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int offset = t;
+            threads.add(new Thread(() -> {
+                for (int i = 1 + offset; i <= count; i += 4) {
+                    AnalysisCache.putToCache(
+                            new Game<>(GPS.wrap(new Hanoi(i))), result(i));
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        // write while the results are put
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                AnalysisCache.writeCacheToFile();
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        AnalysisCache.writeCacheToFile();
+        assertEquals(count, writtenKeys(file).size());
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package game.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import game.gempuzzle.GemPuzzle;
+import game.hanoi.Hanoi;
+import gps.GPS;
+import gps.common.BenchmarkField;
+import gps.games.GamesModule;
+import gps.games.algorithm.AbstractGameAlgorithm;
+import gps.games.algorithm.singleplayer.BreadthFirst;
+import gps.games.algorithm.singleplayer.BreadthFirstSp;
+import gps.games.algorithm.singleplayer.DepthFirst;
+import gps.games.util.BitstateSet;
+import gps.games.wrapper.Action;
+import gps.games.wrapper.Game;
+
+public class BitstateSetTest {
+
+    private static int seenNodes(final AbstractGameAlgorithm<?> alg) {
+        return alg.getBenchmark().getField(BenchmarkField.SEEN_NODES).get()
+                .intValue();
+    }
+
+    private static double omissionProbability(
+            final AbstractGameAlgorithm<?> alg) {
+        return alg.getBenchmark()
+                .getField(BenchmarkField.OMISSION_PROBABILITY).get()
+                .doubleValue();
+    }
+
+    private static <T> void assertSolves(final Game<T> game,
+            final List<Action> moves) {
+        final Game<T> copy = game.copy();
+        for (Action move : moves) {
+            copy.applyAction(move);
+        }
+        assertTrue(copy.isTerminal());
+    }
+
+    @Test
+    public void addsStates() {
+        final BitstateSet set = new BitstateSet(16, 3);
+        assertEquals(0, set.omissionProbability(), 0);
+        final Game<Hanoi> game = new Game<>(GPS.wrap(new Hanoi(3)));
+        assertTrue(set.add(game));
+        assertFalse(set.add(game.copy()));
+        assertEquals(1, set.size());
+        // dominated by a collision of the 32 bit hash codes
+        final double probability = set.omissionProbability();
+        assertEquals(0x1p-32, probability, 1e-12);
+        set.clear();
+        assertTrue(set.add(game));
+    }
+
+    /**
+     * Tests if a large enough set leads to a path as short as the one found
+     * with the exact closed set.
+     */
+    @Test
+    public void findsShortestPath() {
+        final Game<GemPuzzle> game = new Game<>(
+                GPS.wrap(new GemPuzzle(3, Long.MAX_VALUE)));
+        final BreadthFirst<GemPuzzle> approximate = new BreadthFirst<>(
+                new GamesModule<>(game));
+        approximate.setApproximateVisitedSet(new BitstateSet(24, 3));
+        final List<Action> moves = approximate.moves().get();
+        assertEquals(new BreadthFirst<>(new GamesModule<>(game)).moves().get()
+                .size(), moves.size());
+        assertEquals(moves.size() + 1,
+                approximate.stateSequence().get().size());
+        assertTrue(omissionProbability(approximate) < 1e-3);
+        assertSolves(game, moves);
+
+        final DepthFirst<GemPuzzle> depthFirst = new DepthFirst<>(
+                new GamesModule<>(game));
+        depthFirst.setApproximateVisitedSet(new BitstateSet(24, 3));
+        assertSolves(game, depthFirst.moves().get());
+    }
+
+    /**
+     * Tests if a search without closed set stops revisiting states.
+     */
+    @Test
+    public void avoidsRevisits() {
+        final Game<GemPuzzle> game = new Game<>(
+                GPS.wrap(new GemPuzzle(3, Long.MAX_VALUE)));
+        final BreadthFirstSp<GemPuzzle> approximate = new BreadthFirstSp<>(
+                new GamesModule<>(game));
+        approximate.setApproximateVisitedSet(new BitstateSet(24, 3));
+        assertTrue(approximate.terminalState().isPresent());
+        final BreadthFirst<GemPuzzle> exact = new BreadthFirst<>(
+                new GamesModule<>(game));
+        exact.terminalState();
+        assertTrue(seenNodes(approximate) <= seenNodes(exact));
+    }
+
+    /**
+     * Tests if a set that is too small omits states and reports it.
+     */
+    @Test
+    public void reportsOmissions() {
+        final Game<GemPuzzle> game = new Game<>(
+                GPS.wrap(new GemPuzzle(3, Long.MAX_VALUE)));
+        final BreadthFirst<GemPuzzle> approximate = new BreadthFirst<>(
+                new GamesModule<>(game));
+        approximate.setApproximateVisitedSet(new BitstateSet(10, 2));
+        approximate.moves();
+        assertTrue(seenNodes(approximate) < 1 << 10);
+        assertTrue(omissionProbability(approximate) > 0.5);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package game.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import gps.ISolverModule;
+import gps.common.AlgorithmUtility;
+import gps.games.algorithm.AbstractGameAlgorithm;
+import gps.preprocessing.AbstractImplementer;
+import gps.util.registry.ClassRegistry;
+
+public class ClassRegistryTest {
+
+    private final Logger logger = Logger
+            .getLogger(ClassRegistry.class.getCanonicalName());
+
+    private final List<LogRecord> warnings = new ArrayList<>();
+
+    private final Handler handler = new Handler() {
+        @Override
+        public void publish(final LogRecord record) {
+            warnings.add(record);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @Before
+    public void setUp() {
+        logger.addHandler(handler);
+    }
+
+    @After
+    public void tearDown() {
+        logger.removeHandler(handler);
+    }
+
+    @Test
+    public void gameAlgorithmsWithoutScan() {
+        final List<Class<? extends AbstractGameAlgorithm>> algorithms = AlgorithmUtility
+                .getAllAlgorithms(AbstractGameAlgorithm.class);
+        assertFalse(algorithms.isEmpty());
+        for (Class<?> algorithm : algorithms) {
+            assertTrue(AbstractGameAlgorithm.class.isAssignableFrom(algorithm));
+        }
+        assertTrue(AlgorithmUtility.getAllAlgorithms()
+                .containsAll(algorithms));
+        assertEquals(0, warnings.size());
+    }
+
+    @Test
+    public void registeredTypesWithoutScan() {
+        assertFalse(ClassRegistry.getSubTypesOf("gps", ISolverModule.class)
+                .isEmpty());
+        assertFalse(ClassRegistry.getSubTypesOf("gps.preprocessing.*",
+                AbstractImplementer.class).isEmpty());
+        assertFalse(ClassRegistry
+                .getSubTypesOf("gps.annotations", Annotation.class).isEmpty());
+        assertEquals(0, warnings.size());
+    }
+
+    @Test
+    public void onlyGpsAnnotations() {
+        for (Class<?> annotation : ClassRegistry
+                .getSubTypesOf("gps.annotations", Annotation.class)) {
+            assertEquals("gps.annotations",
+                    annotation.getPackage().getName());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package game.util;
+
+import static org.junit.Assert.*;
+
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import gps.util.LruCache;
+
+public class LruCacheTest {
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        final LruCache<Integer, String> cache = new LruCache<>(3, 1);
+        cache.put(1, "a");
+        cache.put(2, "b");
+        cache.put(3, "c");
+        assertEquals("a", cache.get(1));
+        cache.put(4, "d");
+        assertNull(cache.get(2));
+        assertEquals("a", cache.get(1));
+        assertEquals("c", cache.get(3));
+        assertEquals("d", cache.get(4));
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void bounded() {
+        final LruCache<Integer, Integer> cache = new LruCache<>(100);
+        IntStream.range(0, 10000).parallel()
+                .forEach(i -> assertEquals(i,
+                        (int) cache.computeIfAbsent(i, k -> k)));
+        assertTrue(cache.size() <= 100);
+        assertTrue(cache.size() > 0);
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void computeIfAbsentOnlyOnce() {
+        final LruCache<String, Object> cache = new LruCache<>(10);
+        final Object value = cache.computeIfAbsent("x", k -> new Object());
+        assertSame(value, cache.computeIfAbsent("x", k -> new Object()));
+    }
+}
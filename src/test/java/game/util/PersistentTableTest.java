@@ -0,0 +1,163 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package game.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import game.connect4.ConnectGame;
+import gps.GPS;
+import gps.common.BenchmarkField;
+import gps.games.GamesModule;
+import gps.games.algorithm.AbstractGameAlgorithm;
+import gps.games.algorithm.mtdf.MTDf;
+import gps.games.algorithm.proofNumberSearch.ProofNumberSearch;
+import gps.games.util.transpositionTable.PersistentTable;
+import gps.games.wrapper.Action;
+import gps.games.wrapper.Game;
+
+public class PersistentTableTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Game<ConnectGame> state = new Game<>(
+            GPS.wrap(ConnectGame.createConnect4()));
+
+    @Test
+    public void keepsEntriesAfterReopening() throws IOException {
+        final Path file = folder.getRoot().toPath().resolve("table");
+        try (PersistentTable table = new PersistentTable(file, 64)) {
+            table.put(42, state, -1.5, 2.5, 3, 4);
+            table.put(43, state, 7, 7, PersistentTable.SOLVED, -1);
+        }
+        try (PersistentTable table = new PersistentTable(file, 64)) {
+            final PersistentTable.Entry entry = table.get(42, state);
+            assertEquals(-1.5, entry.lowerBound, 0);
+            assertEquals(2.5, entry.upperBound, 0);
+            assertEquals(3, entry.depth);
+            assertEquals(4, entry.actionIndex);
+            assertEquals(PersistentTable.SOLVED, table.get(43, state).depth);
+            assertNull(table.get(44, state));
+            table.clear();
+            assertNull(table.get(42, state));
+        }
+    }
+
+    @Test
+    public void rejectsOtherStateWithSameKey() throws IOException {
+        final Path file = folder.getRoot().toPath().resolve("table");
+        final Game<ConnectGame> other = state.copy();
+        other.applyAction(new Action(3));
+        try (PersistentTable table = new PersistentTable(file, 64)) {
+            table.put(42, state, 1, 1, 3, 0);
+            assertNull(table.get(42, other));
+            assertEquals(3, table.get(42, state).depth);
+        }
+    }
+
+    @Test
+    public void keepsDeeperEntries() throws IOException {
+        final Path file = folder.getRoot().toPath().resolve("table");
+        // a single bucket, all keys share it
+        try (PersistentTable table = new PersistentTable(file, 2)) {
+            table.put(1, state, 0, 0, 5, 0);
+            table.put(2, state, 0, 0, 1, 0);
+            table.put(3, state, 0, 0, 2, 0);
+            assertEquals(5, table.get(1, state).depth);
+            assertNull(table.get(2, state));
+            assertEquals(2, table.get(3, state).depth);
+            // a search as deep replaces the first entry and keeps it
+            table.put(4, state, 0, 0, 5, 0);
+            assertEquals(5, table.get(4, state).depth);
+            assertEquals(5, table.get(1, state).depth);
+            assertNull(table.get(3, state));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherSize() throws IOException {
+        final Path file = folder.getRoot().toPath().resolve("table");
+        new PersistentTable(file, 64).close();
+        new PersistentTable(file, 128).close();
+    }
+
+    @Test
+    public void mtdfStartsWarm() throws IOException {
+        final Path file = folder.getRoot().toPath().resolve("mtdf");
+        final Game<ConnectGame> game = new Game<>(
+                GPS.wrap(ConnectGame.createConnect4()));
+        game.applyAction(new Action(3));
+        final Optional<Action> cold;
+        final int coldNodes;
+        try (PersistentTable table = new PersistentTable(file, 1 << 16)) {
+            final MTDf<ConnectGame> alg = mtdf(game);
+            alg.setPersistentTable(table);
+            cold = alg.bestMove();
+            coldNodes = processedNodes(alg);
+        }
+        try (PersistentTable table = new PersistentTable(file, 1 << 16)) {
+            final MTDf<ConnectGame> alg = mtdf(game);
+            alg.setPersistentTable(table);
+            assertEquals(cold, alg.bestMove());
+            assertTrue(processedNodes(alg) < coldNodes);
+        }
+    }
+
+    @Test
+    public void proofsStartWarm() throws IOException {
+        final Path file = folder.getRoot().toPath().resolve("proofs");
+        final Game<ConnectGame> game = new Game<>(
+                GPS.wrap(new ConnectGame(2, 3, 3, 2)));
+        final int coldNodes;
+        try (PersistentTable table = new PersistentTable(file, 1 << 12)) {
+            final ProofNumberSearch<ConnectGame> alg = new ProofNumberSearch<>(
+                    new GamesModule<>(game));
+            alg.setPersistentTable(table);
+            assertEquals(Optional.of(true), alg.isWinnable());
+            coldNodes = processedNodes(alg);
+        }
+        try (PersistentTable table = new PersistentTable(file, 1 << 12)) {
+            final ProofNumberSearch<ConnectGame> alg = new ProofNumberSearch<>(
+                    new GamesModule<>(game));
+            alg.setPersistentTable(table);
+            assertEquals(Optional.of(true), alg.isWinnable());
+            assertTrue(processedNodes(alg) < coldNodes);
+        }
+    }
+
+    private static MTDf<ConnectGame> mtdf(final Game<ConnectGame> game) {
+        final GamesModule<ConnectGame> mod = new GamesModule<>(game);
+        mod.setDepthlimit(6);
+        return new MTDf<>(mod);
+    }
+
+    private static int processedNodes(
+            final AbstractGameAlgorithm<ConnectGame> alg) {
+        return (Integer) alg.getBenchmark()
+                .getField(BenchmarkField.PROCESSED_NODES).get();
+    }
+}
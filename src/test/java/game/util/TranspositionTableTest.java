@@ -0,0 +1,45 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package game.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import game.connect4.ConnectGame;
+import gps.GPS;
+import gps.games.util.transpositionTable.TranspositionTable;
+import gps.games.wrapper.Game;
+
+public class TranspositionTableTest {
+
+    @Test
+    public void shallowBoundsAreNotUsedByDeeperSearches() {
+        final TranspositionTable<ConnectGame> table = new TranspositionTable<>(
+                10, false);
+        final Game<ConnectGame> game = new Game<>(
+                GPS.wrap(ConnectGame.createConnect4()));
+        table.put(game, 1, 2, 3);
+        assertNull(table.get(game, 4));
+        assertEquals(1, table.get(game, 3).getX().intValue());
+        assertEquals(2, table.get(game).getY().intValue());
+
+        table.put(game, 0, 5, 4);
+        assertEquals(5, table.get(game, 4).getY().intValue());
+    }
+}
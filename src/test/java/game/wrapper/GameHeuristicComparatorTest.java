@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package game.wrapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import game.connect4.ConnectGame;
+import gps.GPS;
+import gps.games.MemorySavingMode;
+import gps.games.wrapper.Game;
+import gps.games.wrapper.IHeuristicPlayer;
+import gps.games.wrapper.Player;
+import gps.games.wrapper.successor.GameHeuristicComparator;
+import gps.games.wrapper.successor.INode;
+import gps.games.wrapper.successor.Node;
+
+public class GameHeuristicComparatorTest {
+
+    private static class CountingHeuristic implements IHeuristicPlayer {
+
+        private int evaluations = 0;
+
+        @Override
+        public double eval(final Game<?> pGame, final Player pPlayer) {
+            evaluations++;
+            return pGame.hashCode() % 7;
+        }
+    }
+
+    @Test
+    public void evaluatesEveryNodeOnce() {
+        final Game<ConnectGame> game = new Game<>(
+                GPS.wrap(ConnectGame.createConnect4()));
+        final CountingHeuristic heuristic = new CountingHeuristic();
+        final GameHeuristicComparator comparator = new GameHeuristicComparator(
+                heuristic, game.getPlayer());
+        final List<INode<ConnectGame>> successors = new Node<>(game)
+                .getSuccessors(MemorySavingMode.NONE);
+        successors.sort(comparator);
+
+        assertEquals(successors.size(), heuristic.evaluations);
+        assertEquals(successors.size(), comparator.getCache().getMisses());
+        assertTrue(comparator.getCache().getHitRate() > 0);
+        for (int i = 1; i < successors.size(); i++) {
+            assertTrue(heuristic.eval(successors.get(i - 1).getGame(),
+                    null) <= heuristic.eval(successors.get(i).getGame(),
+                            null));
+        }
+
+        comparator.getCache().clear();
+        assertEquals(0, comparator.getCache().size());
+        comparator.compare(successors.get(0), successors.get(1));
+        assertEquals(successors.size() + 2, comparator.getCache().getMisses());
+    }
+}
@@ -199,6 +199,56 @@ public class GameAnalyserTest {
         }
     }
 
+    @Test
+    public void adaptiveAnalysis() {
+        final GameAnalyser<Hanoi> ga = new GameAnalyser<>(
+                new GamesModule<>(new Game<>(GPS.wrap(new Hanoi(3)))));
+        ga.setAdaptive(true);
+        ga.setTolerance(0.1);
+        IGameAnalysisResult gra = ga.analyze();
+
+        if (gra.getAvgBranchingFactor() >= 6
+                || gra.getAvgBranchingFactor() <= 3) {
+            fail("Analysis result contained unexpected avg branching factor values for Hanoi");
+        }
+        // No path is completed if the analysis is stopped by a full heap
+        final boolean pathCompleted = gra.getDepthRange().getY() > 0;
+        if (gra.getAvgDepth() >= 1000
+                || (pathCompleted && gra.getAvgDepth() <= 0)) {
+            fail("Analysis result contained unexpected avg depth values for Hanoi");
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void adaptiveTimeBudget() {
+        final GameAnalyser<ConnectGame> ga = new GameAnalyser<>(
+                new GamesModule<>(new Game<>(
+                        GPS.wrap(ConnectGame.createConnect6()))));
+        ga.setAdaptive(true);
+        // can not be reached, so the time budget has to stop the analysis
+        ga.setTolerance(1e-9);
+        ga.setTimeBudget(500);
+        IGameAnalysisResult gra = ga.analyze();
+
+        assertEquals(2, gra.getPlayerNumber().get().intValue());
+        assertFalse(ga.isShutDown());
+    }
+
+    @Test(timeout = 20000)
+    public void adaptiveSkipsCutPaths() {
+        final GameAnalyser<ConnectGame> ga = new GameAnalyser<>(
+                new GamesModule<>(new Game<>(
+                        GPS.wrap(ConnectGame.createConnect6()))));
+        ga.setAdaptive(true);
+        ga.setTolerance(1e-9);
+        ga.setTimeBudget(500);
+        IGameAnalysisResult gra = ga.analyze();
+
+        // every path of connect 6 terminates unless the time budget cuts it
+        // off, so only terminated paths may be counted
+        assertEquals(1.0, gra.getTerminationRate(), 0);
+    }
+
     /**
      * Constant must match actual classification vector.
      */
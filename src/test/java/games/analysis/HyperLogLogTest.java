@@ -0,0 +1,68 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package games.analysis;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import gps.games.analysis.util.HyperLogLog;
+import gps.games.util.StateFingerprint;
+
+public class HyperLogLogTest {
+
+    @Test
+    public void estimateWithinError() {
+        HyperLogLog hll = new HyperLogLog(12);
+        final int distinct = 100000;
+        for (int i = 0; i < distinct; i++) {
+            // every value is added twice, duplicates must not be counted
+            hll.add(StateFingerprint.mix(i));
+            hll.add(StateFingerprint.mix(i));
+        }
+        assertEquals(distinct, hll.estimate(), distinct * 0.05);
+    }
+
+    @Test
+    public void smallCardinality() {
+        HyperLogLog hll = new HyperLogLog(12);
+        assertEquals(0, hll.estimate());
+        for (int i = 0; i < 10; i++) {
+            hll.add(StateFingerprint.mix(i));
+        }
+        assertEquals(10, hll.estimate(), 1);
+    }
+
+    @Test
+    public void mergeEqualsUnion() {
+        HyperLogLog a = new HyperLogLog(10);
+        HyperLogLog b = new HyperLogLog(10);
+        HyperLogLog union = new HyperLogLog(10);
+        for (int i = 0; i < 5000; i++) {
+            long hash = StateFingerprint.mix(i);
+            (i % 2 == 0 ? a : b).add(hash);
+            union.add(hash);
+        }
+        a.merge(b);
+        assertEquals(union.estimate(), a.estimate());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mergeDifferentPrecision() {
+        new HyperLogLog(10).merge(new HyperLogLog(12));
+    }
+}
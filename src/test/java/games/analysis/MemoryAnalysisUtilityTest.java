@@ -0,0 +1,60 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package games.analysis;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import gps.games.analysis.util.MemoryAnalysisUtility;
+
+public class MemoryAnalysisUtilityTest {
+
+    @Test
+    public void primitiveArray() {
+        long size = MemoryAnalysisUtility.estimateDeepSize(
+                Collections.singletonList(new long[1000]));
+        assertTrue(size >= 8000 && size <= 8032);
+    }
+
+    @Test
+    public void sharedObjectsCountedOnce() {
+        long[] shared = new long[1000];
+        long single = MemoryAnalysisUtility
+                .estimateDeepSize(Collections.singletonList(shared));
+        long twice = MemoryAnalysisUtility
+                .estimateDeepSize(Arrays.asList(shared, shared));
+        assertEquals(single, twice);
+
+        Object[] a = { shared };
+        Object[] b = { shared };
+        long both = MemoryAnalysisUtility.estimateDeepSize(Arrays.asList(a, b));
+        assertTrue(both < 2 * single);
+    }
+
+    @Test
+    public void sizePerObject() {
+        double perObject = MemoryAnalysisUtility.estimateSizePerObject(
+                Arrays.asList(new int[100], new int[100], new int[100]), 2);
+        assertTrue(perObject >= 400 && perObject <= 432);
+        assertEquals(0, MemoryAnalysisUtility
+                .estimateSizePerObject(Collections.emptyList(), 2), 0);
+    }
+}
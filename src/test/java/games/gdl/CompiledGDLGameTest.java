@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package games.gdl;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.ggp.base.util.gdl.factory.GdlFactory;
+import org.ggp.base.util.gdl.grammar.Gdl;
+import org.ggp.base.util.statemachine.MachineState;
+import org.ggp.base.util.statemachine.Move;
+import org.ggp.base.util.statemachine.Role;
+import org.ggp.base.util.statemachine.StateMachine;
+import org.ggp.base.util.statemachine.implementation.prover.ProverStateMachine;
+import org.junit.Before;
+import org.junit.Test;
+
+import gps.games.gdl.CompiledGDLGame;
+import gps.games.gdl.GDLCompiler;
+import gps.games.gdl.StanfordGDLGame.PlayerSwitchingMode;
+import gps.games.wrapper.Action;
+import gps.games.wrapper.Player;
+import gps.util.KryoHelper;
+
+public class CompiledGDLGameTest {
+
+    private CompiledGDLGame compiled;
+
+    private StateMachine prover;
+
+    @Before
+    public void setUp() throws Exception {
+        final List<Gdl> description = GdlFactory
+                .createList(StanfordGameTest.testFile);
+        compiled = GDLCompiler.compile(description);
+        compiled.setPlayerSwitchingMode(PlayerSwitchingMode.alternate);
+        prover = new ProverStateMachine();
+        prover.initialize(description);
+    }
+
+    @Test
+    public void sameAsProver() throws Exception {
+        final Random random = new Random(11);
+        final List<Role> roles = prover.getRoles();
+        assertEquals(roles, compiled.getRoles());
+        for (int game = 0; game < 20; game++) {
+            final CompiledGDLGame g = KryoHelper.deepCopy(compiled);
+            g.setCurrentState(prover.getInitialState());
+            MachineState q = prover.getInitialState();
+            while (true) {
+                assertEquals(q.getContents(), g.getCurrentState().getContents());
+                assertEquals(prover.isTerminal(q), g.isTerminal());
+                if (g.isTerminal()) {
+                    for (Role r : roles) {
+                        assertEquals(prover.getGoal(q, r),
+                                g.getUtility(new Player(r)).intValue());
+                    }
+                    break;
+                }
+                final List<Move> joint = new ArrayList<>();
+                for (Role r : roles) {
+                    assertEquals(r, g.getPlayer().get());
+                    final List<Action> actions = g.getActions();
+                    assertEquals(new HashSet<>(prover.getLegalMoves(q, r)),
+                            actions.stream().map(a -> (Move) a.get())
+                                    .collect(Collectors.toSet()));
+                    final Action a = actions
+                            .get(random.nextInt(actions.size()));
+                    joint.add((Move) a.get());
+                    g.applyAction(a);
+                }
+                q = prover.getNextState(q, joint);
+            }
+        }
+    }
+
+    @Test
+    public void copiesAreIndependent() {
+        final CompiledGDLGame copy = KryoHelper.deepCopy(compiled);
+        assertEquals(compiled, copy);
+        for (int i = 0; i < compiled.getRoles().size(); i++) {
+            copy.applyAction(copy.getActions().get(0));
+        }
+        assertNotEquals(compiled.getCurrentState().getContents(),
+                copy.getCurrentState().getContents());
+        assertFalse(compiled.equals(copy));
+    }
+}
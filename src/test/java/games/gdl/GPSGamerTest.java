@@ -0,0 +1,110 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package games.gdl;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.ggp.base.util.gdl.factory.GdlFactory;
+import org.ggp.base.util.statemachine.Role;
+import org.ggp.base.util.statemachine.StateMachine;
+import org.ggp.base.util.statemachine.implementation.prover.ProverStateMachine;
+import org.junit.Test;
+
+import gps.games.gdl.CompiledGDLGame;
+import gps.games.gdl.GPSGamer;
+
+public class GPSGamerTest {
+
+    @Test
+    public void runUntilReturnsAfterTheGracePeriod() throws Exception {
+        final GPSGamer gamer = new GPSGamer(ticTacToe());
+        final AtomicBoolean done = new AtomicBoolean();
+        final long start = System.currentTimeMillis();
+        final long end = start + 100 + 4 * GPSGamer.GRACE_PERIOD;
+        // ignores the interrupts until long after the grace period
+        gamer.runUntil(() -> {
+            while (System.currentTimeMillis() < end) {
+                Thread.yield();
+            }
+            done.set(true);
+        }, start + 100);
+        assertFalse(done.get());
+        assertTrue(System.currentTimeMillis() - start < 100
+                + 2 * GPSGamer.GRACE_PERIOD);
+
+        // the next search does not start before the stale one has finished
+        final AtomicBoolean overlapped = new AtomicBoolean(true);
+        gamer.runUntil(() -> overlapped.set(!done.get()),
+                System.currentTimeMillis() + 10 * GPSGamer.GRACE_PERIOD);
+        assertFalse(overlapped.get());
+    }
+
+    @Test
+    public void compilesTheGameForTheRole() throws Exception {
+        final String gdl = ticTacToe();
+        final GPSGamer gamer = new GPSGamer(gdl);
+        final StateMachine prover = new ProverStateMachine();
+        prover.initialize(GdlFactory.createList(gdl));
+        final Role black = prover.getRoles().get(1);
+
+        final Path tmpDir = Paths.get(System.getProperty("java.io.tmpdir"),
+                "gps");
+        final Set<Path> before = list(tmpDir);
+        gamer.compile(black);
+        // the generated classes are deleted once they are loaded
+        assertEquals(before, list(tmpDir));
+
+        final Object problem = gamer.nextSolver().getGame().getProblem();
+        assertTrue(problem instanceof CompiledGDLGame);
+        assertEquals(black, ((CompiledGDLGame) problem).getPlayer().get());
+    }
+
+    private static Set<Path> list(final Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return Collections.emptySet();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.collect(Collectors.toSet());
+        }
+    }
+
+    /**
+     * @return the description of tic-tac-toe without comments
+     */
+    static String ticTacToe() throws IOException {
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(
+                GPSGamerTest.class
+                        .getResourceAsStream("/gdl/stanfordTicTacToe.gdl"),
+                StandardCharsets.UTF_8))) {
+            return r.lines().map(l -> l.replaceAll(";.*", ""))
+                    .collect(Collectors.joining("\n"));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package games.gdl;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.ggp.base.util.gdl.factory.GdlFactory;
+import org.ggp.base.util.statemachine.MachineState;
+import org.ggp.base.util.statemachine.Move;
+import org.ggp.base.util.statemachine.Role;
+import org.ggp.base.util.statemachine.implementation.prover.ProverStateMachine;
+import org.junit.Before;
+import org.junit.Test;
+
+import gps.games.gdl.MemoizingStateMachine;
+
+public class MemoizingStateMachineTest {
+
+    private MemoizingStateMachine sm;
+
+    @Before
+    public void setUp() throws Exception {
+        sm = new MemoizingStateMachine(new ProverStateMachine(), 100);
+        sm.initialize(GdlFactory.createList(StanfordGameTest.testFile));
+    }
+
+    @Test
+    public void cachesQueries() throws Exception {
+        final MachineState s = sm.getInitialState();
+        final Role white = sm.getRoles().get(0);
+        assertFalse(sm.isTerminal(s));
+        final List<Move> legal = sm.getLegalMoves(s, white);
+        assertEquals(50, sm.getGoal(s, white));
+        assertEquals(3, sm.getMisses());
+        assertEquals(0, sm.getHits());
+
+        assertFalse(sm.isTerminal(s));
+        assertSame(legal, sm.getLegalMoves(s, white));
+        assertEquals(50, sm.getGoal(s, white));
+        assertEquals(3, sm.getMisses());
+        assertEquals(3, sm.getHits());
+
+        final List<Move> joint = sm.getRandomJointMove(s);
+        final MachineState next = sm.getNextState(s, joint);
+        assertSame(next, sm.getNextState(s, joint));
+        assertEquals(next, sm.getBackingStateMachine().getNextState(s, joint));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void legalMovesAreUnmodifiable() throws Exception {
+        final MachineState s = sm.getInitialState();
+        sm.getLegalMoves(s, sm.getRoles().get(0)).clear();
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package games.gdl;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.ggp.base.util.gdl.factory.GdlFactory;
+import org.ggp.base.util.gdl.grammar.Gdl;
+import org.ggp.base.util.statemachine.MachineState;
+import org.ggp.base.util.statemachine.Move;
+import org.ggp.base.util.statemachine.Role;
+import org.ggp.base.util.statemachine.StateMachine;
+import org.ggp.base.util.statemachine.implementation.prover.ProverStateMachine;
+import org.junit.Before;
+import org.junit.Test;
+
+import gps.games.gdl.PropNetStateMachine;
+
+public class PropNetStateMachineTest {
+
+    private PropNetStateMachine propNet;
+
+    private StateMachine prover;
+
+    @Before
+    public void setUp() throws Exception {
+        final List<Gdl> description = GdlFactory
+                .createList(StanfordGameTest.testFile);
+        propNet = new PropNetStateMachine();
+        propNet.initialize(description);
+        prover = new ProverStateMachine();
+        prover.initialize(description);
+    }
+
+    @Test
+    public void compiles() {
+        assertTrue(propNet.isCompiled());
+        assertEquals(prover.getRoles(), propNet.getRoles());
+    }
+
+    @Test
+    public void sameAsProver() throws Exception {
+        final Random random = new Random(7);
+        for (int game = 0; game < 20; game++) {
+            MachineState p = propNet.getInitialState();
+            MachineState q = prover.getInitialState();
+            while (true) {
+                assertEquals(q.getContents(), p.getContents());
+                assertEquals(prover.isTerminal(q), propNet.isTerminal(p));
+                if (propNet.isTerminal(p)) {
+                    for (Role r : propNet.getRoles()) {
+                        assertEquals(prover.getGoal(q, r),
+                                propNet.getGoal(p, r));
+                    }
+                    break;
+                }
+                final List<Move> joint = propNet.getRandomJointMove(p);
+                for (int i = 0; i < joint.size(); i++) {
+                    final Role r = propNet.getRoles().get(i);
+                    assertEquals(new HashSet<>(prover.getLegalMoves(q, r)),
+                            new HashSet<>(propNet.getLegalMoves(p, r)));
+                    final List<Move> legal = propNet.getLegalMoves(p, r);
+                    joint.set(i, legal.get(random.nextInt(legal.size())));
+                }
+                p = propNet.getNextState(p, joint);
+                q = prover.getNextState(q, joint);
+            }
+        }
+    }
+
+    @Test
+    public void acceptsForeignStates() throws Exception {
+        final MachineState q = prover.getInitialState();
+        final Role white = prover.getRoles().get(0);
+        assertFalse(propNet.isTerminal(q));
+        assertEquals(new HashSet<>(prover.getLegalMoves(q, white)),
+                new HashSet<>(propNet.getLegalMoves(q, white)));
+    }
+}
@@ -21,11 +21,16 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.ggp.base.util.gdl.factory.GdlFactory;
 import org.ggp.base.util.gdl.factory.exceptions.GdlFormatException;
+import org.ggp.base.util.statemachine.MachineState;
 import org.ggp.base.util.statemachine.StateMachine;
 import org.ggp.base.util.statemachine.implementation.prover.ProverStateMachine;
 import org.ggp.base.util.symbol.factory.exceptions.SymbolFormatException;
@@ -39,11 +44,12 @@ import gps.games.gdl.StanfordGDLGame;
 import gps.games.gdl.StanfordGDLGame.PlayerSwitchingMode;
 import gps.games.wrapper.Action;
 import gps.games.wrapper.Player;
+import gps.util.KryoHelper;
 
 public class StanfordGameTest {
     private StateMachine sm;
 
-    private String testFile = "\r\n" + "    (role white)\r\n"
+    static final String testFile = "\r\n" + "    (role white)\r\n"
             + "    (role black)\r\n" + "\r\n"
             + "    (<= (base (cell ?m ?n x)) (index ?m) (index ?n))\r\n"
             + "    (<= (base (cell ?m ?n o)) (index ?m) (index ?n))\r\n"
@@ -254,6 +260,52 @@ public class StanfordGameTest {
         assertEquals(100, game.getUtility(p2));
     }
 
+    @Test
+    public void testCopySharesStateMachine() {
+        StanfordGDLGame game = new StanfordGDLGame(sm);
+        game.setPlayerSwitchingMode(PlayerSwitchingMode.alternate);
+        makeMove(game, "( mark 3 1 )");
+        StanfordGDLGame copy = KryoHelper.deepCopy(game);
+        assertEquals(game.getCurrentState(), copy.getCurrentState());
+        assertEquals(game.getPlayer(), copy.getPlayer());
+        makeMove(copy, "noop");
+        assertFalse(game.getCurrentState().equals(copy.getCurrentState()));
+        assertFalse(game.getPlayer().equals(copy.getPlayer()));
+        makeMove(game, "noop");
+        assertEquals(game.getCurrentState(), copy.getCurrentState());
+    }
+
+    /**
+     * The prover is not thread safe, so copies that are played in other
+     * threads must not share it.
+     */
+    @Test
+    public void testCopiesInOtherThreads() throws Exception {
+        StanfordGDLGame game = new StanfordGDLGame(sm);
+        game.setPlayerSwitchingMode(PlayerSwitchingMode.alternate);
+        makeMove(game, "( mark 3 1 )");
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<MachineState>> states = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                final StanfordGDLGame copy = KryoHelper.deepCopy(game);
+                states.add(executor.submit(() -> {
+                    makeMove(copy, "noop");
+                    makeMove(copy, "( mark 2 2 )");
+                    assertEquals(50, copy.getUtility());
+                    return copy.getCurrentState();
+                }));
+            }
+            makeMove(game, "noop");
+            makeMove(game, "( mark 2 2 )");
+            for (Future<MachineState> state : states) {
+                assertEquals(game.getCurrentState(), state.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     /**
      * makes a given move in the given game
      * 
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016  Generic Problem Solver Project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package games.util;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.neuroph.core.NeuralNetwork;
+import org.neuroph.nnet.MultiLayerPerceptron;
+import org.neuroph.util.TransferFunctionType;
+
+import gps.games.util.FeedForwardNetwork;
+
+public class FeedForwardNetworkTest {
+
+    @Test
+    public void sameOutputAsSigmoidPerceptron() {
+        compare(new MultiLayerPerceptron(11, 20, 20, 7));
+    }
+
+    @Test
+    public void sameOutputAsTanhPerceptron() {
+        compare(new MultiLayerPerceptron(TransferFunctionType.TANH, 4, 9, 3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidInputSize() {
+        FeedForwardNetwork ffn = FeedForwardNetwork
+                .of(new MultiLayerPerceptron(3, 4, 2));
+        ffn.calculate(new double[2], new double[2]);
+    }
+
+    private static void compare(final NeuralNetwork<?> pNetwork) {
+        final Random random = new Random(42);
+        pNetwork.randomizeWeights(random);
+        final FeedForwardNetwork ffn = FeedForwardNetwork.of(pNetwork);
+        assertEquals(pNetwork.getInputsCount(), ffn.getInputSize());
+        assertEquals(pNetwork.getOutputsCount(), ffn.getOutputSize());
+
+        final double[] output = new double[ffn.getOutputSize()];
+        for (int run = 0; run < 20; run++) {
+            final double[] input = random.doubles(ffn.getInputSize(), -5, 5)
+                    .toArray();
+            pNetwork.setInput(input);
+            pNetwork.calculate();
+            ffn.calculate(input, output);
+            assertArrayEquals(pNetwork.getOutput(), output, 1e-9);
+        }
+    }
+}